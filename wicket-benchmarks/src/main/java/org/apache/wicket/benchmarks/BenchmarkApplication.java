@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import org.apache.wicket.extensions.Initializer;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.resource.loader.ClassStringResourceLoader;
+
+/**
+ * The application the benchmarked pages run in.
+ */
+public class BenchmarkApplication extends MockApplication
+{
+	@Override
+	protected void init()
+	{
+		super.init();
+
+		// the shaded benchmarks.jar has a single META-INF/wicket folder and Wicket reads only one
+		// properties file from it, so the resources of wicket-extensions have to be added explicitly
+		getResourceSettings().getStringResourceLoaders().add(
+			new ClassStringResourceLoader(Initializer.class));
+	}
+}
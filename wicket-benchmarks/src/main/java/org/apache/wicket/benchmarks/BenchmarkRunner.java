@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the JMH command line options and always adds the {@link GCProfiler}, so
+ * the allocation rate is reported next to the throughput.
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar SerializerBenchmark -p pageSize=LARGE
+ * </pre>
+ */
+public class BenchmarkRunner
+{
+	/**
+	 * @param args
+	 *            the JMH command line options
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		if (commandLineOptions.shouldHelp())
+		{
+			commandLineOptions.showHelp();
+			return;
+		}
+
+		Runner runner = new Runner(new OptionsBuilder().parent(commandLineOptions)
+			.addProfiler(GCProfiler.class)
+			.build());
+		if (commandLineOptions.shouldList())
+		{
+			runner.list();
+			return;
+		}
+		runner.run();
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.markup;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.benchmarks.BenchmarkApplication;
+import org.apache.wicket.markup.IMarkupCache;
+import org.apache.wicket.markup.Markup;
+import org.apache.wicket.markup.MarkupFactory;
+import org.apache.wicket.markup.MarkupParser;
+import org.apache.wicket.markup.MarkupResourceStream;
+import org.apache.wicket.markup.parser.CharArrayXmlPullParser;
+import org.apache.wicket.markup.parser.IXmlPullParser;
+import org.apache.wicket.markup.parser.IXmlPullParser.HttpTagType;
+import org.apache.wicket.markup.parser.XmlPullParser;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.BaseWicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parsing of markup: the {@link XmlPullParser} or {@link CharArrayXmlPullParser} on
+ * its own, the {@link MarkupParser} with its filter chain, and the {@link IMarkupCache} with cold
+ * and warm keys for a page with inherited markup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkupBenchmark
+{
+	@Param
+	private TemplateSize templateSize;
+
+	@Param({ "false", "true" })
+	private boolean charArrayParser;
+
+	private BaseWicketTester tester;
+
+	private String markup;
+
+	private IMarkupCache markupCache;
+
+	private InheritedMarkupPage page;
+
+	/**
+	 * Creates the markup and the page.
+	 */
+	@Setup
+	public void setup()
+	{
+		tester = new BaseWicketTester(new BenchmarkApplication());
+
+		markup = templateSize.createPageMarkup();
+		MarkupFactory.get().setUseCharArrayXmlPullParser(charArrayParser);
+		markupCache = MarkupFactory.get().getMarkupCache();
+		page = new InheritedMarkupPage(templateSize);
+	}
+
+	/**
+	 * Destroys the application.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		tester.destroy();
+	}
+
+	private IXmlPullParser newXmlPullParser()
+	{
+		return charArrayParser ? new CharArrayXmlPullParser() : new XmlPullParser();
+	}
+
+	/**
+	 * @return the number of elements
+	 * @throws Exception
+	 */
+	@Benchmark
+	public int xmlPullParser() throws Exception
+	{
+		IXmlPullParser parser = newXmlPullParser();
+		parser.parse(markup);
+
+		int count = 0;
+		while (parser.next() != HttpTagType.NOT_INITIALIZED)
+		{
+			// consume the raw markup like MarkupParser does
+			parser.setPositionMarker();
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the parsed markup
+	 * @throws Exception
+	 */
+	@Benchmark
+	public Markup markupParser() throws Exception
+	{
+		return new MarkupParser(newXmlPullParser(), new MarkupResourceStream(
+			new StringResourceStream(markup))).parse();
+	}
+
+	/**
+	 * @return the markup loaded, parsed and merged with the markup of the super class
+	 */
+	@Benchmark
+	public Markup markupCacheCold()
+	{
+		markupCache.clear();
+		return markupCache.getMarkup(page, page.getClass(), false);
+	}
+
+	/**
+	 * @return the cached markup
+	 */
+	@Benchmark
+	public Markup markupCacheWarm()
+	{
+		return markupCache.getMarkup(page, page.getClass(), false);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.markup;
+
+/**
+ * The size of the generated templates. Every section uses the markup handled by the filters of
+ * the markup parser: wicket ids, enclosures, inline enclosures, wicket:message, relative urls and
+ * plain html.
+ */
+public enum TemplateSize
+{
+	/** a small panel */
+	SMALL(5),
+
+	/** a typical page */
+	MEDIUM(50),
+
+	/** a huge generated page */
+	HUGE(1000);
+
+	private final int sections;
+
+	TemplateSize(int sections)
+	{
+		this.sections = sections;
+	}
+
+	/**
+	 * @return the markup of a page
+	 */
+	public String createPageMarkup()
+	{
+		StringBuilder markup = new StringBuilder();
+		markup.append("<!DOCTYPE html>\n");
+		markup.append("<html xmlns:wicket=\"http://wicket.apache.org\">\n");
+		markup.append("<head>\n\t<title>Benchmark</title>\n");
+		markup.append("\t<link rel=\"stylesheet\" type=\"text/css\" href=\"css/style.css\"/>\n");
+		markup.append("</head>\n<body>\n");
+		appendSections(markup, "base");
+		markup.append("\t<wicket:child/>\n");
+		markup.append("</body>\n</html>\n");
+		return markup.toString();
+	}
+
+	/**
+	 * @return the markup of a page extending the page of {@link #createPageMarkup()}
+	 */
+	public String createExtendMarkup()
+	{
+		StringBuilder markup = new StringBuilder();
+		markup.append("<wicket:extend xmlns:wicket=\"http://wicket.apache.org\">\n");
+		appendSections(markup, "child");
+		markup.append("</wicket:extend>\n");
+		return markup.toString();
+	}
+
+	private void appendSections(StringBuilder markup, String prefix)
+	{
+		for (int i = 0; i < sections; i++)
+		{
+			String id = prefix + i;
+			markup.append("\t<div wicket:id=\"").append(id).append("\" class=\"section\">\n");
+			markup.append("\t\t<h2><wicket:message key=\"title\">Title</wicket:message></h2>\n");
+			markup.append("\t\t<wicket:enclosure child=\"label\">\n");
+			markup.append("\t\t\t<span wicket:id=\"label\">label</span>\n");
+			markup.append("\t\t</wicket:enclosure>\n");
+			markup.append("\t\t<div wicket:enclosure=\"inline\"><span wicket:id=\"inline\"></span></div>\n");
+			markup.append("\t\t<a href=\"page.html\"><img src=\"img/logo.png\" alt=\"logo\"/></a>\n");
+			markup.append("\t\t<p>Some static text &amp; an entity in section ").append(i).append(
+				"</p>\n");
+			markup.append("\t\t<wicket:container wicket:id=\"items\"><li wicket:id=\"item\"></li></wicket:container>\n");
+			markup.append("\t</div>\n");
+		}
+	}
+}
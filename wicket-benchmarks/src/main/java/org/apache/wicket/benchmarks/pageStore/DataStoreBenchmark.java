@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.benchmarks.BenchmarkApplication;
+import org.apache.wicket.benchmarks.pages.BenchmarkPage;
+import org.apache.wicket.benchmarks.pages.PageSize;
+import org.apache.wicket.pageStore.IDataStore;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.apache.wicket.util.tester.BaseWicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the data stores on their own with the serialized bytes of a rendered page. The writes
+ * rotate over a window of page ids, like a user navigating through an application.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataStoreBenchmark
+{
+	private static final int PAGES = 20;
+
+	@Param
+	private PageSize pageSize;
+
+	@Param
+	private DataStoreType dataStoreType;
+
+	private File folder;
+
+	private IDataStore dataStore;
+
+	private byte[] data;
+
+	private int pageId;
+
+	/**
+	 * Serializes a rendered page and fills the data store.
+	 * 
+	 * @throws IOException
+	 */
+	@Setup
+	public void setup() throws IOException
+	{
+		BaseWicketTester tester = new BaseWicketTester(new BenchmarkApplication());
+		try
+		{
+			tester.startPage(new BenchmarkPage(pageSize));
+			data = new JavaSerializer(tester.getApplication().getApplicationKey()).serialize(tester.getLastRenderedPage());
+		}
+		finally
+		{
+			tester.destroy();
+		}
+
+		folder = Files.createTempDirectory("wicket-benchmarks").toFile();
+		dataStore = dataStoreType.create(folder, new BenchmarkPageManagerContext());
+		for (int i = 0; i < PAGES; i++)
+		{
+			dataStore.storeData(BenchmarkPageManagerContext.SESSION_ID, i, data);
+		}
+	}
+
+	/**
+	 * Destroys the data store and removes its files.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		dataStore.destroy();
+		org.apache.wicket.util.file.Files.removeFolder(folder);
+	}
+
+	/**
+	 * Stores the data of the next page.
+	 */
+	@Benchmark
+	public void storeData()
+	{
+		dataStore.storeData(BenchmarkPageManagerContext.SESSION_ID, nextPageId(), data);
+	}
+
+	/**
+	 * @return the data of the next page
+	 */
+	@Benchmark
+	public byte[] getData()
+	{
+		return dataStore.getData(BenchmarkPageManagerContext.SESSION_ID, nextPageId());
+	}
+
+	private int nextPageId()
+	{
+		pageId = (pageId + 1) % PAGES;
+		return pageId;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pageStore;
+
+import java.io.File;
+
+import org.apache.wicket.page.IPageManagerContext;
+import org.apache.wicket.pageStore.AsynchronousDataStore;
+import org.apache.wicket.pageStore.DiskDataStore;
+import org.apache.wicket.pageStore.IDataStore;
+import org.apache.wicket.pageStore.MappedDataStore;
+import org.apache.wicket.pageStore.memory.HttpSessionDataStore;
+import org.apache.wicket.pageStore.memory.PageNumberEvictionStrategy;
+import org.apache.wicket.util.lang.Bytes;
+
+/**
+ * The benchmarked data stores, configured like the defaults of
+ * {@link org.apache.wicket.settings.StoreSettings}.
+ */
+public enum DataStoreType
+{
+	/** {@link DiskDataStore} */
+	DISK {
+		@Override
+		IDataStore create(File folder, IPageManagerContext context)
+		{
+			return new DiskDataStore(APPLICATION_NAME, folder, MAX_SIZE_PER_SESSION);
+		}
+	},
+
+	/** {@link DiskDataStore} behind an {@link AsynchronousDataStore} */
+	ASYNCHRONOUS_DISK {
+		@Override
+		IDataStore create(File folder, IPageManagerContext context)
+		{
+			return new AsynchronousDataStore(DISK.create(folder, context), 100);
+		}
+	},
+
+	/** {@link MappedDataStore} */
+	MAPPED {
+		@Override
+		IDataStore create(File folder, IPageManagerContext context)
+		{
+			return new MappedDataStore(APPLICATION_NAME, folder, MAX_SIZE_PER_SESSION,
+				Bytes.megabytes(32));
+		}
+	},
+
+	/** {@link HttpSessionDataStore} */
+	HTTP_SESSION {
+		@Override
+		IDataStore create(File folder, IPageManagerContext context)
+		{
+			return new HttpSessionDataStore(context, new PageNumberEvictionStrategy(20));
+		}
+	};
+
+	private static final String APPLICATION_NAME = "benchmark";
+
+	private static final Bytes MAX_SIZE_PER_SESSION = Bytes.megabytes(10);
+
+	abstract IDataStore create(File folder, IPageManagerContext context);
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Page;
+import org.apache.wicket.benchmarks.BenchmarkApplication;
+import org.apache.wicket.benchmarks.pages.BenchmarkPage;
+import org.apache.wicket.benchmarks.pages.PageSize;
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.pageStore.DefaultPageStore;
+import org.apache.wicket.pageStore.IDataStore;
+import org.apache.wicket.pageStore.IPageStore;
+import org.apache.wicket.pageStore.PerSessionPageStore;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.apache.wicket.util.tester.BaseWicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the complete storage pipeline - serialization, caching and the data store - for the
+ * combinations of page stores and data stores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageStoreBenchmark
+{
+	/**
+	 * The benchmarked page stores
+	 */
+	public enum PageStoreType
+	{
+		/** {@link DefaultPageStore} */
+		DEFAULT {
+			@Override
+			IPageStore create(ISerializer serializer, IDataStore dataStore, int cacheSize)
+			{
+				return new DefaultPageStore(serializer, dataStore, cacheSize);
+			}
+		},
+
+		/** {@link PerSessionPageStore} */
+		PER_SESSION {
+			@Override
+			IPageStore create(ISerializer serializer, IDataStore dataStore, int cacheSize)
+			{
+				return new PerSessionPageStore(serializer, dataStore, cacheSize);
+			}
+		};
+
+		abstract IPageStore create(ISerializer serializer, IDataStore dataStore, int cacheSize);
+	}
+
+	@Param
+	private PageSize pageSize;
+
+	@Param
+	private PageStoreType pageStoreType;
+
+	@Param({ "DISK", "ASYNCHRONOUS_DISK", "HTTP_SESSION" })
+	private DataStoreType dataStoreType;
+
+	/**
+	 * The size of the second level cache, with zero every read goes to the data store
+	 */
+	@Param({ "0", "40" })
+	private int cacheSize;
+
+	private BaseWicketTester tester;
+
+	private File folder;
+
+	private IPageStore pageStore;
+
+	private Page page;
+
+	/**
+	 * Renders the page and stores it once.
+	 * 
+	 * @throws IOException
+	 */
+	@Setup
+	public void setup() throws IOException
+	{
+		tester = new BaseWicketTester(new BenchmarkApplication());
+		tester.startPage(new BenchmarkPage(pageSize));
+		page = tester.getLastRenderedPage();
+
+		folder = Files.createTempDirectory("wicket-benchmarks").toFile();
+		IDataStore dataStore = dataStoreType.create(folder, new BenchmarkPageManagerContext());
+		pageStore = pageStoreType.create(
+			new JavaSerializer(tester.getApplication().getApplicationKey()), dataStore, cacheSize);
+		pageStore.storePage(BenchmarkPageManagerContext.SESSION_ID, page);
+	}
+
+	/**
+	 * Destroys the page store and the application.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		pageStore.destroy();
+		org.apache.wicket.util.file.Files.removeFolder(folder);
+		tester.destroy();
+	}
+
+	/**
+	 * Stores the page.
+	 */
+	@Benchmark
+	public void storePage()
+	{
+		pageStore.storePage(BenchmarkPageManagerContext.SESSION_ID, page);
+	}
+
+	/**
+	 * @return the page
+	 */
+	@Benchmark
+	public IManageablePage getPage()
+	{
+		return pageStore.getPage(BenchmarkPageManagerContext.SESSION_ID, page.getPageId());
+	}
+}
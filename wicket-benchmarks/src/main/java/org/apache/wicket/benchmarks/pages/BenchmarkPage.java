@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.extensions.markup.html.repeater.data.table.DefaultDataTable;
+import org.apache.wicket.extensions.markup.html.repeater.data.table.IColumn;
+import org.apache.wicket.extensions.markup.html.repeater.data.table.PropertyColumn;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.PropertyListView;
+import org.apache.wicket.model.Model;
+
+/**
+ * A page with a list view, a data table and nested panels, sized by a {@link PageSize}.
+ */
+public class BenchmarkPage extends WebPage
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param size
+	 *            the size of the component tree
+	 */
+	public BenchmarkPage(PageSize size)
+	{
+		add(new Label("title", size.name()));
+
+		add(new PropertyListView<Row>("list", RowDataProvider.createRows(size.getRows()))
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void populateItem(ListItem<Row> item)
+			{
+				item.add(new Label("id"));
+				item.add(new Label("name"));
+				item.add(new Label("value"));
+			}
+		});
+
+		List<IColumn<Row, String>> columns = new ArrayList<>();
+		columns.add(new PropertyColumn<Row, String>(Model.of("Id"), "id", "id"));
+		columns.add(new PropertyColumn<Row, String>(Model.of("Name"), "name", "name"));
+		columns.add(new PropertyColumn<Row, String>(Model.of("Value"), "value"));
+		add(new DefaultDataTable<>("table", columns, new RowDataProvider(size.getRows()),
+			size.getRows()));
+
+		add(new NestedPanel("panel", size.getDepth()));
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pages;
+
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.panel.EmptyPanel;
+import org.apache.wicket.markup.html.panel.Panel;
+
+/**
+ * A panel which nests itself up to the given depth.
+ */
+public class NestedPanel extends Panel
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param id
+	 *            component id
+	 * @param depth
+	 *            the number of nested panels below this one
+	 */
+	public NestedPanel(String id, int depth)
+	{
+		super(id);
+
+		WebMarkupContainer container = new WebMarkupContainer("container");
+		add(container);
+		container.add(new Label("label", "depth " + depth));
+
+		if (depth > 0)
+		{
+			container.add(new NestedPanel("child", depth - 1));
+		}
+		else
+		{
+			container.add(new EmptyPanel("child"));
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pages;
+
+/**
+ * The size of the component tree of a {@link BenchmarkPage}.
+ */
+public enum PageSize
+{
+	/** a handful of rows and a shallow panel hierarchy */
+	SMALL(10, 2),
+
+	/** a typical list page */
+	MEDIUM(100, 4),
+
+	/** a big data grid with a deep panel hierarchy */
+	LARGE(1000, 8);
+
+	private final int rows;
+
+	private final int depth;
+
+	PageSize(int rows, int depth)
+	{
+		this.rows = rows;
+		this.depth = depth;
+	}
+
+	/**
+	 * @return the number of rows of the list view and the data table
+	 */
+	public int getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * @return the depth of the nested panels
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+}
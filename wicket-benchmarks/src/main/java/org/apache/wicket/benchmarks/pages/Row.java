@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pages;
+
+import java.io.Serializable;
+
+/**
+ * A row displayed by a {@link BenchmarkPage}.
+ */
+public class Row implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final int id;
+
+	private final String name;
+
+	private final double value;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param id
+	 *            the id of the row
+	 */
+	public Row(int id)
+	{
+		this.id = id;
+		name = "row " + id;
+		value = id * 1.5;
+	}
+
+	/**
+	 * @return the id
+	 */
+	public int getId()
+	{
+		return id;
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @return the value
+	 */
+	public double getValue()
+	{
+		return value;
+	}
+}
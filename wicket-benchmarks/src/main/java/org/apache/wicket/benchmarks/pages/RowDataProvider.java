@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pages;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.wicket.extensions.markup.html.repeater.util.SortableDataProvider;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
+
+/**
+ * Provides a fixed number of generated {@link Row}s.
+ */
+public class RowDataProvider extends SortableDataProvider<Row, String>
+{
+	private static final long serialVersionUID = 1L;
+
+	private final int count;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param count
+	 *            the number of rows
+	 */
+	public RowDataProvider(int count)
+	{
+		this.count = count;
+	}
+
+	/**
+	 * Creates the rows.
+	 * 
+	 * @param count
+	 *            the number of rows
+	 * @return rows
+	 */
+	public static List<Row> createRows(int count)
+	{
+		List<Row> rows = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			rows.add(new Row(i));
+		}
+		return rows;
+	}
+
+	@Override
+	public Iterator<? extends Row> iterator(long first, long count)
+	{
+		List<Row> rows = new ArrayList<>();
+		for (long i = first; i < first + count && i < this.count; i++)
+		{
+			rows.add(new Row((int)i));
+		}
+		return rows.iterator();
+	}
+
+	@Override
+	public long size()
+	{
+		return count;
+	}
+
+	@Override
+	public IModel<Row> model(Row object)
+	{
+		return Model.of(object);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.request;
+
+import java.io.Serializable;
+
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.form.EmailTextField;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.NumberTextField;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.html.panel.FeedbackPanel;
+import org.apache.wicket.model.CompoundPropertyModel;
+import org.apache.wicket.validation.validator.RangeValidator;
+import org.apache.wicket.validation.validator.StringValidator;
+
+/**
+ * A page with a validated form.
+ */
+public class FormBenchmarkPage extends WebPage
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Construct.
+	 */
+	public FormBenchmarkPage()
+	{
+		add(new FeedbackPanel("feedback"));
+
+		Form<Person> form = new Form<>("form", new CompoundPropertyModel<>(new Person()));
+		add(form);
+
+		form.add(new TextField<String>("fullName").setRequired(true).add(
+			StringValidator.lengthBetween(2, 50)));
+		form.add(new NumberTextField<Integer>("age").setRequired(true).add(
+			RangeValidator.range(0, 150)));
+		form.add(new EmailTextField("email").setRequired(true));
+	}
+
+	/**
+	 * The object edited by the form
+	 */
+	private static class Person implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		@SuppressWarnings("unused")
+		private String fullName;
+
+		@SuppressWarnings("unused")
+		private Integer age;
+
+		@SuppressWarnings("unused")
+		private String email;
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.request;
+
+import org.apache.wicket.Page;
+import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.extensions.Initializer;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.resource.loader.ClassStringResourceLoader;
+
+/**
+ * The application whose request cycles are benchmarked, configured for deployment with the default
+ * page and session stores.
+ */
+public class RequestCycleApplication extends WebApplication
+{
+	@Override
+	public Class<? extends Page> getHomePage()
+	{
+		return StatelessBenchmarkPage.class;
+	}
+
+	@Override
+	public RuntimeConfigurationType getConfigurationType()
+	{
+		return RuntimeConfigurationType.DEPLOYMENT;
+	}
+
+	@Override
+	protected void init()
+	{
+		super.init();
+
+		// see org.apache.wicket.benchmarks.BenchmarkApplication
+		getResourceSettings().getStringResourceLoaders().add(
+			new ClassStringResourceLoader(Initializer.class));
+
+		mountPage("stateless", StatelessBenchmarkPage.class);
+		mountPage("stateful", StatefulBenchmarkPage.class);
+		mountPage("form", FormBenchmarkPage.class);
+	}
+}
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.request;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.protocol.http.WicketFilter;
+import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.protocol.http.mock.MockHttpSession;
+import org.apache.wicket.protocol.http.mock.MockServletContext;
+import org.apache.wicket.request.Url;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures complete request cycles through {@link WicketFilter} with the mock servlet API. The
+ * latency is sampled, so JMH reports its percentiles, and the allocation per request is reported
+ * by the GC profiler.
+ * <p>
+ * Page renders follow the redirect of the default render strategy, so one operation is what a
+ * browser needs to show the page.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestCycleBenchmark
+{
+	private static final String FILTER_PREFIX = "/context/servlet/";
+
+	private static final Pattern AJAX_URL = Pattern.compile("\"u\":\"([^\"]+)\"");
+
+	private static final Pattern FORM_ACTION = Pattern.compile("<form[^>]* action=\"([^\"]+)\"");
+
+	private static final int MAX_REDIRECTS = 3;
+
+	private RequestCycleApplication application;
+
+	private MockServletContext servletContext;
+
+	private MockHttpSession httpSession;
+
+	private WicketFilter filter;
+
+	private String statefulPageUrl;
+
+	private String ajaxUrl;
+
+	private String formPageUrl;
+
+	private String formActionUrl;
+
+	/**
+	 * Starts the application and renders the stateful pages once to know their urls.
+	 * 
+	 * @throws Exception
+	 */
+	@Setup
+	public void setup() throws Exception
+	{
+		application = new RequestCycleApplication();
+		servletContext = new MockServletContext(application, null);
+		filter = new WicketFilter(application);
+		filter.init(false, new BenchmarkFilterConfig(servletContext));
+		httpSession = new MockHttpSession(servletContext);
+
+		Response stateful = get("stateful");
+		statefulPageUrl = stateful.url;
+		ajaxUrl = resolve(statefulPageUrl, find(AJAX_URL, stateful.document));
+
+		Response form = get("form");
+		formPageUrl = form.url;
+		formActionUrl = resolve(formPageUrl, find(FORM_ACTION, form.document));
+
+		if (ajaxLink().contains("<ajax-response>") == false)
+		{
+			throw new IllegalStateException("Ajax link " + ajaxUrl + " was not processed");
+		}
+		if (formSubmit().contains("feedbackPanelERROR"))
+		{
+			throw new IllegalStateException("Form submit " + formActionUrl + " did not validate");
+		}
+	}
+
+	/**
+	 * Destroys the application.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		filter.destroy();
+	}
+
+	/**
+	 * @return the rendered stateless page
+	 * @throws Exception
+	 */
+	@Benchmark
+	public String statelessPage() throws Exception
+	{
+		return get("stateless").document;
+	}
+
+	/**
+	 * @return a newly created and rendered stateful page
+	 * @throws Exception
+	 */
+	@Benchmark
+	public String statefulPage() throws Exception
+	{
+		return get("stateful").document;
+	}
+
+	/**
+	 * @return the response to a click on an Ajax link
+	 * @throws Exception
+	 */
+	@Benchmark
+	public String ajaxLink() throws Exception
+	{
+		MockHttpServletRequest request = newRequest("get", ajaxUrl);
+		request.setHeader("Wicket-Ajax", "true");
+		request.setHeader("Wicket-Ajax-BaseURL", statefulPageUrl);
+		return execute(request, ajaxUrl).document;
+	}
+
+	/**
+	 * @return the page rendered after the form has been submitted and validated
+	 * @throws Exception
+	 */
+	@Benchmark
+	public String formSubmit() throws Exception
+	{
+		MockHttpServletRequest request = newRequest("post", formActionUrl);
+		request.getPostParameters().setParameterValue("fullName", "Wicket");
+		request.getPostParameters().setParameterValue("age", "11");
+		request.getPostParameters().setParameterValue("email", "dev@wicket.apache.org");
+		Response response = execute(request, formActionUrl);
+
+		// the render count of the page is part of the action url
+		formActionUrl = resolve(response.url, find(FORM_ACTION, response.document));
+		return response.document;
+	}
+
+	/**
+	 * @return the content of a package resource
+	 * @throws Exception
+	 */
+	@Benchmark
+	public byte[] packageResource() throws Exception
+	{
+		return execute(
+			newRequest("get", "wicket/resource/" + StatelessBenchmarkPage.class.getName() +
+				"/benchmark.css"), null).content;
+	}
+
+	private Response get(String url) throws IOException, ServletException
+	{
+		return execute(newRequest("get", url), url);
+	}
+
+	private MockHttpServletRequest newRequest(String method, String url)
+	{
+		MockHttpServletRequest request = new MockHttpServletRequest(application, httpSession,
+			servletContext);
+		request.setMethod(method);
+		request.setURL(FILTER_PREFIX + url);
+		return request;
+	}
+
+	/**
+	 * Executes the request and follows the redirects.
+	 */
+	private Response execute(MockHttpServletRequest request, String url) throws IOException,
+		ServletException
+	{
+		for (int i = 0; i <= MAX_REDIRECTS; i++)
+		{
+			MockHttpServletResponse response = new MockHttpServletResponse(request);
+			filter.doFilter(request, response, null);
+
+			if (response.getStatus() == HttpServletResponse.SC_FOUND)
+			{
+				url = resolve(url, response.getRedirectLocation());
+				request = newRequest("get", url);
+			}
+			else if (response.getStatus() == HttpServletResponse.SC_OK)
+			{
+				return new Response(url, response);
+			}
+			else
+			{
+				throw new IllegalStateException("Unexpected status " + response.getStatus() +
+					" for " + request.getRequestURI());
+			}
+		}
+		throw new IllegalStateException("Too many redirects for " + url);
+	}
+
+	/**
+	 * Resolves an url found in a response against the filter relative url of the request.
+	 */
+	private static String resolve(String base, String location)
+	{
+		location = location.replace("&amp;", "&");
+		int filterPrefix = location.indexOf(FILTER_PREFIX);
+		if (filterPrefix != -1)
+		{
+			return location.substring(filterPrefix + FILTER_PREFIX.length());
+		}
+
+		Url url = Url.parse(base);
+		url.resolveRelative(Url.parse(location));
+		return url.toString();
+	}
+
+	private static String find(Pattern pattern, String document)
+	{
+		Matcher matcher = pattern.matcher(document);
+		if (matcher.find() == false)
+		{
+			throw new IllegalStateException("Pattern " + pattern + " not found in " + document);
+		}
+		return matcher.group(1);
+	}
+
+	/**
+	 * The filter relative url and the content of a response
+	 */
+	private static class Response
+	{
+		private final String url;
+
+		private final String document;
+
+		private final byte[] content;
+
+		private Response(String url, MockHttpServletResponse response)
+		{
+			this.url = url;
+			document = response.getDocument();
+			content = response.getBinaryContent();
+		}
+	}
+
+	/**
+	 * Maps the filter to the servlet path of {@link MockHttpServletRequest}
+	 */
+	private static class BenchmarkFilterConfig implements FilterConfig
+	{
+		private final ServletContext servletContext;
+
+		private BenchmarkFilterConfig(ServletContext servletContext)
+		{
+			this.servletContext = servletContext;
+		}
+
+		@Override
+		public String getFilterName()
+		{
+			return "benchmark";
+		}
+
+		@Override
+		public ServletContext getServletContext()
+		{
+			return servletContext;
+		}
+
+		@Override
+		public String getInitParameter(String name)
+		{
+			if (WicketFilter.FILTER_MAPPING_PARAM.equals(name))
+			{
+				return "/servlet/*";
+			}
+			return null;
+		}
+
+		@Override
+		public Enumeration<String> getInitParameterNames()
+		{
+			return Collections.enumeration(Collections.singleton(WicketFilter.FILTER_MAPPING_PARAM));
+		}
+	}
+}
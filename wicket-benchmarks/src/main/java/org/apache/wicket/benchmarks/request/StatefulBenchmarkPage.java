@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.request;
+
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
+import org.apache.wicket.benchmarks.pages.BenchmarkPage;
+import org.apache.wicket.benchmarks.pages.PageSize;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+
+/**
+ * A stateful {@link BenchmarkPage} with an Ajax link which updates a label.
+ */
+public class StatefulBenchmarkPage extends BenchmarkPage
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Construct.
+	 */
+	public StatefulBenchmarkPage()
+	{
+		super(PageSize.MEDIUM);
+
+		final Label time = new Label("time", new AbstractReadOnlyModel<Long>()
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Long getObject()
+			{
+				return System.nanoTime();
+			}
+		});
+		add(time.setOutputMarkupId(true));
+
+		add(new AjaxLink<Void>("link")
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void onClick(AjaxRequestTarget target)
+			{
+				target.add(time);
+			}
+		});
+	}
+}
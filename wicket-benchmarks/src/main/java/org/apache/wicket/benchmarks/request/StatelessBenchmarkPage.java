@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.request;
+
+import org.apache.wicket.benchmarks.pages.PageSize;
+import org.apache.wicket.benchmarks.pages.Row;
+import org.apache.wicket.benchmarks.pages.RowDataProvider;
+import org.apache.wicket.markup.head.CssHeaderItem;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.PropertyListView;
+import org.apache.wicket.request.resource.CssResourceReference;
+import org.apache.wicket.request.resource.ResourceReference;
+
+/**
+ * A stateless page with a list of rows and a package resource.
+ */
+public class StatelessBenchmarkPage extends WebPage
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The style sheet of the page
+	 */
+	public static final ResourceReference CSS = new CssResourceReference(
+		StatelessBenchmarkPage.class, "benchmark.css");
+
+	/**
+	 * Construct.
+	 */
+	public StatelessBenchmarkPage()
+	{
+		add(new PropertyListView<Row>("list",
+			RowDataProvider.createRows(PageSize.MEDIUM.getRows()))
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void populateItem(ListItem<Row> item)
+			{
+				item.add(new Label("id"));
+				item.add(new Label("name"));
+				item.add(new Label("value"));
+			}
+		});
+	}
+
+	@Override
+	public void renderHead(IHeaderResponse response)
+	{
+		super.renderHead(response);
+
+		response.render(CssHeaderItem.forReference(CSS));
+	}
+}
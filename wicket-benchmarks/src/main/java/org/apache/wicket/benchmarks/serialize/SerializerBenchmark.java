@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.serialize;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Page;
+import org.apache.wicket.benchmarks.BenchmarkApplication;
+import org.apache.wicket.benchmarks.pages.BenchmarkPage;
+import org.apache.wicket.benchmarks.pages.PageSize;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.serialize.java.CompactJavaSerializer;
+import org.apache.wicket.serialize.java.DeflatedJavaSerializer;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.apache.wicket.util.tester.BaseWicketTester;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the serialization and deserialization of rendered pages. The size of the serialized
+ * page is reported as the secondary result {@code serialize:bytesPerPage}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark
+{
+	/**
+	 * The benchmarked serializers
+	 */
+	public enum SerializerType
+	{
+		/** {@link JavaSerializer} */
+		JAVA {
+			@Override
+			ISerializer create(String applicationKey)
+			{
+				return new JavaSerializer(applicationKey);
+			}
+		},
+
+		/** {@link DeflatedJavaSerializer} */
+		DEFLATED {
+			@Override
+			ISerializer create(String applicationKey)
+			{
+				return new DeflatedJavaSerializer(applicationKey);
+			}
+		},
+
+		/** {@link CompactJavaSerializer} */
+		COMPACT {
+			@Override
+			ISerializer create(String applicationKey)
+			{
+				return new CompactJavaSerializer(applicationKey);
+			}
+		};
+
+		abstract ISerializer create(String applicationKey);
+	}
+
+	/**
+	 * Reports the size of the serialized page next to the throughput of {@link #serialize}
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class SerializedSize
+	{
+		/**
+		 * The number of bytes of the last serialized page
+		 */
+		public long bytesPerPage;
+	}
+
+	@Param
+	private PageSize pageSize;
+
+	@Param
+	private SerializerType serializerType;
+
+	private BaseWicketTester tester;
+
+	private ISerializer serializer;
+
+	private Page page;
+
+	private byte[] data;
+
+	/**
+	 * Renders the page and serializes it once.
+	 */
+	@Setup
+	public void setup()
+	{
+		tester = new BaseWicketTester(new BenchmarkApplication());
+		tester.startPage(new BenchmarkPage(pageSize));
+		page = tester.getLastRenderedPage();
+
+		serializer = serializerType.create(tester.getApplication().getApplicationKey());
+		data = serializer.serialize(page);
+	}
+
+	/**
+	 * Destroys the application.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		tester.destroy();
+	}
+
+	/**
+	 * @param size
+	 *            the counter of the size of the serialized page
+	 * @return the serialized page
+	 */
+	@Benchmark
+	public byte[] serialize(SerializedSize size)
+	{
+		byte[] serialized = serializer.serialize(page);
+		size.bytesPerPage = serialized.length;
+		return serialized;
+	}
+
+	/**
+	 * @return the deserialized page
+	 */
+	@Benchmark
+	public Object deserialize()
+	{
+		return serializer.deserialize(data);
+	}
+}
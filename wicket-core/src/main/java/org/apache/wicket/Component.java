@@ -62,6 +62,7 @@ import org.apache.wicket.markup.html.form.IFormSubmitListener;
 import org.apache.wicket.markup.html.internal.HtmlHeaderContainer;
 import org.apache.wicket.markup.html.panel.DefaultMarkupSourcingStrategy;
 import org.apache.wicket.markup.html.panel.IMarkupSourcingStrategy;
+import org.apache.wicket.markup.renderCache.RenderCacheBehavior;
 import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IComponentAssignedModel;
 import org.apache.wicket.model.IComponentInheritedModel;
@@ -313,8 +314,10 @@ public abstract class Component
 		}
 	};
 
+	/** True when a {@link RenderCacheBehavior} may be attached, see getRenderCacheBehavior() */
+	private static final int FLAG_RENDER_CACHE = 0x20000000;
+
 	/** an unused flag */
-	private static final int FLAG_UNUSED0 = 0x20000000;
 	private static final int FLAG_UNUSED1 = 0x800000;
 	private static final int FLAG_UNUSED2 = 0x1000000;
 	private static final int FLAG_UNUSED3 = 0x10000000;
@@ -942,6 +945,13 @@ public abstract class Component
 		if ((determineVisibility()) && !getFlag(FLAG_RENDERING) &&
 			!getFlag(FLAG_PREPARED_FOR_RENDER))
 		{
+			RenderCacheBehavior renderCache = getRenderCacheBehavior();
+			if (renderCache != null && renderCache.lookup(this))
+			{
+				// the cached output is rendered, so the children are not prepared
+				return;
+			}
+
 			setRequestFlag(RFLAG_BEFORE_RENDER_SUPER_CALL_VERIFIED, false);
 
 			getApplication().getComponentPreOnBeforeRenderListeners().onBeforeRender(this);
@@ -2375,9 +2385,18 @@ public abstract class Component
 
 			try
 			{
-				notifyBehaviorsComponentBeforeRender();
-				onRender();
-				notifyBehaviorsComponentRendered();
+				RenderCacheBehavior renderCache = getRenderCacheBehavior();
+				if (renderCache == null || renderCache.renderCached(this) == false)
+				{
+					notifyBehaviorsComponentBeforeRender();
+					onRender();
+					notifyBehaviorsComponentRendered();
+
+					if (renderCache != null)
+					{
+						renderCache.onRendered(this);
+					}
+				}
 
 				// Component has been rendered
 				rendered();
@@ -4546,6 +4565,13 @@ public abstract class Component
 	public Component add(final Behavior... behaviors)
 	{
 		new Behaviors(this).add(behaviors);
+		for (Behavior behavior : behaviors)
+		{
+			if (behavior instanceof RenderCacheBehavior)
+			{
+				setFlag(FLAG_RENDER_CACHE, true);
+			}
+		}
 		return this;
 	}
 
@@ -4560,6 +4586,34 @@ public abstract class Component
 		return getBehaviors(null);
 	}
 
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT!
+	 * 
+	 * @return the behavior caching the output of this component or {@code null}
+	 */
+	public final RenderCacheBehavior getRenderCacheBehavior()
+	{
+		if (getFlag(FLAG_RENDER_CACHE) == false)
+		{
+			// no need to scan the behaviors of the vast majority of components
+			return null;
+		}
+
+		final int len = data_length();
+		for (int i = data_start(); i < len; i++)
+		{
+			Object obj = data_get(i);
+			if (obj instanceof RenderCacheBehavior)
+			{
+				return (RenderCacheBehavior)obj;
+			}
+		}
+
+		// the behavior has been removed
+		setFlag(FLAG_RENDER_CACHE, false);
+		return null;
+	}
+
 	@Override
 	public boolean canCallListenerInterfaceAfterExpiry()
 	{
@@ -23,9 +23,11 @@ import org.apache.wicket.page.IPageManagerContext;
 import org.apache.wicket.page.PageStoreManager;
 import org.apache.wicket.pageStore.AsynchronousDataStore;
 import org.apache.wicket.pageStore.DefaultPageStore;
+import org.apache.wicket.pageStore.DeltaPageStore;
 import org.apache.wicket.pageStore.DiskDataStore;
 import org.apache.wicket.pageStore.IDataStore;
 import org.apache.wicket.pageStore.IPageStore;
+import org.apache.wicket.pageStore.MappedDataStore;
 import org.apache.wicket.serialize.ISerializer;
 import org.apache.wicket.settings.StoreSettings;
 import org.apache.wicket.util.lang.Args;
@@ -60,7 +62,8 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 		if (dataStore.canBeAsynchronous())
 		{
 			int capacity = storeSettings.getAsynchronousQueueCapacity();
-			dataStore = new AsynchronousDataStore(dataStore, capacity);
+			int threads = storeSettings.getAsynchronousThreadCount();
+			dataStore = new AsynchronousDataStore(dataStore, capacity, threads);
 		}
 
 		IPageStore pageStore = newPageStore(dataStore);
@@ -71,8 +74,15 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 	protected IPageStore newPageStore(IDataStore dataStore)
 	{
 		int inmemoryCacheSize = getStoreSettings().getInmemoryCacheSize();
+		Bytes inmemoryCacheMaxSize = getStoreSettings().getInmemoryCacheMaxSize();
 		ISerializer pageSerializer = application.getFrameworkSettings().getSerializer();
-		return new DefaultPageStore(pageSerializer, dataStore, inmemoryCacheSize);
+		if (getStoreSettings().isDeltaEncoded())
+		{
+			return new DeltaPageStore(pageSerializer, dataStore, inmemoryCacheSize,
+				inmemoryCacheMaxSize);
+		}
+		return new DefaultPageStore(pageSerializer, dataStore, inmemoryCacheSize,
+			inmemoryCacheMaxSize);
 //		return new PerSessionPageStore(pageSerializer, dataStore, inmemoryCacheSize);
 	}
 
@@ -82,6 +92,11 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 		Bytes maxSizePerSession = storeSettings.getMaxSizePerSession();
 		File fileStoreFolder = storeSettings.getFileStoreFolder();
 
+		if (storeSettings.isMemoryMapped())
+		{
+			return new MappedDataStore(application.getName(), fileStoreFolder, maxSizePerSession,
+				storeSettings.getSegmentSize());
+		}
 		return new DiskDataStore(application.getName(), fileStoreFolder, maxSizePerSession);
 	}
 
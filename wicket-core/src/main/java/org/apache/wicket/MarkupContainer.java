@@ -16,12 +16,19 @@
  */
 package org.apache.wicket;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.wicket.core.util.string.ComponentStrings;
 import org.apache.wicket.markup.ComponentTag;
@@ -47,6 +54,7 @@ import org.apache.wicket.util.lang.Classes;
 import org.apache.wicket.util.lang.Generics;
 import org.apache.wicket.util.string.Strings;
 import org.apache.wicket.util.visit.ClassVisitFilter;
+import org.apache.wicket.util.visit.IIndexedIterable;
 import org.apache.wicket.util.visit.IVisit;
 import org.apache.wicket.util.visit.IVisitor;
 import org.apache.wicket.util.visit.Visits;
@@ -94,13 +102,16 @@ import org.slf4j.LoggerFactory;
  * @author Jonathan Locke
  * 
  */
-public abstract class MarkupContainer extends Component implements Iterable<Component>
+public abstract class MarkupContainer extends Component implements IIndexedIterable<Component>
 {
 	private static final long serialVersionUID = 1L;
 
 	/** Log for reporting. */
 	private static final Logger log = LoggerFactory.getLogger(MarkupContainer.class);
 
+	/** container class -> whether it does not override {@link #iterator()} */
+	private static final ConcurrentMap<Class<?>, Boolean> INDEXED = new ConcurrentHashMap<>();
+
 	/** List of children or single child */
 	private Object children;
 
@@ -496,6 +507,11 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 	}
 
 	/**
+	 * Returns an iterator over the children in the order they were added. The iterator tolerates
+	 * children being added, replaced or removed while iterating: it continues after the child it
+	 * returned last (or the child that replaced it), or at the same position if that child was
+	 * removed itself.
+	 * 
 	 * @return Iterator that iterates through children in the order they were added
 	 */
 	@Override
@@ -505,25 +521,59 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		{
 			int index = 0;
 
+			Component last;
+
 			@Override
 			public boolean hasNext()
 			{
+				sync();
 				return index < children_size();
 			}
 
 			@Override
 			public Component next()
 			{
-				return children_get(index++);
+				sync();
+				last = children_get(index++);
+				return last;
 			}
 
 			@Override
 			public void remove()
 			{
+				sync();
 				final Component removed = children_remove(--index);
+				last = null;
 				checkHierarchyChange(removed);
 				removedComponent(removed);
 			}
+
+			/**
+			 * Moves the position back in line with the last returned child, in case the children
+			 * were modified since.
+			 */
+			private void sync()
+			{
+				if (last == null || (index <= children_size() && children_get(index - 1) == last))
+				{
+					return;
+				}
+				int position = children_indexOfIdentity(last);
+				if (position == -1)
+				{
+					position = children_indexOf(last);
+				}
+				if (position == -1)
+				{
+					// the last child was removed, its successor moved into its place
+					index = Math.min(index - 1, children_size());
+					last = null;
+				}
+				else
+				{
+					index = position + 1;
+				}
+			}
 		};
 	}
 
@@ -794,6 +844,7 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 	 * 
 	 * @return Number of children in this container
 	 */
+	@Override
 	public int size()
 	{
 		return children_size();
@@ -1019,11 +1070,38 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 	 * @throws ArrayIndexOutOfBoundsException
 	 * @return child component at the specified index
 	 */
+	@Override
 	public final Component get(int index)
 	{
 		return children_get(index);
 	}
 
+	/**
+	 * A container is traversed by position, unless its class overrides {@link #iterator()}, e.g.
+	 * to filter or reorder its children.
+	 * 
+	 * @return whether visitors may access the children by position
+	 */
+	@Override
+	public boolean isIndexed()
+	{
+		Class<?> type = getClass();
+		Boolean indexed = INDEXED.get(type);
+		if (indexed == null)
+		{
+			try
+			{
+				indexed = type.getMethod("iterator").getDeclaringClass() == MarkupContainer.class;
+			}
+			catch (NoSuchMethodException e)
+			{
+				indexed = Boolean.FALSE;
+			}
+			INDEXED.put(type, indexed);
+		}
+		return indexed;
+	}
+
 	/**
 	 * 
 	 * @param index
@@ -1103,21 +1181,14 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 				component = (Component)children;
 			}
 		}
+		else if (children instanceof ChildList)
+		{
+			component = ((ChildList)children).get(id);
+		}
 		else
 		{
-			Object[] children;
-			int size;
-			if (this.children instanceof ChildList)
-			{
-				children = ((ChildList)this.children).childs;
-				size = ((ChildList)this.children).size;
-			}
-			else
-			{
-				children = (Object[])this.children;
-				size = children.length;
-			}
-			for (int i = 0; i < size; i++)
+			Object[] children = (Object[])this.children;
+			for (int i = 0; i < children.length; i++)
 			{
 				if (getId(children[i]).equals(id))
 				{
@@ -1147,24 +1218,45 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 				return 0;
 			}
 		}
+		else if (children instanceof ChildList)
+		{
+			return ((ChildList)children).indexOf(child.getId());
+		}
 		else
 		{
-			int size;
-			Object[] children;
-			if (this.children instanceof Object[])
+			Object[] children = (Object[])this.children;
+			for (int i = 0; i < children.length; i++)
 			{
-				children = (Object[])this.children;
-				size = children.length;
-			}
-			else
-			{
-				children = ((ChildList)this.children).childs;
-				size = ((ChildList)this.children).size;
+				if (getId(children[i]).equals(child.getId()))
+				{
+					return i;
+				}
 			}
+		}
+		return -1;
+	}
 
-			for (int i = 0; i < size; i++)
+	/**
+	 * 
+	 * @param child
+	 * @return The index of exactly the given child instance
+	 */
+	private int children_indexOfIdentity(Component child)
+	{
+		if (children == child)
+		{
+			return 0;
+		}
+		else if (children instanceof ChildList)
+		{
+			return ((ChildList)children).indexOfIdentity(child);
+		}
+		else if (children instanceof Object[])
+		{
+			Object[] children = (Object[])this.children;
+			for (int i = 0; i < children.length; i++)
 			{
-				if (getId(children[i]).equals(child.getId()))
+				if (children[i] == child)
 				{
 					return i;
 				}
@@ -1366,7 +1458,8 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 	/**
 	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE OR OVERWRITE IT.
 	 * 
-	 * Renders the next element of markup in the given markup stream.
+	 * Renders the next element of markup in the given markup stream. Static markup of cached markup
+	 * is written by {@link #renderAll(MarkupStream, ComponentTag)} directly.
 	 * 
 	 * @param markupStream
 	 *            The markup stream
@@ -1597,6 +1690,15 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 				break;
 			}
 
+			// Cached markup provides consecutive raw markup in one piece
+			final CharSequence staticMarkup = markupStream.getStaticMarkup();
+			if (staticMarkup != null)
+			{
+				getResponse().write(staticMarkup);
+				markupStream.skipStaticMarkup();
+				continue;
+			}
+
 			// Remember where we are
 			final int index = markupStream.getCurrentIndex();
 
@@ -1770,13 +1872,24 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 	}
 
 	/**
-	 * 
+	 * List of children used once a container has more than one child. Containers with more than
+	 * {@link #INDEX_THRESHOLD} children additionally keep a hashed index from id to child, so
+	 * lookups, replacements and removals by id do not have to scan all children. The index is
+	 * transient and built lazily on the first lookup by id, not while the children are still being
+	 * deserialized. Only the occupied part of the array is serialized.
 	 */
 	private static class ChildList extends AbstractList<Object> implements IClusterable
 	{
-		private static final long serialVersionUID = -7861580911447631127L;
-		private int size;
-		private Object[] childs;
+		private static final long serialVersionUID = -7861580911447631128L;
+
+		/** number of children above which the hashed index is maintained */
+		static final int INDEX_THRESHOLD = 32;
+
+		private transient int size;
+		private transient Object[] childs;
+
+		/** children by id, <code>null</code> as long as the list is small */
+		private transient Map<String, Component> index;
 
 		/**
 		 * Construct.
@@ -1803,6 +1916,71 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			return childs[index];
 		}
 
+		/**
+		 * @param id
+		 * @return the child with the given id or <code>null</code>
+		 */
+		public Component get(String id)
+		{
+			Map<String, Component> index = getIndex();
+			if (index != null)
+			{
+				return index.get(id);
+			}
+			for (int i = 0; i < size; i++)
+			{
+				Component child = (Component)childs[i];
+				if (child.getId().equals(id))
+				{
+					return child;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * @param id
+		 * @return the position of the child with the given id or -1
+		 */
+		public int indexOf(String id)
+		{
+			Map<String, Component> index = getIndex();
+			if (index != null)
+			{
+				Component child = index.get(id);
+				return child == null ? -1 : indexOfIdentity(child);
+			}
+			for (int i = 0; i < size; i++)
+			{
+				if (((Component)childs[i]).getId().equals(id))
+				{
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @param child
+		 * @return the position of exactly this child instance or -1
+		 */
+		public int indexOfIdentity(Component child)
+		{
+			Map<String, Component> index = getIndex();
+			if (index != null && index.get(child.getId()) != child)
+			{
+				return -1;
+			}
+			for (int i = 0; i < size; i++)
+			{
+				if (childs[i] == child)
+				{
+					return i;
+				}
+			}
+			return -1;
+		}
+
 		@Override
 		public int size()
 		{
@@ -1814,6 +1992,7 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		{
 			ensureCapacity(size + 1);
 			childs[size++] = o;
+			indexAdded(o);
 			return true;
 		}
 
@@ -1829,6 +2008,7 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			System.arraycopy(childs, index, childs, index + 1, size - index);
 			childs[index] = element;
 			size++;
+			indexAdded(element);
 		}
 
 		@Override
@@ -1841,6 +2021,11 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 
 			Object oldValue = childs[index];
 			childs[index] = element;
+			if (this.index != null)
+			{
+				this.index.remove(((Component)oldValue).getId());
+				this.index.put(((Component)element).getId(), (Component)element);
+			}
 			return oldValue;
 		}
 
@@ -1861,6 +2046,17 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			}
 			childs[--size] = null; // Let gc do its work
 
+			if (this.index != null)
+			{
+				if (size < INDEX_THRESHOLD / 2)
+				{
+					this.index = null;
+				}
+				else
+				{
+					this.index.remove(((Component)oldValue).getId());
+				}
+			}
 			return oldValue;
 		}
 
@@ -1882,6 +2078,65 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 				System.arraycopy(oldData, 0, childs, 0, size);
 			}
 		}
+
+		/**
+		 * Registers an added child with the index, if it has been built already.
+		 * 
+		 * @param child
+		 */
+		private void indexAdded(Object child)
+		{
+			if (index != null)
+			{
+				index.put(((Component)child).getId(), (Component)child);
+			}
+		}
+
+		/**
+		 * Builds the index if the list is large enough to need one.
+		 * 
+		 * @return the index or <code>null</code> if the children have to be scanned
+		 */
+		private Map<String, Component> getIndex()
+		{
+			if (index == null && size > INDEX_THRESHOLD)
+			{
+				Map<String, Component> ids = new HashMap<>(size * 2);
+				for (int i = 0; i < size; i++)
+				{
+					String id = ((Component)childs[i]).getId();
+					if (id == null)
+					{
+						// a child which is still being deserialized
+						return null;
+					}
+					ids.put(id, (Component)childs[i]);
+				}
+				index = ids;
+			}
+			return index;
+		}
+
+		private void writeObject(ObjectOutputStream s) throws IOException
+		{
+			s.defaultWriteObject();
+			s.writeInt(size);
+			for (int i = 0; i < size; i++)
+			{
+				s.writeObject(childs[i]);
+			}
+		}
+
+		private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException
+		{
+			s.defaultReadObject();
+			size = s.readInt();
+			childs = new Object[Math.max(size, 3)];
+			for (int i = 0; i < size; i++)
+			{
+				childs[i] = s.readObject();
+			}
+		}
 	}
 
 	/**
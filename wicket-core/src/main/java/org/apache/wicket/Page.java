@@ -192,12 +192,13 @@ public abstract class Page extends MarkupContainer
 	}
 
 	/**
-	 * Adds a component to the set of rendered components.
+	 * Adds a component to the set of rendered components. Synchronized, since the children of a
+	 * {@link org.apache.wicket.markup.html.ParallelRenderContainer} are rendered concurrently.
 	 * 
 	 * @param component
 	 *            The component that was rendered
 	 */
-	public final void componentRendered(final Component component)
+	public final synchronized void componentRendered(final Component component)
 	{
 		// Inform the page that this component rendered
 		if (getApplication().getDebugSettings().getComponentUseCheck())
@@ -329,7 +330,7 @@ public abstract class Page extends MarkupContainer
 	 * 
 	 * @return A page unique number
 	 */
-	public final int getAutoIndex()
+	public final synchronized int getAutoIndex()
 	{
 		return autoIndex++;
 	}
@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.core.util.resource;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -24,6 +26,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.wicket.Application;
+import org.apache.wicket.util.file.Files;
 import org.apache.wicket.util.io.Connections;
 import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.lang.Args;
@@ -176,7 +179,20 @@ public class UrlResourceStream extends AbstractResourceStream
 		try
 		{
 			StreamData data = getData(true);
-			InputStream is = data.connection.getInputStream();
+			InputStream is = null;
+			if ("file".equals(url.getProtocol()))
+			{
+				// a file input stream can be transferred from its channel
+				File file = Files.getLocalFileFromUrl(url);
+				if (file != null && file.isFile())
+				{
+					is = new FileInputStream(file);
+				}
+			}
+			if (is == null)
+			{
+				is = data.connection.getInputStream();
+			}
 			if (data.inputStreams == null) {
 				data.inputStreams = new ArrayList<>();
 			}
@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.core.util.resource;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -68,6 +70,25 @@ public class WebExternalResourceStream extends AbstractResourceStream
 	@Override
 	public Bytes length()
 	{
+		File file = getFile();
+		return file != null ? Bytes.bytes(file.length()) : null;
+	}
+
+	/**
+	 * @return the file of the resource in an unpacked web application or <code>null</code>
+	 */
+	private File getFile()
+	{
+		final ServletContext context = ((WebApplication)Application.get()).getServletContext();
+		String realPath = context.getRealPath(url);
+		if (realPath != null)
+		{
+			File file = new File(realPath);
+			if (file.isFile())
+			{
+				return file;
+			}
+		}
 		return null;
 	}
 
@@ -111,6 +132,21 @@ public class WebExternalResourceStream extends AbstractResourceStream
 	{
 		final ServletContext context = ((WebApplication)Application.get()).getServletContext();
 
+		// prefer the file of an unpacked web application, it can be transferred from its channel
+		File file = getFile();
+		if (file != null)
+		{
+			try
+			{
+				in = new FileInputStream(file);
+				return in;
+			}
+			catch (FileNotFoundException e)
+			{
+				log.debug("Cannot open file " + file, e);
+			}
+		}
+
 		in = context.getResourceAsStream(url);
 		if (in == null)
 		{
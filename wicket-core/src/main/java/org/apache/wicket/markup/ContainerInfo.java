@@ -44,7 +44,7 @@ public class ContainerInfo
 	 */
 	public ContainerInfo(final MarkupContainer container)
 	{
-		this(container.getClass(), container.getLocale(), container.getStyle(),
+		this(PreloadMarkupContainer.classOf(container), container.getLocale(), container.getStyle(),
 			container.getVariation(), container.getMarkupType());
 	}
 
@@ -17,6 +17,7 @@
 package org.apache.wicket.markup;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -48,6 +49,9 @@ public class Markup extends AbstractMarkupFragment
 	/** The associated markup file */
 	private final MarkupResourceStream markupResourceStream;
 
+	/** The render plan, compiled when the markup is cached */
+	private volatile RenderPlan renderPlan;
+
 	/**
 	 * Take the markup string, parse it and return the Markup (list of MarkupElements).
 	 * <p>
@@ -204,6 +208,29 @@ public class Markup extends AbstractMarkupFragment
 		markupElements = Collections.unmodifiableList(markupElements);
 	}
 
+	/**
+	 * Compiles the render plan of this markup. Must be called only after all elements have been
+	 * added.
+	 * 
+	 * @param charset
+	 *            the charset to encode static markup with, may be null
+	 */
+	final void compileRenderPlan(final Charset charset)
+	{
+		if (renderPlan == null)
+		{
+			renderPlan = new RenderPlan(this, charset);
+		}
+	}
+
+	/**
+	 * @return the render plan, null if none has been compiled
+	 */
+	final RenderPlan getRenderPlan()
+	{
+		return renderPlan;
+	}
+
 	@Override
 	public final IMarkupFragment find(final String id)
 	{
@@ -16,6 +16,7 @@
  */
 package org.apache.wicket.markup;
 
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
@@ -379,6 +380,11 @@ public class MarkupCache implements IMarkupCache
 				{
 					markup = Markup.NO_MARKUP;
 				}
+				else if (markup != Markup.NO_MARKUP)
+				{
+					// cached markup doesn't change anymore
+					markup.compileRenderPlan(getStaticMarkupCharset());
+				}
 
 				markupCache.put(locationString, markup);
 			}
@@ -397,6 +403,19 @@ public class MarkupCache implements IMarkupCache
 		return markup;
 	}
 
+	/**
+	 * @return the charset to encode static markup with, null if it shouldn't be encoded
+	 */
+	private Charset getStaticMarkupCharset()
+	{
+		if (application.getMarkupSettings().getPreEncodeStaticMarkup())
+		{
+			return Charset.forName(application.getRequestCycleSettings()
+				.getResponseRequestEncoding());
+		}
+		return null;
+	}
+
 	/**
 	 * Wicket's default implementation just uses the cacheKey to retrieve the markup from the cache.
 	 * More sophisticated implementations may call a container method to e.g. ignore the cached
@@ -23,6 +23,7 @@ import org.apache.wicket.MarkupContainer;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.markup.loader.DefaultMarkupLoader;
 import org.apache.wicket.markup.loader.IMarkupLoader;
+import org.apache.wicket.markup.parser.CharArrayXmlPullParser;
 import org.apache.wicket.markup.parser.IMarkupFilter;
 import org.apache.wicket.markup.parser.IXmlPullParser;
 import org.apache.wicket.markup.parser.XmlPullParser;
@@ -53,6 +54,9 @@ public class MarkupFactory
 	/** The markup resource stream provider used by MarkupCache */
 	private IMarkupResourceStreamProvider markupResourceStreamProvider = null;
 
+	/** Whether markup is parsed by {@link CharArrayXmlPullParser} */
+	private boolean useCharArrayXmlPullParser = false;
+
 	/**
 	 * @return Gets the markup factory registered with the Wicket application
 	 */
@@ -122,12 +126,40 @@ public class MarkupFactory
 	 * Subclasses can override this to use custom parsers.
 	 * 
 	 * @return parser instance used by {@link MarkupParser} to parse markup.
+	 * @see #setUseCharArrayXmlPullParser(boolean)
 	 */
 	protected IXmlPullParser newXmlPullParser()
 	{
+		if (useCharArrayXmlPullParser)
+		{
+			return new CharArrayXmlPullParser();
+		}
 		return new XmlPullParser();
 	}
 
+	/**
+	 * Sets whether markup is parsed by {@link CharArrayXmlPullParser} instead of
+	 * {@link XmlPullParser}. Both produce the same markup, but the former doesn't use regular
+	 * expressions to parse tags and is considerably faster.
+	 * 
+	 * @param useCharArrayXmlPullParser
+	 *            {@code true} to use {@link CharArrayXmlPullParser}
+	 * @return {@code this}
+	 */
+	public MarkupFactory setUseCharArrayXmlPullParser(final boolean useCharArrayXmlPullParser)
+	{
+		this.useCharArrayXmlPullParser = useCharArrayXmlPullParser;
+		return this;
+	}
+
+	/**
+	 * @return whether markup is parsed by {@link CharArrayXmlPullParser}
+	 */
+	public boolean isUseCharArrayXmlPullParser()
+	{
+		return useCharArrayXmlPullParser;
+	}
+
 	/**
 	 * A callback method that is invoked prior to any {@link IMarkupFilter} being registered with
 	 * {@link MarkupParser}. Hence it allows to:
@@ -350,15 +382,17 @@ public class MarkupFactory
 	{
 		Args.notNull(container, "container");
 
+		Class<?> actualClass = PreloadMarkupContainer.classOf(container);
+
 		Class<?> containerClass = clazz;
 		if (clazz == null)
 		{
-			containerClass = container.getClass();
+			containerClass = actualClass;
 		}
-		else if (!clazz.isAssignableFrom(container.getClass()))
+		else if (!clazz.isAssignableFrom(actualClass))
 		{
 			throw new IllegalArgumentException("Parameter clazz must be an instance of " +
-				container.getClass().getName() + ", but is a " + clazz.getName());
+				actualClass.getName() + ", but is a " + clazz.getName());
 		}
 		return containerClass;
 	}
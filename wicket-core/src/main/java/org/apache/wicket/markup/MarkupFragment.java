@@ -108,15 +108,26 @@ public class MarkupFragment extends AbstractMarkupFragment
 		}
 		else
 		{
-			for (endIndex = startIndex + 1; endIndex < markupSize; endIndex++)
+			// cached markup knows its close tags
+			RenderPlan renderPlan = RenderPlan.of(markup);
+			if (renderPlan != null)
 			{
-				MarkupElement elem = markup.get(endIndex);
-				if (elem instanceof ComponentTag)
+				int offset = RenderPlan.offsetOf(markup);
+				int closeTagIndex = renderPlan.getCloseTagIndex(offset + startIndex);
+				endIndex = (closeTagIndex == -1) ? markupSize : closeTagIndex - offset;
+			}
+			else
+			{
+				for (endIndex = startIndex + 1; endIndex < markupSize; endIndex++)
 				{
-					ComponentTag tag = (ComponentTag)elem;
-					if (tag.closes(startTag))
+					MarkupElement elem = markup.get(endIndex);
+					if (elem instanceof ComponentTag)
 					{
-						break;
+						ComponentTag tag = (ComponentTag)elem;
+						if (tag.closes(startTag))
+						{
+							break;
+						}
 					}
 				}
 			}
@@ -174,6 +185,22 @@ public class MarkupFragment extends AbstractMarkupFragment
 		return markup;
 	}
 
+	/**
+	 * @return The index of the first element of this fragment in the underlying {@link Markup}, -1
+	 *         if the fragment isn't part of a {@link Markup}
+	 */
+	final int getRootIndex()
+	{
+		int index = startIndex;
+		IMarkupFragment parent = markup;
+		while (parent instanceof MarkupFragment)
+		{
+			index += ((MarkupFragment)parent).startIndex;
+			parent = ((MarkupFragment)parent).markup;
+		}
+		return (parent instanceof Markup) ? index : -1;
+	}
+
 	/**
 	 * @return The Markup representing the underlying markup file with all its content
 	 */
@@ -0,0 +1,432 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.IApplicationListener;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.application.IClassResolver;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.border.Border;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.mock.MockWebRequest;
+import org.apache.wicket.protocol.http.WebSession;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the markup of pages, panels and borders into the {@link IMarkupCache} at startup, so the
+ * first requests after a deployment don't have to parse it.
+ * <p>
+ * The classes are found by scanning packages on the classpath and/or are added explicitly. Their
+ * markup is loaded in parallel for every configured locale and style, without creating instances
+ * of the classes. The cache keys are resolved by the application's {@link IMarkupCacheKeyProvider}
+ * just like for a rendered component, hence classes which provide their own markup or cache keys
+ * are skipped.
+ * 
+ * <pre>
+ * getApplicationListeners().add(
+ * 	new MarkupPreloader().addPackages(&quot;com.example.web&quot;).setLocales(Locale.ENGLISH, Locale.GERMAN));
+ * </pre>
+ * 
+ * The markup of components which get a specific variation is not preloaded.
+ */
+public class MarkupPreloader implements IApplicationListener
+{
+	private static final Logger log = LoggerFactory.getLogger(MarkupPreloader.class);
+
+	private static final String CLASS_EXTENSION = ".class";
+
+	/**
+	 * Gets notified whenever the markup of a class has been loaded for a locale and style.
+	 */
+	public interface IProgressListener
+	{
+		/**
+		 * @param containerClass
+		 *            the class whose markup has been loaded
+		 * @param completed
+		 *            the number of completed loads
+		 * @param total
+		 *            the total number of loads
+		 */
+		void onProgress(Class<?> containerClass, int completed, int total);
+	}
+
+	private final Set<String> packageNames = new LinkedHashSet<>();
+
+	private final Set<Class<?>> classes = new LinkedHashSet<>();
+
+	private List<Locale> locales = Collections.singletonList(Locale.getDefault());
+
+	private List<String> styles = Collections.singletonList(null);
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private IProgressListener progressListener;
+
+	/**
+	 * Adds packages to scan for classes, including their sub packages.
+	 * 
+	 * @param packageNames
+	 *            the names of the packages
+	 * @return {@code this}
+	 */
+	public MarkupPreloader addPackages(final String... packageNames)
+	{
+		this.packageNames.addAll(Arrays.asList(packageNames));
+		return this;
+	}
+
+	/**
+	 * Adds classes whose markup should be loaded.
+	 * 
+	 * @param classes
+	 *            pages, panels or borders
+	 * @return {@code this}
+	 */
+	public MarkupPreloader addClasses(final Class<?>... classes)
+	{
+		for (Class<?> clazz : classes)
+		{
+			Args.isTrue(hasAssociatedMarkup(clazz), "%s is no page, panel or border",
+				clazz.getName());
+			this.classes.add(clazz);
+		}
+		return this;
+	}
+
+	/**
+	 * Sets the locales to load the markup for, defaults to the default locale of the JVM.
+	 * 
+	 * @param locales
+	 *            the locales
+	 * @return {@code this}
+	 */
+	public MarkupPreloader setLocales(final Locale... locales)
+	{
+		Args.isTrue(locales.length > 0, "locales must not be empty");
+		this.locales = Arrays.asList(locales);
+		return this;
+	}
+
+	/**
+	 * Sets the styles to load the markup for, defaults to no style.
+	 * 
+	 * @param styles
+	 *            the styles, {@code null} for no style
+	 * @return {@code this}
+	 */
+	public MarkupPreloader setStyles(final String... styles)
+	{
+		Args.isTrue(styles.length > 0, "styles must not be empty");
+		this.styles = Arrays.asList(styles);
+		return this;
+	}
+
+	/**
+	 * Sets the number of threads loading markup, defaults to the number of processors.
+	 * 
+	 * @param parallelism
+	 *            the number of threads
+	 * @return {@code this}
+	 */
+	public MarkupPreloader setParallelism(final int parallelism)
+	{
+		Args.withinRange(1, (int)Short.MAX_VALUE, parallelism, "parallelism");
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Sets a listener to report the progress to.
+	 * 
+	 * @param progressListener
+	 *            the listener
+	 * @return {@code this}
+	 */
+	public MarkupPreloader setProgressListener(final IProgressListener progressListener)
+	{
+		this.progressListener = progressListener;
+		return this;
+	}
+
+	@Override
+	public void onAfterInitialized(final Application application)
+	{
+		preload(application);
+	}
+
+	@Override
+	public void onBeforeDestroyed(final Application application)
+	{
+	}
+
+	/**
+	 * Loads the markup of all classes for all locales and styles, blocks until all markup has been
+	 * loaded.
+	 * 
+	 * @param application
+	 *            the application whose markup cache is filled
+	 * @return the number of markups found
+	 */
+	public int preload(final Application application)
+	{
+		final long start = System.currentTimeMillis();
+
+		Set<Class<?>> containerClasses = new LinkedHashSet<>(classes);
+		for (String packageName : packageNames)
+		{
+			scan(application.getApplicationSettings().getClassResolver(), packageName,
+				containerClasses);
+		}
+
+		final List<Callable<Void>> tasks = new ArrayList<>();
+		final AtomicInteger completed = new AtomicInteger();
+		final AtomicInteger found = new AtomicInteger();
+		for (Locale locale : locales)
+		{
+			for (String style : styles)
+			{
+				Session session = new WebSession(new MockWebRequest(new Url()));
+				session.setLocale(locale);
+				session.setStyle(style);
+
+				for (Class<?> containerClass : containerClasses)
+				{
+					tasks.add(new PreloadTask(application, session, containerClass, locale,
+						completed, found, tasks));
+				}
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try
+		{
+			pool.invokeAll(tasks);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+
+		log.info("Preloaded the markup of {} classes for {} locale(s) and {} style(s) in {} ms",
+			containerClasses.size(), locales.size(), styles.size(), System.currentTimeMillis() -
+				start);
+
+		return found.get();
+	}
+
+	/**
+	 * Whether the class is a concrete container with associated markup which is not provided by its
+	 * instances.
+	 */
+	private static boolean isPreloadable(final Class<?> clazz)
+	{
+		return hasAssociatedMarkup(clazz) && clazz.isInterface() == false &&
+			IMarkupResourceStreamProvider.class.isAssignableFrom(clazz) == false &&
+			IMarkupCacheKeyProvider.class.isAssignableFrom(clazz) == false;
+	}
+
+	private static boolean hasAssociatedMarkup(final Class<?> clazz)
+	{
+		return WebPage.class.isAssignableFrom(clazz) || Panel.class.isAssignableFrom(clazz) ||
+			Border.class.isAssignableFrom(clazz);
+	}
+
+	/**
+	 * Adds the preloadable classes in the package and its sub packages.
+	 */
+	private void scan(final IClassResolver classResolver, final String packageName,
+		final Set<Class<?>> containerClasses)
+	{
+		String path = packageName.replace('.', '/');
+
+		List<String> classNames = new ArrayList<>();
+		Iterator<URL> resources = classResolver.getResources(path);
+		while (resources.hasNext())
+		{
+			URL url = resources.next();
+			try
+			{
+				String protocol = url.getProtocol();
+				if ("file".equals(protocol))
+				{
+					scanFolder(new File(url.toURI()), packageName, classNames);
+				}
+				else if ("jar".equals(protocol) || "wsjar".equals(protocol))
+				{
+					JarFile jarFile = ((JarURLConnection)url.openConnection()).getJarFile();
+					Enumeration<JarEntry> entries = jarFile.entries();
+					while (entries.hasMoreElements())
+					{
+						String name = entries.nextElement().getName();
+						if (name.startsWith(path + '/') && name.endsWith(CLASS_EXTENSION))
+						{
+							classNames.add(name.substring(0, name.length() - CLASS_EXTENSION.length())
+								.replace('/', '.'));
+						}
+					}
+				}
+				else
+				{
+					log.warn("Unable to scan {} for markup to preload", url);
+				}
+			}
+			catch (IOException | URISyntaxException e)
+			{
+				log.warn("Unable to scan " + url + " for markup to preload", e);
+			}
+		}
+
+		for (String className : classNames)
+		{
+			try
+			{
+				Class<?> clazz = Class.forName(className, false, classResolver.getClassLoader());
+				if (isPreloadable(clazz))
+				{
+					containerClasses.add(clazz);
+				}
+			}
+			catch (ClassNotFoundException | LinkageError e)
+			{
+				log.debug("Skipping class {}: {}", className, e.getMessage());
+			}
+		}
+	}
+
+	private static void scanFolder(final File folder, final String packageName,
+		final List<String> classNames)
+	{
+		File[] files = folder.listFiles();
+		if (files == null)
+		{
+			return;
+		}
+
+		for (File file : files)
+		{
+			String name = file.getName();
+			if (file.isDirectory())
+			{
+				scanFolder(file, packageName + '.' + name, classNames);
+			}
+			else if (name.endsWith(CLASS_EXTENSION))
+			{
+				classNames.add(packageName + '.' +
+					name.substring(0, name.length() - CLASS_EXTENSION.length()));
+			}
+		}
+	}
+
+	/**
+	 * Loads the markup of a class for a locale and style.
+	 */
+	private class PreloadTask implements Callable<Void>
+	{
+		private final Application application;
+
+		private final Session session;
+
+		private final Class<?> containerClass;
+
+		private final Locale locale;
+
+		private final AtomicInteger completed;
+
+		private final AtomicInteger found;
+
+		private final List<?> tasks;
+
+		private PreloadTask(final Application application, final Session session,
+			final Class<?> containerClass, final Locale locale, final AtomicInteger completed,
+			final AtomicInteger found, final List<?> tasks)
+		{
+			this.application = application;
+			this.session = session;
+			this.containerClass = containerClass;
+			this.locale = locale;
+			this.completed = completed;
+			this.found = found;
+			this.tasks = tasks;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Void call()
+		{
+			ThreadContext previous = ThreadContext.detach();
+			try
+			{
+				ThreadContext.setApplication(application);
+				ThreadContext.setSession(session);
+
+				PreloadMarkupContainer container = new PreloadMarkupContainer(
+					(Class<? extends MarkupContainer>)containerClass, locale);
+				if (MarkupFactory.get().getMarkup(container, containerClass, false) != null)
+				{
+					found.incrementAndGet();
+				}
+			}
+			catch (RuntimeException e)
+			{
+				log.warn("Unable to preload the markup of " + containerClass.getName(), e);
+			}
+			finally
+			{
+				ThreadContext.restore(previous);
+
+				int count = completed.incrementAndGet();
+				if (progressListener != null)
+				{
+					progressListener.onProgress(containerClass, count, tasks.size());
+				}
+				else if (log.isDebugEnabled())
+				{
+					log.debug("Preloaded the markup of {} ({}/{})", containerClass.getName(),
+						count, tasks.size());
+				}
+			}
+			return null;
+		}
+	}
+}
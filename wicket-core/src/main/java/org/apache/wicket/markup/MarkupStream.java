@@ -54,6 +54,12 @@ public class MarkupStream
 	/** The markup element list */
 	private final IMarkupFragment markup;
 
+	/** The render plan of the underlying markup, null if it has none */
+	private final RenderPlan renderPlan;
+
+	/** The index of the first markup element in the render plan */
+	private final int renderPlanOffset;
+
 	/**
 	 * Constructor
 	 * 
@@ -66,6 +72,9 @@ public class MarkupStream
 
 		this.markup = markup;
 
+		renderPlan = RenderPlan.of(markup);
+		renderPlanOffset = (renderPlan != null) ? RenderPlan.offsetOf(markup) : 0;
+
 		if (markup.size() > 0)
 		{
 			current = get(currentIndex);
@@ -351,11 +360,20 @@ public class MarkupStream
 			// must have been detected by the HtmlHandler earlier on.
 			if (startTag.hasNoCloseTag() == false)
 			{
-				// Skip <tag>
-				next();
+				final int closeTagIndex = getCloseTagIndex();
+				if (closeTagIndex != -1)
+				{
+					// Skip <tag> and nested components in one step
+					setCurrentIndex(closeTagIndex);
+				}
+				else
+				{
+					// Skip <tag>
+					next();
 
-				// Skip nested components
-				skipToMatchingCloseTag(startTag);
+					// Skip nested components
+					skipToMatchingCloseTag(startTag);
+				}
 			}
 
 			// Skip </tag>
@@ -373,6 +391,52 @@ public class MarkupStream
 		}
 	}
 
+	/**
+	 * @return the index of the close tag for the open tag at the current position as known by the
+	 *         render plan, -1 if unknown
+	 */
+	private int getCloseTagIndex()
+	{
+		if (renderPlan != null)
+		{
+			final int closeTagIndex = renderPlan.getCloseTagIndex(renderPlanOffset + currentIndex);
+			if ((closeTagIndex != -1) && (closeTagIndex - renderPlanOffset < markup.size()))
+			{
+				return closeTagIndex - renderPlanOffset;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the raw markup at the current position merged with all raw markup directly following
+	 * it. This is available for cached markup only.
+	 * 
+	 * @return the static markup, null if the current element isn't raw markup or the markup isn't
+	 *         cached
+	 * @see #skipStaticMarkup()
+	 */
+	public final CharSequence getStaticMarkup()
+	{
+		if ((renderPlan != null) && (currentIndex < markup.size()))
+		{
+			return renderPlan.getStaticMarkup(renderPlanOffset + currentIndex);
+		}
+		return null;
+	}
+
+	/**
+	 * Skips the static markup returned by {@link #getStaticMarkup()}.
+	 */
+	public final void skipStaticMarkup()
+	{
+		final int end = renderPlan.getStaticEndIndex(renderPlanOffset + currentIndex) -
+			renderPlanOffset;
+
+		setCurrentIndex(Math.min(end, markup.size()) - 1);
+		next();
+	}
+
 	/**
 	 * Skips any raw markup at the current position
 	 */
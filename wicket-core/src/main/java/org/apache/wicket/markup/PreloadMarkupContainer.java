@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.util.Locale;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+
+/**
+ * A container which stands in for a component class while {@link MarkupPreloader} loads its markup
+ * without creating an instance of the class. {@link MarkupFactory} and {@link ContainerInfo} treat
+ * it as an instance of that class.
+ * 
+ * @see #classOf(MarkupContainer)
+ */
+class PreloadMarkupContainer extends WebMarkupContainer
+{
+	private static final long serialVersionUID = 1L;
+
+	private final Class<? extends MarkupContainer> containerClass;
+
+	private final Locale locale;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param containerClass
+	 *            the class whose markup is loaded
+	 * @param locale
+	 *            the locale of the markup
+	 */
+	PreloadMarkupContainer(final Class<? extends MarkupContainer> containerClass,
+		final Locale locale)
+	{
+		super("preload");
+
+		this.containerClass = containerClass;
+		this.locale = locale;
+	}
+
+	@Override
+	public Locale getLocale()
+	{
+		return locale;
+	}
+
+	@Override
+	public MarkupType getMarkupType()
+	{
+		return MarkupType.HTML_MARKUP_TYPE;
+	}
+
+	/**
+	 * @param container
+	 *            the container
+	 * @return the class the container stands for, usually its own class
+	 */
+	static Class<?> classOf(final MarkupContainer container)
+	{
+		if (container instanceof PreloadMarkupContainer)
+		{
+			return ((PreloadMarkupContainer)container).containerClass;
+		}
+		return container.getClass();
+	}
+}
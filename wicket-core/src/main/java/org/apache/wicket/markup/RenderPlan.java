@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.apache.wicket.response.EncodedCharSequence;
+import org.apache.wicket.util.string.AppendingStringBuffer;
+
+/**
+ * Rendering information about a {@link Markup}, which is computed once when the markup is put into
+ * the {@link MarkupCache}, so rendering doesn't have to walk the markup elements again and again:
+ * <ul>
+ * <li>the index of the close tag of every open tag, to skip the markup of a component in one step</li>
+ * <li>the merged text of consecutive {@link RawMarkup} elements, to write static markup in one go,
+ * optionally encoded in the response encoding already</li>
+ * </ul>
+ * As the plan belongs to the markup, it is discarded together with the markup when the cache entry
+ * is removed or reloaded.
+ * 
+ * @see MarkupStream#skipComponent()
+ * @see MarkupStream#getStaticMarkup()
+ */
+final class RenderPlan
+{
+	/** For every open tag with a close tag the index of its close tag, -1 otherwise */
+	private final int[] closeTagIndexes;
+
+	/** For every raw markup the index after the raw markup following it, -1 otherwise */
+	private final int[] staticEndIndexes;
+
+	/** For every raw markup its text merged with the raw markup following it */
+	private final CharSequence[] staticMarkups;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param markup
+	 *            the markup
+	 * @param charset
+	 *            the charset to encode static markup with, may be null
+	 * @see org.apache.wicket.settings.MarkupSettings#setPreEncodeStaticMarkup(boolean)
+	 */
+	RenderPlan(final Markup markup, final Charset charset)
+	{
+		final int size = markup.size();
+
+		closeTagIndexes = new int[size];
+		staticEndIndexes = new int[size];
+		staticMarkups = new CharSequence[size];
+		Arrays.fill(closeTagIndexes, -1);
+		Arrays.fill(staticEndIndexes, -1);
+
+		for (int index = 0; index < size; index++)
+		{
+			MarkupElement element = markup.get(index);
+			if (element instanceof ComponentTag)
+			{
+				ComponentTag tag = (ComponentTag)element;
+				if (tag.isOpen() && (tag.hasNoCloseTag() == false))
+				{
+					closeTagIndexes[index] = findCloseTag(markup, tag, index + 1);
+				}
+			}
+			else if (element instanceof RawMarkup)
+			{
+				int end = index + 1;
+				while ((end < size) && (markup.get(end) instanceof RawMarkup))
+				{
+					end++;
+				}
+
+				staticEndIndexes[index] = end;
+				CharSequence staticMarkup = merge(markup, index, end);
+				if (charset != null)
+				{
+					staticMarkup = new EncodedCharSequence(staticMarkup, charset);
+				}
+				staticMarkups[index] = staticMarkup;
+
+				// inside a run only the first element gets the merged text
+				for (int i = index + 1; i < end; i++)
+				{
+					staticEndIndexes[i] = i + 1;
+					staticMarkups[i] = markup.get(i).toCharSequence();
+				}
+				index = end - 1;
+			}
+		}
+	}
+
+	/**
+	 * @param markup
+	 *            a markup or fragment
+	 * @return the render plan of the underlying {@link Markup}, null if it has none
+	 */
+	static RenderPlan of(final IMarkupFragment markup)
+	{
+		if (markup instanceof Markup)
+		{
+			return ((Markup)markup).getRenderPlan();
+		}
+		else if ((markup instanceof MarkupFragment) && (((MarkupFragment)markup).getRootIndex() != -1))
+		{
+			return ((MarkupFragment)markup).getRootMarkup().getRenderPlan();
+		}
+		return null;
+	}
+
+	/**
+	 * @param markup
+	 *            a markup or fragment with a render plan
+	 * @return the index of the first element of the markup in the render plan
+	 */
+	static int offsetOf(final IMarkupFragment markup)
+	{
+		if (markup instanceof MarkupFragment)
+		{
+			return ((MarkupFragment)markup).getRootIndex();
+		}
+		return 0;
+	}
+
+	/**
+	 * Finds the close tag just like {@link MarkupStream#skipToMatchingCloseTag(ComponentTag)}.
+	 */
+	private static int findCloseTag(final Markup markup, final ComponentTag openTag, final int start)
+	{
+		for (int index = start; index < markup.size(); index++)
+		{
+			if (markup.get(index).closes(openTag))
+			{
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	private static CharSequence merge(final Markup markup, final int start, final int end)
+	{
+		if (end - start == 1)
+		{
+			return markup.get(start).toCharSequence();
+		}
+
+		int length = 0;
+		for (int i = start; i < end; i++)
+		{
+			length += markup.get(i).toCharSequence().length();
+		}
+
+		AppendingStringBuffer buffer = new AppendingStringBuffer(length);
+		for (int i = start; i < end; i++)
+		{
+			buffer.append(markup.get(i).toCharSequence());
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * @param index
+	 *            index of an element
+	 * @return the index of the close tag of the element, -1 if it isn't an open tag with close tag
+	 */
+	int getCloseTagIndex(final int index)
+	{
+		return closeTagIndexes[index];
+	}
+
+	/**
+	 * @param index
+	 *            index of an element
+	 * @return the index after the raw markup starting at the element, -1 if it isn't raw markup
+	 */
+	int getStaticEndIndex(final int index)
+	{
+		return staticEndIndexes[index];
+	}
+
+	/**
+	 * @param index
+	 *            index of an element
+	 * @return the raw markup starting at the element, null if it isn't raw markup
+	 */
+	CharSequence getStaticMarkup(final int index)
+	{
+		return staticMarkups[index];
+	}
+}
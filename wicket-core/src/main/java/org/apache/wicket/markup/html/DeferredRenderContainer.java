@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.html;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Page;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.core.util.string.JavaScriptUtils;
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.MarkupStream;
+import org.apache.wicket.protocol.http.StreamingWebResponse;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.request.cycle.AbstractRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.response.StringResponse;
+import org.apache.wicket.util.visit.IVisit;
+import org.apache.wicket.util.visit.IVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A container which renders its body after the rest of the page, so slow content does not hold
+ * back the page.
+ * <p>
+ * When the page is streamed (see
+ * {@link org.apache.wicket.settings.RequestCycleSettings#setStreamingRender(boolean)}), this
+ * container writes its tag with a placeholder body only. After the page has been written, the
+ * body is rendered and appended to the same response, together with a small script which moves
+ * it into the placeholder. Otherwise the body is rendered in place as usual.
+ * <p>
+ * Anything slow the body needs should be fetched in {@link #load()}, which is executed by
+ * {@link #getExecutor()} while the rest of the page renders. Only the {@link Application} and the
+ * {@link Session} are available there; components must not be touched. Header contributions of
+ * the body are rendered with the page's &lt;head&gt;, before {@link #load()} has finished.
+ * 
+ * <pre>
+ * add(new DeferredRenderContainer(&quot;report&quot;)
+ * {
+ * 	protected void load()
+ * 	{
+ * 		report = reportService.createReport();
+ * 	}
+ * 
+ * 	protected Executor getExecutor()
+ * 	{
+ * 		return MyApplication.get().getExecutor();
+ * 	}
+ * });
+ * </pre>
+ * 
+ * @see org.apache.wicket.protocol.http.StreamingWebResponse
+ */
+public class DeferredRenderContainer extends WebMarkupContainer
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger log = LoggerFactory.getLogger(DeferredRenderContainer.class);
+
+	private static final MetaDataKey<DeferredRendering> DEFERRED_RENDERING = new MetaDataKey<DeferredRendering>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	/** The response this container was deferred in, {@code null} if not deferred */
+	private transient StreamingWebResponse deferredResponse;
+
+	private transient FutureTask<Void> loading;
+
+	private transient boolean loaded;
+
+	private transient boolean renderingDeferred;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param id
+	 *            component id
+	 */
+	public DeferredRenderContainer(final String id)
+	{
+		super(id);
+
+		setOutputMarkupId(true);
+	}
+
+	/**
+	 * Loads what the body of this container needs before it is rendered. Called on a thread of
+	 * {@link #getExecutor()} if the body is deferred, otherwise on the request thread.
+	 * <p>
+	 * Does nothing by default.
+	 */
+	protected void load()
+	{
+	}
+
+	/**
+	 * The executor for {@link #load()} while the rest of the page renders.
+	 * 
+	 * @return executor, by default {@code null} to load on the request thread right before the body
+	 *         is rendered
+	 */
+	protected Executor getExecutor()
+	{
+		return null;
+	}
+
+	/**
+	 * The markup written into the placeholder, until the body is available.
+	 * 
+	 * @return markup, empty by default
+	 */
+	protected CharSequence getPlaceholderMarkup()
+	{
+		return "";
+	}
+
+	/**
+	 * Whether the body can be deferred.
+	 * 
+	 * @return {@code true} if the page is streamed and the tag of this container is rendered
+	 */
+	private boolean canDefer()
+	{
+		return (renderingDeferred == false) && (getResponse() instanceof StreamingWebResponse) &&
+			(getRenderBodyOnly() == false);
+	}
+
+	@Override
+	protected void onBeforeRender()
+	{
+		if (canDefer())
+		{
+			startLoading();
+		}
+		else
+		{
+			finishLoading();
+		}
+
+		super.onBeforeRender();
+	}
+
+	private void startLoading()
+	{
+		Executor executor = getExecutor();
+		if (executor != null && loading == null)
+		{
+			final Application application = Application.get();
+			final Session session = Session.exists() ? Session.get() : null;
+
+			loading = new FutureTask<Void>(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					ThreadContext previous = ThreadContext.detach();
+					ThreadContext.setApplication(application);
+					ThreadContext.setSession(session);
+					try
+					{
+						load();
+					}
+					finally
+					{
+						ThreadContext.restore(previous);
+					}
+				}
+			}, null);
+			executor.execute(loading);
+		}
+	}
+
+	private void finishLoading()
+	{
+		if (loaded)
+		{
+			return;
+		}
+
+		if (loading == null)
+		{
+			load();
+		}
+		else
+		{
+			try
+			{
+				loading.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new WicketRuntimeException("Interrupted while loading " + this, e);
+			}
+			catch (ExecutionException e)
+			{
+				throw new WicketRuntimeException("Loading failed for " + this, e.getCause());
+			}
+		}
+		loaded = true;
+	}
+
+	@Override
+	public void onComponentTagBody(final MarkupStream markupStream, final ComponentTag openTag)
+	{
+		if (canDefer() == false)
+		{
+			super.onComponentTagBody(markupStream, openTag);
+			return;
+		}
+
+		getResponse().write(getPlaceholderMarkup());
+		markupStream.skipToMatchingCloseTag(openTag);
+
+		// the children are rendered later
+		final Page page = getPage();
+		visitChildren(new IVisitor<Component, Void>()
+		{
+			@Override
+			public void component(Component component, IVisit<Void> visit)
+			{
+				page.componentRendered(component);
+			}
+		});
+
+		deferredResponse = (StreamingWebResponse)getResponse();
+
+		RequestCycle cycle = getRequestCycle();
+		DeferredRendering rendering = cycle.getMetaData(DEFERRED_RENDERING);
+		if (rendering == null)
+		{
+			rendering = new DeferredRendering();
+			cycle.setMetaData(DEFERRED_RENDERING, rendering);
+			cycle.getListeners().add(rendering);
+		}
+		rendering.containers.add(this);
+	}
+
+	/**
+	 * Renders the deferred body and appends it to the response.
+	 * 
+	 * @param response
+	 *            response the page was written to
+	 */
+	private void renderDeferred(final Response response)
+	{
+		if (deferredResponse == null || deferredResponse.isCommitted() == false)
+		{
+			// page was not written
+			return;
+		}
+		deferredResponse = null;
+
+		final RequestCycle cycle = getRequestCycle();
+		final StringResponse body = new StringResponse();
+		final Response originalResponse = cycle.setResponse(body);
+		final Page page = getPage();
+		renderingDeferred = true;
+		try
+		{
+			page.startComponentRender(this);
+			setRenderBodyOnly(true);
+
+			render();
+
+			page.endComponentRender(this);
+		}
+		finally
+		{
+			setRenderBodyOnly(false);
+			renderingDeferred = false;
+			cycle.setResponse(originalResponse);
+		}
+
+		CharSequence id = JavaScriptUtils.escapeQuotes(getMarkupId());
+		response.write("<div id=\"");
+		response.write(id);
+		response.write("--deferred\" style=\"display:none\">");
+		response.write(body.getBuffer());
+		response.write("</div><script type=\"text/javascript\">(function(){var s=document.getElementById('");
+		response.write(id);
+		response.write("--deferred'),t=document.getElementById('");
+		response.write(id);
+		response.write("');if(t){t.innerHTML='';while(s.firstChild){t.appendChild(s.firstChild);}}s.parentNode.removeChild(s);})();</script>");
+	}
+
+	@Override
+	protected void onDetach()
+	{
+		deferredResponse = null;
+		loading = null;
+		loaded = false;
+
+		super.onDetach();
+	}
+
+	/**
+	 * Renders all deferred containers once the page has been written.
+	 */
+	private static class DeferredRendering extends AbstractRequestCycleListener
+	{
+		private final List<DeferredRenderContainer> containers = new ArrayList<DeferredRenderContainer>();
+
+		@Override
+		public void onRequestHandlerExecuted(RequestCycle cycle, IRequestHandler handler)
+		{
+			Response response = cycle.getResponse();
+
+			for (DeferredRenderContainer container : containers)
+			{
+				try
+				{
+					container.renderDeferred(response);
+				}
+				catch (RuntimeException e)
+				{
+					// too late for an error page
+					log.error("Deferred rendering failed for " + container, e);
+				}
+			}
+			containers.clear();
+		}
+	}
+}
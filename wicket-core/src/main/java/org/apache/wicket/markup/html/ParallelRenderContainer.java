@@ -0,0 +1,375 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.html;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.MarkupElement;
+import org.apache.wicket.markup.MarkupStream;
+import org.apache.wicket.markup.WicketTag;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.cycle.RequestCycleContext;
+import org.apache.wicket.request.cycle.RequestCycleListenerCollection;
+import org.apache.wicket.response.StringResponse;
+
+/**
+ * A container which renders its children concurrently, each into a separate buffer, and writes
+ * the buffers in markup order. Useful for dashboards with many independent panels whose models
+ * are expensive to load.
+ * <p>
+ * The children are rendered by {@link #getExecutor()}, each with its own {@link RequestCycle}
+ * writing into its own response. This cycle shares the request, the active and scheduled request
+ * handlers, the listeners and the meta data with the cycle of the current request; it is never
+ * detached itself, the cycle of the current request is detached as usual. The {@link Application}
+ * and {@link Session} are shared. Header contributions are not affected: they are collected with
+ * the page's &lt;head&gt; before the body is rendered, in hierarchy order as usual.
+ * <p>
+ * If a child fails, the container waits for its siblings to finish - the ones not yet started are
+ * skipped - before the failure is rethrown on the request thread.
+ * <p>
+ * A container nested in a child that is rendered concurrently renders its own children
+ * sequentially, so nested containers cannot exhaust a bounded executor while waiting for it.
+ * <p>
+ * A child qualifies for concurrent rendering if
+ * <ul>
+ * <li>its tag is a direct child of this container's tag in the markup, and</li>
+ * <li>it and its descendants use their own models and state only, i.e. nothing that is shared with
+ * a sibling or the rest of the page, and</li>
+ * <li>it does not change component state, the component hierarchy, session state or request cycle
+ * meta data while rendering.</li>
+ * </ul>
+ * Feedback panels do not qualify, since they mark messages as rendered in the session.
+ * <p>
+ * If the body contains anything else than raw markup and tags of children, e.g.
+ * &lt;wicket:message&gt; or enclosures, or if there is no executor, the children are rendered
+ * sequentially as usual.
+ */
+public class ParallelRenderContainer extends WebMarkupContainer
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param id
+	 *            component id
+	 */
+	public ParallelRenderContainer(final String id)
+	{
+		super(id);
+	}
+
+	/**
+	 * The executor to render children with.
+	 * 
+	 * @return executor, by default {@code null} to render sequentially
+	 */
+	protected Executor getExecutor()
+	{
+		return null;
+	}
+
+	@Override
+	public void onComponentTagBody(final MarkupStream markupStream, final ComponentTag openTag)
+	{
+		Executor executor = getExecutor();
+		if ((executor == null) || (RequestCycle.get() instanceof ChildRequestCycle) ||
+			(canRenderConcurrently(markupStream, openTag) == false))
+		{
+			super.onComponentTagBody(markupStream, openTag);
+			return;
+		}
+
+		// raw markup and the rendering of children in markup order
+		List<Object> parts = new ArrayList<Object>();
+		AtomicBoolean failed = new AtomicBoolean();
+		while (markupStream.get().closes(openTag) == false)
+		{
+			MarkupElement element = markupStream.get();
+			if (element instanceof ComponentTag)
+			{
+				FutureTask<CharSequence> rendering = new FutureTask<CharSequence>(
+					new ChildRendering(get(((ComponentTag)element).getId()), failed));
+				executor.execute(rendering);
+				parts.add(rendering);
+
+				markupStream.skipComponent();
+			}
+			else
+			{
+				parts.add(element.toCharSequence());
+
+				markupStream.next();
+			}
+		}
+
+		Response response = getResponse();
+		RuntimeException failure = null;
+		for (Object part : parts)
+		{
+			if (part instanceof CharSequence)
+			{
+				if (failure == null)
+				{
+					response.write((CharSequence)part);
+				}
+			}
+			else
+			{
+				try
+				{
+					CharSequence rendered = getRendered((FutureTask<?>)part);
+					if (failure == null)
+					{
+						response.write(rendered);
+					}
+				}
+				catch (RuntimeException e)
+				{
+					// let the siblings not yet started skip rendering and wait for the others
+					failed.set(true);
+					if (failure == null)
+					{
+						failure = e;
+					}
+				}
+			}
+		}
+
+		if (failure != null)
+		{
+			throw failure;
+		}
+	}
+
+	/**
+	 * Checks whether the body consists of raw markup and tags of children only.
+	 */
+	private boolean canRenderConcurrently(final MarkupStream markupStream,
+		final ComponentTag openTag)
+	{
+		if (openTag.isOpen() == false)
+		{
+			return false;
+		}
+
+		final int index = markupStream.getCurrentIndex();
+		try
+		{
+			int children = 0;
+			while (markupStream.get().closes(openTag) == false)
+			{
+				MarkupElement element = markupStream.get();
+				if (element instanceof ComponentTag)
+				{
+					ComponentTag tag = (ComponentTag)element;
+					if ((tag instanceof WicketTag) || (get(tag.getId()) == null))
+					{
+						return false;
+					}
+					children++;
+
+					markupStream.skipComponent();
+				}
+				else
+				{
+					markupStream.next();
+				}
+			}
+			return children > 1;
+		}
+		finally
+		{
+			markupStream.setCurrentIndex(index);
+		}
+	}
+
+	private CharSequence getRendered(final FutureTask<?> rendering)
+	{
+		try
+		{
+			return (CharSequence)rendering.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new WicketRuntimeException("Interrupted while rendering " + this, e);
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException)e.getCause();
+			}
+			throw new WicketRuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Renders a child with its own request cycle.
+	 */
+	private static class ChildRendering implements Callable<CharSequence>
+	{
+		private final Component child;
+
+		private final AtomicBoolean failed;
+
+		private final Application application;
+
+		private final Session session;
+
+		private final RequestCycle cycle;
+
+		private final StringResponse response;
+
+		private ChildRendering(Component child, AtomicBoolean failed)
+		{
+			this.child = child;
+			this.failed = failed;
+
+			application = Application.get();
+			session = Session.exists() ? Session.get() : null;
+
+			final RequestCycle parentCycle = RequestCycle.get();
+			final Response parentResponse = parentCycle.getResponse();
+			response = new StringResponse()
+			{
+				@Override
+				public String encodeURL(CharSequence url)
+				{
+					return parentResponse.encodeURL(url);
+				}
+			};
+			cycle = new ChildRequestCycle(new RequestCycleContext(parentCycle.getRequest(),
+				response, application.getRootRequestMapper(),
+				application.getExceptionMapperProvider().get()), parentCycle);
+			cycle.getUrlRenderer().setBaseUrl(parentCycle.getUrlRenderer().getBaseUrl());
+		}
+
+		@Override
+		public CharSequence call() throws Exception
+		{
+			if (failed.get())
+			{
+				// a sibling has failed already
+				return "";
+			}
+
+			ThreadContext previous = ThreadContext.detach();
+			ThreadContext.setApplication(application);
+			ThreadContext.setSession(session);
+			ThreadContext.setRequestCycle(cycle);
+			try
+			{
+				child.render();
+
+				return response.getBuffer();
+			}
+			finally
+			{
+				ThreadContext.restore(previous);
+			}
+		}
+	}
+
+	/**
+	 * A request cycle which writes into its own response, but shares everything else with the
+	 * cycle of the current request.
+	 */
+	private static class ChildRequestCycle extends RequestCycle
+	{
+		private final RequestCycle parent;
+
+		private ChildRequestCycle(RequestCycleContext context, RequestCycle parent)
+		{
+			super(context);
+
+			this.parent = parent;
+		}
+
+		@Override
+		public Response getOriginalResponse()
+		{
+			return parent.getOriginalResponse();
+		}
+
+		@Override
+		public <T> RequestCycle setMetaData(MetaDataKey<T> key, T object)
+		{
+			parent.setMetaData(key, object);
+			return this;
+		}
+
+		@Override
+		public <T> T getMetaData(MetaDataKey<T> key)
+		{
+			return parent.getMetaData(key);
+		}
+
+		@Override
+		public Url mapUrlFor(IRequestHandler handler)
+		{
+			return parent.mapUrlFor(handler);
+		}
+
+		@Override
+		public RequestCycleListenerCollection getListeners()
+		{
+			return parent.getListeners();
+		}
+
+		@Override
+		public void scheduleRequestHandlerAfterCurrent(IRequestHandler handler)
+		{
+			parent.scheduleRequestHandlerAfterCurrent(handler);
+		}
+
+		@Override
+		public IRequestHandler getActiveRequestHandler()
+		{
+			return parent.getActiveRequestHandler();
+		}
+
+		@Override
+		public IRequestHandler getRequestHandlerScheduledAfterCurrent()
+		{
+			return parent.getRequestHandlerScheduledAfterCurrent();
+		}
+
+		@Override
+		public void replaceAllRequestHandlers(IRequestHandler handler)
+		{
+			parent.replaceAllRequestHandlers(handler);
+		}
+	}
+}
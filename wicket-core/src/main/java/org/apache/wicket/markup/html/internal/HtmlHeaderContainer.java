@@ -34,6 +34,7 @@ import org.apache.wicket.markup.head.internal.HeaderResponse;
 import org.apache.wicket.markup.html.TransparentWebMarkupContainer;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.renderStrategy.AbstractHeaderRenderStrategy;
+import org.apache.wicket.protocol.http.StreamingWebResponse;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.response.StringResponse;
 
@@ -193,6 +194,12 @@ public class HtmlHeaderContainer extends TransparentWebMarkupContainer
 					webResponse.write("</head>");
 				}
 			}
+
+			// all header contributions are known now, so a streaming page can send its head
+			if (webResponse instanceof StreamingWebResponse)
+			{
+				((StreamingWebResponse)webResponse).commit();
+			}
 		}
 		finally
 		{
@@ -353,6 +360,21 @@ public class HtmlHeaderContainer extends TransparentWebMarkupContainer
 		return headerResponse;
 	}
 
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT.
+	 * <p>
+	 * Replaces the header response, e.g. to record the contributions of a part of the component
+	 * tree.
+	 * 
+	 * @param headerResponse
+	 *            the header response
+	 * @see org.apache.wicket.markup.renderCache.RenderCacheBehavior
+	 */
+	public void setHeaderResponse(final IHeaderResponse headerResponse)
+	{
+		this.headerResponse = headerResponse;
+	}
+
 	@Override
 	public IMarkupFragment getMarkup()
 	{
@@ -0,0 +1,1006 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.parser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import org.apache.wicket.markup.parser.XmlTag.TagType;
+import org.apache.wicket.markup.parser.XmlTag.TextSegment;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.io.XmlReader;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.string.Strings;
+
+/**
+ * A markup pull parser which produces the same tags and raw markup as {@link XmlPullParser}, but
+ * scans the markup as a char array in a single pass instead of splitting tag names and attributes
+ * with regular expressions. The only strings created while parsing are the ones ending up in the
+ * markup: raw markup, tag names, attribute keys and values.
+ * 
+ * @see org.apache.wicket.markup.MarkupFactory#setUseCharArrayXmlPullParser(boolean)
+ */
+public final class CharArrayXmlPullParser implements IXmlPullParser
+{
+	/** The encoding of the XML. */
+	private String encoding;
+
+	/** The complete markup */
+	private char[] input = new char[0];
+
+	/** The number of chars in {@link #input} */
+	private int size;
+
+	/** The current position */
+	private int position;
+
+	/** The start of the next raw markup */
+	private int positionMarker;
+
+	/** The line number of {@link #lastLineCountIndex} */
+	private int lineNumber = 1;
+
+	/** The column number of {@link #lastLineCountIndex} */
+	private int columnNumber = 1;
+
+	/** The position up to which lines have been counted */
+	private int lastLineCountIndex;
+
+	/** temporary variable which will hold the name of the closing tag. */
+	private String skipUntilText;
+
+	/** The last substring selected from the input */
+	private CharSequence lastText;
+
+	/** Everything in between &lt;!DOCTYPE ... &gt; */
+	private CharSequence doctype;
+
+	/** The type of what is in lastText */
+	private HttpTagType lastType = HttpTagType.NOT_INITIALIZED;
+
+	/** The last tag found */
+	private XmlTag lastTag;
+
+	/**
+	 * Construct.
+	 */
+	public CharArrayXmlPullParser()
+	{
+	}
+
+	@Override
+	public String getEncoding()
+	{
+		return encoding;
+	}
+
+	@Override
+	public CharSequence getDoctype()
+	{
+		return doctype;
+	}
+
+	@Override
+	public CharSequence getInputFromPositionMarker(final int toPos)
+	{
+		if (toPos < 0)
+		{
+			return substring(positionMarker, size);
+		}
+		else if (toPos < positionMarker)
+		{
+			return "";
+		}
+		return substring(positionMarker, toPos);
+	}
+
+	@Override
+	public CharSequence getInput(final int fromPos, final int toPos)
+	{
+		return substring(fromPos, toPos);
+	}
+
+	@Override
+	public XmlTag getElement()
+	{
+		return lastTag;
+	}
+
+	@Override
+	public CharSequence getString()
+	{
+		return lastText;
+	}
+
+	@Override
+	public void setPositionMarker()
+	{
+		positionMarker = position;
+	}
+
+	@Override
+	public void setPositionMarker(final int pos)
+	{
+		positionMarker = pos;
+	}
+
+	@Override
+	public String toString()
+	{
+		return substring(0, size);
+	}
+
+	@Override
+	public void parse(final CharSequence string) throws IOException
+	{
+		Args.notNull(string, "string");
+
+		init(string.toString().toCharArray(), string.length());
+		encoding = null;
+	}
+
+	/**
+	 * Reads and parses markup from an input stream, using UTF-8 encoding by default when not
+	 * specified in XML declaration.
+	 * 
+	 * @param in
+	 *            The input stream to read and parse
+	 * @throws IOException
+	 * 
+	 * @see {@link #parse(InputStream, String)}
+	 */
+	@Override
+	public void parse(final InputStream in) throws IOException
+	{
+		// When XML declaration does not specify encoding, it defaults to UTF-8
+		parse(in, "UTF-8");
+	}
+
+	/**
+	 * Reads and parses markup from an input stream.
+	 * <p>
+	 * Note: The input is closed after parsing.
+	 * 
+	 * @param inputStream
+	 *            The input stream to read and parse
+	 * @param encoding
+	 *            The default character encoding of the input
+	 * @throws IOException
+	 */
+	@Override
+	public void parse(final InputStream inputStream, final String encoding) throws IOException
+	{
+		Args.notNull(inputStream, "inputStream");
+
+		try
+		{
+			XmlReader xmlReader = new XmlReader(new BufferedInputStream(inputStream, 4000),
+				encoding);
+			read(xmlReader);
+			this.encoding = xmlReader.getEncoding();
+		}
+		finally
+		{
+			IOUtils.closeQuietly(inputStream);
+		}
+	}
+
+	/**
+	 * Reads the complete markup into the char array.
+	 * 
+	 * @param reader
+	 * @throws IOException
+	 */
+	private void read(final Reader reader) throws IOException
+	{
+		char[] buffer = new char[4096];
+		int length = 0;
+		int read;
+		while ((read = reader.read(buffer, length, buffer.length - length)) != -1)
+		{
+			length += read;
+			if (length == buffer.length)
+			{
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+		}
+		init(buffer, length);
+	}
+
+	private void init(final char[] chars, final int length)
+	{
+		input = chars;
+		size = length;
+		position = 0;
+		positionMarker = 0;
+		lineNumber = 1;
+		columnNumber = 1;
+		lastLineCountIndex = 0;
+		skipUntilText = null;
+		lastText = null;
+		doctype = null;
+		lastType = HttpTagType.NOT_INITIALIZED;
+		lastTag = null;
+	}
+
+	@Override
+	public HttpTagType next() throws ParseException
+	{
+		// Reached end of markup file?
+		if (position >= size)
+		{
+			return HttpTagType.NOT_INITIALIZED;
+		}
+
+		if (skipUntilText != null)
+		{
+			skipUntil();
+			return lastType;
+		}
+
+		// Any more tags in the markup?
+		final int openBracketIndex = indexOf('<', position);
+
+		// Tag or Body?
+		if (input[position] != '<')
+		{
+			// It's a BODY
+			if (openBracketIndex == -1)
+			{
+				// There is no next matching tag.
+				lastText = getInputFromPositionMarker(-1);
+				position = size;
+			}
+			else
+			{
+				lastText = getInputFromPositionMarker(openBracketIndex);
+				position = openBracketIndex;
+			}
+			lastType = HttpTagType.BODY;
+			return lastType;
+		}
+
+		// Determine the line number
+		countLinesTo(openBracketIndex);
+
+		// Get index of closing tag and advance past the tag
+		int closeBracketIndex = -1;
+		if (openBracketIndex < size - 1)
+		{
+			char nextChar = input[openBracketIndex + 1];
+			if ((nextChar == '!') || (nextChar == '?'))
+			{
+				closeBracketIndex = indexOf('>', openBracketIndex);
+			}
+			else
+			{
+				closeBracketIndex = findOutOfQuotes('>', openBracketIndex);
+			}
+		}
+
+		if (closeBracketIndex == -1)
+		{
+			throw new ParseException("No matching close bracket at" + getLineAndColumnText(),
+				position);
+		}
+
+		// Get the complete tag text
+		lastText = substring(openBracketIndex, closeBracketIndex + 1);
+
+		// The tag text is in between start and end
+		int start = openBracketIndex + 1;
+		int end = closeBracketIndex;
+		if (start == end)
+		{
+			throw new ParseException("Found empty tag: '<>' at" + getLineAndColumnText(), position);
+		}
+
+		// Type of the tag, to be determined next
+		final TagType type;
+
+		if (input[end - 1] == '/')
+		{
+			// If the tag ends in '/', it's a "simple" tag like <foo/>
+			type = TagType.OPEN_CLOSE;
+			end--;
+		}
+		else if (input[start] == '/')
+		{
+			// The tag text starts with a '/', it's a simple close tag
+			type = TagType.CLOSE;
+			start++;
+		}
+		else
+		{
+			// It must be an open tag
+			type = TagType.OPEN;
+
+			// If open tag and starts with "s" like "script" or "style", than ...
+			if ((end - start > XmlPullParser.STYLE.length()) &&
+				((input[start] == 's') || (input[start] == 'S')))
+			{
+				if (regionMatchesIgnoreCase(start, end, XmlPullParser.SCRIPT))
+				{
+					int idxOfType = indexOfIgnoreCase("type=", start, end);
+					if (idxOfType > start)
+					{
+						// +1 to skip the ' or "
+						if (regionMatchesIgnoreCase(idxOfType + 6, end, "text/javascript"))
+						{
+							// prepare to skip everything between the open and close tag
+							skipUntilText = XmlPullParser.SCRIPT;
+						}
+						// any other type is assumed to be a template so it can contain child nodes.
+						// See WICKET-5288
+					}
+					else
+					{
+						// no type attribute so it is 'text/javascript'
+						// prepare to skip everything between the open and close tag
+						skipUntilText = XmlPullParser.SCRIPT;
+					}
+				}
+				else if (regionMatchesIgnoreCase(start, end, XmlPullParser.STYLE))
+				{
+					// prepare to skip everything between the open and close tag
+					skipUntilText = XmlPullParser.STYLE;
+				}
+			}
+		}
+
+		if (start >= end)
+		{
+			throw new ParseException("Malformed tag" + getLineAndColumnText(), openBracketIndex);
+		}
+
+		// Handle special tags like <!-- and <![CDATA ...
+		final char firstChar = input[start];
+		if ((firstChar == '!') || (firstChar == '?'))
+		{
+			specialTagHandling(substring(start, end), openBracketIndex, closeBracketIndex);
+
+			countLinesTo(openBracketIndex);
+			TextSegment text = new TextSegment(lastText, openBracketIndex, lineNumber,
+				columnNumber);
+			lastTag = new XmlTag(text, type);
+
+			return lastType;
+		}
+
+		TextSegment text = new TextSegment(lastText, openBracketIndex, lineNumber, columnNumber);
+		XmlTag tag = new XmlTag(text, type);
+		lastTag = tag;
+
+		// Parse the tag text and populate tag attributes
+		if (parseTagText(tag, start, end))
+		{
+			// Move to position after the tag
+			position = closeBracketIndex + 1;
+			lastType = HttpTagType.TAG;
+			return lastType;
+		}
+		else
+		{
+			throw new ParseException("Malformed tag" + getLineAndColumnText(), openBracketIndex);
+		}
+	}
+
+	/**
+	 * @return The next XML tag
+	 * @throws ParseException
+	 */
+	public XmlTag nextTag() throws ParseException
+	{
+		while (next() != HttpTagType.NOT_INITIALIZED)
+		{
+			if (lastType == HttpTagType.TAG)
+			{
+				return lastTag;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Whatever will be in between the current index and the closing tag, will be ignored (and thus
+	 * treated as raw markup (text). This is useful for tags like 'script'.
+	 * 
+	 * @throws ParseException
+	 */
+	private void skipUntil() throws ParseException
+	{
+		final int startIndex = position;
+		final int tagNameLen = skipUntilText.length();
+
+		int pos = position - 1;
+		int lastPos;
+		do
+		{
+			pos = indexOf("</", pos + 1);
+			if ((pos == -1) || ((pos + (tagNameLen + 2)) >= size))
+			{
+				throw new ParseException(skipUntilText + " tag not closed" +
+					getLineAndColumnText(), startIndex);
+			}
+
+			lastPos = pos + 2;
+		}
+		while (regionMatchesIgnoreCase(lastPos, size, skipUntilText) == false);
+
+		position = pos;
+		lastText = substring(startIndex, pos);
+		lastType = HttpTagType.BODY;
+
+		// Check that the tag is properly closed
+		if (indexOf('>', lastPos + tagNameLen) == -1)
+		{
+			throw new ParseException(skipUntilText + " tag not closed" + getLineAndColumnText(),
+				startIndex);
+		}
+
+		// Reset the state variable
+		skipUntilText = null;
+	}
+
+	/**
+	 * Handle special tags like <!-- --> or <![CDATA[..]]> or <?xml>
+	 * 
+	 * @param tagText
+	 * @param openBracketIndex
+	 * @param closeBracketIndex
+	 * @throws ParseException
+	 */
+	private void specialTagHandling(String tagText, final int openBracketIndex,
+		int closeBracketIndex) throws ParseException
+	{
+		// Handle comments
+		if (tagText.startsWith("!--"))
+		{
+			// downlevel-revealed conditional comments e.g.: <!--[if (gt IE9)|!(IE)]><!-->
+			if (tagText.contains("![endif]--"))
+			{
+				lastType = HttpTagType.CONDITIONAL_COMMENT_ENDIF;
+
+				// Move to position after the tag
+				position = closeBracketIndex + 1;
+				return;
+			}
+
+			// Conditional comment? E.g.
+			// "<!--[if IE]><a href='test.html'>my link</a><![endif]-->"
+			if (tagText.startsWith("!--[if ") && tagText.endsWith("]"))
+			{
+				int pos = indexOf("]-->", openBracketIndex + 1);
+				if (pos == -1)
+				{
+					throw new ParseException("Unclosed conditional comment beginning at" +
+						getLineAndColumnText(), openBracketIndex);
+				}
+
+				pos += 4;
+				lastText = substring(openBracketIndex, pos);
+
+				// Actually it is no longer a comment. It is now
+				// up to the browser to select the section appropriate.
+				position = closeBracketIndex + 1;
+				lastType = HttpTagType.CONDITIONAL_COMMENT;
+			}
+			else
+			{
+				// Normal comment section.
+				// Skip ahead to "-->". Note that you can not simply test for
+				// tagText.endsWith("--") as the comment might contain a '>'
+				// inside.
+				int pos = indexOf("-->", openBracketIndex + 1);
+				if (pos == -1)
+				{
+					throw new ParseException("Unclosed comment beginning at" +
+						getLineAndColumnText(), openBracketIndex);
+				}
+
+				pos += 3;
+				lastText = substring(openBracketIndex, pos);
+				lastType = HttpTagType.COMMENT;
+				position = pos;
+			}
+			return;
+		}
+
+		// The closing tag of a conditional comment, e.g.
+		// "<!--[if IE]><a href='test.html'>my link</a><![endif]-->
+		// and also <!--<![endif]-->"
+		if (tagText.equals("![endif]--"))
+		{
+			lastType = HttpTagType.CONDITIONAL_COMMENT_ENDIF;
+			position = closeBracketIndex + 1;
+			return;
+		}
+
+		// CDATA sections might contain "<" which is not part of an XML tag.
+		// Make sure escaped "<" are treated right
+		if (tagText.startsWith("!["))
+		{
+			if (regionMatchesIgnoreCase(openBracketIndex + 1, closeBracketIndex, "![CDATA["))
+			{
+				int pos1 = openBracketIndex;
+				do
+				{
+					// Get index of closing tag and advance past the tag
+					closeBracketIndex = findChar('>', pos1);
+
+					if (closeBracketIndex == -1)
+					{
+						throw new ParseException("No matching close bracket at" +
+							getLineAndColumnText(), position);
+					}
+
+					pos1 = closeBracketIndex + 1;
+				}
+				while (input[closeBracketIndex - 1] != ']' || input[closeBracketIndex - 2] != ']');
+
+				// Move to position after the tag
+				position = closeBracketIndex + 1;
+
+				// The tagtext between open and close brackets
+				lastText = substring(openBracketIndex + 1, closeBracketIndex);
+				lastType = HttpTagType.CDATA;
+				return;
+			}
+		}
+
+		if (tagText.charAt(0) == '?')
+		{
+			lastType = HttpTagType.PROCESSING_INSTRUCTION;
+
+			// Move to position after the tag
+			position = closeBracketIndex + 1;
+			return;
+		}
+
+		if (tagText.startsWith("!DOCTYPE"))
+		{
+			lastType = HttpTagType.DOCTYPE;
+
+			// Get the tagtext between open and close brackets
+			doctype = substring(openBracketIndex + 1, closeBracketIndex);
+
+			// Move to position after the tag
+			position = closeBracketIndex + 1;
+			return;
+		}
+
+		// Move to position after the tag
+		lastType = HttpTagType.SPECIAL_TAG;
+		position = closeBracketIndex + 1;
+	}
+
+	/**
+	 * Parses the tag name and the attributes in between start and end, e.g. "a href=foo.html".
+	 * Accepts the same names and attributes as the tag name and variable assignment patterns of
+	 * {@link XmlPullParser}: text which isn't an attribute gets skipped, attributes without value
+	 * get an empty value and unquoted values consist of letters, digits, '_', '-' and '.' only.
+	 * 
+	 * @param tag
+	 * @param start
+	 *            the first char of the tag name
+	 * @param end
+	 *            the end of the tag text (exclusive)
+	 * @return false in case of an error
+	 * @throws ParseException
+	 */
+	private boolean parseTagText(final XmlTag tag, final int start, final int end)
+		throws ParseException
+	{
+		if (isNameStart(input[start]) == false)
+		{
+			return false;
+		}
+
+		// [namespace:]name
+		int pos = start;
+		final int namespaceEnd = scanVariableName(start, end);
+		if ((namespaceEnd < end - 1) && (input[namespaceEnd] == ':') &&
+			isNameStart(input[namespaceEnd + 1]))
+		{
+			tag.namespace = substring(start, namespaceEnd).toLowerCase();
+			pos = namespaceEnd + 1;
+		}
+		final int nameEnd = scanXmlName(pos, end);
+		tag.name = substring(pos, nameEnd);
+		pos = nameEnd;
+
+		while (pos < end)
+		{
+			// skip anything up to the next key
+			int keyStart = pos;
+			while ((keyStart < end) && (isNameStart(input[keyStart]) == false))
+			{
+				keyStart++;
+			}
+			if (keyStart == end)
+			{
+				break;
+			}
+
+			// key [= value]
+			final int keyEnd = scanKey(keyStart, end);
+			pos = skipWhitespace(keyEnd, end);
+
+			int valueStart = -1;
+			int valueEnd = -1;
+			if ((pos < end) && (input[pos] == '='))
+			{
+				final int start2 = skipWhitespace(pos + 1, end);
+				final int end2 = scanValue(start2, end);
+				if (end2 != -1)
+				{
+					valueStart = start2;
+					valueEnd = end2;
+					pos = skipWhitespace(end2, end);
+				}
+			}
+
+			final String key = substring(keyStart, keyEnd);
+			final String value = (valueStart == -1) ? "" : value(valueStart, valueEnd);
+
+			// Put the attribute in the attributes hash
+			if (null != tag.getAttributes().put(key, value))
+			{
+				throw new ParseException("Same attribute found twice: " + key +
+					getLineAndColumnText(), position);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Chops off quotes, trims and unescapes a value.
+	 */
+	private String value(int start, int end)
+	{
+		if ((input[start] == '"') || (input[start] == '\''))
+		{
+			start++;
+			end--;
+		}
+		while ((start < end) && (input[start] <= ' '))
+		{
+			start++;
+		}
+		while ((end > start) && (input[end - 1] <= ' '))
+		{
+			end--;
+		}
+		if (start == end)
+		{
+			return "";
+		}
+
+		final String value = substring(start, end);
+		for (int i = start; i < end; i++)
+		{
+			if (input[i] == '&')
+			{
+				return Strings.unescapeMarkup(value).toString();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Scans a key like "name", "namespace:name" or "namespace:name:subname".
+	 * 
+	 * @return the end of the key
+	 */
+	private int scanKey(final int start, final int end)
+	{
+		int pos = start;
+		final int namespaceEnd = scanVariableName(pos, end);
+		if ((namespaceEnd < end - 1) && (input[namespaceEnd] == ':') &&
+			isNameStart(input[namespaceEnd + 1]))
+		{
+			pos = namespaceEnd + 1;
+
+			final int subNamespaceEnd = scanVariableName(pos, end);
+			if ((subNamespaceEnd < end - 1) && (input[subNamespaceEnd] == ':') &&
+				isNameStart(input[subNamespaceEnd + 1]))
+			{
+				pos = subNamespaceEnd + 1;
+			}
+		}
+		return scanXmlName(pos, end);
+	}
+
+	/**
+	 * Scans a value, either quoted or consisting of letters, digits, '_', '-' and '.'.
+	 * 
+	 * @return the end of the value or -1 if there is no value
+	 */
+	private int scanValue(final int start, final int end)
+	{
+		if (start >= end)
+		{
+			return -1;
+		}
+
+		final char ch = input[start];
+		if (isXmlNameChar(ch))
+		{
+			return scanXmlName(start, end);
+		}
+		else if ((ch == '"') || (ch == '\''))
+		{
+			for (int i = start + 1; i < end; i++)
+			{
+				if (input[i] == ch)
+				{
+					return i + 1;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private int scanVariableName(int pos, final int end)
+	{
+		while ((pos < end) && isVariableNameChar(input[pos]))
+		{
+			pos++;
+		}
+		return pos;
+	}
+
+	private int scanXmlName(int pos, final int end)
+	{
+		while ((pos < end) && isXmlNameChar(input[pos]))
+		{
+			pos++;
+		}
+		return pos;
+	}
+
+	private int skipWhitespace(int pos, final int end)
+	{
+		while ((pos < end) && isWhitespace(input[pos]))
+		{
+			pos++;
+		}
+		return pos;
+	}
+
+	private static boolean isNameStart(final char ch)
+	{
+		return ((ch >= 'a') && (ch <= 'z')) || ((ch >= 'A') && (ch <= 'Z')) || (ch == '_');
+	}
+
+	private static boolean isVariableNameChar(final char ch)
+	{
+		return isNameStart(ch) || ((ch >= '0') && (ch <= '9'));
+	}
+
+	private static boolean isXmlNameChar(final char ch)
+	{
+		return isVariableNameChar(ch) || (ch == '-') || (ch == '.');
+	}
+
+	private static boolean isWhitespace(final char ch)
+	{
+		return (ch == ' ') || (ch == '\t') || (ch == '\n') || (ch == '\r') || (ch == '\f') ||
+			(ch == '\u000B');
+	}
+
+	/**
+	 * Find the char but ignore any text within ".." and '..'
+	 * 
+	 * @param ch
+	 *            The character to search
+	 * @param startIndex
+	 *            Start index
+	 * @return -1 if not found, else the index
+	 */
+	private int findChar(final char ch, int startIndex)
+	{
+		char quote = 0;
+
+		for (; startIndex < size; startIndex++)
+		{
+			final char charAt = input[startIndex];
+			if (quote != 0)
+			{
+				if (quote == charAt)
+				{
+					quote = 0;
+				}
+			}
+			else if ((charAt == '"') || (charAt == '\''))
+			{
+				quote = charAt;
+			}
+			else if (charAt == ch)
+			{
+				return startIndex;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Find the char but ignore any text within ".." and '..', quotes may be escaped with '\'. Just
+	 * like the tags found by {@link XmlPullParser}, the line and column number are counted up to
+	 * the last quote.
+	 * 
+	 * @param ch
+	 *            The character to search
+	 * @param startPos
+	 *            Start index
+	 * @return -1 if not found, else the index
+	 * @throws ParseException
+	 *             if a quote isn't closed
+	 */
+	private int findOutOfQuotes(final char ch, final int startPos) throws ParseException
+	{
+		if (indexOf(ch, startPos + 1) == -1)
+		{
+			return -1;
+		}
+
+		char quotationChar = 0;
+		for (int i = startPos; i < size; i++)
+		{
+			final char currentChar = input[i];
+			if (quotationChar == 0)
+			{
+				if ((currentChar == '\'') || (currentChar == '"'))
+				{
+					// entering a quoted string
+					quotationChar = currentChar;
+					countLinesTo(i);
+				}
+				else if (currentChar == ch)
+				{
+					return i;
+				}
+			}
+			else if ((currentChar == quotationChar) && (input[i - 1] != '\\'))
+			{
+				quotationChar = 0;
+			}
+		}
+
+		throw new ParseException("Opening/closing quote not found for quote at " + "(line " +
+			lineNumber + ", column " + columnNumber + ")", startPos);
+	}
+
+	private int indexOf(final char ch, final int startPos)
+	{
+		for (int i = startPos; i < size; i++)
+		{
+			if (input[i] == ch)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int indexOf(final String str, final int startPos)
+	{
+		final char first = str.charAt(0);
+		final int max = size - str.length();
+		for (int i = startPos; i <= max; i++)
+		{
+			if (input[i] == first && regionMatches(i, str))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int indexOfIgnoreCase(final String str, final int start, final int end)
+	{
+		final int max = end - str.length();
+		for (int i = start; i <= max; i++)
+		{
+			if (regionMatchesIgnoreCase(i, end, str))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean regionMatches(final int start, final String str)
+	{
+		for (int i = 0; i < str.length(); i++)
+		{
+			if (input[start + i] != str.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether the text in between start and end starts with str (ASCII only)
+	 */
+	private boolean regionMatchesIgnoreCase(final int start, final int end, final String str)
+	{
+		if (end - start < str.length())
+		{
+			return false;
+		}
+		for (int i = 0; i < str.length(); i++)
+		{
+			char ch = input[start + i];
+			if ((ch >= 'A') && (ch <= 'Z'))
+			{
+				ch += 'a' - 'A';
+			}
+			char other = str.charAt(i);
+			if ((other >= 'A') && (other <= 'Z'))
+			{
+				other += 'a' - 'A';
+			}
+			if (ch != other)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String substring(final int fromPos, final int toPos)
+	{
+		return new String(input, fromPos, toPos - fromPos);
+	}
+
+	private void countLinesTo(final int end)
+	{
+		for (int i = lastLineCountIndex; i < end; i++)
+		{
+			final char ch = input[i];
+			if (ch == '\n')
+			{
+				columnNumber = 1;
+				lineNumber++;
+			}
+			else if (ch != '\r')
+			{
+				columnNumber++;
+			}
+		}
+
+		lastLineCountIndex = end;
+	}
+
+	/**
+	 * 
+	 * @return line and column number
+	 */
+	private String getLineAndColumnText()
+	{
+		return " (line " + lineNumber + ", column " + columnNumber + ")";
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.renderCache;
+
+import org.apache.wicket.Component;
+
+/**
+ * Stores the rendered output of component subtrees, so that it can be written again on later
+ * requests without configuring and rendering the components. Implementations must be thread safe.
+ * 
+ * @see RenderCacheBehavior
+ * @see org.apache.wicket.settings.MarkupSettings#setRenderCache(IRenderCache)
+ */
+public interface IRenderCache
+{
+	/**
+	 * Gets the entry for the given key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the entry or {@code null} if there is no entry or it has expired
+	 */
+	RenderCacheEntry get(RenderCacheKey key);
+
+	/**
+	 * Stores an entry, replacing a previous entry for the same key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param entry
+	 *            the entry
+	 */
+	void put(RenderCacheKey key, RenderCacheEntry entry);
+
+	/**
+	 * Removes the entry for the given key.
+	 * 
+	 * @param key
+	 *            the key
+	 */
+	void remove(RenderCacheKey key);
+
+	/**
+	 * Removes all entries for a component class, for all locales, styles and variations.
+	 * 
+	 * @param componentClass
+	 *            the class of the cached components
+	 * @param modelKey
+	 *            the model key of the entries to remove, or {@code null} to remove the entries for
+	 *            all models
+	 */
+	void invalidate(Class<? extends Component> componentClass, Object modelKey);
+
+	/**
+	 * Removes all entries.
+	 */
+	void clear();
+
+	/**
+	 * @return the number of entries
+	 */
+	int size();
+}
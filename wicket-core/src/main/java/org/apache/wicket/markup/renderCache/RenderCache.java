@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.renderCache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.lang.Objects;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * Default {@link IRenderCache} holding its entries in memory. When either the number of entries or
+ * their estimated size exceeds its limits, the least recently used entries are evicted.
+ */
+public class RenderCache implements IRenderCache
+{
+	private final int maxEntries;
+
+	private final long maxSize;
+
+	/** the entries in access order */
+	private final LinkedHashMap<RenderCacheKey, RenderCacheEntry> entries;
+
+	/** the estimated size of all entries */
+	private long size;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param maxEntries
+	 *            the maximum number of entries
+	 * @param maxSize
+	 *            the maximum estimated size of all entries
+	 */
+	public RenderCache(final int maxEntries, final Bytes maxSize)
+	{
+		Args.withinRange(1, Integer.MAX_VALUE, maxEntries, "maxEntries");
+		Args.notNull(maxSize, "maxSize");
+
+		this.maxEntries = maxEntries;
+		this.maxSize = maxSize.bytes();
+
+		entries = new LinkedHashMap<RenderCacheKey, RenderCacheEntry>(16, 0.75f, true);
+	}
+
+	@Override
+	public synchronized RenderCacheEntry get(final RenderCacheKey key)
+	{
+		RenderCacheEntry entry = entries.get(key);
+		if (entry != null && entry.isExpired(Time.now()))
+		{
+			remove(key);
+			entry = null;
+		}
+		return entry;
+	}
+
+	@Override
+	public synchronized void put(final RenderCacheKey key, final RenderCacheEntry entry)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(entry, "entry");
+
+		if (entry.getSize() > maxSize)
+		{
+			remove(key);
+			return;
+		}
+
+		RenderCacheEntry previous = entries.put(key, entry);
+		if (previous != null)
+		{
+			size -= previous.getSize();
+		}
+		size += entry.getSize();
+
+		Iterator<RenderCacheEntry> eldest = entries.values().iterator();
+		while (entries.size() > maxEntries || size > maxSize)
+		{
+			size -= eldest.next().getSize();
+			eldest.remove();
+		}
+	}
+
+	@Override
+	public synchronized void remove(final RenderCacheKey key)
+	{
+		RenderCacheEntry entry = entries.remove(key);
+		if (entry != null)
+		{
+			size -= entry.getSize();
+		}
+	}
+
+	@Override
+	public synchronized void invalidate(final Class<? extends Component> componentClass,
+		final Object modelKey)
+	{
+		Args.notNull(componentClass, "componentClass");
+
+		Iterator<Map.Entry<RenderCacheKey, RenderCacheEntry>> iterator = entries.entrySet()
+			.iterator();
+		while (iterator.hasNext())
+		{
+			Map.Entry<RenderCacheKey, RenderCacheEntry> entry = iterator.next();
+			RenderCacheKey key = entry.getKey();
+			if (key.getComponentClass().equals(componentClass) &&
+				(modelKey == null || Objects.equal(modelKey, key.getModelKey())))
+			{
+				size -= entry.getValue().getSize();
+				iterator.remove();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void clear()
+	{
+		entries.clear();
+		size = 0;
+	}
+
+	@Override
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+}
@@ -0,0 +1,512 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.renderCache;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.IRequestListener;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.Page;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.markup.head.HeaderItem;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.html.DecoratingHeaderResponse;
+import org.apache.wicket.markup.html.internal.HtmlHeaderContainer;
+import org.apache.wicket.markup.html.link.BookmarkablePageLink;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.response.EncodedCharSequence;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.string.AppendingStringBuffer;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.visit.IVisit;
+import org.apache.wicket.util.visit.IVisitor;
+
+/**
+ * Caches the rendered output of the component it is attached to, including the output of all its
+ * children and the header items they contribute, in the application's {@link IRenderCache}.
+ * <p>
+ * When an entry exists, the cached markup and header items are written instead of rendering the
+ * component: neither {@link Component#onBeforeRender()} nor the rendering of any child is invoked.
+ * The component itself is still configured, so its visibility can still change per request.
+ * <p>
+ * The output is cached per component class, page class, page-relative path, markup id, model key,
+ * locale, style, variation and base url. The model key must identify everything the output depends
+ * on, e.g. the id of the rendered entity and the time it was last modified:
+ * 
+ * <pre>
+ * add(new RenderCacheBehavior(Duration.hours(1))
+ * {
+ * 	protected Object getModelKey(Component component)
+ * 	{
+ * 		return product.getId() + &quot;:&quot; + product.getVersion();
+ * 	}
+ * });
+ * </pre>
+ * 
+ * Output is only cached if all visible components of the subtree are stateless, since urls to
+ * stateful components would reference the page instance they were rendered for. For the same
+ * reason output is not cached if a component of the subtree outputs its markup id, since generated
+ * ids are unique per page instance only, or renders a listener url, e.g. a stateless link or an
+ * Ajax behavior, since these urls carry the parameters of the current request.
+ * 
+ * @see IRenderCache#invalidate(Class, Object)
+ */
+public class RenderCacheBehavior extends Behavior
+{
+	private static final long serialVersionUID = 1L;
+
+	private final IModel<?> keyModel;
+
+	private final Duration timeToLive;
+
+	private Component component;
+
+	/** the key of the current request, null if not looked up yet */
+	private transient RenderCacheKey key;
+
+	/** the cached entry for the current request */
+	private transient RenderCacheEntry entry;
+
+	/** the header items recorded in the current request */
+	private transient List<HeaderItem> headerItems;
+
+	/** the markup recorded in the current request */
+	private transient CharSequence markup;
+
+	/** the response recording the markup while rendering */
+	private transient RecordingResponse recording;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param timeToLive
+	 *            how long cached output is used, {@link Duration#MAXIMUM} to keep it until it is
+	 *            invalidated or evicted
+	 */
+	public RenderCacheBehavior(final Duration timeToLive)
+	{
+		this(null, timeToLive);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param keyModel
+	 *            model of the key identifying the rendered model
+	 * @param timeToLive
+	 *            how long cached output is used, {@link Duration#MAXIMUM} to keep it until it is
+	 *            invalidated or evicted
+	 */
+	public RenderCacheBehavior(final IModel<?> keyModel, final Duration timeToLive)
+	{
+		this.keyModel = keyModel;
+		this.timeToLive = Args.notNull(timeToLive, "timeToLive");
+	}
+
+	@Override
+	public void bind(final Component component)
+	{
+		if (this.component != null)
+		{
+			throw new IllegalStateException(
+				"this behavior cannot be attached to multiple components; it is already attached to component " +
+					this.component + ", but component " + component + " wants to be attached too");
+		}
+		this.component = component;
+	}
+
+	@Override
+	public void unbind(final Component component)
+	{
+		this.component = null;
+	}
+
+	/**
+	 * Gets the key identifying the rendered model. The default implementation returns the object
+	 * of the key model passed to the constructor.
+	 * 
+	 * @param component
+	 *            the component
+	 * @return the key of the rendered model
+	 */
+	protected Object getModelKey(final Component component)
+	{
+		return keyModel != null ? keyModel.getObject() : null;
+	}
+
+	/**
+	 * Gets the cache to store the output in. The default implementation returns the application's
+	 * render cache.
+	 * 
+	 * @return the render cache
+	 * @see org.apache.wicket.settings.MarkupSettings#getRenderCache()
+	 */
+	protected IRenderCache getRenderCache()
+	{
+		return Application.get().getMarkupSettings().getRenderCache();
+	}
+
+	/**
+	 * Creates the key of the output of the component.
+	 * 
+	 * @param component
+	 *            the component
+	 * @return the key
+	 */
+	protected RenderCacheKey newKey(final Component component)
+	{
+		String baseUrl = RequestCycle.get().getUrlRenderer().getBaseUrl().getPath();
+
+		return new RenderCacheKey(component.getClass(), component.getPage().getClass(),
+			component.getPageRelativePath(), component.getMarkupId(false),
+			getModelKey(component), component.getLocale(), component.getStyle(),
+			component.getVariation(), baseUrl);
+	}
+
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT.
+	 * <p>
+	 * Looks up the cached output of the component, once per request.
+	 * 
+	 * @param component
+	 *            the component
+	 * @return {@code true} if cached output exists and the component's subtree must not be
+	 *         prepared for render
+	 */
+	public final boolean lookup(final Component component)
+	{
+		if (key == null)
+		{
+			key = newKey(component);
+			entry = getRenderCache().get(key);
+		}
+		return entry != null;
+	}
+
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT.
+	 * <p>
+	 * Writes the cached output of the component. If there is none, recording of the output is
+	 * started, which must be finished with {@link #onRendered(Component)}.
+	 * 
+	 * @param component
+	 *            the component
+	 * @return {@code true} if the cached output was written
+	 */
+	public final boolean renderCached(final Component component)
+	{
+		if (entry != null)
+		{
+			component.getResponse().write(entry.getMarkup());
+
+			if (component instanceof MarkupContainer &&
+				component.getApplication().getDebugSettings().getComponentUseCheck())
+			{
+				// tell the page the children were rendered
+				final Page page = component.getPage();
+				((MarkupContainer)component).visitChildren(new IVisitor<Component, Void>()
+				{
+					@Override
+					public void component(final Component child, final IVisit<Void> visit)
+					{
+						page.componentRendered(child);
+					}
+				});
+			}
+			return true;
+		}
+
+		if (key != null && recording == null)
+		{
+			RequestCycle requestCycle = component.getRequestCycle();
+			recording = new RecordingResponse(requestCycle.getResponse());
+			requestCycle.setResponse(recording);
+		}
+		return false;
+	}
+
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT.
+	 * <p>
+	 * Finishes recording the output of the component.
+	 * 
+	 * @param component
+	 *            the component
+	 */
+	public final void onRendered(final Component component)
+	{
+		if (recording == null)
+		{
+			return;
+		}
+		CharSequence recorded = stopRecording(component);
+		if (recorded != null && isCacheable(component))
+		{
+			Application application = component.getApplication();
+			if (application.getMarkupSettings().getPreEncodeStaticMarkup())
+			{
+				recorded = new EncodedCharSequence(recorded,
+					Charset.forName(application.getRequestCycleSettings()
+						.getResponseRequestEncoding()));
+			}
+			markup = recorded;
+			store();
+		}
+	}
+
+	@Override
+	public void onException(final Component component, final RuntimeException exception)
+	{
+		if (recording != null)
+		{
+			stopRecording(component);
+		}
+	}
+
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT.
+	 * <p>
+	 * Renders the header contributions of the component and all its children, either from the
+	 * cached entry or by asking the components and recording their contributions.
+	 * 
+	 * @param component
+	 *            the component
+	 * @param container
+	 *            the header container
+	 */
+	public final void renderHeaders(final Component component, final HtmlHeaderContainer container)
+	{
+		if (entry != null)
+		{
+			IHeaderResponse response = container.getHeaderResponse();
+			for (HeaderItem item : entry.getHeaderItems())
+			{
+				response.render(item);
+			}
+			return;
+		}
+
+		IHeaderResponse original = container.getHeaderResponse();
+		final List<HeaderItem> recorded = new ArrayList<HeaderItem>();
+		container.setHeaderResponse(new DecoratingHeaderResponse(original)
+		{
+			@Override
+			public void render(final HeaderItem item)
+			{
+				recorded.add(item);
+				super.render(item);
+			}
+		});
+		try
+		{
+			component.internalRenderHead(container);
+
+			if (component instanceof MarkupContainer)
+			{
+				((MarkupContainer)component).visitChildren(new IVisitor<Component, Void>()
+				{
+					@Override
+					public void component(final Component child, final IVisit<Void> visit)
+					{
+						if (child.isVisibleInHierarchy() == false)
+						{
+							visit.dontGoDeeper();
+							return;
+						}
+
+						RenderCacheBehavior renderCache = child.getRenderCacheBehavior();
+						if (renderCache != null)
+						{
+							renderCache.renderHeaders(child, container);
+							visit.dontGoDeeper();
+						}
+						else
+						{
+							child.internalRenderHead(container);
+						}
+					}
+				});
+			}
+		}
+		finally
+		{
+			container.setHeaderResponse(original);
+		}
+
+		if (key != null)
+		{
+			headerItems = recorded;
+			store();
+		}
+	}
+
+	@Override
+	public void detach(final Component component)
+	{
+		if (recording != null)
+		{
+			stopRecording(component);
+		}
+		key = null;
+		entry = null;
+		headerItems = null;
+		markup = null;
+
+		if (keyModel != null)
+		{
+			keyModel.detach();
+		}
+	}
+
+	/**
+	 * Stores the recorded output as soon as both the markup and the header items are known.
+	 */
+	private void store()
+	{
+		if (markup != null && headerItems != null)
+		{
+			getRenderCache().put(key, new RenderCacheEntry(markup, headerItems, timeToLive));
+		}
+	}
+
+	private CharSequence stopRecording(final Component component)
+	{
+		RecordingResponse recorded = recording;
+		recording = null;
+
+		component.getRequestCycle().setResponse(recorded.delegate);
+		return recorded.isComplete() ? recorded.buffer : null;
+	}
+
+	/**
+	 * @param component
+	 * @return whether the component and all its visible children are stateless, do not output
+	 *         their markup id and do not render listener urls
+	 */
+	private static boolean isCacheable(final Component component)
+	{
+		if (isCacheableComponent(component) == false)
+		{
+			return false;
+		}
+		if (component instanceof MarkupContainer)
+		{
+			Boolean cacheable = ((MarkupContainer)component).visitChildren(
+				new IVisitor<Component, Boolean>()
+				{
+					@Override
+					public void component(final Component child, final IVisit<Boolean> visit)
+					{
+						if (child.isVisibleInHierarchy() == false)
+						{
+							visit.dontGoDeeper();
+						}
+						else if (isCacheableComponent(child) == false)
+						{
+							visit.stop(Boolean.FALSE);
+						}
+					}
+				});
+			return cacheable == null;
+		}
+		return true;
+	}
+
+	private static boolean isCacheableComponent(final Component component)
+	{
+		if (component.isStateless() == false || component.getOutputMarkupId())
+		{
+			return false;
+		}
+		if (component instanceof IRequestListener &&
+			component instanceof BookmarkablePageLink == false)
+		{
+			// a bookmarkable link is a listener, but renders a bookmarkable url
+			return false;
+		}
+		for (Behavior behavior : component.getBehaviors())
+		{
+			if (behavior instanceof IRequestListener)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes to another response and records everything written.
+	 */
+	private static class RecordingResponse extends Response
+	{
+		private final Response delegate;
+
+		private final AppendingStringBuffer buffer = new AppendingStringBuffer(256);
+
+		/** false when binary content was written which cannot be replayed */
+		private boolean complete = true;
+
+		private RecordingResponse(final Response delegate)
+		{
+			this.delegate = delegate;
+		}
+
+		private boolean isComplete()
+		{
+			return complete;
+		}
+
+		@Override
+		public void write(final CharSequence sequence)
+		{
+			buffer.append(sequence);
+			delegate.write(sequence);
+		}
+
+		@Override
+		public void write(final byte[] array)
+		{
+			complete = false;
+			delegate.write(array);
+		}
+
+		@Override
+		public void write(final byte[] array, final int offset, final int length)
+		{
+			complete = false;
+			delegate.write(array, offset, length);
+		}
+
+		@Override
+		public String encodeURL(final CharSequence url)
+		{
+			return delegate.encodeURL(url);
+		}
+
+		@Override
+		public Object getContainerResponse()
+		{
+			return delegate.getContainerResponse();
+		}
+	}
+}
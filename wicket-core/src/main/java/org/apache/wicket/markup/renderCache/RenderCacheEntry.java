@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.renderCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.wicket.markup.head.HeaderItem;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * The cached output of a component subtree: its markup and the header items it contributed.
+ * 
+ * @see IRenderCache
+ */
+public final class RenderCacheEntry
+{
+	private final CharSequence markup;
+
+	private final List<HeaderItem> headerItems;
+
+	private final Time expires;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param markup
+	 *            the rendered markup
+	 * @param headerItems
+	 *            the contributed header items in the order they were rendered
+	 * @param timeToLive
+	 *            how long the entry may be used, {@link Duration#MAXIMUM} for no expiry
+	 */
+	public RenderCacheEntry(final CharSequence markup, final List<HeaderItem> headerItems,
+		final Duration timeToLive)
+	{
+		this.markup = Args.notNull(markup, "markup");
+		this.headerItems = Collections.unmodifiableList(new ArrayList<HeaderItem>(
+			Args.notNull(headerItems, "headerItems")));
+		Args.notNull(timeToLive, "timeToLive");
+
+		expires = Duration.MAXIMUM.equals(timeToLive) ? null : Time.now().add(timeToLive);
+	}
+
+	/**
+	 * @return the rendered markup
+	 */
+	public CharSequence getMarkup()
+	{
+		return markup;
+	}
+
+	/**
+	 * @return the contributed header items
+	 */
+	public List<HeaderItem> getHeaderItems()
+	{
+		return headerItems;
+	}
+
+	/**
+	 * @param now
+	 *            the current time
+	 * @return whether this entry must not be used anymore
+	 */
+	public boolean isExpired(final Time now)
+	{
+		return expires != null && now.after(expires);
+	}
+
+	/**
+	 * @return an estimate of the memory held by this entry in bytes
+	 */
+	public long getSize()
+	{
+		return 2L * markup.length();
+	}
+}
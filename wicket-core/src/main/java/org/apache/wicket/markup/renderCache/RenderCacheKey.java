@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.renderCache;
+
+import java.util.Locale;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.Page;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Objects;
+
+/**
+ * Identifies the cached output of a component in an {@link IRenderCache}: the component's class,
+ * the class of its page, its page-relative path and markup id, the key of the model rendered, the
+ * locale, style and variation and the base url relative urls were rendered against.
+ * 
+ * @see RenderCacheBehavior#getModelKey(Component)
+ */
+public final class RenderCacheKey
+{
+	private final Class<? extends Component> componentClass;
+
+	private final Class<? extends Page> pageClass;
+
+	private final String path;
+
+	private final String markupId;
+
+	private final Object modelKey;
+
+	private final Locale locale;
+
+	private final String style;
+
+	private final String variation;
+
+	private final String baseUrl;
+
+	private final int hashCode;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param componentClass
+	 *            the class of the cached component
+	 * @param pageClass
+	 *            the class of the page the component was rendered in
+	 * @param path
+	 *            the page-relative path of the component
+	 * @param markupId
+	 *            the markup id of the component, may be {@code null}
+	 * @param modelKey
+	 *            the key of the rendered model, may be {@code null}
+	 * @param locale
+	 *            the locale, may be {@code null}
+	 * @param style
+	 *            the style, may be {@code null}
+	 * @param variation
+	 *            the variation, may be {@code null}
+	 * @param baseUrl
+	 *            the base url the output was rendered against, may be {@code null}
+	 */
+	public RenderCacheKey(final Class<? extends Component> componentClass,
+		final Class<? extends Page> pageClass, final String path, final String markupId,
+		final Object modelKey, final Locale locale, final String style, final String variation,
+		final String baseUrl)
+	{
+		this.componentClass = Args.notNull(componentClass, "componentClass");
+		this.pageClass = Args.notNull(pageClass, "pageClass");
+		this.path = Args.notNull(path, "path");
+		this.markupId = markupId;
+		this.modelKey = modelKey;
+		this.locale = locale;
+		this.style = style;
+		this.variation = variation;
+		this.baseUrl = baseUrl;
+
+		hashCode = Objects.hashCode(componentClass, pageClass, path, markupId, modelKey, locale,
+			style, variation, baseUrl);
+	}
+
+	/**
+	 * @return the class of the cached component
+	 */
+	public Class<? extends Component> getComponentClass()
+	{
+		return componentClass;
+	}
+
+	/**
+	 * @return the class of the page the component was rendered in
+	 */
+	public Class<? extends Page> getPageClass()
+	{
+		return pageClass;
+	}
+
+	/**
+	 * @return the page-relative path of the component
+	 */
+	public String getPath()
+	{
+		return path;
+	}
+
+	/**
+	 * @return the markup id of the component
+	 */
+	public String getMarkupId()
+	{
+		return markupId;
+	}
+
+	/**
+	 * @return the key of the rendered model
+	 */
+	public Object getModelKey()
+	{
+		return modelKey;
+	}
+
+	/**
+	 * @return the locale
+	 */
+	public Locale getLocale()
+	{
+		return locale;
+	}
+
+	/**
+	 * @return the style
+	 */
+	public String getStyle()
+	{
+		return style;
+	}
+
+	/**
+	 * @return the variation
+	 */
+	public String getVariation()
+	{
+		return variation;
+	}
+
+	/**
+	 * @return the base url the output was rendered against
+	 */
+	public String getBaseUrl()
+	{
+		return baseUrl;
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (obj instanceof RenderCacheKey == false)
+		{
+			return false;
+		}
+		RenderCacheKey other = (RenderCacheKey)obj;
+		return hashCode == other.hashCode && componentClass.equals(other.componentClass) &&
+			pageClass.equals(other.pageClass) && path.equals(other.path) &&
+			Objects.equal(markupId, other.markupId) && Objects.equal(modelKey, other.modelKey) && Objects.equal(locale, other.locale) &&
+			Objects.equal(style, other.style) && Objects.equal(variation, other.variation) &&
+			Objects.equal(baseUrl, other.baseUrl);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "RenderCacheKey [componentClass=" + componentClass.getName() + ", pageClass=" +
+			pageClass.getName() + ", path=" + path + ", markupId=" + markupId + ", modelKey=" +
+			modelKey + ", locale=" + locale + ", style=" + style + ", variation=" + variation +
+			", baseUrl=" + baseUrl + "]";
+	}
+}
@@ -23,6 +23,7 @@ import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.markup.html.IHeaderContributor;
 import org.apache.wicket.markup.html.internal.HtmlHeaderContainer;
 import org.apache.wicket.markup.html.internal.HtmlHeaderContainer.HeaderStreamState;
+import org.apache.wicket.markup.renderCache.RenderCacheBehavior;
 import org.apache.wicket.util.lang.Args;
 
 /**
@@ -116,7 +117,29 @@ public abstract class AbstractHeaderRenderStrategy implements IHeaderRenderStrat
 		final HeaderStreamState headerStreamState, final Component rootComponent)
 	{
 		headerContainer.renderHeaderTagBody(headerStreamState);
-		rootComponent.internalRenderHead(headerContainer);
+		renderHead(headerContainer, rootComponent);
+	}
+
+	/**
+	 * Renders the header contributions of a component. If the output of the component is cached,
+	 * the contributions of all its children are rendered too.
+	 * 
+	 * @param headerContainer
+	 * @param component
+	 * @return {@code true} if the contributions of the children were rendered too
+	 * @see RenderCacheBehavior
+	 */
+	protected static boolean renderHead(final HtmlHeaderContainer headerContainer,
+		final Component component)
+	{
+		RenderCacheBehavior renderCache = component.getRenderCacheBehavior();
+		if (renderCache != null)
+		{
+			renderCache.renderHeaders(component, headerContainer);
+			return true;
+		}
+		component.internalRenderHead(headerContainer);
+		return false;
 	}
 
 	/**
@@ -73,7 +73,9 @@ public class ChildFirstHeaderRenderStrategy extends AbstractHeaderRenderStrategy
 		Args.notNull(headerContainer, "headerContainer");
 		Args.notNull(rootComponent, "rootComponent");
 
-		if (rootComponent instanceof MarkupContainer)
+		// the children of a cached root component contribute with the root
+		if (rootComponent instanceof MarkupContainer &&
+			rootComponent.getRenderCacheBehavior() == null)
 		{
 			new DeepChildFirstVisitor()
 			{
@@ -82,14 +84,22 @@ public class ChildFirstHeaderRenderStrategy extends AbstractHeaderRenderStrategy
 				{
 					if (component != rootComponent)
 					{
-						component.internalRenderHead(headerContainer);
+						renderHead(headerContainer, component);
 					}
 				}
 
 				@Override
 				public boolean preCheck(Component component)
 				{
-					return component.isVisibleInHierarchy();
+					if (component.isVisibleInHierarchy() == false)
+					{
+						return false;
+					}
+
+					// a cached container contributes for all its children, so don't go deeper
+					return component == rootComponent ||
+						component.getRenderCacheBehavior() == null ||
+						renderHead(headerContainer, component) == false;
 				}
 			}.visit(rootComponent);
 		}
@@ -50,8 +50,10 @@ public class ParentFirstHeaderRenderStrategy extends AbstractHeaderRenderStrateg
 		Args.notNull(headerContainer, "headerContainer");
 		Args.notNull(rootComponent, "rootComponent");
 
-		// Only MarkupContainer can have children. Component's don't
-		if (rootComponent instanceof MarkupContainer)
+		// Only MarkupContainer can have children. Component's don't. The children of a cached
+		// root component contribute with the root
+		if (rootComponent instanceof MarkupContainer &&
+			rootComponent.getRenderCacheBehavior() == null)
 		{
 			// Visit the children with parent first, than children
 			((MarkupContainer)rootComponent).visitChildren(new IVisitor<Component, Void>()
@@ -61,7 +63,10 @@ public class ParentFirstHeaderRenderStrategy extends AbstractHeaderRenderStrateg
 				{
 					if (component.isVisibleInHierarchy())
 					{
-						component.internalRenderHead(headerContainer);
+						if (renderHead(headerContainer, component))
+						{
+							visit.dontGoDeeper();
+						}
 					}
 					else
 					{
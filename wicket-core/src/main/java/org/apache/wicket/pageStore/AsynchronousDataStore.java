@@ -16,28 +16,35 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.wicket.util.lang.Args;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Facade for {@link IDataStore} that does the actual saving in worker thread.
+ * Facade for {@link IDataStore} that does the actual saving in worker threads.
  * <p>
- * Creates an {@link Entry} for each triple (sessionId, pageId, data) and puts it in
- * {@link #entries} queue if there is room. Acts as producer.<br/>
- * Later {@link PageSavingRunnable} reads in blocking manner from {@link #entries} and saves each
- * entry. Acts as consumer.
+ * Creates an {@link Entry} for each triple (sessionId, pageId, data) and puts it in the queue of
+ * the {@link PageSavingRunnable} responsible for the session if there is room. Acts as producer.
+ * <br/>
+ * Later each {@link PageSavingRunnable} reads in blocking manner from its queue and saves the
+ * entries in batches. Acts as consumer.
  * </p>
- * It starts only one instance of {@link PageSavingRunnable} because all we need is to make the page
- * storing asynchronous. We don't want to write concurrently in the wrapped {@link IDataStore},
- * though it may happen in the extreme case when the queue is full. These cases should be avoided.
+ * The sessions are sharded over the worker threads by the hash of their id, so all pages of a
+ * session are written by the same thread and the wrapped {@link IDataStore} is never written
+ * concurrently for a single session. Storing a page which is still waiting in a queue just replaces
+ * its data, so only the newest bytes are written. When a queue is full the page is written by the
+ * calling thread - the number of these fallbacks is available via {@link #getFallbackCount()} and
+ * should be kept low by increasing the number of threads or the capacity of the queues.
  * 
  * @author Matej Knopp
  */
@@ -57,19 +64,24 @@ public class AsynchronousDataStore implements IDataStore
 	private static final long POLL_WAIT = 1000L;
 
 	/**
-	 * The page saving thread.
+	 * The maximum number of entries saved by a {@link PageSavingRunnable} in one go.
 	 */
-	private final Thread pageSavingThread;
+	private static final int BATCH_SIZE = 32;
 
 	/**
-	 * The wrapped {@link IDataStore} that actually stores that pages
+	 * The page saving threads.
 	 */
-	private final IDataStore dataStore;
+	private final Thread[] pageSavingThreads;
 
 	/**
-	 * The queue where the entries which have to be saved are temporary stored
+	 * The queues where the entries which have to be saved are temporary stored, one per thread.
 	 */
-	private final BlockingQueue<Entry> entries;
+	private final BlockingQueue<Entry>[] queues;
+
+	/**
+	 * The wrapped {@link IDataStore} that actually stores that pages
+	 */
+	private final IDataStore dataStore;
 
 	/**
 	 * A map 'sessionId:::pageId' -> {@link Entry}. Used for fast retrieval of {@link Entry}s which
@@ -77,6 +89,8 @@ public class AsynchronousDataStore implements IDataStore
 	 */
 	private final ConcurrentMap<String, Entry> entryMap;
 
+	private final Statistics statistics;
+
 	/**
 	 * Construct.
 	 * 
@@ -87,14 +101,42 @@ public class AsynchronousDataStore implements IDataStore
 	 */
 	public AsynchronousDataStore(final IDataStore dataStore, final int capacity)
 	{
+		this(dataStore, capacity, 1);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore} that actually saved the data
+	 * @param capacity
+	 *            the capacity of the queue of each thread
+	 * @param threads
+	 *            the number of threads saving the data
+	 */
+	@SuppressWarnings("unchecked")
+	public AsynchronousDataStore(final IDataStore dataStore, final int capacity, final int threads)
+	{
+		Args.withinRange(1, Integer.MAX_VALUE, threads, "threads");
+
 		this.dataStore = dataStore;
-		entries = new LinkedBlockingQueue<Entry>(capacity);
 		entryMap = new ConcurrentHashMap<String, Entry>();
+		statistics = new Statistics();
+		queues = new BlockingQueue[threads];
+		pageSavingThreads = new Thread[threads];
 
-		PageSavingRunnable savingRunnable = new PageSavingRunnable(dataStore, entries, entryMap);
-		pageSavingThread = new Thread(savingRunnable, "Wicket-PageSavingThread");
-		pageSavingThread.setDaemon(true);
-		pageSavingThread.start();
+		for (int i = 0; i < threads; i++)
+		{
+			queues[i] = new LinkedBlockingQueue<Entry>(capacity);
+
+			PageSavingRunnable savingRunnable = new PageSavingRunnable(dataStore, queues[i],
+				entryMap, statistics);
+			String name = threads == 1 ? "Wicket-PageSavingThread" : "Wicket-PageSavingThread-" +
+				i;
+			pageSavingThreads[i] = new Thread(savingRunnable, name);
+			pageSavingThreads[i].setDaemon(true);
+			pageSavingThreads[i].start();
+		}
 	}
 
 	/**
@@ -103,15 +145,18 @@ public class AsynchronousDataStore implements IDataStore
 	@Override
 	public void destroy()
 	{
-		if (pageSavingThread.isAlive())
+		for (Thread pageSavingThread : pageSavingThreads)
 		{
-			pageSavingThread.interrupt();
-			try
-			{
-				pageSavingThread.join();
-			} catch (InterruptedException e)
+			if (pageSavingThread.isAlive())
 			{
-				log.error(e.getMessage(), e);
+				pageSavingThread.interrupt();
+				try
+				{
+					pageSavingThread.join();
+				} catch (InterruptedException e)
+				{
+					log.error(e.getMessage(), e);
+				}
 			}
 		}
 
@@ -130,6 +175,18 @@ public class AsynchronousDataStore implements IDataStore
 		return entryMap.get(getKey(sessionId, id));
 	}
 
+	/**
+	 * @param sessionId
+	 * @return the queue of the thread responsible for the session
+	 */
+	private BlockingQueue<Entry> getQueue(final String sessionId)
+	{
+		int hash = sessionId.hashCode();
+		// spread the bits, session ids often differ in the last characters only
+		hash ^= (hash >>> 16);
+		return queues[(hash & 0x7fffffff) % queues.length];
+	}
+
 	/**
 	 * @see org.apache.wicket.pageStore.IDataStore#getData(java.lang.String, int)
 	 */
@@ -173,7 +230,7 @@ public class AsynchronousDataStore implements IDataStore
 			Entry entry = entryMap.remove(key);
 			if (entry != null)
 			{
-				entries.remove(entry);
+				getQueue(sessionId).remove(entry);
 			}
 		}
 
@@ -186,7 +243,7 @@ public class AsynchronousDataStore implements IDataStore
 	@Override
 	public void removeData(final String sessionId)
 	{
-		for (Iterator<Entry> itor = entries.iterator(); itor.hasNext();)
+		for (Iterator<Entry> itor = getQueue(sessionId).iterator(); itor.hasNext();)
 		{
 			Entry entry = itor.next();
 			if (entry != null) // this check is not needed in JDK6
@@ -206,36 +263,112 @@ public class AsynchronousDataStore implements IDataStore
 
 	/**
 	 * Save the entry in the queue if there is a room or directly pass it to the wrapped
-	 * {@link IDataStore} if there is no such
+	 * {@link IDataStore} if there is no such. If the page is still waiting in the queue only its
+	 * data is replaced.
 	 * 
 	 * @see org.apache.wicket.pageStore.IDataStore#storeData(java.lang.String, int, byte[])
 	 */
 	@Override
 	public void storeData(final String sessionId, final int id, final byte[] data)
 	{
+		String key = getKey(sessionId, id);
+
+		Entry existing = entryMap.get(key);
+		if (existing != null && existing.update(data))
+		{
+			log.debug("Coalesced page with id '{}' in session '{}'", id, sessionId);
+			statistics.coalesced.incrementAndGet();
+			return;
+		}
+
 		Entry entry = new Entry(sessionId, id, data);
-		String key = getKey(entry);
 		entryMap.put(key, entry);
 
 		try
 		{
-			boolean added = entries.offer(entry, OFFER_WAIT, TimeUnit.MILLISECONDS);
+			boolean added = getQueue(sessionId).offer(entry, OFFER_WAIT, TimeUnit.MILLISECONDS);
 
 			if (added == false)
 			{
 				log.debug("Storing synchronously page with id '{}' in session '{}'", id, sessionId);
-				entryMap.remove(key);
-				dataStore.storeData(sessionId, id, data);
+				storeSynchronously(key, entry);
 			}
 		}
 		catch (InterruptedException e)
 		{
 			log.error(e.getMessage(), e);
-			entryMap.remove(key);
-			dataStore.storeData(sessionId, id, data);
+			Thread.currentThread().interrupt();
+			storeSynchronously(key, entry);
 		}
 	}
 
+	/**
+	 * Stores an entry that could not be queued directly in the wrapped {@link IDataStore}. The data
+	 * is taken from the entry, so a concurrent {@link Entry#update(byte[])} is not lost.
+	 * 
+	 * @param key
+	 *            the key of the entry in the entry map
+	 * @param entry
+	 *            the entry to store
+	 */
+	private void storeSynchronously(final String key, final Entry entry)
+	{
+		statistics.fallbacks.incrementAndGet();
+		entryMap.remove(key, entry);
+		byte[] data = entry.take();
+		if (data != null)
+		{
+			dataStore.storeData(entry.sessionId, entry.pageId, data);
+		}
+	}
+
+	/**
+	 * @return the number of entries waiting to be saved
+	 */
+	public int getQueueSize()
+	{
+		int size = 0;
+		for (BlockingQueue<Entry> queue : queues)
+		{
+			size += queue.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of pages saved by the worker threads
+	 */
+	public long getStoredCount()
+	{
+		return statistics.stored.get();
+	}
+
+	/**
+	 * @return the number of pages which replaced the data of an entry still waiting in a queue
+	 */
+	public long getCoalescedCount()
+	{
+		return statistics.coalesced.get();
+	}
+
+	/**
+	 * @return the number of pages which had to be saved by the calling thread because the queue
+	 *         was full
+	 */
+	public long getFallbackCount()
+	{
+		return statistics.fallbacks.get();
+	}
+
+	/**
+	 * @return the average time in nanoseconds the wrapped {@link IDataStore} needed to save a page
+	 */
+	public long getAverageWriteTime()
+	{
+		long stored = statistics.stored.get();
+		return stored > 0 ? statistics.writeTime.get() / stored : 0;
+	}
+
 	/**
 	 * 
 	 * @param pageId
@@ -258,13 +391,31 @@ public class AsynchronousDataStore implements IDataStore
 	}
 
 	/**
-	 * The structure used for an entry in the queue
+	 * The counters shared by all {@link PageSavingRunnable}s
+	 */
+	private static class Statistics
+	{
+		private final AtomicLong stored = new AtomicLong();
+		private final AtomicLong coalesced = new AtomicLong();
+		private final AtomicLong fallbacks = new AtomicLong();
+		private final AtomicLong writeTime = new AtomicLong();
+	}
+
+	/**
+	 * The structure used for an entry in the queue. Entries are compared by identity, so a
+	 * {@link PageSavingRunnable} never removes a newer entry for the same page from the
+	 * {@link #entryMap}.
 	 */
 	private static class Entry
 	{
 		private final String sessionId;
 		private final int pageId;
-		private final byte data[];
+		private volatile byte data[];
+
+		/**
+		 * Whether a {@link PageSavingRunnable} has already taken the data for saving
+		 */
+		private boolean taken;
 
 		public Entry(final String sessionId, final int pageId, final byte data[])
 		{
@@ -273,38 +424,31 @@ public class AsynchronousDataStore implements IDataStore
 			this.data = Args.notNull(data, "data");
 		}
 
-		@Override
-		public int hashCode()
-		{
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + pageId;
-			result = prime * result + ((sessionId == null) ? 0 : sessionId.hashCode());
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj)
+		/**
+		 * Replaces the data if it has not been taken for saving yet.
+		 * 
+		 * @param data
+		 * @return {@code true} if the data has been replaced
+		 */
+		private synchronized boolean update(final byte data[])
 		{
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			Entry other = (Entry)obj;
-			if (pageId != other.pageId)
-				return false;
-			if (sessionId == null)
+			if (taken)
 			{
-				if (other.sessionId != null)
-					return false;
-			}
-			else if (!sessionId.equals(other.sessionId))
 				return false;
+			}
+			this.data = Args.notNull(data, "data");
 			return true;
 		}
 
+		/**
+		 * @return the data to save
+		 */
+		private synchronized byte[] take()
+		{
+			taken = true;
+			return data;
+		}
+
 		@Override
 		public String toString()
 		{
@@ -326,12 +470,17 @@ public class AsynchronousDataStore implements IDataStore
 
 		private final IDataStore dataStore;
 
+		private final Statistics statistics;
+
+		private final List<Entry> batch = new ArrayList<Entry>(BATCH_SIZE);
+
 		private PageSavingRunnable(IDataStore dataStore, BlockingQueue<Entry> entries,
-			ConcurrentMap<String, Entry> entryMap)
+			ConcurrentMap<String, Entry> entryMap, Statistics statistics)
 		{
 			this.dataStore = dataStore;
 			this.entries = entries;
 			this.entryMap = entryMap;
+			this.statistics = statistics;
 		}
 
 		@Override
@@ -351,12 +500,28 @@ public class AsynchronousDataStore implements IDataStore
 
 				if (entry != null)
 				{
-					log.debug("Saving asynchronously: {}...", entry);
-					dataStore.storeData(entry.sessionId, entry.pageId, entry.data);
-					entryMap.remove(getKey(entry));
+					batch.add(entry);
+					entries.drainTo(batch, BATCH_SIZE - 1);
+					log.debug("Saving asynchronously a batch of {} entries", batch.size());
+
+					for (Entry e : batch)
+					{
+						save(e);
+					}
+					batch.clear();
 				}
 			}
 		}
+
+		private void save(Entry entry)
+		{
+			log.debug("Saving asynchronously: {}...", entry);
+			long start = System.nanoTime();
+			dataStore.storeData(entry.sessionId, entry.pageId, entry.take());
+			statistics.writeTime.addAndGet(System.nanoTime() - start);
+			statistics.stored.incrementAndGet();
+			entryMap.remove(getKey(entry), entry);
+		}
 	}
 
 	@Override
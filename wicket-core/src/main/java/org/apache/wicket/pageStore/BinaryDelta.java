@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.ByteArrayOutputStream;
+
+import org.apache.wicket.util.collections.IntHashMap;
+
+/**
+ * Creates and applies binary deltas between two byte arrays.
+ * <p>
+ * A delta is a sequence of <em>copy</em> (offset and length in the base) and <em>insert</em>
+ * (literal bytes) instructions. Matches are found by indexing the base in blocks of
+ * {@value #BLOCK_SIZE} bytes and looking up a rolling hash of each position of the target, which
+ * suits serialized pages well: two versions of a page usually share long runs of bytes, shifted by
+ * the few fields which have changed.
+ * </p>
+ */
+final class BinaryDelta
+{
+	private static final int BLOCK_SIZE = 16;
+
+	private static final int HASH_MULTIPLIER = 31;
+
+	private static final byte COPY = 1;
+
+	private static final byte INSERT = 2;
+
+	/**
+	 * HASH_MULTIPLIER ^ (BLOCK_SIZE - 1), used to remove the leading byte from the rolling hash
+	 */
+	private static final int LEADING_FACTOR;
+
+	static
+	{
+		int factor = 1;
+		for (int i = 0; i < BLOCK_SIZE - 1; i++)
+		{
+			factor *= HASH_MULTIPLIER;
+		}
+		LEADING_FACTOR = factor;
+	}
+
+	private BinaryDelta()
+	{
+	}
+
+	/**
+	 * Creates the delta which transforms <code>base</code> into <code>target</code>.
+	 *
+	 * @param base
+	 * @param target
+	 * @return the delta
+	 */
+	static byte[] create(final byte[] base, final byte[] target)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, target.length / 8));
+		writeVarInt(out, target.length);
+
+		int literalStart = 0;
+		if (base.length >= BLOCK_SIZE && target.length >= BLOCK_SIZE)
+		{
+			IntHashMap<Integer> index = new IntHashMap<>(base.length / BLOCK_SIZE * 2);
+			for (int offset = base.length - BLOCK_SIZE; offset >= 0; offset -= BLOCK_SIZE)
+			{
+				// iterate backwards so that the first occurrence wins
+				index.put(hash(base, offset), offset);
+			}
+
+			int i = 0;
+			int hash = hash(target, 0);
+			while (i + BLOCK_SIZE <= target.length)
+			{
+				Integer offset = index.get(hash);
+				if (offset != null && matches(base, offset, target, i))
+				{
+					// extend the match in both directions
+					int start = i;
+					int baseStart = offset;
+					while (start > literalStart && baseStart > 0 &&
+						base[baseStart - 1] == target[start - 1])
+					{
+						start--;
+						baseStart--;
+					}
+					int end = i + BLOCK_SIZE;
+					int baseEnd = offset + BLOCK_SIZE;
+					while (end < target.length && baseEnd < base.length &&
+						base[baseEnd] == target[end])
+					{
+						end++;
+						baseEnd++;
+					}
+
+					writeInsert(out, target, literalStart, start);
+					out.write(COPY);
+					writeVarInt(out, baseStart);
+					writeVarInt(out, end - start);
+
+					i = end;
+					literalStart = end;
+					if (i + BLOCK_SIZE <= target.length)
+					{
+						hash = hash(target, i);
+					}
+				}
+				else
+				{
+					if (i + BLOCK_SIZE < target.length)
+					{
+						hash = (hash - (target[i] & 0xff) * LEADING_FACTOR) * HASH_MULTIPLIER +
+							(target[i + BLOCK_SIZE] & 0xff);
+					}
+					i++;
+				}
+			}
+		}
+		writeInsert(out, target, literalStart, target.length);
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Applies the delta created by {@link #create(byte[], byte[])} on <code>base</code>.
+	 *
+	 * @param base
+	 * @param delta
+	 * @return the target
+	 */
+	static byte[] apply(final byte[] base, final byte[] delta)
+	{
+		int[] position = new int[] { 0 };
+		byte[] target = new byte[readVarInt(delta, position)];
+		int targetPosition = 0;
+		while (position[0] < delta.length)
+		{
+			byte instruction = delta[position[0]++];
+			if (instruction == COPY)
+			{
+				int offset = readVarInt(delta, position);
+				int length = readVarInt(delta, position);
+				System.arraycopy(base, offset, target, targetPosition, length);
+				targetPosition += length;
+			}
+			else if (instruction == INSERT)
+			{
+				int length = readVarInt(delta, position);
+				System.arraycopy(delta, position[0], target, targetPosition, length);
+				position[0] += length;
+				targetPosition += length;
+			}
+			else
+			{
+				throw new IllegalArgumentException("Corrupted delta, unknown instruction: " +
+					instruction);
+			}
+		}
+		return target;
+	}
+
+	private static int hash(final byte[] data, final int offset)
+	{
+		int hash = 0;
+		for (int i = offset; i < offset + BLOCK_SIZE; i++)
+		{
+			hash = hash * HASH_MULTIPLIER + (data[i] & 0xff);
+		}
+		return hash;
+	}
+
+	private static boolean matches(final byte[] base, final int baseOffset, final byte[] target,
+		final int targetOffset)
+	{
+		if (baseOffset + BLOCK_SIZE > base.length)
+		{
+			return false;
+		}
+		for (int i = 0; i < BLOCK_SIZE; i++)
+		{
+			if (base[baseOffset + i] != target[targetOffset + i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void writeInsert(final ByteArrayOutputStream out, final byte[] data,
+		final int start, final int end)
+	{
+		if (end > start)
+		{
+			out.write(INSERT);
+			writeVarInt(out, end - start);
+			out.write(data, start, end - start);
+		}
+	}
+
+	private static void writeVarInt(final ByteArrayOutputStream out, int value)
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarInt(final byte[] data, final int[] position)
+	{
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do
+		{
+			b = data[position[0]++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((b & 0x80) != 0);
+		return value;
+	}
+}
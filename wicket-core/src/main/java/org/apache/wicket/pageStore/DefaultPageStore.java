@@ -18,12 +18,18 @@ package org.apache.wicket.pageStore;
 
 import java.io.Serializable;
 import java.lang.ref.SoftReference;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.wicket.page.IManageablePage;
 import org.apache.wicket.serialize.ISerializer;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.lang.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,7 +58,26 @@ public class DefaultPageStore extends AbstractCachingPageStore<DefaultPageStore.
 	public DefaultPageStore(final ISerializer pageSerializer, final IDataStore dataStore,
 		final int cacheSize)
 	{
-		super(pageSerializer, dataStore, new SerializedPagesCache(cacheSize));
+		this(pageSerializer, dataStore, cacheSize, Bytes.MAX);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param pageSerializer
+	 *            the {@link ISerializer} that will be used to convert pages from/to byte arrays
+	 * @param dataStore
+	 *            the {@link IDataStore} that actually stores the pages
+	 * @param cacheSize
+	 *            the number of pages to cache in memory before passing them to
+	 *            {@link IDataStore#storeData(String, int, byte[])}
+	 * @param maxCacheBytes
+	 *            the maximum size of the data of all pages in the cache
+	 */
+	public DefaultPageStore(final ISerializer pageSerializer, final IDataStore dataStore,
+		final int cacheSize, final Bytes maxCacheBytes)
+	{
+		super(pageSerializer, dataStore, new SerializedPagesCache(cacheSize, maxCacheBytes));
 	}
 
 	@Override
@@ -298,14 +323,29 @@ public class DefaultPageStore extends AbstractCachingPageStore<DefaultPageStore.
 	 * For example a page is serialized during request, but it might be also later serialized on
 	 * session replication. The purpose of this cache is to make sure that the data obtained from
 	 * first serialization is reused on second serialization.
+	 * <p>
+	 * The pages are looked up by (sessionId, pageId) in constant time. The cache is split into
+	 * stripes by the hash of the key, each of them an independently locked LRU bounded by its share
+	 * of the maximum number of entries and bytes. Small caches use a single stripe, i.e. a strict
+	 * LRU. A secondary index of the cached page ids per session is used to remove all pages of a
+	 * session.
 	 * 
 	 * @author Matej Knopp
 	 */
 	static class SerializedPagesCache implements SecondLevelPageCache<String, Integer, SerializedPage>
 	{
+		private static final int MAX_STRIPES = 16;
+
+		private static final int MIN_ENTRIES_PER_STRIPE = 16;
+
 		private final int maxSize;
 
-		private final ConcurrentLinkedDeque<SoftReference<SerializedPage>> cache;
+		private final Stripe[] stripes;
+
+		/**
+		 * sessionId -> the ids of its pages in the cache
+		 */
+		private final ConcurrentMap<String, Set<Integer>> sessionIndex;
 
 		/**
 		 * Constructor.
@@ -315,8 +355,44 @@ public class DefaultPageStore extends AbstractCachingPageStore<DefaultPageStore.
 		 */
 		public SerializedPagesCache(final int maxSize)
 		{
+			this(maxSize, Bytes.MAX);
+		}
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param maxSize
+		 *          The maximum number of entries to cache
+		 * @param maxBytes
+		 *          The maximum size of the data of all cached entries
+		 */
+		public SerializedPagesCache(final int maxSize, final Bytes maxBytes)
+		{
+			Args.notNull(maxBytes, "maxBytes");
+
 			this.maxSize = maxSize;
-			cache = new ConcurrentLinkedDeque<>();
+			sessionIndex = new ConcurrentHashMap<>();
+
+			int stripeCount = 1;
+			while (stripeCount < MAX_STRIPES &&
+				maxSize / (stripeCount * 2) >= MIN_ENTRIES_PER_STRIPE)
+			{
+				stripeCount *= 2;
+			}
+			stripes = new Stripe[stripeCount];
+			int maxStripeSize = (maxSize + stripeCount - 1) / stripeCount;
+			long maxStripeBytes = maxBytes.bytes() / stripeCount;
+			for (int i = 0; i < stripeCount; i++)
+			{
+				stripes[i] = new Stripe(maxStripeSize, maxStripeBytes);
+			}
+		}
+
+		private Stripe getStripe(final Key key)
+		{
+			int hash = key.hash;
+			hash ^= (hash >>> 16);
+			return stripes[hash & (stripes.length - 1)];
 		}
 
 		/**
@@ -333,18 +409,8 @@ public class DefaultPageStore extends AbstractCachingPageStore<DefaultPageStore.
 				Args.notNull(sessionId, "sessionId");
 				Args.notNull(pageId, "pageId");
 
-				SerializedPage sample = new SerializedPage(sessionId, pageId, null);
-
-				for (Iterator<SoftReference<SerializedPage>> i = cache.iterator(); i.hasNext();)
-				{
-					SoftReference<SerializedPage> ref = i.next();
-					SerializedPage entry = ref.get();
-					if (sample.equals(entry))
-					{
-						i.remove();
-						return entry;
-					}
-				}
+				Key key = new Key(sessionId, pageId);
+				return getStripe(key).remove(key);
 			}
 			return null;
 		}
@@ -362,13 +428,13 @@ public class DefaultPageStore extends AbstractCachingPageStore<DefaultPageStore.
 			{
 				Args.notNull(sessionId, "sessionId");
 
-				for (Iterator<SoftReference<SerializedPage>> i = cache.iterator(); i.hasNext();)
+				Set<Integer> pageIds = sessionIndex.remove(sessionId);
+				if (pageIds != null)
 				{
-					SoftReference<SerializedPage> ref = i.next();
-					SerializedPage entry = ref.get();
-					if (entry != null && entry.getSessionId().equals(sessionId))
+					for (Integer pageId : pageIds)
 					{
-						i.remove();
+						Key key = new Key(sessionId, pageId);
+						getStripe(key).remove(key);
 					}
 				}
 			}
@@ -392,25 +458,8 @@ public class DefaultPageStore extends AbstractCachingPageStore<DefaultPageStore.
 				Args.notNull(sessionId, "sessionId");
 				Args.notNull(pageId, "pageId");
 
-				SerializedPage sample = new SerializedPage(sessionId, pageId, null);
-
-				for (Iterator<SoftReference<SerializedPage>> i = cache.iterator(); i.hasNext();)
-				{
-					SoftReference<SerializedPage> ref = i.next();
-					SerializedPage entry = ref.get();
-					if (sample.equals(entry))
-					{
-						i.remove();
-						result = entry;
-						break;
-					}
-				}
-
-				if (result != null)
-				{
-					// move to top
-					internalStore(result);
-				}
+				Key key = new Key(sessionId, pageId);
+				result = getStripe(key).get(key);
 			}
 			return result;
 		}
@@ -430,34 +479,199 @@ public class DefaultPageStore extends AbstractCachingPageStore<DefaultPageStore.
 				Args.notNull(pageId, "pageId");
 				Args.notNull(page, "page");
 
-				for (Iterator<SoftReference<SerializedPage>> i = cache.iterator(); i.hasNext();)
+				Key key = new Key(sessionId, pageId);
+				getStripe(key).put(key, page);
+			}
+		}
+
+		@Override
+		public void destroy()
+		{
+			for (Stripe stripe : stripes)
+			{
+				stripe.clear();
+			}
+			sessionIndex.clear();
+		}
+
+		/**
+		 * Adds the page to the secondary index of its session. Called with the lock of the stripe
+		 * of the page held, so it is ordered with the evictions and removals of the page.
+		 * 
+		 * @param key
+		 */
+		private void index(final Key key)
+		{
+			while (true)
+			{
+				Set<Integer> pageIds = sessionIndex.get(key.sessionId);
+				if (pageIds == null)
 				{
-					SoftReference<SerializedPage> r = i.next();
-					SerializedPage entry = r.get();
-					if (entry != null && entry.equals(page))
+					pageIds = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+					Set<Integer> existing = sessionIndex.putIfAbsent(key.sessionId, pageIds);
+					if (existing != null)
 					{
-						i.remove();
-						break;
+						pageIds = existing;
 					}
 				}
+				pageIds.add(key.pageId);
 
-				internalStore(page);
+				// retry if all pages of the session have been removed in the meantime
+				if (sessionIndex.get(key.sessionId) == pageIds)
+				{
+					return;
+				}
 			}
 		}
 
-		private void internalStore(SerializedPage page)
+		/**
+		 * Removes the page from the secondary index of its session
+		 * 
+		 * @param key
+		 */
+		private void unindex(final Key key)
 		{
-			cache.push(new SoftReference<>(page));
-			while (cache.size() > maxSize)
+			Set<Integer> pageIds = sessionIndex.get(key.sessionId);
+			if (pageIds != null)
 			{
-				cache.pollLast();
+				pageIds.remove(key.pageId);
 			}
 		}
 
-		@Override
-		public void destroy()
+		/**
+		 * The lookup key of a cached page
+		 */
+		private static final class Key
+		{
+			private final String sessionId;
+			private final int pageId;
+			private final int hash;
+
+			private Key(final String sessionId, final int pageId)
+			{
+				this.sessionId = sessionId;
+				this.pageId = pageId;
+				hash = 31 * sessionId.hashCode() + pageId;
+			}
+
+			@Override
+			public boolean equals(Object obj)
+			{
+				if (this == obj)
+				{
+					return true;
+				}
+				if ((obj instanceof Key) == false)
+				{
+					return false;
+				}
+				Key rhs = (Key)obj;
+				return pageId == rhs.pageId && sessionId.equals(rhs.sessionId);
+			}
+
+			@Override
+			public int hashCode()
+			{
+				return hash;
+			}
+		}
+
+		/**
+		 * A cached page together with its size, which is still needed for the bookkeeping after
+		 * the soft reference has been cleared.
+		 */
+		private static final class Value
+		{
+			private final SoftReference<SerializedPage> page;
+			private final int size;
+
+			private Value(final SerializedPage page)
+			{
+				this.page = new SoftReference<>(page);
+				byte[] data = page.getData();
+				size = data != null ? data.length : 0;
+			}
+		}
+
+		/**
+		 * An access ordered part of the cache with its own lock
+		 */
+		private final class Stripe
 		{
-			cache.clear();
+			private final int maxEntries;
+
+			private final long maxBytes;
+
+			private final LinkedHashMap<Key, Value> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+			private long bytes;
+
+			private Stripe(final int maxEntries, final long maxBytes)
+			{
+				this.maxEntries = maxEntries;
+				this.maxBytes = maxBytes;
+			}
+
+			private synchronized SerializedPage get(final Key key)
+			{
+				Value value = entries.get(key);
+				if (value == null)
+				{
+					return null;
+				}
+
+				SerializedPage page = value.page.get();
+				if (page == null)
+				{
+					// collected by the garbage collector
+					removeEntry(key);
+				}
+				return page;
+			}
+
+			private synchronized void put(final Key key, final SerializedPage page)
+			{
+				Value value = new Value(page);
+				Value previous = entries.put(key, value);
+				if (previous != null)
+				{
+					bytes -= previous.size;
+				}
+				bytes += value.size;
+				index(key);
+
+				Iterator<Map.Entry<Key, Value>> eldest = entries.entrySet().iterator();
+				while (entries.size() > maxEntries || (bytes > maxBytes && entries.size() > 1))
+				{
+					Map.Entry<Key, Value> entry = eldest.next();
+					eldest.remove();
+					bytes -= entry.getValue().size;
+					unindex(entry.getKey());
+				}
+			}
+
+			private synchronized SerializedPage remove(final Key key)
+			{
+				Value value = removeEntry(key);
+				return value != null ? value.page.get() : null;
+			}
+
+			private synchronized void clear()
+			{
+				entries.clear();
+				bytes = 0;
+			}
+
+			private Value removeEntry(final Key key)
+			{
+				Value value = entries.remove(key);
+				if (value != null)
+				{
+					bytes -= value.size;
+					unindex(key);
+				}
+				return value;
+			}
 		}
 	}
 }
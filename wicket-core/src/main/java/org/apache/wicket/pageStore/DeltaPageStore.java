@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.lang.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DefaultPageStore} which passes only the difference to a base snapshot to the
+ * {@link IDataStore}.
+ * <p>
+ * Successive versions of a page - and especially a page updated by Ajax requests, which keeps its
+ * id - differ in just a few bytes of their serialized form. This store keeps the serialized bytes
+ * of the last stored page of each session as a <em>base</em> and writes each page as a
+ * {@link BinaryDelta} against it. The base itself is written once to the {@link IDataStore} under
+ * a negative id, so it can never be overwritten by a page. A new base is taken after
+ * {@value #REBASE_INTERVAL} deltas or when the delta of a page is not significantly smaller than
+ * the page itself. A base is removed from the {@link IDataStore} as soon as no page stored by
+ * this instance refers to it anymore.
+ * </p>
+ * <p>
+ * Restoring is transparent: {@link #getPageData(String, int)} loads the base of the delta and
+ * applies the delta on it. The data of the bases is kept softly reachable in memory, so a data
+ * store with limited capacity (e.g. {@link DiskDataStore}) which evicts a base does not affect its
+ * pages until the garbage collector clears it. Pages whose base is neither in memory nor in the
+ * data store anymore are treated as expired, and the next page of the session is stored against a
+ * new base.
+ * </p>
+ */
+public class DeltaPageStore extends DefaultPageStore
+{
+	private static final Logger LOG = LoggerFactory.getLogger(DeltaPageStore.class);
+
+	/**
+	 * The maximum number of pages stored as deltas against the same base.
+	 */
+	private static final int REBASE_INTERVAL = 20;
+
+	/**
+	 * The id of the first base of a session. -1 is reserved by {@link PageWindowManager}.
+	 */
+	private static final int FIRST_BASE_ID = -2;
+
+	/**
+	 * The delta of a page which is identical to its base
+	 */
+	private static final byte[] NO_DELTA = new byte[0];
+
+	/**
+	 * The size of the header of a delta record: the id and the checksum of its base
+	 */
+	private static final int HEADER_SIZE = 8;
+
+	/**
+	 * sessionId -> the bases of the session
+	 */
+	private final ConcurrentMap<String, SessionBases> sessions = new ConcurrentHashMap<>();
+
+	/**
+	 * Construct.
+	 *
+	 * @param pageSerializer
+	 *            the {@link ISerializer} that will be used to convert pages from/to byte arrays
+	 * @param dataStore
+	 *            the {@link IDataStore} that actually stores the pages
+	 * @param cacheSize
+	 *            the number of pages to cache in memory before passing them to
+	 *            {@link IDataStore#storeData(String, int, byte[])}
+	 */
+	public DeltaPageStore(final ISerializer pageSerializer, final IDataStore dataStore,
+		final int cacheSize)
+	{
+		this(pageSerializer, dataStore, cacheSize, Bytes.MAX);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param pageSerializer
+	 *            the {@link ISerializer} that will be used to convert pages from/to byte arrays
+	 * @param dataStore
+	 *            the {@link IDataStore} that actually stores the pages
+	 * @param cacheSize
+	 *            the number of pages to cache in memory before passing them to
+	 *            {@link IDataStore#storeData(String, int, byte[])}
+	 * @param maxCacheBytes
+	 *            the maximum size of the data of all pages in the cache
+	 */
+	public DeltaPageStore(final ISerializer pageSerializer, final IDataStore dataStore,
+		final int cacheSize, final Bytes maxCacheBytes)
+	{
+		super(pageSerializer, dataStore, cacheSize, maxCacheBytes);
+	}
+
+	@Override
+	protected void storePageData(final String sessionId, final int pageId, final byte[] data)
+	{
+		SessionBases session = getSessionBases(sessionId);
+		synchronized (session)
+		{
+			Base base = session.current;
+			byte[] baseData = null;
+			if (base != null && base.deltas < REBASE_INTERVAL)
+			{
+				baseData = getBaseData(sessionId, session, base);
+			}
+
+			byte[] delta = null;
+			if (baseData != null)
+			{
+				delta = BinaryDelta.create(baseData, data);
+				if (delta.length > data.length / 2)
+				{
+					// the page differs too much from the base
+					delta = null;
+				}
+			}
+
+			if (delta == null)
+			{
+				Base previous = base;
+				int baseId = session.lastBaseId - 1;
+				LOG.debug("Storing new base with id '{}' for session '{}'", baseId, sessionId);
+				base = new Base(baseId, data);
+				super.storePageData(sessionId, baseId, data);
+				session.add(base);
+				release(sessionId, session, previous);
+				delta = NO_DELTA;
+			}
+			base.deltas++;
+			super.storePageData(sessionId, pageId, newRecord(base.id, base.checksum, delta));
+
+			release(sessionId, session, session.setReference(pageId, base));
+		}
+	}
+
+	@Override
+	protected byte[] getPageData(final String sessionId, final int pageId)
+	{
+		byte[] record = super.getPageData(sessionId, pageId);
+		if (record == null)
+		{
+			return null;
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		int baseId = buffer.getInt();
+		int checksum = buffer.getInt();
+		byte[] delta = new byte[record.length - HEADER_SIZE];
+		buffer.get(delta);
+
+		byte[] baseData = null;
+		SessionBases session = sessions.get(sessionId);
+		Base base = null;
+		if (session != null)
+		{
+			synchronized (session)
+			{
+				base = session.bases.get(baseId);
+			}
+		}
+		if (base != null)
+		{
+			baseData = getBaseData(sessionId, session, base);
+		}
+		else
+		{
+			baseData = super.getPageData(sessionId, baseId);
+		}
+
+		if (baseData == null || checksum(baseData) != checksum)
+		{
+			LOG.debug("The base with id '{}' of page '{}' in session '{}' is no longer available",
+				baseId, pageId, sessionId);
+			return null;
+		}
+
+		return delta.length == 0 ? baseData : BinaryDelta.apply(baseData, delta);
+	}
+
+	@Override
+	protected void removePageData(final String sessionId, final int pageId)
+	{
+		super.removePageData(sessionId, pageId);
+
+		SessionBases session = sessions.get(sessionId);
+		if (session != null)
+		{
+			synchronized (session)
+			{
+				release(sessionId, session, session.setReference(pageId, null));
+			}
+		}
+	}
+
+	@Override
+	protected void removePageData(final String sessionId)
+	{
+		sessions.remove(sessionId);
+		super.removePageData(sessionId);
+	}
+
+	/**
+	 * @param sessionId
+	 * @return the bases of the session, created if necessary
+	 */
+	private SessionBases getSessionBases(final String sessionId)
+	{
+		SessionBases session = sessions.get(sessionId);
+		if (session == null)
+		{
+			session = new SessionBases();
+			SessionBases existing = sessions.putIfAbsent(sessionId, session);
+			if (existing != null)
+			{
+				session = existing;
+			}
+		}
+		return session;
+	}
+
+	/**
+	 * Removes a base from the data store once no page refers to it and it is not the base new
+	 * pages are stored against.
+	 * 
+	 * @param sessionId
+	 * @param session
+	 * @param base
+	 *            the base which lost a reference, may be {@code null}
+	 */
+	private void release(final String sessionId, final SessionBases session, final Base base)
+	{
+		if (base != null && base.references == 0 && base != session.current)
+		{
+			LOG.debug("Removing unreferenced base with id '{}' of session '{}'", base.id,
+				sessionId);
+			session.remove(base);
+			super.removePageData(sessionId, base.id);
+		}
+	}
+
+	/**
+	 * @param sessionId
+	 * @param session
+	 * @param base
+	 * @return the data of the base, loaded from the data store if the garbage collector has
+	 *         cleared it, or {@code null} if the data store has evicted it
+	 */
+	private byte[] getBaseData(final String sessionId, final SessionBases session, final Base base)
+	{
+		byte[] data = base.data.get();
+		if (data == null)
+		{
+			data = super.getPageData(sessionId, base.id);
+			if (data == null)
+			{
+				LOG.debug("The base with id '{}' of session '{}' has been evicted", base.id,
+					sessionId);
+				synchronized (session)
+				{
+					// store the next page against a new base
+					session.remove(base);
+				}
+			}
+		}
+		return data;
+	}
+
+	private static byte[] newRecord(final int baseId, final int checksum, final byte[] delta)
+	{
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + delta.length);
+		record.putInt(baseId);
+		record.putInt(checksum);
+		record.put(delta);
+		return record.array();
+	}
+
+	private static int checksum(final byte[] data)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		return (int)crc.getValue();
+	}
+
+	/**
+	 * The bases of a session and the pages referring to them. Guarded by its own monitor.
+	 */
+	private static final class SessionBases
+	{
+		/**
+		 * The base new pages are stored against
+		 */
+		private Base current;
+
+		/**
+		 * The id of the last base taken, bases get decreasing ids
+		 */
+		private int lastBaseId = FIRST_BASE_ID + 1;
+
+		/**
+		 * baseId -> base
+		 */
+		private final Map<Integer, Base> bases = new HashMap<>();
+
+		/**
+		 * pageId -> the base the page has been stored against
+		 */
+		private final Map<Integer, Base> references = new HashMap<>();
+
+		private void add(final Base base)
+		{
+			bases.put(base.id, base);
+			current = base;
+			lastBaseId = base.id;
+		}
+
+		private void remove(final Base base)
+		{
+			bases.remove(base.id);
+			if (current == base)
+			{
+				current = null;
+			}
+		}
+
+		/**
+		 * @param pageId
+		 * @param base
+		 *            the base the page is now stored against, or {@code null}
+		 * @return the base the page was stored against before, or {@code null}
+		 */
+		private Base setReference(final int pageId, final Base base)
+		{
+			Base previous = base != null ? references.put(pageId, base) : references.remove(pageId);
+			if (base != null)
+			{
+				base.references++;
+			}
+			if (previous != null)
+			{
+				previous.references--;
+			}
+			return previous;
+		}
+	}
+
+	/**
+	 * The snapshot the pages of a session are stored against
+	 */
+	private static final class Base
+	{
+		private final int id;
+
+		private final SoftReference<byte[]> data;
+
+		/**
+		 * Protects the deltas against a base with the same id written before an application
+		 * restart
+		 */
+		private final int checksum;
+
+		private int deltas;
+
+		private int references;
+
+		private Base(final int id, final byte[] data)
+		{
+			this.id = id;
+			this.data = new SoftReference<>(data);
+			checksum = checksum(data);
+		}
+	}
+}
@@ -0,0 +1,694 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A data store implementation which appends the pages of all sessions into a few shared,
+ * memory-mapped segment files.
+ * <p>
+ * In contrast to {@link DiskDataStore} there is no file per session. Each page is appended to the
+ * current segment as a record (length + data) and is never modified afterwards. The location of
+ * the record is kept in an index (sessionId -> pageId -> segment/offset packed in a {@code long}),
+ * so reading a page takes no lock at all - it just copies the record out of the mapped segment.
+ * </p>
+ * <p>
+ * Records which are replaced or removed leave garbage in their segment. A background thread
+ * periodically moves the live records out of sparse segments and deletes the segment files.
+ * </p>
+ * <p>
+ * Note: unlike {@link DiskDataStore} the index is not persisted, so the stored pages do not survive
+ * an application restart.
+ * </p>
+ */
+public class MappedDataStore implements IDataStore
+{
+	private static final Logger log = LoggerFactory.getLogger(MappedDataStore.class);
+
+	/**
+	 * The size of the header of each record - the length of the page data.
+	 */
+	private static final int RECORD_HEADER_SIZE = 4;
+
+	/**
+	 * The time between two compactions.
+	 */
+	private static final Duration COMPACTION_INTERVAL = Duration.seconds(30);
+
+	/**
+	 * Segments with less live data than this ratio are compacted.
+	 */
+	private static final double COMPACTION_THRESHOLD = 0.5;
+
+	private final String applicationName;
+
+	private final File fileStoreFolder;
+
+	private final long maxSizePerSession;
+
+	private final int segmentSize;
+
+	private final ConcurrentMap<String, SessionEntry> sessionEntryMap;
+
+	private final ConcurrentMap<Integer, Segment> segments;
+
+	private final AtomicInteger segmentCounter;
+
+	private final Thread compactionThread;
+
+	/**
+	 * The segment new records are appended to
+	 */
+	private volatile Segment current;
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationName
+	 * @param fileStoreFolder
+	 * @param maxSizePerSession
+	 * @param segmentSize
+	 *            the size of a single segment file
+	 */
+	public MappedDataStore(final String applicationName, final File fileStoreFolder,
+		final Bytes maxSizePerSession, final Bytes segmentSize)
+	{
+		this.applicationName = applicationName;
+		this.fileStoreFolder = fileStoreFolder;
+		this.maxSizePerSession = Args.notNull(maxSizePerSession, "maxSizePerSession").bytes();
+		this.segmentSize = (int)Math.min(Args.notNull(segmentSize, "segmentSize").bytes(),
+			Integer.MAX_VALUE);
+		sessionEntryMap = new ConcurrentHashMap<>();
+		segments = new ConcurrentHashMap<>();
+		segmentCounter = new AtomicInteger();
+
+		File storeFolder = getStoreFolder();
+		try
+		{
+			if (storeFolder.exists())
+			{
+				// the index is not persisted so any leftovers are garbage
+				Files.removeFolder(storeFolder);
+			}
+			if (storeFolder.mkdirs() == false)
+			{
+				log.warn("Cannot create file store folder for some reason.");
+			}
+		}
+		catch (SecurityException e)
+		{
+			throw new WicketRuntimeException(
+				"SecurityException occurred while creating MappedDataStore. Consider using a non-disk based IDataStore implementation. "
+					+ "See org.apache.wicket.Application.setPageManagerProvider(IPageManagerProvider)",
+				e);
+		}
+
+		compactionThread = new Thread(new CompactionRunnable(), "Wicket-MappedDataStoreCompaction");
+		compactionThread.setDaemon(true);
+		compactionThread.start();
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#destroy()
+	 */
+	@Override
+	public void destroy()
+	{
+		log.debug("Destroying...");
+		if (compactionThread.isAlive())
+		{
+			compactionThread.interrupt();
+			try
+			{
+				compactionThread.join();
+			}
+			catch (InterruptedException e)
+			{
+				log.error(e.getMessage(), e);
+			}
+		}
+
+		sessionEntryMap.clear();
+		for (Segment segment : segments.values())
+		{
+			segment.delete();
+		}
+		segments.clear();
+		Files.removeFolder(getStoreFolder());
+		log.debug("Destroyed.");
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#getData(java.lang.String, int)
+	 */
+	@Override
+	public byte[] getData(final String sessionId, final int id)
+	{
+		byte[] pageData = null;
+		SessionEntry sessionEntry = sessionEntryMap.get(sessionId);
+		if (sessionEntry != null)
+		{
+			// a concurrent compaction may delete the segment between the lookup of the
+			// location and the read, so retry once with the relocated record
+			for (int attempt = 0; attempt < 2 && pageData == null; attempt++)
+			{
+				Long location = sessionEntry.locations.get(id);
+				if (location == null)
+				{
+					break;
+				}
+				Segment segment = segments.get(segmentOf(location));
+				if (segment != null)
+				{
+					pageData = segment.read(offsetOf(location));
+				}
+			}
+		}
+
+		if (log.isDebugEnabled())
+		{
+			log.debug("Returning data{} for page with id '{}' in session with id '{}'",
+				pageData != null ? "" : "(null)", id, sessionId);
+		}
+		return pageData;
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#isReplicated()
+	 */
+	@Override
+	public boolean isReplicated()
+	{
+		return false;
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#removeData(java.lang.String, int)
+	 */
+	@Override
+	public void removeData(final String sessionId, final int id)
+	{
+		SessionEntry sessionEntry = sessionEntryMap.get(sessionId);
+		if (sessionEntry != null)
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("Removing data for page with id '{}' in session with id '{}'", id, sessionId);
+			}
+			synchronized (sessionEntry)
+			{
+				sessionEntry.removePage(id);
+			}
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#removeData(java.lang.String)
+	 */
+	@Override
+	public void removeData(final String sessionId)
+	{
+		SessionEntry sessionEntry = sessionEntryMap.remove(sessionId);
+		if (sessionEntry != null)
+		{
+			log.debug("Removing data for pages in session with id '{}'", sessionId);
+			synchronized (sessionEntry)
+			{
+				sessionEntry.unbind();
+			}
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#storeData(java.lang.String, int, byte[])
+	 */
+	@Override
+	public void storeData(final String sessionId, final int id, final byte[] data)
+	{
+		if (data == null)
+		{
+			return;
+		}
+
+		SessionEntry sessionEntry = getSessionEntry(sessionId);
+		if (log.isDebugEnabled())
+		{
+			log.debug("Storing data for page with id '{}' in session with id '{}'", id, sessionId);
+		}
+
+		long location = append(data);
+		synchronized (sessionEntry)
+		{
+			if (sessionEntry.unbound)
+			{
+				release(location);
+				return;
+			}
+			sessionEntry.savePage(id, location);
+		}
+	}
+
+	@Override
+	public boolean canBeAsynchronous()
+	{
+		return true;
+	}
+
+	/**
+	 * @return the number of segment files currently in use
+	 */
+	public int getSegmentCount()
+	{
+		return segments.size();
+	}
+
+	/**
+	 * Moves the live records of all sparse segments into the current segment and deletes the
+	 * emptied segment files. Called periodically by the compaction thread.
+	 */
+	public void compact()
+	{
+		List<Segment> sparse = new ArrayList<>();
+		for (Segment segment : segments.values())
+		{
+			// a segment which is no longer current is never current again, but writers which read
+			// it before the roll over may still append to it until it is closed
+			if (segment != current && segment.isSparse())
+			{
+				segment.close();
+				sparse.add(segment);
+			}
+		}
+
+		for (Segment segment : sparse)
+		{
+			if (segment.liveBytes.get() > 0)
+			{
+				for (SessionEntry sessionEntry : sessionEntryMap.values())
+				{
+					synchronized (sessionEntry)
+					{
+						sessionEntry.relocate(segment.id);
+					}
+				}
+			}
+
+			if (segment.liveBytes.get() == 0)
+			{
+				log.debug("Deleting compacted segment {}", segment.file);
+				segments.remove(segment.id);
+				segment.delete();
+			}
+		}
+	}
+
+	/**
+	 * Appends the data to the current segment, rolling over to a new segment when it is full.
+	 *
+	 * @param data
+	 * @return the location of the record
+	 */
+	private long append(final byte[] data)
+	{
+		int recordSize = RECORD_HEADER_SIZE + data.length;
+		Segment segment = current;
+		int offset;
+		while (segment == null || (offset = segment.allocate(recordSize)) < 0)
+		{
+			segment = rollOver(segment, recordSize);
+		}
+		segment.write(offset, data);
+		return locationOf(segment.id, offset);
+	}
+
+	/**
+	 * Creates a new current segment unless another thread did it already.
+	 *
+	 * @param full
+	 *            the segment which has no room for the record
+	 * @param recordSize
+	 *            the size of the record which has to fit in the new segment
+	 * @return the current segment
+	 */
+	private synchronized Segment rollOver(final Segment full, final int recordSize)
+	{
+		if (current == full)
+		{
+			int id = segmentCounter.getAndIncrement();
+			File file = new File(getStoreFolder(), "segment-" + id);
+			Segment segment = new Segment(id, file, Math.max(segmentSize, recordSize));
+			segments.put(id, segment);
+			current = segment;
+		}
+		return current;
+	}
+
+	/**
+	 * Marks the record at the given location as garbage.
+	 *
+	 * @param location
+	 */
+	private void release(final long location)
+	{
+		Segment segment = segments.get(segmentOf(location));
+		if (segment != null)
+		{
+			segment.release(offsetOf(location));
+		}
+	}
+
+	/**
+	 *
+	 * @param sessionId
+	 * @return the session entry
+	 */
+	private SessionEntry getSessionEntry(final String sessionId)
+	{
+		SessionEntry entry = sessionEntryMap.get(sessionId);
+		if (entry == null)
+		{
+			entry = new SessionEntry();
+			SessionEntry existing = sessionEntryMap.putIfAbsent(sessionId, entry);
+			if (existing != null)
+			{
+				entry = existing;
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * This folder contains the segment files.
+	 *
+	 * @return the folder where the pages are stored
+	 */
+	protected File getStoreFolder()
+	{
+		return new File(fileStoreFolder, applicationName + "-mappedstore");
+	}
+
+	private static long locationOf(final int segmentId, final int offset)
+	{
+		return ((long)segmentId << 32) | (offset & 0xFFFFFFFFL);
+	}
+
+	private static int segmentOf(final long location)
+	{
+		return (int)(location >>> 32);
+	}
+
+	private static int offsetOf(final long location)
+	{
+		return (int)location;
+	}
+
+	/**
+	 * The index of the pages of a session. The locations are read without locking, all
+	 * modifications are guarded by the monitor of the entry.
+	 */
+	private class SessionEntry
+	{
+		/**
+		 * pageId -> location
+		 */
+		private final ConcurrentMap<Integer, Long> locations = new ConcurrentHashMap<>();
+
+		/**
+		 * The page ids in the order they were stored, oldest first
+		 */
+		private final LinkedHashSet<Integer> order = new LinkedHashSet<>();
+
+		private long size = 0;
+
+		private boolean unbound = false;
+
+		private void savePage(final int pageId, final long location)
+		{
+			Long previous = locations.put(pageId, location);
+			if (previous != null)
+			{
+				size -= recordSize(previous);
+				release(previous);
+			}
+			order.remove(pageId);
+			order.add(pageId);
+			size += recordSize(location);
+
+			// evict the oldest pages but never the one which has just been stored
+			Iterator<Integer> oldest = order.iterator();
+			while (size > maxSizePerSession && order.size() > 1)
+			{
+				Integer evicted = oldest.next();
+				oldest.remove();
+				Long evictedLocation = locations.remove(evicted);
+				size -= recordSize(evictedLocation);
+				release(evictedLocation);
+			}
+		}
+
+		private void removePage(final int pageId)
+		{
+			Long location = locations.remove(pageId);
+			if (location != null)
+			{
+				order.remove(pageId);
+				size -= recordSize(location);
+				release(location);
+			}
+		}
+
+		private void unbind()
+		{
+			for (Long location : locations.values())
+			{
+				release(location);
+			}
+			locations.clear();
+			order.clear();
+			size = 0;
+			unbound = true;
+		}
+
+		/**
+		 * Moves all records of this session stored in the given segment to the current segment.
+		 *
+		 * @param segmentId
+		 */
+		private void relocate(final int segmentId)
+		{
+			for (Map.Entry<Integer, Long> entry : locations.entrySet())
+			{
+				long location = entry.getValue();
+				if (segmentOf(location) == segmentId)
+				{
+					Segment segment = segments.get(segmentId);
+					byte[] data = segment.read(offsetOf(location));
+					entry.setValue(append(data));
+					segment.release(offsetOf(location));
+				}
+			}
+		}
+
+		private int recordSize(final long location)
+		{
+			Segment segment = segments.get(segmentOf(location));
+			return segment != null ? segment.recordSize(offsetOf(location)) : 0;
+		}
+	}
+
+	/**
+	 * A memory mapped file where the records are appended to.
+	 */
+	private static class Segment
+	{
+		private final int id;
+
+		private final File file;
+
+		private final int capacity;
+
+		private final MappedByteBuffer buffer;
+
+		/**
+		 * The offset where the next record will be appended
+		 */
+		private final AtomicInteger position = new AtomicInteger();
+
+		/**
+		 * The number of bytes used by records which are still referenced from the index
+		 */
+		private final AtomicInteger liveBytes = new AtomicInteger();
+
+		private Segment(final int id, final File file, final int capacity)
+		{
+			this.id = id;
+			this.file = file;
+			this.capacity = capacity;
+
+			RandomAccessFile randomAccessFile = null;
+			try
+			{
+				randomAccessFile = new RandomAccessFile(file, "rw");
+				FileChannel channel = randomAccessFile.getChannel();
+				// the mapping stays valid after the channel is closed
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			}
+			catch (IOException e)
+			{
+				throw new WicketRuntimeException("Cannot map segment file " + file, e);
+			}
+			finally
+			{
+				IOUtils.closeQuietly(randomAccessFile);
+			}
+		}
+
+		/**
+		 * Reserves space for a record.
+		 *
+		 * @param recordSize
+		 * @return the offset of the reserved space or -1 if the segment is full
+		 */
+		private int allocate(final int recordSize)
+		{
+			// count the record as live before reserving it, so a compaction closing the segment
+			// concurrently does not see it empty
+			liveBytes.addAndGet(recordSize);
+			while (true)
+			{
+				int offset = position.get();
+				if (capacity - offset < recordSize)
+				{
+					liveBytes.addAndGet(-recordSize);
+					return -1;
+				}
+				if (position.compareAndSet(offset, offset + recordSize))
+				{
+					return offset;
+				}
+			}
+		}
+
+		/**
+		 * Prevents any further allocation in this segment.
+		 */
+		private void close()
+		{
+			int offset;
+			do
+			{
+				offset = position.get();
+			}
+			while (position.compareAndSet(offset, capacity) == false);
+		}
+
+		private void write(final int offset, final byte[] data)
+		{
+			ByteBuffer view = buffer.duplicate();
+			view.position(offset);
+			view.putInt(data.length);
+			view.put(data);
+		}
+
+		private byte[] read(final int offset)
+		{
+			ByteBuffer view = buffer.duplicate();
+			view.position(offset);
+			byte[] data = new byte[view.getInt()];
+			view.get(data);
+			return data;
+		}
+
+		private int recordSize(final int offset)
+		{
+			return RECORD_HEADER_SIZE + buffer.getInt(offset);
+		}
+
+		private void release(final int offset)
+		{
+			liveBytes.addAndGet(-recordSize(offset));
+		}
+
+		private boolean isSparse()
+		{
+			return liveBytes.get() < capacity * COMPACTION_THRESHOLD;
+		}
+
+		private void delete()
+		{
+			if (Files.remove(file) == false)
+			{
+				// e.g. on Windows a mapped file cannot be deleted before the mapping is collected
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * Periodically compacts the segments
+	 */
+	private class CompactionRunnable implements Runnable
+	{
+		@Override
+		public void run()
+		{
+			while (!Thread.interrupted())
+			{
+				try
+				{
+					Thread.sleep(COMPACTION_INTERVAL.getMilliseconds());
+				}
+				catch (InterruptedException e)
+				{
+					break;
+				}
+
+				try
+				{
+					compact();
+				}
+				catch (RuntimeException e)
+				{
+					log.error("An error occurred while compacting the segments", e);
+				}
+			}
+		}
+	}
+}
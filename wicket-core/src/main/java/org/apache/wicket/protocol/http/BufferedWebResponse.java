@@ -29,6 +29,7 @@ import org.apache.wicket.Application;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.response.EncodedCharSequence;
 import org.apache.wicket.response.filter.IResponseFilter;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.string.AppendingStringBuffer;
@@ -142,6 +143,9 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 	{
 		private final StringBuilder builder = new StringBuilder(4096);
 
+		/** Encoded text appended to the builder, null if none or if the builder has been exposed */
+		private List<EncodedSection> encodedSections;
+
 		public WriteCharSequenceAction()
 		{
 
@@ -149,18 +153,62 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 
 		public void append(CharSequence sequence)
 		{
-			builder.append(sequence);
+			if (sequence instanceof EncodedCharSequence)
+			{
+				if (encodedSections == null)
+				{
+					encodedSections = new ArrayList<EncodedSection>();
+				}
+				encodedSections.add(new EncodedSection(builder.length(),
+					(EncodedCharSequence)sequence));
+				builder.append(sequence.toString());
+			}
+			else
+			{
+				builder.append(sequence);
+			}
+		}
+
+		/**
+		 * The builder is about to be exposed, so the encoded sections might no longer match its
+		 * content.
+		 */
+		public StringBuilder getBuilder()
+		{
+			encodedSections = null;
+			return builder;
 		}
 
 		@Override
 		protected void invoke(WebResponse response)
 		{
-			AppendingStringBuffer responseBuffer = new AppendingStringBuffer(builder);
-
 			List<IResponseFilter> responseFilters = Application.get()
 				.getRequestCycleSettings()
 				.getResponseFilters();
 
+			if ((encodedSections != null) &&
+				((responseFilters == null) || responseFilters.isEmpty()))
+			{
+				// pass the encoded text on as it is
+				int start = 0;
+				for (EncodedSection section : encodedSections)
+				{
+					if (section.offset > start)
+					{
+						response.write(builder.substring(start, section.offset));
+					}
+					response.write(section.text);
+					start = section.offset + section.text.length();
+				}
+				if (start < builder.length())
+				{
+					response.write(builder.substring(start));
+				}
+				return;
+			}
+
+			AppendingStringBuffer responseBuffer = new AppendingStringBuffer(builder);
+
 			if (responseFilters != null)
 			{
 				for (IResponseFilter filter : responseFilters)
@@ -178,6 +226,19 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 	}
 
+	private static class EncodedSection
+	{
+		private final int offset;
+
+		private final EncodedCharSequence text;
+
+		private EncodedSection(int offset, EncodedCharSequence text)
+		{
+			this.offset = offset;
+			this.text = text;
+		}
+	}
+
 	private static class WriteDataAction extends Action
 	{
 		private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
@@ -509,7 +570,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 		if (charSequenceAction != null)
 		{
-			return charSequenceAction.builder;
+			return charSequenceAction.getBuilder();
 		}
 		else
 		{
@@ -530,7 +591,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 		if (charSequenceAction != null)
 		{
-			charSequenceAction.builder.setLength(0);
+			charSequenceAction.getBuilder().setLength(0);
 		}
 		write(text);
 	}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import javax.servlet.http.Cookie;
+
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * Response that buffers the start of a page until {@link #commit()} is called and writes
+ * everything after that directly to the original response.
+ * <p>
+ * Pages call {@link #commit()} as soon as their &lt;head&gt; has been rendered, i.e. when no
+ * header contribution can change anymore. The browser receives the head early and can fetch CSS
+ * and JavaScript while the rest of the page is still rendering.
+ * <p>
+ * As long as nothing has been committed, this response behaves like a {@link BufferedWebResponse}:
+ * it can be reset and a {@link org.apache.wicket.RestartResponseException} discards everything
+ * rendered so far. After that meta data and {@link #reset()} are subject to the same restrictions
+ * as a committed servlet response.
+ * 
+ * @see org.apache.wicket.settings.RequestCycleSettings#setStreamingRender(boolean)
+ */
+public class StreamingWebResponse extends WebResponse implements IMetaDataBufferingWebResponse
+{
+	private final WebResponse originalResponse;
+
+	/**
+	 * Buffer for everything up to the commit.
+	 */
+	private final BufferedWebResponse bufferedResponse;
+
+	private boolean buffering = true;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param originalResponse
+	 *            the response to stream to
+	 */
+	public StreamingWebResponse(WebResponse originalResponse)
+	{
+		this.originalResponse = Args.notNull(originalResponse, "originalResponse");
+
+		bufferedResponse = new BufferedWebResponse(originalResponse);
+	}
+
+	/**
+	 * Writes the buffered content to the original response and flushes it to the client. All
+	 * further content is written directly to the original response.
+	 */
+	public void commit()
+	{
+		if (buffering)
+		{
+			stopBuffering();
+
+			originalResponse.flush();
+		}
+	}
+
+	/**
+	 * @return {@code true} if content has already been written to the original response
+	 */
+	public boolean isCommitted()
+	{
+		return buffering == false;
+	}
+
+	/**
+	 * Writes the buffered content to the original response, if not already committed.
+	 */
+	public void writeBuffer()
+	{
+		stopBuffering();
+	}
+
+	private void stopBuffering()
+	{
+		if (buffering)
+		{
+			bufferedResponse.writeTo(originalResponse);
+			buffering = false;
+		}
+	}
+
+	private WebResponse getResponse()
+	{
+		if (buffering)
+		{
+			return bufferedResponse;
+		}
+		else
+		{
+			return originalResponse;
+		}
+	}
+
+	@Override
+	public void addCookie(Cookie cookie)
+	{
+		getResponse().addCookie(cookie);
+	}
+
+	@Override
+	public void clearCookie(Cookie cookie)
+	{
+		getResponse().clearCookie(cookie);
+	}
+
+	@Override
+	public void flush()
+	{
+		getResponse().flush();
+	}
+
+	@Override
+	public boolean isRedirect()
+	{
+		return getResponse().isRedirect();
+	}
+
+	@Override
+	public void sendError(int sc, String msg)
+	{
+		getResponse().sendError(sc, msg);
+	}
+
+	@Override
+	public void sendRedirect(String url)
+	{
+		getResponse().sendRedirect(url);
+	}
+
+	@Override
+	public void setContentLength(long length)
+	{
+		getResponse().setContentLength(length);
+	}
+
+	@Override
+	public void setContentType(String mimeType)
+	{
+		getResponse().setContentType(mimeType);
+	}
+
+	@Override
+	public void setDateHeader(String name, Time date)
+	{
+		Args.notNull(date, "date");
+		getResponse().setDateHeader(name, date);
+	}
+
+	@Override
+	public void setHeader(String name, String value)
+	{
+		getResponse().setHeader(name, value);
+	}
+
+	@Override
+	public void addHeader(String name, String value)
+	{
+		getResponse().addHeader(name, value);
+	}
+
+	@Override
+	public void setStatus(int sc)
+	{
+		getResponse().setStatus(sc);
+	}
+
+	@Override
+	public void disableCaching()
+	{
+		getResponse().disableCaching();
+	}
+
+	@Override
+	public String encodeURL(CharSequence url)
+	{
+		return originalResponse.encodeURL(url);
+	}
+
+	@Override
+	public String encodeRedirectURL(CharSequence url)
+	{
+		return originalResponse.encodeRedirectURL(url);
+	}
+
+	@Override
+	public void write(CharSequence sequence)
+	{
+		getResponse().write(sequence);
+	}
+
+	@Override
+	public void write(byte[] array)
+	{
+		getResponse().write(array);
+	}
+
+	@Override
+	public void write(byte[] array, int offset, int length)
+	{
+		getResponse().write(array, offset, length);
+	}
+
+	@Override
+	public void reset()
+	{
+		if (buffering)
+		{
+			bufferedResponse.reset();
+		}
+		else
+		{
+			throw new IllegalStateException("Response has already been committed!");
+		}
+	}
+
+	@Override
+	public void writeMetaData(WebResponse webResponse)
+	{
+		bufferedResponse.writeMetaData(webResponse);
+	}
+
+	@Override
+	public Object getContainerResponse()
+	{
+		return originalResponse.getContainerResponse();
+	}
+}
@@ -52,6 +52,7 @@ import org.apache.wicket.markup.html.pages.AccessDeniedPage;
 import org.apache.wicket.markup.html.pages.InternalErrorPage;
 import org.apache.wicket.markup.html.pages.PageExpiredErrorPage;
 import org.apache.wicket.markup.resolver.AutoLinkResolver;
+import org.apache.wicket.protocol.http.outputCache.PageOutputCache;
 import org.apache.wicket.protocol.http.servlet.AbstractRequestWrapperFactory;
 import org.apache.wicket.protocol.http.servlet.FilterFactoryManager;
 import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
@@ -144,6 +145,8 @@ public abstract class WebApplication extends Application
 
 	private FilterFactoryManager filterFactoryManager;
 
+	private PageOutputCache pageOutputCache;
+
 	/**
 	 * Cached value of the parsed (from system properties or Servlet init/context parameter)
 	 * <code>wicket.configuration</code> setting. No need to re-read it because it wont change at
@@ -1094,6 +1097,39 @@ public abstract class WebApplication extends Application
 		return filterFactoryManager;
 	}
 
+	/**
+	 * @return True if the page output cache has been used.
+	 */
+	public final boolean hasPageOutputCache()
+	{
+		return pageOutputCache != null;
+	}
+
+	/**
+	 * Gets the cache for the complete responses of stateless pages.
+	 * 
+	 * @return The page output cache
+	 */
+	public final PageOutputCache getPageOutputCache()
+	{
+		if (pageOutputCache == null)
+		{
+			pageOutputCache = newPageOutputCache();
+		}
+		return pageOutputCache;
+	}
+
+	/**
+	 * Creates the cache for the complete responses of stateless pages. Override it to return a
+	 * {@link PageOutputCache} which excludes further requests.
+	 * 
+	 * @return The page output cache
+	 */
+	protected PageOutputCache newPageOutputCache()
+	{
+		return new PageOutputCache();
+	}
+
 	/**
 	 * If true, auto label css classes such as {@code error} and {@code required} will be updated
 	 * after form component processing during an ajax request. This allows auto labels to correctly
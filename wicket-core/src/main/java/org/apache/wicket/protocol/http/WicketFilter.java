@@ -258,7 +258,12 @@ public class WicketFilter implements Filter
 		// Assume we are able to handle the request
 		boolean res = true;
 
-		if (requestCycle.processRequestAndDetach())
+		if (application.hasPageOutputCache() &&
+			application.getPageOutputCache().respondFromCache(requestCycle))
+		{
+			webResponse.flush();
+		}
+		else if (requestCycle.processRequestAndDetach())
 		{
 			webResponse.flush();
 		}
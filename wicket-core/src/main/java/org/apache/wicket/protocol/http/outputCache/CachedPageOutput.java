@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.outputCache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.wicket.request.component.IRequestablePage;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * The complete response of a page: status, headers and body.
+ * 
+ * @see IPageOutputStore
+ */
+public final class CachedPageOutput
+{
+	private final Class<? extends IRequestablePage> pageClass;
+
+	private final int status;
+
+	private final String contentType;
+
+	private final Map<String, List<String>> headers;
+
+	private final Map<String, Time> dateHeaders;
+
+	private final byte[] body;
+
+	private final String etag;
+
+	private final Time expires;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param pageClass
+	 *            the class of the rendered page
+	 * @param status
+	 *            the status code
+	 * @param contentType
+	 *            the content type, may be {@code null}
+	 * @param headers
+	 *            the headers
+	 * @param dateHeaders
+	 *            the date headers
+	 * @param body
+	 *            the body
+	 * @param timeToLive
+	 *            how long the output may be used, {@link Duration#MAXIMUM} for no expiry
+	 */
+	public CachedPageOutput(final Class<? extends IRequestablePage> pageClass, final int status,
+		final String contentType, final Map<String, List<String>> headers,
+		final Map<String, Time> dateHeaders, final byte[] body, final Duration timeToLive)
+	{
+		this.pageClass = Args.notNull(pageClass, "pageClass");
+		this.status = status;
+		this.contentType = contentType;
+		this.headers = Collections.unmodifiableMap(Args.notNull(headers, "headers"));
+		this.dateHeaders = Collections.unmodifiableMap(Args.notNull(dateHeaders, "dateHeaders"));
+		this.body = Args.notNull(body, "body");
+		Args.notNull(timeToLive, "timeToLive");
+
+		CRC32 checksum = new CRC32();
+		checksum.update(body);
+		etag = "\"" + Long.toHexString(checksum.getValue()) + "-" +
+			Integer.toHexString(body.length) + "\"";
+
+		expires = Duration.MAXIMUM.equals(timeToLive) ? null : Time.now().add(timeToLive);
+	}
+
+	/**
+	 * @return the class of the rendered page
+	 */
+	public Class<? extends IRequestablePage> getPageClass()
+	{
+		return pageClass;
+	}
+
+	/**
+	 * @return the status code
+	 */
+	public int getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * @return the content type
+	 */
+	public String getContentType()
+	{
+		return contentType;
+	}
+
+	/**
+	 * @return the headers by name
+	 */
+	public Map<String, List<String>> getHeaders()
+	{
+		return headers;
+	}
+
+	/**
+	 * @return the date headers by name
+	 */
+	public Map<String, Time> getDateHeaders()
+	{
+		return dateHeaders;
+	}
+
+	/**
+	 * @return the body, must not be modified
+	 */
+	public byte[] getBody()
+	{
+		return body;
+	}
+
+	/**
+	 * @return the entity tag of the body
+	 */
+	public String getETag()
+	{
+		return etag;
+	}
+
+	/**
+	 * @param now
+	 *            the current time
+	 * @return whether this output must not be used anymore
+	 */
+	public boolean isExpired(final Time now)
+	{
+		return expires != null && now.after(expires);
+	}
+
+	/**
+	 * @return an estimate of the memory held by this output in bytes
+	 */
+	public long getSize()
+	{
+		return body.length;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.outputCache;
+
+import org.apache.wicket.request.component.IRequestablePage;
+
+/**
+ * Stores the output of pages for the {@link PageOutputCache}. Implementations decide which outputs
+ * to evict and must be thread safe.
+ * 
+ * @see PageOutputCache#setStore(IPageOutputStore)
+ */
+public interface IPageOutputStore
+{
+	/**
+	 * Gets the output for the given key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the output or {@code null} if there is none or it has expired
+	 */
+	CachedPageOutput get(PageOutputCacheKey key);
+
+	/**
+	 * Stores an output, replacing a previous output for the same key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param output
+	 *            the output
+	 */
+	void put(PageOutputCacheKey key, CachedPageOutput output);
+
+	/**
+	 * Removes the output for the given key.
+	 * 
+	 * @param key
+	 *            the key
+	 */
+	void remove(PageOutputCacheKey key);
+
+	/**
+	 * Removes all outputs of a page class.
+	 * 
+	 * @param pageClass
+	 *            the page class
+	 */
+	void invalidate(Class<? extends IRequestablePage> pageClass);
+
+	/**
+	 * Removes all outputs.
+	 */
+	void clear();
+
+	/**
+	 * @return the number of outputs
+	 */
+	int size();
+}
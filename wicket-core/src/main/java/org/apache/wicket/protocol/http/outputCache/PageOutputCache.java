@@ -0,0 +1,448 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.outputCache;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Session;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.protocol.http.BufferedWebResponse;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.Url.QueryParameter;
+import org.apache.wicket.request.component.IRequestablePage;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.mapper.info.PageComponentInfo;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.string.Strings;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.time.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the complete response of stateless pages, so that later requests for the same url are
+ * answered by the {@link org.apache.wicket.protocol.http.WicketFilter} without resolving a request
+ * handler or constructing the page. Conditional requests are answered with
+ * {@code 304 Not Modified} based on the entity tag of the cached body.
+ * <p>
+ * Caching is enabled per page class, usually for pages mounted with
+ * {@link org.apache.wicket.core.request.mapper.MountedMapper}:
+ * 
+ * <pre>
+ * mountPage(&quot;/catalog&quot;, CatalogPage.class);
+ * getPageOutputCache().cache(CatalogPage.class, Duration.minutes(10), &quot;category&quot;);
+ * </pre>
+ * 
+ * The output is keyed by the path of the url, the values of the given query parameters, the locale
+ * and the style. Other query parameters are ignored, so they must not change the output. Only
+ * responses of {@code GET} requests are cached, and only if the page is stateless and the response
+ * does not set cookies or redirect. Pages that are streamed are not cached. Pages disable caching
+ * in browsers by default, override {@link WebPage#setHeaders(WebResponse)} to let browsers
+ * revalidate their copy.
+ * <p>
+ * Requests carrying page or component info, e.g. a listener invocation like
+ * {@code /catalog?-1.ILinkListener-link}, are neither answered from nor stored in the cache. Nor
+ * are requests of clients whose session id is rewritten into urls ({@code ;jsessionid=}), since
+ * the cached output would not carry their session id, or whose http session has been created in
+ * this request, since the container may rewrite the urls of its response with the session id.
+ * <p>
+ * Note that cached responses are written without processing a request cycle, so request cycle
+ * listeners are not notified. Override {@link #isCacheable(RequestCycle)} to exclude further
+ * requests, e.g. those of authenticated sessions.
+ * 
+ * @see org.apache.wicket.protocol.http.WebApplication#getPageOutputCache()
+ */
+public class PageOutputCache
+{
+	private static final Logger log = LoggerFactory.getLogger(PageOutputCache.class);
+
+	private final ConcurrentMap<Class<? extends IRequestablePage>, Policy> policies = new ConcurrentHashMap<>();
+
+	/** the distinct parameter names of all policies */
+	private volatile List<List<String>> parameterNames = Collections.emptyList();
+
+	private volatile IPageOutputStore store = new PageOutputStore(1000, Bytes.megabytes(50));
+
+	/**
+	 * Caches the output of a page class.
+	 * <p>
+	 * The cached output is shared by all sessions with the same locale and style, and it is served
+	 * without mapping the request, notifying the request cycle listeners or checking the
+	 * authorization strategy, so e.g. a page requiring https or an authenticated user is served to
+	 * anybody once it is cached. Register only pages whose output depends neither on the session
+	 * nor on authorization.
+	 * 
+	 * @param pageClass
+	 *            the page class
+	 * @param timeToLive
+	 *            how long the output is used, {@link Duration#MAXIMUM} to keep it until it is
+	 *            invalidated or evicted
+	 * @param parameterNames
+	 *            the names of the query parameters the output depends on
+	 * @return {@code this} object for chaining
+	 */
+	public PageOutputCache cache(final Class<? extends WebPage> pageClass,
+		final Duration timeToLive, final String... parameterNames)
+	{
+		Args.notNull(pageClass, "pageClass");
+		Args.notNull(timeToLive, "timeToLive");
+
+		Policy policy = new Policy(timeToLive, Arrays.asList(parameterNames));
+		synchronized (policies)
+		{
+			policies.put(pageClass, policy);
+
+			List<List<String>> names = new ArrayList<>();
+			for (Policy each : policies.values())
+			{
+				if (names.contains(each.parameterNames) == false)
+				{
+					names.add(each.parameterNames);
+				}
+			}
+			this.parameterNames = names;
+		}
+		return this;
+	}
+
+	/**
+	 * @return the store of the cached outputs
+	 */
+	public IPageOutputStore getStore()
+	{
+		return store;
+	}
+
+	/**
+	 * Sets the store of the cached outputs, e.g. to use another eviction strategy.
+	 * 
+	 * @param store
+	 *            the store
+	 * @return {@code this} object for chaining
+	 */
+	public PageOutputCache setStore(final IPageOutputStore store)
+	{
+		this.store = Args.notNull(store, "store");
+		return this;
+	}
+
+	/**
+	 * Removes all cached outputs of a page class.
+	 * 
+	 * @param pageClass
+	 *            the page class
+	 */
+	public void invalidate(final Class<? extends IRequestablePage> pageClass)
+	{
+		store.invalidate(pageClass);
+	}
+
+	/**
+	 * Removes all cached outputs.
+	 */
+	public void clear()
+	{
+		store.clear();
+	}
+
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT.
+	 * <p>
+	 * Writes the cached output for the request of the request cycle, if there is one.
+	 * 
+	 * @param requestCycle
+	 *            the request cycle, not processed yet
+	 * @return {@code true} if the request has been answered
+	 */
+	public boolean respondFromCache(final RequestCycle requestCycle)
+	{
+		List<List<String>> parameterNames = this.parameterNames;
+		if (parameterNames.isEmpty() || isCacheable(requestCycle) == false)
+		{
+			return false;
+		}
+
+		WebRequest request = (WebRequest)requestCycle.getRequest();
+
+		// don't create a session just to find out about locale and style
+		Session session = Application.get().getSessionStore().lookup(request);
+		Locale locale = session != null ? session.getLocale() : request.getLocale();
+		String style = session != null ? session.getStyle() : null;
+
+		Url url = request.getUrl();
+		String path = url.getPath();
+		for (List<String> names : parameterNames)
+		{
+			CachedPageOutput output = store.get(new PageOutputCacheKey(path, getParameters(url,
+				names), locale, style));
+			if (output != null)
+			{
+				respond(output, request, (WebResponse)requestCycle.getResponse());
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT.
+	 * <p>
+	 * Caches the output of a rendered page and writes it, if the page's output is cached.
+	 * 
+	 * @param requestCycle
+	 *            the request cycle
+	 * @param page
+	 *            the rendered page
+	 * @param response
+	 *            the response the page has been rendered to
+	 * @return {@code true} if the output has been written
+	 */
+	public boolean respondAndCache(final RequestCycle requestCycle, final IRequestablePage page,
+		final BufferedWebResponse response)
+	{
+		Policy policy = policies.get(page.getClass());
+		if (policy == null || isCacheable(requestCycle) == false || page.isPageStateless() == false)
+		{
+			return false;
+		}
+
+		PageOutputRecorder recorder = new PageOutputRecorder(Charset.forName(Application.get()
+			.getRequestCycleSettings()
+			.getResponseRequestEncoding()));
+		response.writeTo(recorder);
+
+		CachedPageOutput output = recorder.getOutput(page.getClass(), policy.timeToLive);
+		if (output == null)
+		{
+			return false;
+		}
+
+		WebRequest request = (WebRequest)requestCycle.getRequest();
+		Url url = request.getUrl();
+		Session session = Session.get();
+		PageOutputCacheKey key = new PageOutputCacheKey(url.getPath(), getParameters(url,
+			policy.parameterNames), session.getLocale(), session.getStyle());
+		store.put(key, output);
+
+		log.debug("Cached output of page {} with {}", page.getClass().getName(), key);
+
+		respond(output, request, (WebResponse)requestCycle.getResponse());
+		return true;
+	}
+
+	/**
+	 * Writes a cached output.
+	 * 
+	 * @param output
+	 *            the cached output
+	 * @param request
+	 *            the request
+	 * @param response
+	 *            the response
+	 */
+	protected void respond(final CachedPageOutput output, final WebRequest request,
+		final WebResponse response)
+	{
+		response.setHeader("ETag", output.getETag());
+		for (Map.Entry<String, List<String>> header : output.getHeaders().entrySet())
+		{
+			List<String> values = header.getValue();
+			response.setHeader(header.getKey(), values.get(0));
+			for (int i = 1; i < values.size(); i++)
+			{
+				response.addHeader(header.getKey(), values.get(i));
+			}
+		}
+		for (Map.Entry<String, Time> header : output.getDateHeaders().entrySet())
+		{
+			Time date = "Date".equals(header.getKey()) ? Time.now() : header.getValue();
+			response.setDateHeader(header.getKey(), date);
+		}
+
+		if (matches(request.getHeader("If-None-Match"), output.getETag()))
+		{
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		response.setStatus(output.getStatus());
+		if (output.getContentType() != null)
+		{
+			response.setContentType(output.getContentType());
+		}
+		response.setContentLength(output.getBody().length);
+		response.write(output.getBody());
+	}
+
+	/**
+	 * Decides whether the request of the request cycle may be answered from the cache and whether
+	 * its response may be stored in it. Called twice for a request whose response is not cached
+	 * yet: before the request is mapped, when no session may be bound to the request cycle yet,
+	 * and after the page has been rendered.
+	 * <p>
+	 * Override it to exclude further requests, e.g. those of authenticated sessions, but keep
+	 * calling this implementation: it excludes requests which are not {@code GET}, Ajax requests,
+	 * requests of clients whose session id is rewritten into urls or whose http session is new, and
+	 * requests carrying page or component info.
+	 * 
+	 * @param requestCycle
+	 *            the request cycle
+	 * @return whether the response to the request of the request cycle can be cached
+	 */
+	protected boolean isCacheable(final RequestCycle requestCycle)
+	{
+		if (requestCycle.getRequest() instanceof WebRequest == false ||
+			requestCycle.getResponse() instanceof WebResponse == false)
+		{
+			return false;
+		}
+
+		WebRequest request = (WebRequest)requestCycle.getRequest();
+		Object containerRequest = request.getContainerRequest();
+		if (request.isAjax() || containerRequest instanceof HttpServletRequest == false)
+		{
+			return false;
+		}
+
+		HttpServletRequest httpRequest = (HttpServletRequest)containerRequest;
+		if ("GET".equalsIgnoreCase(httpRequest.getMethod()) == false)
+		{
+			return false;
+		}
+
+		String uri = httpRequest.getRequestURI();
+		if (httpRequest.isRequestedSessionIdFromURL() ||
+			(uri != null && uri.toLowerCase(Locale.ENGLISH).contains(";jsessionid=")))
+		{
+			// the session id must be kept in the urls of the response
+			return false;
+		}
+
+		HttpSession httpSession = httpRequest.getSession(false);
+		if (httpSession != null && httpSession.isNew())
+		{
+			// the client has not confirmed the session cookie yet
+			return false;
+		}
+
+		return hasPageComponentInfo(request.getUrl()) == false;
+	}
+
+	/**
+	 * @param url
+	 * @return whether the url addresses a page instance or a listener of a component
+	 */
+	private static boolean hasPageComponentInfo(final Url url)
+	{
+		for (QueryParameter parameter : url.getQueryParameters())
+		{
+			if (Strings.isEmpty(parameter.getValue()) &&
+				PageComponentInfo.parse(parameter.getName()) != null)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param url
+	 * @param names
+	 * @return the values of the named query parameters
+	 */
+	private static String getParameters(final Url url, final List<String> names)
+	{
+		if (names.isEmpty())
+		{
+			return "";
+		}
+
+		StringBuilder parameters = new StringBuilder();
+		for (String name : names)
+		{
+			for (QueryParameter parameter : url.getQueryParameters())
+			{
+				if (name.equals(parameter.getName()))
+				{
+					parameters.append(name).append('=').append(parameter.getValue()).append('&');
+				}
+			}
+		}
+		return parameters.toString();
+	}
+
+	/**
+	 * @param ifNoneMatch
+	 *            the value of the {@code If-None-Match} header
+	 * @param etag
+	 *            the entity tag
+	 * @return whether one of the entity tags of the header matches
+	 */
+	private static boolean matches(final String ifNoneMatch, final String etag)
+	{
+		if (Strings.isEmpty(ifNoneMatch))
+		{
+			return false;
+		}
+
+		for (String candidate : Strings.split(ifNoneMatch, ','))
+		{
+			candidate = candidate.trim();
+			if (candidate.startsWith("W/"))
+			{
+				candidate = candidate.substring(2);
+			}
+			if (candidate.equals("*") || candidate.equals(etag))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * How the output of a page class is cached.
+	 */
+	private static class Policy
+	{
+		private final Duration timeToLive;
+
+		private final List<String> parameterNames;
+
+		private Policy(final Duration timeToLive, final List<String> parameterNames)
+		{
+			this.timeToLive = timeToLive;
+			this.parameterNames = parameterNames;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.outputCache;
+
+import java.util.Locale;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Objects;
+
+/**
+ * Identifies the cached output of a page: the mounted path, the values of the page parameters the
+ * output depends on, the locale and the style.
+ */
+public final class PageOutputCacheKey
+{
+	private final String path;
+
+	private final String parameters;
+
+	private final Locale locale;
+
+	private final String style;
+
+	private final int hashCode;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param path
+	 *            the path of the request url, relative to the filter path
+	 * @param parameters
+	 *            the relevant query parameters of the request url
+	 * @param locale
+	 *            the locale, may be {@code null}
+	 * @param style
+	 *            the style, may be {@code null}
+	 */
+	public PageOutputCacheKey(final String path, final String parameters, final Locale locale,
+		final String style)
+	{
+		this.path = Args.notNull(path, "path");
+		this.parameters = Args.notNull(parameters, "parameters");
+		this.locale = locale;
+		this.style = style;
+
+		hashCode = Objects.hashCode(path, parameters, locale, style);
+	}
+
+	/**
+	 * @return the path of the request url
+	 */
+	public String getPath()
+	{
+		return path;
+	}
+
+	/**
+	 * @return the relevant query parameters of the request url
+	 */
+	public String getParameters()
+	{
+		return parameters;
+	}
+
+	/**
+	 * @return the locale
+	 */
+	public Locale getLocale()
+	{
+		return locale;
+	}
+
+	/**
+	 * @return the style
+	 */
+	public String getStyle()
+	{
+		return style;
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (obj instanceof PageOutputCacheKey == false)
+		{
+			return false;
+		}
+		PageOutputCacheKey other = (PageOutputCacheKey)obj;
+		return hashCode == other.hashCode && path.equals(other.path) &&
+			parameters.equals(other.parameters) && Objects.equal(locale, other.locale) &&
+			Objects.equal(style, other.style);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PageOutputCacheKey [path=" + path + ", parameters=" + parameters + ", locale=" +
+			locale + ", style=" + style + "]";
+	}
+}
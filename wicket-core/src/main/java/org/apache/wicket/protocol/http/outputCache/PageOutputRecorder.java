@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.outputCache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.request.component.IRequestablePage;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.response.EncodedCharSequence;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * Records the response of a page, so that it can be stored in the {@link PageOutputCache}.
+ * Responses setting cookies, errors or redirects cannot be cached.
+ */
+class PageOutputRecorder extends WebResponse
+{
+	private final Charset charset;
+
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+
+	private final Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+
+	private final Map<String, Time> dateHeaders = new LinkedHashMap<String, Time>();
+
+	private int status = HttpServletResponse.SC_OK;
+
+	private String contentType;
+
+	private boolean cacheable = true;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param charset
+	 *            the charset to encode text with
+	 */
+	PageOutputRecorder(final Charset charset)
+	{
+		this.charset = charset;
+	}
+
+	/**
+	 * @param pageClass
+	 * @param timeToLive
+	 * @return the recorded output or {@code null} if it cannot be cached
+	 */
+	CachedPageOutput getOutput(final Class<? extends IRequestablePage> pageClass,
+		final Duration timeToLive)
+	{
+		if (cacheable == false || status != HttpServletResponse.SC_OK)
+		{
+			return null;
+		}
+		return new CachedPageOutput(pageClass, status, contentType, headers, dateHeaders,
+			body.toByteArray(), timeToLive);
+	}
+
+	@Override
+	public void addCookie(final Cookie cookie)
+	{
+		cacheable = false;
+	}
+
+	@Override
+	public void clearCookie(final Cookie cookie)
+	{
+		cacheable = false;
+	}
+
+	@Override
+	public void setHeader(final String name, final String value)
+	{
+		List<String> values = new ArrayList<String>(1);
+		values.add(value);
+		headers.put(name, values);
+	}
+
+	@Override
+	public void addHeader(final String name, final String value)
+	{
+		List<String> values = headers.get(name);
+		if (values == null)
+		{
+			values = new ArrayList<String>(1);
+			headers.put(name, values);
+		}
+		values.add(value);
+	}
+
+	@Override
+	public void setDateHeader(final String name, final Time date)
+	{
+		dateHeaders.put(name, date);
+	}
+
+	@Override
+	public void setContentLength(final long length)
+	{
+		// the length of the cached body is used
+	}
+
+	@Override
+	public void setContentType(final String mimeType)
+	{
+		contentType = mimeType;
+	}
+
+	@Override
+	public void setStatus(final int sc)
+	{
+		status = sc;
+	}
+
+	@Override
+	public void sendError(final int sc, final String msg)
+	{
+		cacheable = false;
+	}
+
+	@Override
+	public String encodeRedirectURL(final CharSequence url)
+	{
+		return url.toString();
+	}
+
+	@Override
+	public void sendRedirect(final String url)
+	{
+		cacheable = false;
+	}
+
+	@Override
+	public boolean isRedirect()
+	{
+		return false;
+	}
+
+	@Override
+	public void flush()
+	{
+	}
+
+	@Override
+	public void write(final CharSequence sequence)
+	{
+		byte[] bytes = null;
+		if (sequence instanceof EncodedCharSequence)
+		{
+			bytes = ((EncodedCharSequence)sequence).getBytes(charset);
+		}
+		if (bytes == null)
+		{
+			bytes = sequence.toString().getBytes(charset);
+		}
+		write(bytes);
+	}
+
+	@Override
+	public void write(final byte[] array)
+	{
+		body.write(array, 0, array.length);
+	}
+
+	@Override
+	public void write(final byte[] array, final int offset, final int length)
+	{
+		body.write(array, offset, length);
+	}
+
+	@Override
+	public String encodeURL(final CharSequence url)
+	{
+		return url.toString();
+	}
+
+	@Override
+	public Object getContainerResponse()
+	{
+		return null;
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.outputCache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.apache.wicket.request.component.IRequestablePage;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * Default {@link IPageOutputStore} holding the outputs in memory. When either the number of
+ * outputs or their size exceeds its limits, the least recently used outputs are evicted.
+ */
+public class PageOutputStore implements IPageOutputStore
+{
+	private final int maxEntries;
+
+	private final long maxSize;
+
+	/** the outputs in access order */
+	private final LinkedHashMap<PageOutputCacheKey, CachedPageOutput> outputs;
+
+	/** the size of all outputs */
+	private long size;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param maxEntries
+	 *            the maximum number of outputs
+	 * @param maxSize
+	 *            the maximum size of all outputs
+	 */
+	public PageOutputStore(final int maxEntries, final Bytes maxSize)
+	{
+		Args.withinRange(1, Integer.MAX_VALUE, maxEntries, "maxEntries");
+		Args.notNull(maxSize, "maxSize");
+
+		this.maxEntries = maxEntries;
+		this.maxSize = maxSize.bytes();
+
+		outputs = new LinkedHashMap<PageOutputCacheKey, CachedPageOutput>(16, 0.75f, true);
+	}
+
+	@Override
+	public synchronized CachedPageOutput get(final PageOutputCacheKey key)
+	{
+		CachedPageOutput output = outputs.get(key);
+		if (output != null && output.isExpired(Time.now()))
+		{
+			remove(key);
+			output = null;
+		}
+		return output;
+	}
+
+	@Override
+	public synchronized void put(final PageOutputCacheKey key, final CachedPageOutput output)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(output, "output");
+
+		if (output.getSize() > maxSize)
+		{
+			remove(key);
+			return;
+		}
+
+		CachedPageOutput previous = outputs.put(key, output);
+		if (previous != null)
+		{
+			size -= previous.getSize();
+		}
+		size += output.getSize();
+
+		Iterator<CachedPageOutput> eldest = outputs.values().iterator();
+		while (outputs.size() > maxEntries || size > maxSize)
+		{
+			size -= eldest.next().getSize();
+			eldest.remove();
+		}
+	}
+
+	@Override
+	public synchronized void remove(final PageOutputCacheKey key)
+	{
+		CachedPageOutput output = outputs.remove(key);
+		if (output != null)
+		{
+			size -= output.getSize();
+		}
+	}
+
+	@Override
+	public synchronized void invalidate(final Class<? extends IRequestablePage> pageClass)
+	{
+		Args.notNull(pageClass, "pageClass");
+
+		Iterator<CachedPageOutput> iterator = outputs.values().iterator();
+		while (iterator.hasNext())
+		{
+			CachedPageOutput output = iterator.next();
+			if (output.getPageClass().equals(pageClass))
+			{
+				size -= output.getSize();
+				iterator.remove();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void clear()
+	{
+		outputs.clear();
+		size = 0;
+	}
+
+	@Override
+	public synchronized int size()
+	{
+		return outputs.size();
+	}
+}
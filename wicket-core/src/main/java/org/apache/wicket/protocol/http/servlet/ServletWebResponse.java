@@ -17,6 +17,7 @@
 package org.apache.wicket.protocol.http.servlet;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
@@ -27,6 +28,7 @@ import org.apache.wicket.request.Url;
 import org.apache.wicket.request.UrlRenderer;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.response.EncodedCharSequence;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.time.Time;
 
@@ -42,6 +44,12 @@ public class ServletWebResponse extends WebResponse
 
 	private boolean redirect = false;
 
+	/** Whether text is written to the servlet writer */
+	private boolean writing = false;
+
+	/** The charset of text written to the servlet output stream, null if not streaming text */
+	private Charset streamCharset;
+
 	/**
 	 * Construct.
 	 * 
@@ -102,12 +110,42 @@ public class ServletWebResponse extends WebResponse
 		httpServletResponse.addHeader(name, value);
 	}
 
+	/**
+	 * Writes text to the servlet writer. If the first text is an {@link EncodedCharSequence} in the
+	 * character encoding of the response, all text is written to the servlet output stream instead,
+	 * so the encoded text can be written without encoding it again.
+	 * 
+	 * @see org.apache.wicket.settings.MarkupSettings#setPreEncodeStaticMarkup(boolean)
+	 */
 	@Override
 	public void write(CharSequence sequence)
 	{
 		try
 		{
-			httpServletResponse.getWriter().append(sequence);
+			if ((streamCharset == null) && (writing == false) &&
+				(sequence instanceof EncodedCharSequence))
+			{
+				startStreaming((EncodedCharSequence)sequence);
+			}
+
+			if (streamCharset != null)
+			{
+				byte[] bytes = null;
+				if (sequence instanceof EncodedCharSequence)
+				{
+					bytes = ((EncodedCharSequence)sequence).getBytes(streamCharset);
+				}
+				if (bytes == null)
+				{
+					bytes = sequence.toString().getBytes(streamCharset);
+				}
+				httpServletResponse.getOutputStream().write(bytes);
+			}
+			else
+			{
+				writing = true;
+				httpServletResponse.getWriter().append(sequence);
+			}
 		}
 		catch (IOException e)
 		{
@@ -115,6 +153,37 @@ public class ServletWebResponse extends WebResponse
 		}
 	}
 
+	/**
+	 * Starts writing text to the output stream, if the encoded text matches the character encoding
+	 * of the response and the output stream is available.
+	 */
+	private void startStreaming(EncodedCharSequence sequence) throws IOException
+	{
+		Charset charset;
+		try
+		{
+			charset = Charset.forName(httpServletResponse.getCharacterEncoding());
+		}
+		catch (IllegalArgumentException e)
+		{
+			return;
+		}
+
+		if (sequence.getBytes(charset) != null)
+		{
+			try
+			{
+				httpServletResponse.getOutputStream();
+				streamCharset = charset;
+			}
+			catch (IllegalStateException e)
+			{
+				// someone else is using the writer already
+				writing = true;
+			}
+		}
+	}
+
 	@Override
 	public void write(byte[] array)
 	{
@@ -278,6 +347,7 @@ public class ServletWebResponse extends WebResponse
 				 * using multipart ajax handling) and the headers are not available because XHR is
 				 * not used and that is the only way javascript has access to response headers.
 				 */
+				writing = true;
 				httpServletResponse.getWriter().write(
 					"<ajax-response><redirect><![CDATA[" + url + "]]></redirect></ajax-response>");
 
@@ -333,6 +403,8 @@ public class ServletWebResponse extends WebResponse
 		super.reset();
 		httpServletResponse.reset();
 		redirect = false;
+		writing = false;
+		streamCharset = null;
 	}
 
 	@Override
@@ -394,7 +394,7 @@ public class RequestCycle implements IRequestCycle, IEventSink
 	 * @throws IllegalArgumentException
 	 * @see MetaDataKey
 	 */
-	public final <T> RequestCycle setMetaData(final MetaDataKey<T> key, final T object)
+	public <T> RequestCycle setMetaData(final MetaDataKey<T> key, final T object)
 	{
 		metaData = key.set(metaData, object);
 		return this;
@@ -411,7 +411,7 @@ public class RequestCycle implements IRequestCycle, IEventSink
 	 * @return The metadata or null if no metadata was found for the given key
 	 * @see MetaDataKey
 	 */
-	public final <T> T getMetaData(final MetaDataKey<T> key)
+	public <T> T getMetaData(final MetaDataKey<T> key)
 	{
 		return key.get(metaData);
 	}
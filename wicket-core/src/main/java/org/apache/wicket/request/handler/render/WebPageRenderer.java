@@ -25,6 +25,7 @@ import org.apache.wicket.core.request.handler.RenderPageRequestHandler.RedirectP
 import org.apache.wicket.feedback.FeedbackCollector;
 import org.apache.wicket.feedback.FeedbackMessage;
 import org.apache.wicket.protocol.http.BufferedWebResponse;
+import org.apache.wicket.protocol.http.StreamingWebResponse;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.request.IRequestHandler;
 import org.apache.wicket.request.Request;
@@ -33,6 +34,8 @@ import org.apache.wicket.request.component.IRequestablePage;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.response.filter.IResponseFilter;
+import org.apache.wicket.settings.RequestCycleSettings;
 import org.apache.wicket.util.lang.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -147,6 +150,87 @@ public class WebPageRenderer extends PageRenderer
 		}
 	}
 
+	/**
+	 * Renders page to a {@link StreamingWebResponse}, which writes the page directly to the
+	 * response of the request cycle as soon as its header has been rendered. All URLs in page
+	 * will be rendered relative to <code>targetUrl</code>
+	 * 
+	 * @param targetUrl
+	 * @param requestCycle
+	 */
+	protected void streamPage(Url targetUrl, RequestCycle requestCycle)
+	{
+		// get the page before checking for a scheduled request handler because
+		// the page may call setResponsePage in its constructor
+		IRequestablePage requestablePage = getPage();
+
+		IRequestHandler scheduled = requestCycle.getRequestHandlerScheduledAfterCurrent();
+
+		if (scheduled != null)
+		{
+			// no need to render
+			return;
+		}
+
+		// keep the original response
+		final WebResponse originalResponse = (WebResponse)requestCycle.getResponse();
+
+		StreamingWebResponse response = new StreamingWebResponse(originalResponse);
+
+		// keep the original base URL
+		Url originalBaseUrl = requestCycle.getUrlRenderer().setBaseUrl(targetUrl);
+
+		try
+		{
+			requestCycle.setResponse(response);
+			requestablePage.renderPage();
+
+			if (requestCycle.getRequestHandlerScheduledAfterCurrent() != null)
+			{
+				if (response.isCommitted() == false)
+				{
+					// see #renderPage(Url, RequestCycle)
+					originalResponse.reset();
+					response.writeMetaData(originalResponse);
+					return;
+				}
+
+				// too late, the client already has the page
+				logger.warn(
+					"Page {} scheduled request handler {} after its header has been streamed, ignoring it",
+					requestablePage.getClass().getName(),
+					requestCycle.getRequestHandlerScheduledAfterCurrent());
+				requestCycle.scheduleRequestHandlerAfterCurrent(null);
+			}
+
+			response.writeBuffer();
+		}
+		finally
+		{
+			// restore original response and base URL
+			requestCycle.setResponse(originalResponse);
+			requestCycle.getUrlRenderer().setBaseUrl(originalBaseUrl);
+		}
+	}
+
+	/**
+	 * Should pages that are rendered and written directly be streamed.
+	 * 
+	 * @return {@code true} if streaming is enabled and no response filters need the complete page
+	 * @see org.apache.wicket.settings.RequestCycleSettings#setStreamingRender(boolean)
+	 */
+	protected boolean isStreamingRender()
+	{
+		RequestCycleSettings settings = Application.get().getRequestCycleSettings();
+		if (settings.getStreamingRender() == false)
+		{
+			return false;
+		}
+
+		List<IResponseFilter> responseFilters = settings.getResponseFilters();
+		return (responseFilters == null) || responseFilters.isEmpty();
+	}
+
 	/**
 	 * 
 	 * @param url
@@ -192,10 +276,17 @@ public class WebPageRenderer extends PageRenderer
 
 		if (shouldRenderPageAndWriteResponse(requestCycle, currentUrl, targetUrl))
 		{
-			BufferedWebResponse response = renderPage(currentUrl, requestCycle);
-			if (response != null)
+			if (isStreamingRender())
+			{
+				streamPage(currentUrl, requestCycle);
+			}
+			else
 			{
-				response.writeTo((WebResponse)requestCycle.getResponse());
+				BufferedWebResponse response = renderPage(currentUrl, requestCycle);
+				if (response != null)
+				{
+					writeResponse(response, requestCycle);
+				}
 			}
 		}
 		else if (shouldRedirectToTargetUrl(requestCycle, currentUrl, targetUrl))
@@ -258,7 +349,7 @@ public class WebPageRenderer extends PageRenderer
 			if (currentUrl.equals(afterRenderUrl))
 			{
 				// no need to redirect when both urls are exactly the same
-				response.writeTo((WebResponse)requestCycle.getResponse());
+				writeResponse(response, requestCycle);
 			}
 			// if page is still stateless after render
 			else if (isPageStateless() && !enableRedirectForStatelessPage())
@@ -271,7 +362,7 @@ public class WebPageRenderer extends PageRenderer
 				// also for listener interface on stateful page we want to redirect
 				// after the listener is invoked, but on stateless page the user
 				// must ask for redirect explicitly
-				response.writeTo((WebResponse)requestCycle.getResponse());
+				writeResponse(response, requestCycle);
 			}
 			else
 			{
@@ -282,6 +373,26 @@ public class WebPageRenderer extends PageRenderer
 		}
 	}
 
+	/**
+	 * Writes the buffered response of the page, caching it if the page's output is cached.
+	 * 
+	 * @param response
+	 * @param requestCycle
+	 * @see WebApplication#getPageOutputCache()
+	 */
+	private void writeResponse(BufferedWebResponse response, RequestCycle requestCycle)
+	{
+		Application application = Application.get();
+		if (application instanceof WebApplication &&
+			((WebApplication)application).hasPageOutputCache() &&
+			((WebApplication)application).getPageOutputCache().respondAndCache(requestCycle,
+				getPage(), response))
+		{
+			return;
+		}
+		response.writeTo((WebResponse)requestCycle.getResponse());
+	}
+
 	protected boolean isPageStateless()
 	{
 		return getPage().isPageStateless();
@@ -16,9 +16,12 @@
  */
 package org.apache.wicket.request.resource;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletResponse;
@@ -54,18 +57,36 @@ public abstract class AbstractResource implements IResource
 	/** header values that are managed internally and must not be set directly */
 	public static final Set<String> INTERNAL_HEADERS;
 
-	/** The meta data key of the content range start byte **/
+	/**
+	 * The meta data key of the content range start byte
+	 * 
+	 * @deprecated no longer set, the requested ranges are written by
+	 *             {@link WriteCallback#writeData(Attributes, ContentRanges)}
+	 */
+	@Deprecated
 	public static final MetaDataKey<Long> CONTENT_RANGE_STARTBYTE = new MetaDataKey<Long>()
 	{
 		private static final long serialVersionUID = 1L;
 	};
 
-	/** The meta data key of the content range end byte **/
+	/**
+	 * The meta data key of the content range end byte
+	 * 
+	 * @deprecated no longer set, the requested ranges are written by
+	 *             {@link WriteCallback#writeData(Attributes, ContentRanges)}
+	 */
+	@Deprecated
 	public static final MetaDataKey<Long> CONTENT_RANGE_ENDBYTE = new MetaDataKey<Long>()
 	{
 		private static final long serialVersionUID = 1L;
 	};
 
+	/** The meta data key of the ranges written by {@link #respond(Attributes)} */
+	private static final MetaDataKey<ContentRanges> CONTENT_RANGES = new MetaDataKey<ContentRanges>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
 	/**
 	 * All available content range types. The type name represents the name used in header
 	 * information.
@@ -136,6 +157,7 @@ public abstract class AbstractResource implements IResource
 		private String contentRange = null;
 		private ContentRangeType contentRangeType = null;
 		private String textEncoding;
+		private String contentEncoding;
 		private long contentLength = -1;
 		private Time lastModified = null;
 		private WriteCallback writeCallback;
@@ -370,6 +392,29 @@ public abstract class AbstractResource implements IResource
 			return textEncoding;
 		}
 
+		/**
+		 * Sets the content encoding, e.g. <code>gzip</code>, the data is written in. The content
+		 * length must be the length of the encoded data.
+		 * 
+		 * @param contentEncoding
+		 *            content encoding of the body or <code>null</code> if not encoded
+		 *
+		 * @return {@code this}, for chaining.
+		 */
+		public ResourceResponse setContentEncoding(String contentEncoding)
+		{
+			this.contentEncoding = contentEncoding;
+			return this;
+		}
+
+		/**
+		 * @return content encoding of the body
+		 */
+		public String getContentEncoding()
+		{
+			return contentEncoding;
+		}
+
 		/**
 		 * Sets the content length (in bytes) of the data. Content length is optional but it's
 		 * recommended to set it so that the browser can show download progress.
@@ -652,9 +697,19 @@ public abstract class AbstractResource implements IResource
 			throw new IllegalStateException("ResourceResponse#setWriteCallback() must be set.");
 		}
 
+		ContentRanges contentRanges = RequestCycle.get() != null ? RequestCycle.get().getMetaData(
+			CONTENT_RANGES) : null;
 		try
 		{
-			data.getWriteCallback().writeData(attributes);
+			if (contentRanges == null)
+			{
+				data.getWriteCallback().writeData(attributes);
+			}
+			else if (contentRanges.getRanges().isEmpty() == false)
+			{
+				data.getWriteCallback().writeData(attributes, contentRanges);
+				contentRanges.writeEnd(attributes.getResponse());
+			}
 		}
 		catch (IOException iox)
 		{
@@ -717,34 +772,19 @@ public abstract class AbstractResource implements IResource
 		}
 	}
 
+	/**
+	 * Formerly published the requested range as {@link #CONTENT_RANGE_STARTBYTE} and
+	 * {@link #CONTENT_RANGE_ENDBYTE}. The ranges are resolved when the content length is known
+	 * and written by {@link WriteCallback#writeData(Attributes, ContentRanges)}, so a write
+	 * callback which applied the published range itself would have it applied twice.
+	 * 
+	 * @param webRequest
+	 *            the web request
+	 * @deprecated the ranges are no longer published as meta data
+	 */
+	@Deprecated
 	protected void setRequestRangeMetaData(WebRequest webRequest)
 	{
-		String rangeHeader = webRequest.getHeader("range");
-
-		// The content range header is only be calculated if a range is given
-		if (!Strings.isEmpty(rangeHeader) &&
-				rangeHeader.contains(ContentRangeType.BYTES.getTypeName()))
-		{
-			// fixing white spaces
-			rangeHeader = rangeHeader.replaceAll(" ", "");
-
-			String range = rangeHeader.substring(rangeHeader.indexOf('=') + 1,
-					rangeHeader.length());
-
-			String[] rangeParts = Strings.split(range, '-');
-
-			String startByteString = rangeParts[0];
-			String endByteString = rangeParts[1];
-
-			Long startbyte = startByteString != null && !startByteString.trim().equals("")
-					? Long.parseLong(startByteString) : 0;
-			Long endbyte = endByteString != null && !endByteString.trim().equals("")
-					? Long.parseLong(endByteString) : -1;
-
-			// Make the content range information available for the whole request cycle
-			RequestCycle.get().setMetaData(CONTENT_RANGE_STARTBYTE, startbyte);
-			RequestCycle.get().setMetaData(CONTENT_RANGE_ENDBYTE, endbyte);
-		}
 	}
 
 	/**
@@ -820,6 +860,13 @@ public abstract class AbstractResource implements IResource
 				}
 			}
 
+			// 4a. Content Encoding
+			String contentEncoding = resourceResponse.getContentEncoding();
+			if (contentEncoding != null)
+			{
+				webResponse.setHeader("Content-Encoding", contentEncoding);
+			}
+
 			// 5. Accept Range
 			ContentRangeType acceptRange = resourceResponse.getAcceptRange();
 			if (acceptRange != null)
@@ -829,6 +876,10 @@ public abstract class AbstractResource implements IResource
 
 			long contentLength = resourceResponse.getContentLength();
 			boolean contentRangeApplied = false;
+			if (RequestCycle.get() != null)
+			{
+				RequestCycle.get().setMetaData(CONTENT_RANGES, null);
+			}
 
 			// 6. Content Range
 			// for more information take a look here:
@@ -848,7 +899,7 @@ public abstract class AbstractResource implements IResource
 				if (contentLength != -1 && ContentRangeType.BYTES.equals(acceptRange))
 				{
 					contentRangeApplied = setResponseContentRangeHeaderFields(webResponse,
-						attributes, contentLength);
+						attributes, resourceResponse);
 				}
 			}
 
@@ -865,8 +916,14 @@ public abstract class AbstractResource implements IResource
 			{
 				checkHeaderAccess(name);
 
+				boolean etag = contentEncoding != null && "etag".equalsIgnoreCase(name);
 				for (String value : headers.getHeaderValues(name))
 				{
+					if (etag)
+					{
+						// each encoding of the body is a different representation
+						value = encodingETag(value, contentEncoding);
+					}
 					webResponse.addHeader(name, value);
 				}
 			}
@@ -874,8 +931,113 @@ public abstract class AbstractResource implements IResource
 	}
 
 	/**
-	 * Sets the content range header fields to the given web response
-	 *
+	 * Makes an entity tag unique for an encoding of the body.
+	 * 
+	 * @param etag
+	 *            the entity tag of the unencoded body
+	 * @param contentEncoding
+	 *            the content encoding
+	 * @return the entity tag of the encoded body
+	 */
+	private static String encodingETag(String etag, String contentEncoding)
+	{
+		if (etag.endsWith("\""))
+		{
+			return etag.substring(0, etag.length() - 1) + '-' + contentEncoding + '"';
+		}
+		return etag + '-' + contentEncoding;
+	}
+
+	/**
+	 * Checks whether the client accepts the given content encoding, i.e. whether the
+	 * <code>Accept-Encoding</code> request header lists it (or <code>*</code>) with a non-zero
+	 * quality.
+	 * 
+	 * @param attributes
+	 *            the attributes to get the request from
+	 * @param contentEncoding
+	 *            the content encoding, e.g. <code>gzip</code>
+	 * @return {@code true} if the client accepts the content encoding
+	 */
+	protected boolean acceptsContentEncoding(Attributes attributes, String contentEncoding)
+	{
+		if (attributes.getRequest() instanceof WebRequest == false)
+		{
+			return false;
+		}
+
+		String header = ((WebRequest)attributes.getRequest()).getHeader("Accept-Encoding");
+		if (Strings.isEmpty(header))
+		{
+			return false;
+		}
+
+		boolean accepted = false;
+		for (String coding : Strings.split(header, ','))
+		{
+			String name = coding;
+			double quality = 1;
+			int semicolon = coding.indexOf(';');
+			if (semicolon != -1)
+			{
+				name = coding.substring(0, semicolon);
+				String parameter = coding.substring(semicolon + 1).trim();
+				if (parameter.startsWith("q="))
+				{
+					try
+					{
+						quality = Double.parseDouble(parameter.substring(2).trim());
+					}
+					catch (NumberFormatException e)
+					{
+						quality = 0;
+					}
+				}
+			}
+			name = name.trim();
+
+			if (name.equalsIgnoreCase(contentEncoding))
+			{
+				// an explicit entry overrides the wildcard
+				return quality > 0;
+			}
+			else if ("*".equals(name))
+			{
+				accepted = quality > 0;
+			}
+		}
+		return accepted;
+	}
+
+	/**
+	 * Checks whether a body with the given content type is worth encoding with a compressing
+	 * content encoding like <code>gzip</code>. By default text, JavaScript, JSON and XML (including
+	 * SVG) are.
+	 * 
+	 * @param contentType
+	 *            the content type, may be <code>null</code>
+	 * @return {@code true} if the content type is compressible
+	 */
+	protected boolean isCompressibleContentType(String contentType)
+	{
+		if (contentType == null)
+		{
+			return false;
+		}
+		String type = contentType.toLowerCase();
+		int semicolon = type.indexOf(';');
+		if (semicolon != -1)
+		{
+			type = type.substring(0, semicolon).trim();
+		}
+		return type.startsWith("text/") || type.endsWith("/javascript") ||
+			type.endsWith("/x-javascript") || type.endsWith("/json") || type.endsWith("/xml") ||
+			type.endsWith("+xml");
+	}
+
+	/**
+	 * Sets the response header fields of the requested ranges.
+	 * 
 	 * @param webResponse
 	 *            the web response to apply the content range information to
 	 * @param attributes
@@ -883,38 +1045,134 @@ public abstract class AbstractResource implements IResource
 	 * @param contentLength
 	 *            the content length of the response
 	 * @return if the content range header information has been applied
+	 * @deprecated override {@link #setResponseContentRangeHeaderFields(WebResponse, Attributes,
+	 *             ResourceResponse)} instead, it is the one called when responding
 	 */
+	@Deprecated
 	protected boolean setResponseContentRangeHeaderFields(WebResponse webResponse,
 		Attributes attributes, long contentLength)
 	{
-		boolean contentRangeApplied = false;
-		if (attributes.getRequest() instanceof WebRequest)
+		ResourceResponse resourceResponse = new ResourceResponse();
+		resourceResponse.setContentLength(contentLength);
+		return setResponseContentRangeHeaderFields(webResponse, attributes, resourceResponse);
+	}
+
+	/**
+	 * Sets the response header fields of the requested ranges. A <code>Range</code> request header
+	 * is only applied to a <code>200 OK</code> response of the resource, and only if the resource
+	 * did not change since the client read the first part, as told by <code>If-Range</code>.
+	 * Several ranges are sent as <code>multipart/byteranges</code>, if none of the ranges is
+	 * satisfiable the status is <code>416 Range Not Satisfiable</code>.
+	 *
+	 * @param webResponse
+	 *            the web response to apply the content range information to
+	 * @param attributes
+	 *            the attributes to get the request from
+	 * @param resourceResponse
+	 *            the resource response with the content length
+	 * @return if the content range header information has been applied
+	 */
+	protected boolean setResponseContentRangeHeaderFields(WebResponse webResponse,
+		Attributes attributes, ResourceResponse resourceResponse)
+	{
+		if (attributes.getRequest() instanceof WebRequest == false ||
+			(resourceResponse.getStatusCode() != null &&
+				resourceResponse.getStatusCode() != HttpServletResponse.SC_OK))
 		{
-			Long startbyte = RequestCycle.get().getMetaData(CONTENT_RANGE_STARTBYTE);
-			Long endbyte = RequestCycle.get().getMetaData(CONTENT_RANGE_ENDBYTE);
+			return false;
+		}
+
+		WebRequest webRequest = (WebRequest)attributes.getRequest();
+		List<ByteRange> ranges = ByteRange.parse(webRequest.getHeader("range"));
+		if (ranges == null || isRangeApplicable(webRequest, resourceResponse) == false)
+		{
+			return false;
+		}
 
-			if (startbyte != null && endbyte != null)
+		long contentLength = resourceResponse.getContentLength();
+		ranges = ByteRange.resolve(ranges, contentLength);
+
+		String contentType = resourceResponse.getContentType();
+		if (contentType != null && resourceResponse.getTextEncoding() != null)
+		{
+			contentType += "; charset=" + resourceResponse.getTextEncoding();
+		}
+		ContentRanges contentRanges = new ContentRanges(ranges, contentLength, contentType);
+		RequestCycle.get().setMetaData(CONTENT_RANGES, contentRanges);
+
+		if (ranges.isEmpty())
+		{
+			webResponse.setStatus(416);
+			webResponse.setContentRange(ContentRangeType.BYTES.getTypeName() + " */" +
+				contentLength);
+			webResponse.setContentLength(0);
+		}
+		else
+		{
+			// Change the status code to 206 partial content
+			webResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			if (contentRanges.isMultipart())
 			{
-				// if end byte hasn't been set
-				if (endbyte == -1)
-				{
-					endbyte = contentLength - 1;
-				}
+				webResponse.setContentType(contentRanges.getMultipartContentType());
+			}
+			else
+			{
+				webResponse.setContentRange(ranges.get(0).toContentRange(contentLength));
+			}
+			// WARNING - DO NOT SET THE CONTENT LENGTH, even if it is calculated right -
+			// SAFARI / CHROME are causing issues otherwise!
+		}
 
-				// Change the status code to 206 partial content
-				webResponse.setStatus(206);
-				// currently only bytes are supported.
-				webResponse.setContentRange(ContentRangeType.BYTES.getTypeName() + " " + startbyte +
-					'-' + endbyte + '/' + contentLength);
-				// WARNING - DO NOT SET THE CONTENT LENGTH, even if it is calculated right - 
-				// SAFARI / CHROME are causing issues otherwise!
-				// webResponse.setContentLength((endbyte - startbyte) + 1);
-
-				// content range has been applied do not set the content length again!
-				contentRangeApplied = true;
+		// content range has been applied do not set the content length again!
+		return true;
+	}
+
+	/**
+	 * Checks the <code>If-Range</code> request header: the ranges are only sent if its entity tag
+	 * (strong comparison) or date matches the current representation, otherwise the complete
+	 * resource is sent.
+	 *
+	 * @param webRequest
+	 *            the request
+	 * @param resourceResponse
+	 *            the resource response with the entity tag and last modification time
+	 * @return whether the requested ranges are applicable
+	 */
+	private boolean isRangeApplicable(WebRequest webRequest, ResourceResponse resourceResponse)
+	{
+		String ifRange = webRequest.getHeader("If-Range");
+		if (Strings.isEmpty(ifRange))
+		{
+			return true;
+		}
+
+		ifRange = ifRange.trim();
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+		{
+			String etag = resourceResponse.getHeaders().getHeader("ETag");
+			if (etag != null && resourceResponse.getContentEncoding() != null)
+			{
+				etag = encodingETag(etag, resourceResponse.getContentEncoding());
 			}
+			return etag != null && !etag.startsWith("W/") && etag.equals(ifRange);
+		}
+
+		Time lastModified = resourceResponse.getLastModified();
+		if (lastModified == null)
+		{
+			return false;
+		}
+		try
+		{
+			Time date = webRequest.getDateHeader("If-Range");
+			return date != null &&
+				date.getMilliseconds() / 1000 == lastModified.getMilliseconds() / 1000;
+		}
+		catch (IllegalArgumentException e)
+		{
+			// not a valid date
+			return false;
 		}
-		return contentRangeApplied;
 	}
 
 	/**
@@ -935,7 +1193,28 @@ public abstract class AbstractResource implements IResource
 		public abstract void writeData(Attributes attributes) throws IOException;
 
 		/**
-		 * Convenience method to write an {@link InputStream} to response.
+		 * Write the requested ranges of the resource data to response, each one after its
+		 * {@link ContentRanges#writePartHeader(Response, ByteRange) part header}. The default
+		 * implementation writes all data through a {@link ContentRanges#filter(Response)
+		 * filtering response}, callbacks that can read at a position should override it.
+		 * 
+		 * @param attributes
+		 *            request attributes
+		 * @param contentRanges
+		 *            the ranges to write
+		 */
+		public void writeData(Attributes attributes, ContentRanges contentRanges)
+			throws IOException
+		{
+			Response response = contentRanges.filter(attributes.getResponse());
+			writeData(new Attributes(attributes.getRequest(), response,
+				attributes.getParameters()));
+		}
+
+		/**
+		 * Convenience method to write an {@link InputStream} to response. A
+		 * {@link FileInputStream} is transferred from its channel, see
+		 * {@link Streams#copy(java.nio.channels.FileChannel, long, long, java.io.OutputStream)}.
 		 * 
 		 * @param attributes
 		 *            request attributes
@@ -945,7 +1224,17 @@ public abstract class AbstractResource implements IResource
 		protected final void writeStream(Attributes attributes, InputStream stream) throws IOException
 		{
 			final Response response = attributes.getResponse();
-			Streams.copy(stream, response.getOutputStream());
+			if (stream instanceof FileInputStream)
+			{
+				FileChannel channel = ((FileInputStream)stream).getChannel();
+				long position = channel.position();
+				Streams.copy(channel, position, channel.size() - position,
+					response.getOutputStream());
+			}
+			else
+			{
+				Streams.copy(stream, response.getOutputStream());
+			}
 		}
 	}
 }
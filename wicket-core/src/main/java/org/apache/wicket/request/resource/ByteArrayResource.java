@@ -69,6 +69,16 @@ public class ByteArrayResource extends BaseDataResource<byte[]>
 		super(contentType, array, filename);
 	}
 
+	@Override
+	protected ResourceResponse newResourceResponse(final Attributes attributes)
+	{
+		ResourceResponse response = super.newResourceResponse(attributes);
+
+		// the bytes are in memory, ranges are cheap to send
+		response.setAcceptRange(ContentRangeType.BYTES);
+		return response;
+	}
+
 	@Override
 	protected void writeData(Response response, byte[] data)
 	{
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.wicket.util.string.Strings;
+
+/**
+ * A range of bytes of a resource, as requested by the <code>Range</code> header (RFC 7233).
+ * Parsed ranges may still be open or suffix ranges, {@link #resolve(List, long)} turns them into
+ * the ranges of a resource with a known length.
+ * 
+ * @see AbstractResource.ContentRangeType#BYTES
+ */
+public final class ByteRange
+{
+	private static final Comparator<ByteRange> BY_FIRST = new Comparator<ByteRange>()
+	{
+		@Override
+		public int compare(ByteRange range1, ByteRange range2)
+		{
+			return Long.compare(range1.first, range2.first);
+		}
+	};
+
+	/** the first byte, or <code>-1</code> for a suffix range */
+	private final long first;
+
+	/** the last byte (inclusive), <code>-1</code> for an open range or the suffix length */
+	private final long last;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param first
+	 *            the position of the first byte
+	 * @param last
+	 *            the position of the last byte (inclusive)
+	 */
+	public ByteRange(long first, long last)
+	{
+		if (first < 0 || last < first)
+		{
+			throw new IllegalArgumentException("Invalid byte range " + first + '-' + last);
+		}
+		this.first = first;
+		this.last = last;
+	}
+
+	/**
+	 * Construct a parsed range without validation, it may be a suffix or an open range.
+	 */
+	private ByteRange(long first, long last, boolean unresolved)
+	{
+		this.first = first;
+		this.last = last;
+	}
+
+	/**
+	 * @return the position of the first byte
+	 */
+	public long getFirst()
+	{
+		return first;
+	}
+
+	/**
+	 * @return the position of the last byte (inclusive)
+	 */
+	public long getLast()
+	{
+		return last;
+	}
+
+	/**
+	 * @return the number of bytes in this range
+	 */
+	public long getLength()
+	{
+		return last - first + 1;
+	}
+
+	/**
+	 * Gets the value of the <code>Content-Range</code> header for this range.
+	 * 
+	 * @param length
+	 *            the length of the complete resource
+	 * @return the content range
+	 */
+	public String toContentRange(long length)
+	{
+		return AbstractResource.ContentRangeType.BYTES.getTypeName() + ' ' + first + '-' + last +
+			'/' + length;
+	}
+
+	/**
+	 * Parses the value of a <code>Range</code> header.
+	 * 
+	 * @param header
+	 *            the header value, e.g. <code>bytes=0-499,1000-,-500</code>
+	 * @return the requested ranges or <code>null</code> if the header is not a valid byte ranges
+	 *         specifier, in which case it has to be ignored
+	 */
+	public static List<ByteRange> parse(String header)
+	{
+		if (Strings.isEmpty(header))
+		{
+			return null;
+		}
+
+		int equals = header.indexOf('=');
+		if (equals == -1 ||
+			!AbstractResource.ContentRangeType.BYTES.getTypeName().equalsIgnoreCase(
+				header.substring(0, equals).trim()))
+		{
+			return null;
+		}
+
+		List<ByteRange> ranges = new ArrayList<>();
+		for (String spec : Strings.split(header.substring(equals + 1), ','))
+		{
+			spec = spec.trim();
+			if (spec.isEmpty())
+			{
+				// empty list elements are allowed
+				continue;
+			}
+
+			int dash = spec.indexOf('-');
+			if (dash == -1)
+			{
+				return null;
+			}
+
+			try
+			{
+				String firstString = spec.substring(0, dash).trim();
+				String lastString = spec.substring(dash + 1).trim();
+				if (firstString.isEmpty())
+				{
+					// suffix range: the last n bytes
+					long suffix = Long.parseLong(lastString);
+					if (suffix < 0)
+					{
+						return null;
+					}
+					ranges.add(new ByteRange(-1, suffix, true));
+				}
+				else
+				{
+					long first = Long.parseLong(firstString);
+					long last = lastString.isEmpty() ? -1 : Long.parseLong(lastString);
+					if (first < 0 || (last != -1 && last < first))
+					{
+						return null;
+					}
+					ranges.add(new ByteRange(first, last, true));
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				return null;
+			}
+		}
+		return ranges.isEmpty() ? null : ranges;
+	}
+
+	/**
+	 * Resolves parsed ranges against the length of a resource. Ranges beyond the end are clipped,
+	 * unsatisfiable ones are dropped, and overlapping or adjacent ones are coalesced, so the
+	 * result is in ascending order.
+	 * 
+	 * @param ranges
+	 *            the parsed ranges
+	 * @param length
+	 *            the length of the resource
+	 * @return the satisfiable ranges, empty if there are none
+	 */
+	public static List<ByteRange> resolve(List<ByteRange> ranges, long length)
+	{
+		List<ByteRange> resolved = new ArrayList<>(ranges.size());
+		for (ByteRange range : ranges)
+		{
+			if (range.first == -1)
+			{
+				if (range.last > 0 && length > 0)
+				{
+					resolved.add(new ByteRange(Math.max(0, length - range.last), length - 1));
+				}
+			}
+			else if (range.first < length)
+			{
+				long last = range.last == -1 ? length - 1 : Math.min(range.last, length - 1);
+				resolved.add(new ByteRange(range.first, last));
+			}
+		}
+
+		if (resolved.size() > 1)
+		{
+			Collections.sort(resolved, BY_FIRST);
+
+			List<ByteRange> coalesced = new ArrayList<>(resolved.size());
+			ByteRange current = resolved.get(0);
+			for (int i = 1; i < resolved.size(); i++)
+			{
+				ByteRange next = resolved.get(i);
+				if (next.first <= current.last + 1)
+				{
+					current = new ByteRange(current.first, Math.max(current.last, next.last));
+				}
+				else
+				{
+					coalesced.add(current);
+					current = next;
+				}
+			}
+			coalesced.add(current);
+			resolved = coalesced;
+		}
+		return resolved;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (obj instanceof ByteRange == false)
+		{
+			return false;
+		}
+		ByteRange other = (ByteRange)obj;
+		return first == other.first && last == other.last;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * (int)(first ^ (first >>> 32)) + (int)(last ^ (last >>> 32));
+	}
+
+	@Override
+	public String toString()
+	{
+		if (first == -1)
+		{
+			return "-" + last;
+		}
+		return first + "-" + (last == -1 ? "" : String.valueOf(last));
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.wicket.request.Response;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The ranges of a resource that are sent in a <code>206 Partial Content</code> response. A single
+ * range is sent as it is, several ranges are sent as <code>multipart/byteranges</code>: a
+ * {@link AbstractResource.WriteCallback} writes each range after its
+ * {@link #writePartHeader(Response, ByteRange) part header}, the closing delimiter is written
+ * by {@link AbstractResource}.
+ */
+public class ContentRanges
+{
+	private static final String CRLF = "\r\n";
+
+	private final List<ByteRange> ranges;
+
+	private final long length;
+
+	private final String contentType;
+
+	private final String boundary;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param ranges
+	 *            the resolved ranges in ascending order
+	 * @param length
+	 *            the length of the complete resource
+	 * @param contentType
+	 *            the content type of the resource, may be <code>null</code>
+	 */
+	public ContentRanges(List<ByteRange> ranges, long length, String contentType)
+	{
+		this.ranges = Collections.unmodifiableList(Args.notNull(ranges, "ranges"));
+		this.length = length;
+		this.contentType = contentType;
+
+		boundary = UUID.randomUUID().toString().replace("-", "");
+	}
+
+	/**
+	 * @return the ranges to write, empty if none of the requested ranges is satisfiable
+	 */
+	public List<ByteRange> getRanges()
+	{
+		return ranges;
+	}
+
+	/**
+	 * @return the length of the complete resource
+	 */
+	public long getLength()
+	{
+		return length;
+	}
+
+	/**
+	 * @return whether the ranges are sent as <code>multipart/byteranges</code>
+	 */
+	public boolean isMultipart()
+	{
+		return ranges.size() > 1;
+	}
+
+	/**
+	 * @return the boundary of the parts
+	 */
+	public String getBoundary()
+	{
+		return boundary;
+	}
+
+	/**
+	 * @return the content type of a <code>multipart/byteranges</code> response
+	 */
+	public String getMultipartContentType()
+	{
+		return "multipart/byteranges; boundary=" + boundary;
+	}
+
+	/**
+	 * Writes the delimiter and headers of the part for the given range, nothing for a single
+	 * range.
+	 * 
+	 * @param response
+	 *            the response
+	 * @param range
+	 *            the range that is written next
+	 */
+	public void writePartHeader(Response response, ByteRange range)
+	{
+		if (isMultipart())
+		{
+			StringBuilder header = new StringBuilder(128);
+			header.append(CRLF).append("--").append(boundary).append(CRLF);
+			if (contentType != null)
+			{
+				header.append("Content-Type: ").append(contentType).append(CRLF);
+			}
+			header.append("Content-Range: ").append(range.toContentRange(length)).append(CRLF);
+			header.append(CRLF);
+			write(response, header);
+		}
+	}
+
+	/**
+	 * Writes the closing delimiter after the last part, nothing for a single range.
+	 * 
+	 * @param response
+	 *            the response
+	 */
+	public void writeEnd(Response response)
+	{
+		if (isMultipart())
+		{
+			write(response, CRLF + "--" + boundary + "--" + CRLF);
+		}
+	}
+
+	private static void write(Response response, CharSequence text)
+	{
+		response.write(text.toString().getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Wraps a response to write the ranges of the complete resource data written to it: the bytes
+	 * outside of the ranges are dropped and the part headers are written where the ranges start.
+	 * 
+	 * @param response
+	 *            the response to write the ranges to
+	 * @return the filtering response
+	 */
+	public Response filter(Response response)
+	{
+		return new FilteringResponse(response);
+	}
+
+	/**
+	 * Writes only the bytes within the ranges
+	 */
+	private class FilteringResponse extends Response
+	{
+		private final Response response;
+
+		/** the position in the complete resource data */
+		private long position;
+
+		/** the index of the next range to write */
+		private int index;
+
+		private FilteringResponse(Response response)
+		{
+			this.response = response;
+		}
+
+		@Override
+		public void write(CharSequence sequence)
+		{
+			throw new UnsupportedOperationException(
+				"Ranges can only be written from binary data");
+		}
+
+		@Override
+		public void write(byte[] array)
+		{
+			write(array, 0, array.length);
+		}
+
+		@Override
+		public void write(byte[] array, int offset, int length)
+		{
+			long end = position + length;
+			while (index < ranges.size())
+			{
+				ByteRange range = ranges.get(index);
+				if (range.getFirst() >= end)
+				{
+					break;
+				}
+
+				long from = Math.max(range.getFirst(), position);
+				long to = Math.min(range.getLast() + 1, end);
+				if (from < to)
+				{
+					if (from == range.getFirst())
+					{
+						writePartHeader(response, range);
+					}
+					response.write(array, offset + (int)(from - position), (int)(to - from));
+				}
+
+				if (range.getLast() + 1 > end)
+				{
+					break;
+				}
+				index++;
+			}
+			position = end;
+		}
+
+		@Override
+		public String encodeURL(CharSequence url)
+		{
+			return response.encodeURL(url);
+		}
+
+		@Override
+		public Object getContainerResponse()
+		{
+			return response.getContainerResponse();
+		}
+	}
+}
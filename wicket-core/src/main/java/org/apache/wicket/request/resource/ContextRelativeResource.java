@@ -20,14 +20,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 
+import org.apache.wicket.Application;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.core.util.resource.WebExternalResourceStream;
+import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.request.resource.caching.IStaticCacheableResource;
 import org.apache.wicket.util.io.IOUtils;
-import org.apache.wicket.util.io.Streams;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+import org.apache.wicket.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -94,9 +97,42 @@ public class ContextRelativeResource extends AbstractResource implements IStatic
 
 		final WebExternalResourceStream webExternalResourceStream =
 			new WebExternalResourceStream(path);
-		resourceResponse.setContentType(webExternalResourceStream.getContentType());
-		resourceResponse.setLastModified(webExternalResourceStream.lastModifiedTime());
+		final String contentType = webExternalResourceStream.getContentType();
+		final Time lastModified = webExternalResourceStream.lastModifiedTime();
+		resourceResponse.setContentType(contentType);
+		resourceResponse.setLastModified(lastModified);
 		resourceResponse.setFileName(path);
+
+		if (Application.get().getResourceSettings().getGzipContentEncoding() &&
+			isCompressibleContentType(contentType))
+		{
+			resourceResponse.getHeaders().addHeader("Vary", "Accept-Encoding");
+			if (resourceResponse.dataNeedsToBeWritten(attributes) &&
+				acceptsContentEncoding(attributes, GzipContentEncoding.GZIP))
+			{
+				final byte[] encoded = gzip(webExternalResourceStream, lastModified);
+				if (encoded != null)
+				{
+					resourceResponse.setContentEncoding(GzipContentEncoding.GZIP);
+					resourceResponse.setContentLength(encoded.length);
+					resourceResponse.setWriteCallback(new WriteCallback()
+					{
+						@Override
+						public void writeData(final Attributes attributes) throws IOException
+						{
+							attributes.getResponse().write(encoded);
+						}
+					});
+					return resourceResponse;
+				}
+			}
+		}
+		final Bytes length = webExternalResourceStream.length();
+		if (length != null)
+		{
+			resourceResponse.setContentLength(length.bytes());
+			resourceResponse.setAcceptRange(ContentRangeType.BYTES);
+		}
 		resourceResponse.setWriteCallback(new WriteCallback()
 		{
 			@Override
@@ -107,7 +143,7 @@ public class ContextRelativeResource extends AbstractResource implements IStatic
 					InputStream inputStream = webExternalResourceStream.getInputStream();
 					try
 					{
-						Streams.copy(inputStream, attributes.getResponse().getOutputStream());
+						writeStream(attributes, inputStream);
 					}
 					finally {
 						IOUtils.closeQuietly(inputStream);
@@ -118,11 +154,76 @@ public class ContextRelativeResource extends AbstractResource implements IStatic
 					throw new WicketRuntimeException(rsnfx);
 				}
 			}
+
+			@Override
+			public void writeData(final Attributes attributes, final ContentRanges contentRanges)
+				throws IOException
+			{
+				try
+				{
+					InputStream inputStream = webExternalResourceStream.getInputStream();
+					new PartWriterCallback(inputStream, contentRanges.getLength(), null, null).setClose(
+						true).writeData(attributes, contentRanges);
+				}
+				catch (ResourceStreamNotFoundException rsnfx)
+				{
+					throw new WicketRuntimeException(rsnfx);
+				}
+			}
 		});
 
 		return resourceResponse;
 	}
 
+	/**
+	 * Gets the gzip encoded bytes, from a precompressed <code>.gz</code> sibling in the context if
+	 * there is one.
+	 * 
+	 * @param resourceStream
+	 * @param lastModified
+	 * @return the encoded bytes or <code>null</code> if encoding does not make them smaller
+	 */
+	private byte[] gzip(final WebExternalResourceStream resourceStream, final Time lastModified)
+	{
+		ProcessedResourceKey key = null;
+		if (lastModified != null)
+		{
+			key = new ProcessedResourceKey(getClass().getName(), CACHE_PREFIX, path, null, null,
+				null, String.valueOf(lastModified.getMilliseconds()), false);
+		}
+
+		byte[] encoded = GzipContentEncoding.getCached(key);
+		if (encoded == null)
+		{
+			try
+			{
+				byte[] bytes;
+				InputStream inputStream = resourceStream.getInputStream();
+				try
+				{
+					bytes = IOUtils.toByteArray(inputStream);
+				}
+				finally
+				{
+					IOUtils.closeQuietly(inputStream);
+				}
+
+				IResourceStream precompressed = null;
+				String precompressedPath = path + GzipContentEncoding.EXTENSION;
+				if (WebApplication.get().getServletContext().getResource(precompressedPath) != null)
+				{
+					precompressed = new WebExternalResourceStream(precompressedPath);
+				}
+				encoded = GzipContentEncoding.encode(key, bytes, precompressed);
+			}
+			catch (IOException | ResourceStreamNotFoundException e)
+			{
+				throw new WicketRuntimeException(e);
+			}
+		}
+		return encoded.length == 0 ? null : encoded;
+	}
+
 	@Override
 	public int hashCode()
 	{
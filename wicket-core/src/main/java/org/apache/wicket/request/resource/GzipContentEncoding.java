@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+
+/**
+ * Provides the <code>gzip</code> encoded bytes of static resources. The encoded bytes are taken
+ * from a precompressed <code>.gz</code> sibling of the resource if there is one, otherwise the
+ * bytes are compressed on first access. Either way they are kept in the application's
+ * {@link IProcessedResourceCache}.
+ */
+final class GzipContentEncoding
+{
+	/** the name of the content encoding */
+	static final String GZIP = "gzip";
+
+	/** suffix of precompressed siblings */
+	static final String EXTENSION = ".gz";
+
+	/** cached in place of encoded bytes that are not smaller than the unencoded ones */
+	private static final byte[] NOT_SMALLER = new byte[0];
+
+	private GzipContentEncoding()
+	{
+	}
+
+	/**
+	 * Gets the cached gzip encoded bytes.
+	 * 
+	 * @param key
+	 *            the key of the unencoded bytes, may be <code>null</code>
+	 * @return the encoded bytes, an empty array if encoding does not make the bytes smaller or
+	 *         <code>null</code> if not cached
+	 */
+	static byte[] getCached(final ProcessedResourceKey key)
+	{
+		if (key == null || Application.exists() == false)
+		{
+			return null;
+		}
+		return Application.get()
+			.getResourceSettings()
+			.getProcessedResourceCache()
+			.get(key.withEncoding(GZIP));
+	}
+
+	/**
+	 * Encodes the bytes and caches the result.
+	 * 
+	 * @param key
+	 *            the key of the unencoded bytes, <code>null</code> if they must not be cached
+	 * @param bytes
+	 *            the unencoded bytes
+	 * @param precompressed
+	 *            the precompressed sibling or <code>null</code>
+	 * @return the encoded bytes or an empty array if encoding does not make the bytes smaller
+	 */
+	static byte[] encode(final ProcessedResourceKey key, final byte[] bytes,
+		final IResourceStream precompressed)
+	{
+		byte[] encoded = precompressed != null ? read(precompressed) : gzip(bytes);
+		if (encoded.length >= bytes.length)
+		{
+			encoded = NOT_SMALLER;
+		}
+		if (key != null && Application.exists())
+		{
+			Application.get()
+				.getResourceSettings()
+				.getProcessedResourceCache()
+				.put(key.withEncoding(GZIP), encoded);
+		}
+		return encoded;
+	}
+
+	/**
+	 * @param bytes
+	 * @return the gzip compressed bytes
+	 */
+	static byte[] gzip(final byte[] bytes)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 3 + 32);
+		try
+		{
+			GZIPOutputStream gzip = new GZIPOutputStream(out);
+			gzip.write(bytes);
+			gzip.close();
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException(e);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] read(final IResourceStream resourceStream)
+	{
+		try
+		{
+			InputStream inputStream = resourceStream.getInputStream();
+			try
+			{
+				return IOUtils.toByteArray(inputStream);
+			}
+			finally
+			{
+				IOUtils.closeQuietly(resourceStream);
+			}
+		}
+		catch (IOException | ResourceStreamNotFoundException e)
+		{
+			throw new WicketRuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+/**
+ * Application wide cache for the bytes of {@link PackageResource}s after
+ * {@link PackageResource#processResponse(IResource.Attributes, byte[])}, i.e. after compression or
+ * any other rewriting of JavaScript and CSS. Implementations have to be thread-safe.
+ * 
+ * @see org.apache.wicket.settings.ResourceSettings#getProcessedResourceCache()
+ */
+public interface IProcessedResourceCache
+{
+	/**
+	 * @param key
+	 *            the key
+	 * @return the processed bytes or <code>null</code> if not cached
+	 */
+	byte[] get(ProcessedResourceKey key);
+
+	/**
+	 * Caches the processed bytes. The array must not be modified afterwards.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param bytes
+	 *            the processed bytes
+	 */
+	void put(ProcessedResourceKey key, byte[] bytes);
+
+	/**
+	 * Removes all versions, locales, styles and variations of a resource.
+	 * 
+	 * @param scopeName
+	 *            the name of the resource's scope class
+	 * @param path
+	 *            the absolute path of the resource
+	 */
+	void invalidate(String scopeName, String path);
+
+	/**
+	 * Removes all entries.
+	 */
+	void clear();
+
+	/**
+	 * @return the number of entries
+	 */
+	int size();
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.resource.FileResourceStream;
+import org.apache.wicket.util.resource.IFixedLocationResourceStream;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.ResourceStreamWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Application wide cache of read-only memory mappings of large files. Concurrent requests for the
+ * same file, e.g. the range requests of media players, read from one shared mapping instead of
+ * each opening the file. A mapping is replaced when the length or modification time of its file
+ * changes, the least recently used mappings are dropped when their total size exceeds the limit.
+ * <p>
+ * Mapping is disabled unless an application sets this cache, because of the following caveats:
+ * <ul>
+ * <li>A dropped mapping is not unmapped: the JVM releases it when its buffer is garbage
+ * collected, so the mapped address space and open mappings may exceed the limit until then.</li>
+ * <li>Truncating a file while it is mapped makes reads beyond its new length crash the JVM with
+ * SIGBUS on most platforms.</li>
+ * <li>On Windows a file cannot be deleted or replaced while it is mapped.</li>
+ * </ul>
+ * Only map files which are neither modified nor replaced while the application is running, e.g.
+ * the media files of a deployed application.
+ * 
+ * @see org.apache.wicket.settings.ResourceSettings#getMappedFileCache()
+ */
+public class MappedFileCache
+{
+	private static final Logger log = LoggerFactory.getLogger(MappedFileCache.class);
+
+	private final long minimumSize;
+
+	private final long maxSize;
+
+	/** the mappings in access order */
+	private final LinkedHashMap<String, Mapping> mappings;
+
+	/** the size of all mappings */
+	private long size;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param minimumSize
+	 *            the minimum size of files to map, smaller files are cheaper to read
+	 * @param maxSize
+	 *            the maximum size of all mappings held by this cache, dropped mappings are released
+	 *            on garbage collection only
+	 */
+	public MappedFileCache(final Bytes minimumSize, final Bytes maxSize)
+	{
+		this.minimumSize = Args.notNull(minimumSize, "minimumSize").bytes();
+		this.maxSize = Args.notNull(maxSize, "maxSize").bytes();
+
+		mappings = new LinkedHashMap<String, Mapping>(16, 0.75f, true);
+	}
+
+	/**
+	 * Gets the mapping of a file.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return a read-only buffer with the content of the file or <code>null</code> if the file is
+	 *         not mapped
+	 */
+	public ByteBuffer get(final File file)
+	{
+		Args.notNull(file, "file");
+
+		long length = file.length();
+		if (length < minimumSize || length > maxSize || length > Integer.MAX_VALUE)
+		{
+			return null;
+		}
+		long lastModified = file.lastModified();
+		String key = file.getAbsolutePath();
+
+		synchronized (this)
+		{
+			Mapping mapping = mappings.get(key);
+			if (mapping == null || mapping.length != length || mapping.lastModified != lastModified)
+			{
+				remove(key);
+
+				MappedByteBuffer buffer;
+				try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+				{
+					buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+				}
+				catch (IOException e)
+				{
+					log.debug("Cannot map file " + file, e);
+					return null;
+				}
+
+				mapping = new Mapping(length, lastModified, buffer);
+				mappings.put(key, mapping);
+				size += length;
+
+				Iterator<Mapping> eldest = mappings.values().iterator();
+				while (size > maxSize)
+				{
+					size -= eldest.next().length;
+					eldest.remove();
+				}
+			}
+
+			// each reader needs its own position
+			return mapping.buffer.duplicate();
+		}
+	}
+
+	/**
+	 * Gets an input stream reading the mapping of a file-backed resource stream.
+	 * 
+	 * @param resourceStream
+	 *            the resource stream
+	 * @return the input stream or <code>null</code> if the resource stream is not backed by a
+	 *         mapped file
+	 */
+	public InputStream getInputStream(final IResourceStream resourceStream)
+	{
+		File file = getFile(resourceStream);
+		if (file != null)
+		{
+			ByteBuffer buffer = get(file);
+			if (buffer != null)
+			{
+				return new MappedInputStream(buffer);
+			}
+		}
+		return null;
+	}
+
+	private static File getFile(IResourceStream resourceStream)
+	{
+		IResourceStream stream = resourceStream;
+		while (stream instanceof ResourceStreamWrapper)
+		{
+			stream = ((ResourceStreamWrapper)stream).getDelegate();
+		}
+
+		if (stream instanceof FileResourceStream)
+		{
+			return ((FileResourceStream)stream).getFile();
+		}
+		else if (stream instanceof IFixedLocationResourceStream)
+		{
+			String location = ((IFixedLocationResourceStream)stream).locationAsString();
+			if (location != null && location.startsWith("file:"))
+			{
+				return Files.getLocalFileFromUrl(location);
+			}
+		}
+		return null;
+	}
+
+	private void remove(final String key)
+	{
+		Mapping mapping = mappings.remove(key);
+		if (mapping != null)
+		{
+			size -= mapping.length;
+		}
+	}
+
+	/**
+	 * Drops all mappings.
+	 */
+	public synchronized void clear()
+	{
+		mappings.clear();
+		size = 0;
+	}
+
+	/**
+	 * @return the number of mapped files
+	 */
+	public synchronized int size()
+	{
+		return mappings.size();
+	}
+
+	private static class Mapping
+	{
+		private final long length;
+
+		private final long lastModified;
+
+		private final MappedByteBuffer buffer;
+
+		private Mapping(long length, long lastModified, MappedByteBuffer buffer)
+		{
+			this.length = length;
+			this.lastModified = lastModified;
+			this.buffer = buffer;
+		}
+	}
+}
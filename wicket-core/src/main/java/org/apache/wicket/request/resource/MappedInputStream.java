@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream over a buffer of a {@link MappedFileCache}, which can be written at any
+ * position.
+ */
+class MappedInputStream extends InputStream
+{
+	private static final int CHUNK_SIZE = 8192;
+
+	private final ByteBuffer buffer;
+
+	MappedInputStream(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	/**
+	 * @return the number of bytes of the mapped file
+	 */
+	long length()
+	{
+		return buffer.capacity();
+	}
+
+	/**
+	 * Writes bytes of the mapped file, independent of the position of this stream.
+	 * 
+	 * @param out
+	 *            the output stream
+	 * @param position
+	 *            the position of the first byte
+	 * @param count
+	 *            the maximum number of bytes
+	 * @throws IOException
+	 */
+	void write(OutputStream out, long position, long count) throws IOException
+	{
+		if (position >= buffer.capacity() || count <= 0)
+		{
+			return;
+		}
+
+		ByteBuffer region = buffer.duplicate();
+		region.position((int)position);
+		region.limit((int)Math.min(buffer.capacity(), position + count));
+
+		byte[] chunk = new byte[Math.min(CHUNK_SIZE, region.remaining())];
+		while (region.hasRemaining())
+		{
+			int length = Math.min(chunk.length, region.remaining());
+			region.get(chunk, 0, length);
+			out.write(chunk, 0, length);
+		}
+	}
+
+	@Override
+	public int read()
+	{
+		return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len)
+	{
+		if (len == 0)
+		{
+			return 0;
+		}
+		if (!buffer.hasRemaining())
+		{
+			return -1;
+		}
+		int length = Math.min(len, buffer.remaining());
+		buffer.get(b, off, length);
+		return length;
+	}
+
+	@Override
+	public long skip(long n)
+	{
+		int skipped = (int)Math.max(0, Math.min(n, buffer.remaining()));
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available()
+	{
+		return buffer.remaining();
+	}
+}
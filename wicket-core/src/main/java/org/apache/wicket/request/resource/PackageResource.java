@@ -38,14 +38,17 @@ import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.resource.caching.IStaticCacheableResource;
 import org.apache.wicket.response.StringResponse;
 import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.lang.Classes;
 import org.apache.wicket.util.lang.Packages;
+import org.apache.wicket.util.listener.IChangeListener;
 import org.apache.wicket.util.resource.IFixedLocationResourceStream;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
 import org.apache.wicket.util.resource.ResourceStreamWrapper;
 import org.apache.wicket.util.string.Strings;
 import org.apache.wicket.util.time.Time;
+import org.apache.wicket.util.watch.IModificationWatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -333,14 +336,45 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 
 			try
 			{
-				// read resource data to get the content length
-				InputStream inputStream = resourceStream.getInputStream();
+				// read resource data to get the content length, large files are read from a
+				// shared mapping if they are not read buffered
+				InputStream inputStream = null;
+				if (!readBuffered && Application.exists())
+				{
+					MappedFileCache mappedFileCache = Application.get()
+						.getResourceSettings()
+						.getMappedFileCache();
+					if (mappedFileCache != null)
+					{
+						inputStream = mappedFileCache.getInputStream(resourceStream);
+					}
+				}
+				if (inputStream == null)
+				{
+					inputStream = resourceStream.getInputStream();
+				}
 
 				byte[] bytes = null;
 				// send Content-Length header
 				if (readBuffered)
 				{
 					bytes = IOUtils.toByteArray(inputStream);
+
+					// send the gzip encoded bytes if the client accepts them
+					if (isGzipContentEncoding(contentType))
+					{
+						resourceResponse.getHeaders().addHeader("Vary", "Accept-Encoding");
+						if (acceptsContentEncoding(attributes, GzipContentEncoding.GZIP) &&
+							resourceStream instanceof ProcessingResourceStream)
+						{
+							byte[] encoded = ((ProcessingResourceStream)resourceStream).gzip(bytes);
+							if (encoded != null)
+							{
+								bytes = encoded;
+								resourceResponse.setContentEncoding(GzipContentEncoding.GZIP);
+							}
+						}
+					}
 					resourceResponse.setContentLength(new Long(bytes.length));
 				}
 				else
@@ -348,14 +382,11 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 					resourceResponse.setContentLength(resourceStream.length().bytes());
 				}
 
-				// get content range information
-				Long startbyte = RequestCycle.get().getMetaData(CONTENT_RANGE_STARTBYTE);
-				Long endbyte = RequestCycle.get().getMetaData(CONTENT_RANGE_ENDBYTE);
-
-				// send response body with resource data
+				// send response body with resource data, the requested ranges are written by
+				// AbstractResource#respond()
 				PartWriterCallback partWriterCallback = new PartWriterCallback(bytes != null
 					? new ByteArrayInputStream(bytes) : inputStream,
-					resourceResponse.getContentLength(), startbyte, endbyte);
+					resourceResponse.getContentLength(), null, null);
 
 				// If read buffered is set to false ensure the part writer callback is going to
 				// close the input stream
@@ -509,26 +540,76 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 
 		if (resourceStream != null)
 		{
-			resourceStream = new ProcessingResourceStream(resourceStream);
+			resourceStream = new ProcessingResourceStream(resourceStream, style, locale);
 		}
 		return resourceStream;
 	}
 
 	/**
-	 * An IResourceStream that processes the input stream of the original IResourceStream
+	 * @param contentType
+	 * @return whether the resource negotiates gzip content encoding
+	 */
+	private boolean isGzipContentEncoding(String contentType)
+	{
+		return Application.exists() &&
+			Application.get().getResourceSettings().getGzipContentEncoding() &&
+			isCompressibleContentType(contentType);
+	}
+
+	/**
+	 * Whether the bytes returned by {@link #processResponse(Attributes, byte[])} may be kept in the
+	 * application's {@link org.apache.wicket.settings.ResourceSettings#getProcessedResourceCache()
+	 * processed resource cache} and reused for later requests. Override and return
+	 * <code>false</code> if the processing depends on the request.
+	 * 
+	 * @return <code>true</code> by default
+	 */
+	protected boolean isProcessedResponseCacheable()
+	{
+		return true;
+	}
+
+	/**
+	 * An IResourceStream that processes the input stream of the original IResourceStream. The
+	 * processed bytes are kept in the application's processed resource cache, so resources are
+	 * compressed once per version rather than on every request.
 	 */
 	private class ProcessingResourceStream extends ResourceStreamWrapper
 	{
 		private static final long serialVersionUID = 1L;
 
-		private ProcessingResourceStream(IResourceStream delegate)
+		private final String style;
+
+		private final Locale locale;
+
+		/** whether the last input stream was changed by processing */
+		private transient boolean processed;
+
+		private ProcessingResourceStream(IResourceStream delegate, String style, Locale locale)
 		{
 			super(delegate);
+
+			this.style = style;
+			this.locale = locale;
 		}
 
 		@Override
 		public InputStream getInputStream() throws ResourceStreamNotFoundException
 		{
+			IProcessedResourceCache cache = null;
+			ProcessedResourceKey key = null;
+			if (readBuffered && Application.exists() && isProcessedResponseCacheable())
+			{
+				cache = Application.get().getResourceSettings().getProcessedResourceCache();
+				key = newProcessedResourceKey();
+				byte[] processedBytes = cache.get(key);
+				if (processedBytes != null)
+				{
+					processed = true;
+					return new ByteArrayInputStream(processedBytes);
+				}
+			}
+
 			byte[] bytes = null;
 			InputStream inputStream = super.getInputStream();
 
@@ -562,6 +643,15 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 			if (bytes != null)
 			{
 				byte[] processedBytes = processResponse(attributes, bytes);
+				processed = processedBytes != bytes;
+
+				// only keep what the processing actually changed, unprocessed resources like
+				// images would just fill the cache
+				if (key != null && processedBytes != bytes)
+				{
+					cache.put(key, processedBytes);
+					watch(cache);
+				}
 				return new ByteArrayInputStream(processedBytes);
 			}
 			else
@@ -569,6 +659,79 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 				return inputStream;
 			}
 		}
+
+		/**
+		 * Gets the gzip encoded bytes. A precompressed <code>.gz</code> sibling of the resource is
+		 * only used if processing did not change the resource.
+		 * 
+		 * @param bytes
+		 *            the bytes read from this stream
+		 * @return the encoded bytes or <code>null</code> if encoding does not make them smaller
+		 */
+		private byte[] gzip(byte[] bytes)
+		{
+			ProcessedResourceKey key = isProcessedResponseCacheable() ? newProcessedResourceKey()
+				: null;
+			byte[] encoded = GzipContentEncoding.getCached(key);
+			if (encoded == null)
+			{
+				IResourceStream precompressed = null;
+				if (processed == false)
+				{
+					precompressed = Application.get()
+						.getResourceSettings()
+						.getResourceStreamLocator()
+						.locate(getScope(), absolutePath + GzipContentEncoding.EXTENSION, style,
+							variation, locale, null, false);
+				}
+				encoded = GzipContentEncoding.encode(key, bytes, precompressed);
+			}
+			return encoded.length == 0 ? null : encoded;
+		}
+
+		/**
+		 * @return the key of the processed bytes of the current version of the resource stream
+		 */
+		private ProcessedResourceKey newProcessedResourceKey()
+		{
+			Time lastModified = getDelegate().lastModifiedTime();
+			Bytes length = getDelegate().length();
+			String version = (lastModified != null ? lastModified.getMilliseconds() : "") + "-" +
+				(length != null ? length.bytes() : "");
+			return new ProcessedResourceKey(PackageResource.this.getClass().getName(), scopeName,
+				absolutePath, locale, style, variation, version, getCompress());
+		}
+
+		/**
+		 * In development mode removes the processed bytes from the cache as soon as the resource
+		 * changes.
+		 * 
+		 * @param cache
+		 */
+		private void watch(final IProcessedResourceCache cache)
+		{
+			Application application = Application.get();
+			if (application.usesDevelopmentConfig() == false)
+			{
+				return;
+			}
+
+			final IModificationWatcher watcher = application.getResourceSettings()
+				.getResourceWatcher(true);
+			if (watcher != null)
+			{
+				final IResourceStream resourceStream = getDelegate();
+				watcher.add(resourceStream, new IChangeListener()
+				{
+					@Override
+					public void onChange()
+					{
+						watcher.remove(resourceStream);
+						cache.invalidate(scopeName, absolutePath);
+					}
+				});
+			}
+		}
 	}
 
 	/**
@@ -16,12 +16,15 @@
  */
 package org.apache.wicket.request.resource;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.wicket.protocol.http.servlet.ResponseIOException;
+import org.apache.wicket.request.Response;
 import org.apache.wicket.request.resource.AbstractResource.WriteCallback;
 import org.apache.wicket.request.resource.IResource.Attributes;
 import org.apache.wicket.util.io.IOUtils;
@@ -31,7 +34,8 @@ import org.apache.wicket.util.lang.Args;
 /**
  * Used to read a part of an input stream and writes it to the output stream of the response taken
  * from attributes in {@link #writeData(org.apache.wicket.request.resource.IResource.Attributes)}
- * method.
+ * method. File input streams are written with {@link FileChannel#transferTo} and streams of the
+ * {@link MappedFileCache} from the shared mapping, reading only the requested parts.
  *
  * @author Tobias Soloschenko
  * @since 7.0.0
@@ -70,6 +74,16 @@ public class PartWriterCallback extends WriteCallback
 	 */
 	private boolean close = false;
 
+	/**
+	 * The number of bytes read from a stream that is not read at positions
+	 */
+	private long position;
+
+	/**
+	 * The position of the file channel when the writing started
+	 */
+	private long origin = -1;
+
 
 	/**
 	 * Creates a part writer callback.<br>
@@ -87,8 +101,8 @@ public class PartWriterCallback extends WriteCallback
 	 *            the start position to read from (if not null the number of bytes are skipped till
 	 *            the stream is read)
 	 * @param endbyte
-	 *            the end position to read to (if not null the stream is going to be read till
-	 *            endbyte, else to the end of the whole stream)
+	 *            the position of the last byte to read (if not null the stream is going to be read
+	 *            till endbyte inclusively, else to the end of the whole stream)
 	 */
 	public PartWriterCallback(InputStream inputStream, Long contentLength, Long startbyte,
 		Long endbyte)
@@ -113,9 +127,12 @@ public class PartWriterCallback extends WriteCallback
 		try
 		{
 			OutputStream outputStream = attributes.getResponse().getOutputStream();
-			byte[] buffer = new byte[getBufferSize()];
 
-			if (startbyte != null || endbyte != null)
+			if (inputStream instanceof FileInputStream || inputStream instanceof MappedInputStream)
+			{
+				writePositioned(outputStream);
+			}
+			else if (startbyte != null || endbyte != null)
 			{
 				// skipping the first bytes which are
 				// requested to be skipped by the client
@@ -133,7 +150,7 @@ public class PartWriterCallback extends WriteCallback
 				// If there are no end bytes given read the whole stream till the end
 				if (endbyte == null || Long.valueOf(-1).equals(endbyte))
 				{
-					endbyte = contentLength;
+					endbyte = contentLength - 1;
 				}
 
 				BoundedInputStream boundedInputStream = null;
@@ -141,7 +158,8 @@ public class PartWriterCallback extends WriteCallback
 				{
 					// Stream is going to be read from the starting point next to the skipped bytes
 					// till the end byte computed by the range between startbyte / endbyte
-					boundedInputStream = new BoundedInputStream(inputStream, endbyte - startbyte);
+					boundedInputStream = new BoundedInputStream(inputStream,
+						endbyte - startbyte + 1);
 
 					// The original input stream is going to be closed by the end of the request
 					// so set propagate close to false
@@ -149,6 +167,7 @@ public class PartWriterCallback extends WriteCallback
 
 					// The read bytes in the current buffer
 					int readBytes;
+					byte[] buffer = new byte[getBufferSize()];
 
 					while ((readBytes = boundedInputStream.read(buffer)) != -1)
 					{
@@ -181,6 +200,142 @@ public class PartWriterCallback extends WriteCallback
 		}
 	}
 
+	/**
+	 * Writes the part of a file or mapped input stream, reading it at its position
+	 * 
+	 * @param outputStream
+	 *            the output stream of the response
+	 * @throws IOException
+	 *             if something went wrong while writing the data to the output stream
+	 */
+	private void writePositioned(OutputStream outputStream) throws IOException
+	{
+		long first = 0;
+		long count = Long.MAX_VALUE;
+
+		if (startbyte != null || endbyte != null)
+		{
+			if (startbyte == null)
+			{
+				startbyte = 0L;
+			}
+			if (endbyte == null || Long.valueOf(-1).equals(endbyte))
+			{
+				endbyte = contentLength - 1;
+			}
+
+			// the range is read at its position, there is nothing to skip, the end is inclusive
+			first = startbyte;
+			count = endbyte - startbyte + 1;
+		}
+
+		writeRange(outputStream, first, count);
+	}
+
+	/**
+	 * Writes the ranges, each one after its part header. Files and mapped files are read at the
+	 * position of each range, other input streams are skipped forward to it.
+	 * 
+	 * @param attributes
+	 *            the attributes to get the output stream of the response
+	 * @param contentRanges
+	 *            the ranges to write
+	 * @throws IOException
+	 *             if something went wrong while writing the data to the output stream
+	 */
+	@Override
+	public void writeData(Attributes attributes, ContentRanges contentRanges) throws IOException
+	{
+		try
+		{
+			Response response = attributes.getResponse();
+			OutputStream outputStream = response.getOutputStream();
+			for (ByteRange range : contentRanges.getRanges())
+			{
+				contentRanges.writePartHeader(response, range);
+				writeRange(outputStream, range.getFirst(), range.getLength());
+			}
+		}
+		catch (ResponseIOException e)
+		{
+			// the client has closed the connection
+		}
+		if (close)
+		{
+			IOUtils.close(inputStream);
+		}
+	}
+
+	/**
+	 * Writes a range of the input stream
+	 * 
+	 * @param outputStream
+	 *            the output stream of the response
+	 * @param first
+	 *            the position of the first byte, relative to the current position of the input
+	 *            stream when this callback started writing
+	 * @param count
+	 *            the maximum number of bytes to write
+	 * @throws IOException
+	 *             if something went wrong while writing the data to the output stream
+	 */
+	private void writeRange(OutputStream outputStream, long first, long count) throws IOException
+	{
+		if (count <= 0)
+		{
+			return;
+		}
+
+		if (inputStream instanceof MappedInputStream)
+		{
+			((MappedInputStream)inputStream).write(outputStream, first, count);
+		}
+		else if (inputStream instanceof FileInputStream)
+		{
+			FileChannel channel = ((FileInputStream)inputStream).getChannel();
+			if (origin == -1)
+			{
+				origin = channel.position();
+			}
+			long position = origin + first;
+			long size = channel.size();
+			if (position < size)
+			{
+				Streams.copy(channel, position, Math.min(count, size - position), outputStream);
+			}
+		}
+		else
+		{
+			if (first < position)
+			{
+				throw new IOException("Ranges of an input stream have to be written in order");
+			}
+			while (position < first)
+			{
+				long skipped = inputStream.skip(first - position);
+				if (skipped <= 0)
+				{
+					return;
+				}
+				position += skipped;
+			}
+
+			byte[] buffer = new byte[getBufferSize()];
+			long remaining = count;
+			while (remaining > 0)
+			{
+				int readBytes = inputStream.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+				if (readBytes == -1)
+				{
+					break;
+				}
+				outputStream.write(buffer, 0, readBytes);
+				position += readBytes;
+				remaining -= readBytes;
+			}
+		}
+	}
+
 	/**
 	 * Sets the buffer size used to send the data to the client
 	 *
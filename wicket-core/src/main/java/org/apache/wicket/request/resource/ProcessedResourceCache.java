@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+
+/**
+ * Default {@link IProcessedResourceCache} holding the processed bytes in memory. When their total
+ * size exceeds the limit, the least recently used entries are evicted.
+ */
+public class ProcessedResourceCache implements IProcessedResourceCache
+{
+	private final long maxSize;
+
+	/** the entries in access order */
+	private final LinkedHashMap<ProcessedResourceKey, byte[]> entries;
+
+	/** the size of all entries */
+	private long size;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param maxSize
+	 *            the maximum size of all cached bytes
+	 */
+	public ProcessedResourceCache(final Bytes maxSize)
+	{
+		Args.notNull(maxSize, "maxSize");
+
+		this.maxSize = maxSize.bytes();
+
+		entries = new LinkedHashMap<ProcessedResourceKey, byte[]>(16, 0.75f, true);
+	}
+
+	@Override
+	public synchronized byte[] get(final ProcessedResourceKey key)
+	{
+		return entries.get(key);
+	}
+
+	@Override
+	public synchronized void put(final ProcessedResourceKey key, final byte[] bytes)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(bytes, "bytes");
+
+		if (bytes.length > maxSize)
+		{
+			remove(key);
+			return;
+		}
+
+		byte[] previous = entries.put(key, bytes);
+		if (previous != null)
+		{
+			size -= previous.length;
+		}
+		size += bytes.length;
+
+		Iterator<byte[]> eldest = entries.values().iterator();
+		while (size > maxSize)
+		{
+			size -= eldest.next().length;
+			eldest.remove();
+		}
+	}
+
+	private void remove(final ProcessedResourceKey key)
+	{
+		byte[] bytes = entries.remove(key);
+		if (bytes != null)
+		{
+			size -= bytes.length;
+		}
+	}
+
+	@Override
+	public synchronized void invalidate(final String scopeName, final String path)
+	{
+		Iterator<Map.Entry<ProcessedResourceKey, byte[]>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext())
+		{
+			Map.Entry<ProcessedResourceKey, byte[]> entry = iterator.next();
+			ProcessedResourceKey key = entry.getKey();
+			if (key.getScopeName().equals(scopeName) && key.getPath().equals(path))
+			{
+				size -= entry.getValue().length;
+				iterator.remove();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void clear()
+	{
+		entries.clear();
+		size = 0;
+	}
+
+	@Override
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+}
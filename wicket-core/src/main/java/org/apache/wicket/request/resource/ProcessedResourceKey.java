@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.util.Locale;
+
+import org.apache.wicket.util.io.IClusterable;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Objects;
+
+/**
+ * Identifies the processed bytes of a {@link PackageResource} in an
+ * {@link IProcessedResourceCache}. Besides the resource's name it contains the locale, style and
+ * variation the resource stream was located for and its version, so changed files are never
+ * served from the cache.
+ */
+public final class ProcessedResourceKey implements IClusterable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final String resourceClass;
+
+	private final String scopeName;
+
+	private final String path;
+
+	private final Locale locale;
+
+	private final String style;
+
+	private final String variation;
+
+	private final String version;
+
+	private final boolean compress;
+
+	private final String encoding;
+
+	private final int hashCode;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param resourceClass
+	 *            the class of the resource doing the processing
+	 * @param scopeName
+	 *            the name of the resource's scope class
+	 * @param path
+	 *            the absolute path of the resource
+	 * @param locale
+	 *            the locale
+	 * @param style
+	 *            the style
+	 * @param variation
+	 *            the variation
+	 * @param version
+	 *            the version of the resource stream
+	 * @param compress
+	 *            whether the resource is compressed
+	 */
+	public ProcessedResourceKey(final String resourceClass, final String scopeName,
+		final String path, final Locale locale, final String style, final String variation,
+		final String version, final boolean compress)
+	{
+		this(resourceClass, scopeName, path, locale, style, variation, version, compress, null);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param resourceClass
+	 *            the class of the resource doing the processing
+	 * @param scopeName
+	 *            the name of the resource's scope class
+	 * @param path
+	 *            the absolute path of the resource
+	 * @param locale
+	 *            the locale
+	 * @param style
+	 *            the style
+	 * @param variation
+	 *            the variation
+	 * @param version
+	 *            the version of the resource stream
+	 * @param compress
+	 *            whether the resource is compressed
+	 * @param encoding
+	 *            the content encoding of the bytes, e.g. <code>gzip</code>, or <code>null</code>
+	 */
+	public ProcessedResourceKey(final String resourceClass, final String scopeName,
+		final String path, final Locale locale, final String style, final String variation,
+		final String version, final boolean compress, final String encoding)
+	{
+		this.resourceClass = Args.notNull(resourceClass, "resourceClass");
+		this.scopeName = Args.notNull(scopeName, "scopeName");
+		this.path = Args.notNull(path, "path");
+		this.locale = locale;
+		this.style = style;
+		this.variation = variation;
+		this.version = version;
+		this.compress = compress;
+		this.encoding = encoding;
+
+		hashCode = Objects.hashCode(resourceClass, scopeName, path, locale, style, variation,
+			version, compress, encoding);
+	}
+
+	/**
+	 * @return the name of the resource's scope class
+	 */
+	public String getScopeName()
+	{
+		return scopeName;
+	}
+
+	/**
+	 * @return the absolute path of the resource
+	 */
+	public String getPath()
+	{
+		return path;
+	}
+
+	/**
+	 * @return the version of the resource stream
+	 */
+	public String getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * @return the content encoding of the bytes or <code>null</code>
+	 */
+	public String getEncoding()
+	{
+		return encoding;
+	}
+
+	/**
+	 * @param encoding
+	 *            the content encoding
+	 * @return a key for the same resource with the given content encoding
+	 */
+	public ProcessedResourceKey withEncoding(final String encoding)
+	{
+		return new ProcessedResourceKey(resourceClass, scopeName, path, locale, style, variation,
+			version, compress, encoding);
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (obj instanceof ProcessedResourceKey == false)
+		{
+			return false;
+		}
+		ProcessedResourceKey that = (ProcessedResourceKey)obj;
+		return hashCode == that.hashCode && compress == that.compress &&
+			resourceClass.equals(that.resourceClass) && scopeName.equals(that.scopeName) &&
+			path.equals(that.path) && Objects.equal(locale, that.locale) &&
+			Objects.equal(style, that.style) && Objects.equal(variation, that.variation) &&
+			Objects.equal(version, that.version) && Objects.equal(encoding, that.encoding);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ProcessedResourceKey{scope=" + scopeName + ", path=" + path + ", locale=" +
+			locale + ", style=" + style + ", variation=" + variation + ", version=" + version +
+			", resourceClass=" + resourceClass + ", compress=" + compress + ", encoding=" +
+			encoding + '}';
+	}
+}
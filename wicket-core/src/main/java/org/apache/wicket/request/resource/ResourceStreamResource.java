@@ -157,7 +157,18 @@ public class ResourceStreamResource extends AbstractResource
 			{
 				try
 				{
-					inputStream = resourceStream.getInputStream();
+					// large files are read from a shared mapping
+					MappedFileCache mappedFileCache = Application.exists() ? Application.get()
+						.getResourceSettings()
+						.getMappedFileCache() : null;
+					if (mappedFileCache != null)
+					{
+						inputStream = mappedFileCache.getInputStream(resourceStream);
+					}
+					if (inputStream == null)
+					{
+						inputStream = resourceStream.getInputStream();
+					}
 				}
 				catch (ResourceStreamNotFoundException e)
 				{
@@ -171,6 +182,7 @@ public class ResourceStreamResource extends AbstractResource
 			if (length != null)
 			{
 				data.setContentLength(length.bytes());
+				data.setAcceptRange(ContentRangeType.BYTES);
 			}
 			data.setFileName(fileName);
 
@@ -211,6 +223,21 @@ public class ResourceStreamResource extends AbstractResource
 							close(resourceStream);
 						}
 					}
+
+					@Override
+					public void writeData(Attributes attributes, ContentRanges contentRanges)
+						throws IOException
+					{
+						try
+						{
+							new PartWriterCallback(s, contentRanges.getLength(), null, null).writeData(
+								attributes, contentRanges);
+						}
+						finally
+						{
+							close(resourceStream);
+						}
+					}
 				});
 			}
 		}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.resource.manifest;
+
+import java.util.List;
+
+import org.apache.wicket.core.util.resource.locator.ResourceStreamLocator;
+import org.apache.wicket.util.file.IResourceFinder;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.resource.IResourceStream;
+
+/**
+ * Resource stream locator which does not ask the resource finders for resources a
+ * {@link ResourceManifest} knows do not exist. Locating a resource tries many combinations of
+ * style, variation and locale, most of which do not exist; for the directories indexed at build
+ * time these lookups are answered from the manifest.
+ * <p>
+ * Only use this locator if the indexed resources do not change at runtime and no other jar adds
+ * resources to the indexed packages.
+ */
+public class ManifestResourceStreamLocator extends ResourceStreamLocator
+{
+	private final ResourceManifest manifest;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param manifest
+	 *            the manifest
+	 * @param finders
+	 *            the finders to look up the resources with
+	 */
+	public ManifestResourceStreamLocator(final ResourceManifest manifest,
+		final List<IResourceFinder> finders)
+	{
+		super(finders);
+
+		this.manifest = Args.notNull(manifest, "manifest");
+	}
+
+	@Override
+	public IResourceStream locate(final Class<?> clazz, final String path)
+	{
+		if (manifest.isMissing(path.startsWith("/") ? path.substring(1) : path))
+		{
+			return null;
+		}
+		return super.locate(clazz, path);
+	}
+}
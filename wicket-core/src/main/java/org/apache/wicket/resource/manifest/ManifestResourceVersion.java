@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.resource.manifest;
+
+import java.util.regex.Pattern;
+
+import org.apache.wicket.request.resource.caching.IStaticCacheableResource;
+import org.apache.wicket.request.resource.caching.version.IResourceVersion;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.resource.IFixedLocationResourceStream;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.ResourceStreamWrapper;
+
+/**
+ * Takes the versions of resources from a {@link ResourceManifest} written at build time, so they
+ * do not have to be read and hashed at runtime. Versions of resources missing from the manifest
+ * are provided by a delegate.
+ */
+public class ManifestResourceVersion implements IResourceVersion
+{
+	/** the pattern of the hex encoded content hashes in the manifest */
+	private static final Pattern MANIFEST_PATTERN = Pattern.compile("[0-9A-F]+");
+
+	private final ResourceManifest manifest;
+
+	private final IResourceVersion delegate;
+
+	private final Pattern pattern;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param manifest
+	 *            the manifest
+	 * @param delegate
+	 *            provides the versions of resources missing from the manifest
+	 */
+	public ManifestResourceVersion(final ResourceManifest manifest,
+		final IResourceVersion delegate)
+	{
+		this.manifest = Args.notNull(manifest, "manifest");
+		this.delegate = Args.notNull(delegate, "delegate");
+
+		Pattern delegatePattern = delegate.getVersionPattern();
+		if (delegatePattern == null || delegatePattern.pattern().equals(MANIFEST_PATTERN.pattern()))
+		{
+			pattern = MANIFEST_PATTERN;
+		}
+		else
+		{
+			pattern = Pattern.compile("(?:" + MANIFEST_PATTERN.pattern() + ")|(?:" +
+				delegatePattern.pattern() + ")");
+		}
+	}
+
+	@Override
+	public String getVersion(final IStaticCacheableResource resource)
+	{
+		IResourceStream stream = resource.getCacheableResourceStream();
+		while (stream instanceof ResourceStreamWrapper)
+		{
+			stream = ((ResourceStreamWrapper)stream).getDelegate();
+		}
+
+		if (stream instanceof IFixedLocationResourceStream)
+		{
+			String location = ((IFixedLocationResourceStream)stream).locationAsString();
+			String path = manifest.findPath(location);
+			if (path != null)
+			{
+				return manifest.getVersion(path);
+			}
+		}
+		return delegate.getVersion(resource);
+	}
+
+	@Override
+	public Pattern getVersionPattern()
+	{
+		return pattern;
+	}
+}
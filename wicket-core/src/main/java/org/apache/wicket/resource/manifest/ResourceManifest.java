@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.resource.manifest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the resources of one or more jars, written at build time by the
+ * {@link ResourceManifestBuilder}. For every resource it holds the content hash, so resource
+ * versions do not have to be computed at runtime, and it tells for the indexed directories which
+ * files exist, so resource stream locators can skip looking up the ones that do not.
+ * <p>
+ * Manifests are read from {@value #LOCATION} in all jars and class folders.
+ * 
+ * @see ManifestResourceVersion
+ * @see ManifestResourceStreamLocator
+ */
+public class ResourceManifest
+{
+	private static final Logger log = LoggerFactory.getLogger(ResourceManifest.class);
+
+	/** classpath location of the manifest */
+	public static final String LOCATION = "META-INF/wicket/resource-manifest.properties";
+
+	/** the content hashes by classpath relative path */
+	private final Map<String, String> versions;
+
+	/** the directories whose files are all in the manifest */
+	private final Set<String> directories;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param versions
+	 *            the content hashes by classpath relative path
+	 */
+	public ResourceManifest(final Map<String, String> versions)
+	{
+		Args.notNull(versions, "versions");
+
+		this.versions = new HashMap<>(versions);
+		directories = new HashSet<>();
+		for (String path : versions.keySet())
+		{
+			directories.add(directory(path));
+		}
+	}
+
+	/**
+	 * Reads all manifests found by the given resource locations.
+	 * 
+	 * @param urls
+	 *            the manifest locations, e.g. from {@link ClassLoader#getResources(String)} for
+	 *            {@value #LOCATION}
+	 * @return the merged manifest
+	 */
+	public static ResourceManifest load(final Iterator<URL> urls)
+	{
+		Map<String, String> versions = new HashMap<>();
+		while (urls.hasNext())
+		{
+			URL url = urls.next();
+			Properties properties = new Properties();
+			InputStream inputStream = null;
+			try
+			{
+				inputStream = url.openStream();
+				properties.load(inputStream);
+			}
+			catch (IOException e)
+			{
+				log.warn("Unable to read resource manifest " + url, e);
+				continue;
+			}
+			finally
+			{
+				IOUtils.closeQuietly(inputStream);
+			}
+
+			for (String path : properties.stringPropertyNames())
+			{
+				versions.put(path, properties.getProperty(path));
+			}
+		}
+		return new ResourceManifest(versions);
+	}
+
+	/**
+	 * @return {@code true} if no resources are indexed
+	 */
+	public boolean isEmpty()
+	{
+		return versions.isEmpty();
+	}
+
+	/**
+	 * @return the indexed paths
+	 */
+	public Set<String> getPaths()
+	{
+		return Collections.unmodifiableSet(versions.keySet());
+	}
+
+	/**
+	 * @param path
+	 *            the classpath relative path of a resource
+	 * @return the content hash of the resource or <code>null</code> if it is not indexed
+	 */
+	public String getVersion(final String path)
+	{
+		return versions.get(path);
+	}
+
+	/**
+	 * Checks whether the manifest knows for sure that a resource does not exist, i.e. the resource
+	 * is missing from a directory that was indexed.
+	 * 
+	 * @param path
+	 *            the classpath relative path of a resource
+	 * @return {@code true} if the resource certainly does not exist
+	 */
+	public boolean isMissing(final String path)
+	{
+		return versions.containsKey(path) == false && directories.contains(directory(path));
+	}
+
+	/**
+	 * Finds the indexed resource a location, e.g. a <code>jar:</code> or <code>file:</code> URL
+	 * or a file system path, points to.
+	 * 
+	 * @param location
+	 *            the location of a resource
+	 * @return the classpath relative path of the resource or <code>null</code> if it is not
+	 *         indexed
+	 */
+	public String findPath(final String location)
+	{
+		if (location == null)
+		{
+			return null;
+		}
+
+		String path = location.replace('\\', '/');
+		int jarSeparator = path.lastIndexOf("!/");
+		if (jarSeparator != -1)
+		{
+			path = path.substring(jarSeparator + 2);
+			return versions.containsKey(path) ? path : null;
+		}
+
+		// a class folder, try the suffixes from the longest to the shortest
+		for (int slash = path.indexOf('/'); slash != -1; slash = path.indexOf('/', slash + 1))
+		{
+			String candidate = path.substring(slash + 1);
+			if (versions.containsKey(candidate))
+			{
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	private static String directory(final String path)
+	{
+		int slash = path.lastIndexOf('/');
+		return slash == -1 ? "" : path.substring(0, slash);
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.resource.manifest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.wicket.javascript.DefaultJavaScriptCompressor;
+import org.apache.wicket.javascript.IJavaScriptCompressor;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.string.Strings;
+
+/**
+ * Build step writing a {@link ResourceManifest} for a class folder. It is meant to run after the
+ * classes and resources were copied to the class folder and before they are packaged, e.g. with
+ * the exec-maven-plugin in the <code>process-classes</code> phase:
+ * 
+ * <pre>
+ * java org.apache.wicket.resource.manifest.ResourceManifestBuilder [--minify] [--gzip] target/classes
+ * </pre>
+ * 
+ * For every file besides class files the manifest holds the MD5 hash of its content, the same
+ * digest {@link org.apache.wicket.request.resource.caching.version.MessageDigestResourceVersion}
+ * computes by default. Optionally the builder precomputes what otherwise happens at runtime:
+ * <ul>
+ * <li><code>--minify</code> writes a <code>.min.js</code> variant of every JavaScript file that has
+ * none, using the {@link DefaultJavaScriptCompressor}. Minified variants are served in deployment
+ * mode.</li>
+ * <li><code>--gzip</code> writes a <code>.gz</code> sibling of every compressible file, which is
+ * sent to clients accepting gzip content encoding.</li>
+ * </ul>
+ */
+public class ResourceManifestBuilder
+{
+	/** extensions of the files the <code>--gzip</code> option compresses */
+	private static final Set<String> COMPRESSIBLE = new HashSet<>(Arrays.asList("js", "css",
+		"svg", "txt", "json", "xml", "html", "htm"));
+
+	private final File root;
+
+	private boolean minify;
+
+	private boolean gzip;
+
+	private IJavaScriptCompressor javaScriptCompressor = new DefaultJavaScriptCompressor();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param root
+	 *            the class folder
+	 */
+	public ResourceManifestBuilder(final File root)
+	{
+		this.root = Args.notNull(root, "root");
+	}
+
+	/**
+	 * @param minify
+	 *            whether to write minified variants of JavaScript files
+	 * @return {@code this} for chaining
+	 */
+	public ResourceManifestBuilder setMinify(final boolean minify)
+	{
+		this.minify = minify;
+		return this;
+	}
+
+	/**
+	 * @param gzip
+	 *            whether to write gzip compressed siblings of compressible files
+	 * @return {@code this} for chaining
+	 */
+	public ResourceManifestBuilder setGzip(final boolean gzip)
+	{
+		this.gzip = gzip;
+		return this;
+	}
+
+	/**
+	 * @param javaScriptCompressor
+	 *            the compressor writing the minified variants of JavaScript files
+	 * @return {@code this} for chaining
+	 */
+	public ResourceManifestBuilder setJavaScriptCompressor(
+		final IJavaScriptCompressor javaScriptCompressor)
+	{
+		this.javaScriptCompressor = Args.notNull(javaScriptCompressor, "javaScriptCompressor");
+		return this;
+	}
+
+	/**
+	 * Writes the optional variants and the manifest.
+	 * 
+	 * @return the manifest
+	 * @throws IOException
+	 */
+	public ResourceManifest build() throws IOException
+	{
+		if (root.isDirectory() == false)
+		{
+			throw new IOException("Not a directory: " + root);
+		}
+
+		if (minify)
+		{
+			for (File file : listFiles())
+			{
+				minify(file);
+			}
+		}
+		if (gzip)
+		{
+			for (File file : listFiles())
+			{
+				gzip(file);
+			}
+		}
+
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("MD5");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IOException(e);
+		}
+
+		Map<String, String> versions = new TreeMap<>();
+		for (File file : listFiles())
+		{
+			byte[] hash = digest.digest(Files.readAllBytes(file.toPath()));
+			versions.put(relativePath(file), Strings.toHexString(hash));
+		}
+
+		write(versions);
+		return new ResourceManifest(versions);
+	}
+
+	private void minify(final File file) throws IOException
+	{
+		String name = file.getName();
+		if (name.endsWith(".js") == false || name.endsWith(".min.js"))
+		{
+			return;
+		}
+		File minified = new File(file.getParentFile(), name.substring(0, name.length() - 3) +
+			".min.js");
+		if (minified.exists())
+		{
+			return;
+		}
+		String original = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+		Files.write(minified.toPath(), javaScriptCompressor.compress(original).getBytes("UTF-8"));
+	}
+
+	private void gzip(final File file) throws IOException
+	{
+		String extension = Strings.afterLast(file.getName(), '.');
+		if (COMPRESSIBLE.contains(extension) == false)
+		{
+			return;
+		}
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		File compressed = new File(file.getParentFile(), file.getName() + ".gz");
+		OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed));
+		try
+		{
+			out.write(bytes);
+		}
+		finally
+		{
+			out.close();
+		}
+
+		// not worth it, the resource is sent uncompressed anyway
+		if (compressed.length() >= bytes.length)
+		{
+			Files.delete(compressed.toPath());
+		}
+	}
+
+	private void write(final Map<String, String> versions) throws IOException
+	{
+		File manifest = new File(root, ResourceManifest.LOCATION);
+		File directory = manifest.getParentFile();
+		if (directory.isDirectory() == false && directory.mkdirs() == false)
+		{
+			throw new IOException("Unable to create " + directory);
+		}
+
+		// sorted and without a timestamp, so builds are reproducible
+		Writer writer = new OutputStreamWriter(new FileOutputStream(manifest), "ISO-8859-1");
+		try
+		{
+			writer.write("# path=MD5 of the content, written by " +
+				ResourceManifestBuilder.class.getName() + "\n");
+			for (Map.Entry<String, String> entry : versions.entrySet())
+			{
+				writer.write(escape(entry.getKey()));
+				writer.write('=');
+				writer.write(entry.getValue());
+				writer.write('\n');
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * @return all files besides class files and the manifest, the paths sorted
+	 */
+	private List<File> listFiles()
+	{
+		List<File> files = new ArrayList<>();
+		collect(root, files);
+		return files;
+	}
+
+	private void collect(final File directory, final List<File> files)
+	{
+		File[] children = directory.listFiles();
+		if (children == null)
+		{
+			return;
+		}
+		Arrays.sort(children);
+		for (File child : children)
+		{
+			if (child.isDirectory())
+			{
+				collect(child, files);
+			}
+			else if (child.getName().endsWith(".class") == false &&
+				relativePath(child).equals(ResourceManifest.LOCATION) == false)
+			{
+				files.add(child);
+			}
+		}
+	}
+
+	private String relativePath(final File file)
+	{
+		return root.toURI().relativize(file.toURI()).getPath();
+	}
+
+	/**
+	 * Escapes a properties key.
+	 * 
+	 * @param key
+	 * @return the escaped key
+	 */
+	private static String escape(final String key)
+	{
+		StringBuilder escaped = new StringBuilder(key.length());
+		for (int i = 0; i < key.length(); i++)
+		{
+			char c = key.charAt(i);
+			if (c == '\\' || c == ' ' || c == ':' || c == '=' || c == '#' || c == '!')
+			{
+				escaped.append('\\').append(c);
+			}
+			else if (c < 0x20 || c > 0x7e)
+			{
+				escaped.append(String.format("\\u%04x", (int)c));
+			}
+			else
+			{
+				escaped.append(c);
+			}
+		}
+		return escaped.toString();
+	}
+
+	/**
+	 * Builds the manifest for a class folder.
+	 * 
+	 * @param args
+	 *            <code>[--minify] [--gzip] classFolder</code>
+	 * @throws IOException
+	 */
+	public static void main(final String[] args) throws IOException
+	{
+		File root = null;
+		boolean minify = false;
+		boolean gzip = false;
+		for (String arg : args)
+		{
+			if ("--minify".equals(arg))
+			{
+				minify = true;
+			}
+			else if ("--gzip".equals(arg))
+			{
+				gzip = true;
+			}
+			else
+			{
+				root = new File(arg);
+			}
+		}
+		if (root == null)
+		{
+			System.err.println("Usage: " + ResourceManifestBuilder.class.getName() +
+				" [--minify] [--gzip] classFolder");
+			System.exit(1);
+		}
+
+		ResourceManifest manifest = new ResourceManifestBuilder(root).setMinify(minify)
+			.setGzip(gzip)
+			.build();
+		System.out.println("Indexed " + manifest.getPaths().size() + " resources in " + root);
+	}
+}
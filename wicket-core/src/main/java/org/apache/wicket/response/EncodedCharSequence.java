@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.response;
+
+import java.nio.charset.Charset;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * Text which carries its bytes in a specific charset, so responses writing to a byte stream in the
+ * same charset don't have to encode it again and again. All other responses treat it as any other
+ * {@link CharSequence}.
+ * 
+ * @see org.apache.wicket.protocol.http.servlet.ServletWebResponse#write(CharSequence)
+ */
+public final class EncodedCharSequence implements CharSequence
+{
+	private final String text;
+
+	private final Charset charset;
+
+	private final byte[] bytes;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param text
+	 *            the text
+	 * @param charset
+	 *            the charset to encode the text with
+	 */
+	public EncodedCharSequence(final CharSequence text, final Charset charset)
+	{
+		this.text = Args.notNull(text, "text").toString();
+		this.charset = Args.notNull(charset, "charset");
+
+		bytes = this.text.getBytes(charset);
+	}
+
+	/**
+	 * @return the charset of the bytes
+	 */
+	public Charset getCharset()
+	{
+		return charset;
+	}
+
+	/**
+	 * Gets the encoded text. The bytes are shared and must not be modified.
+	 * 
+	 * @param charset
+	 *            the required charset
+	 * @return the bytes of the text, {@code null} if they are encoded in another charset
+	 */
+	public byte[] getBytes(final Charset charset)
+	{
+		return this.charset.equals(charset) ? bytes : null;
+	}
+
+	@Override
+	public int length()
+	{
+		return text.length();
+	}
+
+	@Override
+	public char charAt(final int index)
+	{
+		return text.charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(final int start, final int end)
+	{
+		return text.subSequence(start, end);
+	}
+
+	@Override
+	public String toString()
+	{
+		return text;
+	}
+}
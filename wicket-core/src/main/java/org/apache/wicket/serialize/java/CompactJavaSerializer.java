@@ -0,0 +1,624 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.core.util.lang.WicketObjects;
+import org.apache.wicket.core.util.objects.checker.CheckingObjectOutputStream;
+import org.apache.wicket.core.util.objects.checker.ObjectSerializationChecker;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ISerializer} based on Java Serialization which produces considerably smaller output
+ * than {@link JavaSerializer}.
+ * <p>
+ * Java Serialization writes a full class descriptor - the class name, its serialVersionUID and the
+ * names and types of all its fields - for each class used in a stream. For a page, with its deep
+ * hierarchy of component, model and behavior classes, these descriptors are often the bigger part
+ * of the output. This serializer writes instead:
+ * <ul>
+ * <li>a small numeric id for the classes registered in its dictionary. The dictionary contains the
+ * common JDK and Wicket classes - including the internals like {@code MetaDataEntry[]} and the
+ * children list of {@code MarkupContainer} - and the classes registered by the application with
+ * {@link #register(Class...)}</li>
+ * <li>the class name for any other class</li>
+ * </ul>
+ * followed by a fingerprint of the class, so data written by a different version of a class is
+ * rejected instead of being deserialized incorrectly. The descriptor itself is looked up locally.
+ * </p>
+ * <p>
+ * Because the classes must be the same on both sides, data written in the compact format must only
+ * be read by the same application version. For replicated sessions, where a node might run another
+ * version during a rolling deploy, use the <em>compatibility mode</em> which writes the standard
+ * class descriptors. Either mode reads data written by the other one.
+ * </p>
+ * <p>
+ * The output is written in a per-thread buffer which is reused between the calls. The initial size
+ * of the buffer follows a running average of the serialized sizes.
+ * </p>
+ * <p>
+ * To use this serializer, put the following code in your application's init:
+ *
+ * <pre>
+ * getFrameworkSettings().setSerializer(new CompactJavaSerializer(getApplicationKey()));
+ * </pre>
+ *
+ * </p>
+ */
+public class CompactJavaSerializer implements ISerializer
+{
+	private static final Logger log = LoggerFactory.getLogger(CompactJavaSerializer.class);
+
+	/**
+	 * The header of the data written with class ids and names
+	 */
+	private static final byte MODE_COMPACT = 1;
+
+	/**
+	 * The header of the data written with standard class descriptors
+	 */
+	private static final byte MODE_COMPATIBLE = 2;
+
+	/**
+	 * The class id used for classes which are not registered. Their name is written instead.
+	 */
+	private static final int UNREGISTERED = 0;
+
+	/**
+	 * The minimum size of a new buffer
+	 */
+	private static final int MIN_BUFFER_SIZE = 1024;
+
+	/**
+	 * Buffers larger than this are not kept for reuse
+	 */
+	private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * The built-in dictionary. <strong>Append only!</strong> The position of a class is its id, so
+	 * changing the order breaks the data written by older versions.
+	 */
+	private static final List<String> BUILT_IN_CLASSES = Arrays.asList(
+		// JDK
+		"java.lang.Number", "java.lang.Integer", "java.lang.Long", "java.lang.Boolean",
+		"java.lang.Enum", "[Ljava.lang.Object;", "[Ljava.lang.String;", "[B", "[I",
+		"java.util.ArrayList", "java.util.HashMap", "java.util.LinkedHashMap", "java.util.HashSet",
+		"java.util.LinkedHashSet", "java.util.TreeMap", "java.util.Locale", "java.util.Date",
+
+		// Wicket internals
+		"org.apache.wicket.Component", "org.apache.wicket.MarkupContainer",
+		"org.apache.wicket.MarkupContainer$ChildList", "org.apache.wicket.Page",
+		"org.apache.wicket.MetaDataEntry", "[Lorg.apache.wicket.MetaDataEntry;",
+		"org.apache.wicket.feedback.FeedbackMessages", "org.apache.wicket.feedback.FeedbackMessage",
+		"org.apache.wicket.request.mapper.parameter.PageParameters",
+
+		// components
+		"org.apache.wicket.markup.html.WebComponent",
+		"org.apache.wicket.markup.html.WebMarkupContainer",
+		"org.apache.wicket.markup.html.WebPage", "org.apache.wicket.markup.html.panel.Panel",
+		"org.apache.wicket.markup.html.panel.Fragment",
+		"org.apache.wicket.markup.html.panel.FeedbackPanel",
+		"org.apache.wicket.markup.html.border.Border",
+		"org.apache.wicket.markup.html.basic.Label",
+		"org.apache.wicket.markup.html.image.Image",
+		"org.apache.wicket.markup.html.link.AbstractLink",
+		"org.apache.wicket.markup.html.link.Link",
+		"org.apache.wicket.markup.html.link.BookmarkablePageLink",
+		"org.apache.wicket.markup.repeater.AbstractRepeater",
+		"org.apache.wicket.markup.repeater.RepeatingView",
+		"org.apache.wicket.markup.repeater.AbstractPageableView",
+		"org.apache.wicket.markup.repeater.RefreshingView",
+		"org.apache.wicket.markup.repeater.Item",
+		"org.apache.wicket.markup.repeater.data.DataViewBase",
+		"org.apache.wicket.markup.repeater.data.DataView",
+		"org.apache.wicket.markup.html.list.AbstractItem",
+		"org.apache.wicket.markup.html.list.ListView",
+		"org.apache.wicket.markup.html.list.PropertyListView",
+		"org.apache.wicket.markup.html.list.ListItem",
+		"org.apache.wicket.markup.html.form.Form",
+		"org.apache.wicket.markup.html.form.LabeledWebMarkupContainer",
+		"org.apache.wicket.markup.html.form.FormComponent",
+		"org.apache.wicket.markup.html.form.AbstractTextComponent",
+		"org.apache.wicket.markup.html.form.TextField",
+		"org.apache.wicket.markup.html.form.TextArea",
+		"org.apache.wicket.markup.html.form.HiddenField",
+		"org.apache.wicket.markup.html.form.PasswordTextField",
+		"org.apache.wicket.markup.html.form.CheckBox",
+		"org.apache.wicket.markup.html.form.AbstractChoice",
+		"org.apache.wicket.markup.html.form.AbstractSingleSelectChoice",
+		"org.apache.wicket.markup.html.form.DropDownChoice",
+		"org.apache.wicket.markup.html.form.Button",
+		"org.apache.wicket.ajax.markup.html.AjaxLink",
+
+		// models
+		"org.apache.wicket.model.Model", "org.apache.wicket.model.AbstractPropertyModel",
+		"org.apache.wicket.model.PropertyModel", "org.apache.wicket.model.CompoundPropertyModel",
+		"org.apache.wicket.model.LoadableDetachableModel", "org.apache.wicket.model.ResourceModel",
+		"org.apache.wicket.model.util.ListModel",
+
+		// behaviors
+		"org.apache.wicket.behavior.Behavior", "org.apache.wicket.AttributeModifier",
+		"org.apache.wicket.behavior.AttributeAppender",
+		"org.apache.wicket.behavior.AbstractAjaxBehavior",
+		"org.apache.wicket.ajax.AbstractDefaultAjaxBehavior",
+		"org.apache.wicket.ajax.AjaxEventBehavior",
+		"org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior");
+
+	/**
+	 * A running average of the serialized sizes
+	 */
+	private static final AtomicInteger averageSize = new AtomicInteger(MIN_BUFFER_SIZE);
+
+	/**
+	 * The reusable buffer of each thread. Holds a plain byte[] to not leak the application's class
+	 * loader through the threads of the container.
+	 */
+	private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>();
+
+	/**
+	 * The key of the application which can be used later to find the proper class resolver
+	 */
+	private final String applicationKey;
+
+	private final boolean compatible;
+
+	/**
+	 * id -> class, the index 0 is reserved for {@link #UNREGISTERED}
+	 */
+	private final List<Class<?>> classes = new CopyOnWriteArrayList<>();
+
+	/**
+	 * class -> id
+	 */
+	private final ConcurrentMap<Class<?>, Integer> classIds = new ConcurrentHashMap<>();
+
+	/**
+	 * class -> fingerprint
+	 */
+	private final ConcurrentMap<Class<?>, Integer> fingerprints = new ConcurrentHashMap<>();
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationKey
+	 *      the name of the application
+	 */
+	public CompactJavaSerializer(final String applicationKey)
+	{
+		this(applicationKey, false);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationKey
+	 *      the name of the application
+	 * @param compatible
+	 *      {@code true} to write standard class descriptors, e.g. for replicated sessions
+	 */
+	public CompactJavaSerializer(final String applicationKey, final boolean compatible)
+	{
+		this.applicationKey = applicationKey;
+		this.compatible = compatible;
+
+		classes.add(null);
+		for (String className : BUILT_IN_CLASSES)
+		{
+			Class<?> clazz = null;
+			try
+			{
+				clazz = Class.forName(className, false, CompactJavaSerializer.class.getClassLoader());
+			}
+			catch (ClassNotFoundException e)
+			{
+				log.debug("Built-in class '{}' is not available", className);
+			}
+			// keep the slot even if the class is missing so the ids stay stable
+			addClass(clazz);
+		}
+	}
+
+	/**
+	 * Registers application classes in the dictionary. The ids of the classes depend on the order
+	 * of the registration, so the classes should be registered once - in the application's init -
+	 * always in the same order and before anything is serialized.
+	 *
+	 * @param classesToRegister
+	 *      the classes to register
+	 * @return {@code this} object for chaining
+	 */
+	public synchronized CompactJavaSerializer register(final Class<?>... classesToRegister)
+	{
+		for (Class<?> clazz : classesToRegister)
+		{
+			Args.notNull(clazz, "clazz");
+			if (classIds.containsKey(clazz) == false)
+			{
+				addClass(clazz);
+			}
+		}
+		return this;
+	}
+
+	private void addClass(final Class<?> clazz)
+	{
+		if (clazz != null)
+		{
+			classIds.put(clazz, classes.size());
+		}
+		classes.add(clazz);
+	}
+
+	/**
+	 * @return {@code true} if standard class descriptors are written
+	 */
+	public boolean isCompatible()
+	{
+		return compatible;
+	}
+
+	@Override
+	public byte[] serialize(final Object object)
+	{
+		byte[] buffer = buffers.get();
+		if (buffer == null)
+		{
+			buffer = new byte[Math.max(MIN_BUFFER_SIZE, averageSize.get() + averageSize.get() / 4)];
+		}
+		ReusableByteArrayOutputStream out = new ReusableByteArrayOutputStream(buffer);
+
+		try
+		{
+			out.write(compatible ? MODE_COMPATIBLE : MODE_COMPACT);
+			ObjectOutputStream oos = compatible ? new ObjectOutputStream(out)
+				: new CompactObjectOutputStream(out);
+			try
+			{
+				oos.writeObject(applicationKey);
+				oos.writeObject(object);
+			}
+			catch (NotSerializableException nsx)
+			{
+				checkSerializable(object, nsx);
+				throw nsx;
+			}
+			finally
+			{
+				IOUtils.close(oos);
+			}
+
+			int size = out.size();
+			updateAverageSize(size);
+			return out.toByteArray();
+		}
+		catch (Exception e)
+		{
+			log.error("Error serializing object " + object.getClass() + " [object=" + object + "]",
+				e);
+		}
+		finally
+		{
+			byte[] used = out.getBuffer();
+			if (used.length <= Math.max(MAX_RETAINED_BUFFER_SIZE, 2 * averageSize.get()))
+			{
+				buffers.set(used);
+			}
+			else
+			{
+				buffers.remove();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Object deserialize(final byte[] data)
+	{
+		ThreadContext old = ThreadContext.get(false);
+		final ByteArrayInputStream in = new ByteArrayInputStream(data);
+		ObjectInputStream ois = null;
+		try
+		{
+			Application oldApplication = ThreadContext.getApplication();
+			try
+			{
+				int mode = in.read();
+				if (mode == MODE_COMPACT)
+				{
+					ois = new CompactObjectInputStream(in);
+				}
+				else if (mode == MODE_COMPATIBLE)
+				{
+					ois = new ResolvingObjectInputStream(in);
+				}
+				else
+				{
+					throw new IOException("Unknown serialization mode: " + mode);
+				}
+
+				String applicationName = (String)ois.readObject();
+				if (applicationName != null)
+				{
+					Application app = Application.get(applicationName);
+					if (app != null)
+					{
+						ThreadContext.setApplication(app);
+					}
+				}
+				return ois.readObject();
+			}
+			finally
+			{
+				ThreadContext.setApplication(oldApplication);
+				IOUtils.close(ois);
+			}
+		}
+		catch (ClassNotFoundException cnfx)
+		{
+			throw new RuntimeException("Could not deserialize object from byte[]", cnfx);
+		}
+		catch (IOException iox)
+		{
+			throw new RuntimeException("Could not deserialize object from byte[]", iox);
+		}
+		finally
+		{
+			ThreadContext.restore(old);
+		}
+	}
+
+	/**
+	 * Serializes the object once more with the {@link CheckingObjectOutputStream} to find out and
+	 * report which object is not serializable.
+	 *
+	 * @param object
+	 * @param nsx
+	 */
+	private void checkSerializable(final Object object, final NotSerializableException nsx)
+	{
+		if (CheckingObjectOutputStream.isAvailable())
+		{
+			try
+			{
+				CheckingObjectOutputStream checkingObjectOutputStream = new CheckingObjectOutputStream(
+					new ByteArrayOutputStream(), new ObjectSerializationChecker(nsx));
+				checkingObjectOutputStream.writeObject(object);
+			}
+			catch (CheckingObjectOutputStream.ObjectCheckException x)
+			{
+				throw x;
+			}
+			catch (Exception x)
+			{
+				x.initCause(nsx);
+				throw new WicketRuntimeException(
+					"A problem occurred while trying to collect debug information about not serializable object",
+					x);
+			}
+		}
+	}
+
+	private static void updateAverageSize(final int size)
+	{
+		int average = averageSize.get();
+		// exponential moving average, racy updates are fine
+		averageSize.set(average + (size - average) / 8);
+	}
+
+	/**
+	 * @param desc
+	 * @return a hash of the serialVersionUID and the serializable fields of the class
+	 */
+	private int fingerprint(final ObjectStreamClass desc)
+	{
+		Class<?> clazz = desc.forClass();
+		Integer fingerprint = fingerprints.get(clazz);
+		if (fingerprint == null)
+		{
+			long uid = desc.getSerialVersionUID();
+			int hash = (int)(uid ^ (uid >>> 32));
+			for (ObjectStreamField field : desc.getFields())
+			{
+				hash = 31 * hash + field.getName().hashCode();
+				hash = 31 * hash + field.getTypeCode();
+				String type = field.getTypeString();
+				if (type != null)
+				{
+					hash = 31 * hash + type.hashCode();
+				}
+			}
+			fingerprint = hash;
+			fingerprints.put(clazz, fingerprint);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Writes class ids or names instead of the full class descriptors
+	 */
+	private class CompactObjectOutputStream extends ObjectOutputStream
+	{
+		private CompactObjectOutputStream(final OutputStream out) throws IOException
+		{
+			super(out);
+		}
+
+		@Override
+		protected void writeClassDescriptor(final ObjectStreamClass desc) throws IOException
+		{
+			Class<?> clazz = desc.forClass();
+			Integer id = classIds.get(clazz);
+			if (id != null)
+			{
+				writeVarInt(id);
+			}
+			else
+			{
+				writeVarInt(UNREGISTERED);
+				writeUTF(desc.getName());
+			}
+			writeInt(fingerprint(desc));
+		}
+
+		private void writeVarInt(int value) throws IOException
+		{
+			while ((value & ~0x7F) != 0)
+			{
+				writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			writeByte(value);
+		}
+	}
+
+	/**
+	 * Resolves the classes with the application's class resolver
+	 */
+	private static class ResolvingObjectInputStream extends ObjectInputStream
+	{
+		private ResolvingObjectInputStream(final InputStream in) throws IOException
+		{
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException,
+			ClassNotFoundException
+		{
+			Class<?> clazz = desc.forClass();
+			if (clazz != null)
+			{
+				return clazz;
+			}
+
+			try
+			{
+				return super.resolveClass(desc);
+			}
+			catch (ClassNotFoundException cnfx)
+			{
+				log.debug("Class not found by the object inputstream itself, trying the IClassResolver");
+				clazz = WicketObjects.resolveClass(desc.getName());
+				if (clazz == null)
+				{
+					throw cnfx;
+				}
+				return clazz;
+			}
+		}
+	}
+
+	/**
+	 * Reads the class ids and names written by {@link CompactObjectOutputStream}
+	 */
+	private class CompactObjectInputStream extends ResolvingObjectInputStream
+	{
+		private CompactObjectInputStream(final InputStream in) throws IOException
+		{
+			super(in);
+		}
+
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException,
+			ClassNotFoundException
+		{
+			int id = readVarInt();
+			Class<?> clazz;
+			if (id == UNREGISTERED)
+			{
+				String className = readUTF();
+				clazz = WicketObjects.resolveClass(className);
+				if (clazz == null)
+				{
+					throw new ClassNotFoundException(className);
+				}
+			}
+			else if (id < classes.size() && classes.get(id) != null)
+			{
+				clazz = classes.get(id);
+			}
+			else
+			{
+				throw new InvalidClassException("Unknown class id: " + id);
+			}
+
+			ObjectStreamClass desc = ObjectStreamClass.lookupAny(clazz);
+			if (fingerprint(desc) != readInt())
+			{
+				throw new InvalidClassException(clazz.getName(),
+					"the class has changed since the data was written");
+			}
+			return desc;
+		}
+
+		private int readVarInt() throws IOException
+		{
+			int value = 0;
+			int shift = 0;
+			int b;
+			do
+			{
+				b = readUnsignedByte();
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+			return value;
+		}
+	}
+
+	/**
+	 * A {@link ByteArrayOutputStream} which starts with and exposes a given buffer
+	 */
+	private static class ReusableByteArrayOutputStream extends ByteArrayOutputStream
+	{
+		private ReusableByteArrayOutputStream(final byte[] buffer)
+		{
+			super(0);
+			buf = buffer;
+		}
+
+		private byte[] getBuffer()
+		{
+			return buf;
+		}
+	}
+}
@@ -16,37 +16,127 @@
  */
 package org.apache.wicket.serialize.java;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * A {@link JavaSerializer} that deflates the outputstream on the fly, reducing page store size by
  * up to a factor 8. Be advised that deflating serialized objects comes at a price of about 2-20ms
  * per page request, depending on the size of the page and the cpu power of the machine.
- * 
+ *
  * <p>
  * To use this serializer, put the following code in your application's init:
- * 
+ *
  * <pre>
  * getFrameworkSettings().setSerializer(new DeflatedJavaSerializer(getApplicationKey()));
  * </pre>
- * 
+ *
+ * <p>
+ * The serialized stream is compressed in blocks of {@value #BLOCK_SIZE} bytes as it is written.
+ * With {@link #setParallelism(int)} the full blocks of large pages are compressed by worker threads
+ * while the request thread continues serializing, only the last block is compressed by the request
+ * thread itself. The {@link Deflater}s and {@link Inflater}s are pooled, so their native state is
+ * not recreated for each page. The compression ratio and time of each page are logged in debug
+ * level and accumulated in {@link #getCompressionRatio()} and {@link #getCompressionTime()}.
+ *
  * @author papegaaij
  */
 public class DeflatedJavaSerializer extends JavaSerializer
 {
+	private static final Logger log = LoggerFactory.getLogger(DeflatedJavaSerializer.class);
+
 	private static final int COMPRESS_BUF_SIZE = 4 * 1024;
 
+	/**
+	 * The size of the blocks which are compressed independently
+	 */
+	private static final int BLOCK_SIZE = 128 * 1024;
+
+	/**
+	 * The first byte of the block format. Cannot be the first byte of a zlib stream written by
+	 * older versions, whose low nibble is always 8.
+	 */
+	private static final int MAGIC = 0x01;
+
+	/**
+	 * The maximum number of idle {@link Deflater}s and {@link Inflater}s kept in the pools
+	 */
+	private static final int MAX_POOL_SIZE = 32;
+
+	/**
+	 * The compression codecs
+	 */
+	public enum Codec
+	{
+		/**
+		 * Deflate with zlib header and checksum
+		 */
+		DEFLATE,
+
+		/**
+		 * Deflate without zlib header and checksum, slightly smaller and faster
+		 */
+		DEFLATE_RAW,
+
+		/**
+		 * No compression
+		 */
+		STORE
+	}
+
+	private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+	private final Queue<Deflater> rawDeflaters = new ConcurrentLinkedQueue<>();
+
+	private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+	private final Queue<Inflater> rawInflaters = new ConcurrentLinkedQueue<>();
+
+	private final AtomicLong uncompressedBytes = new AtomicLong();
+
+	private final AtomicLong compressedBytes = new AtomicLong();
+
+	private final AtomicLong compressionTime = new AtomicLong();
+
+	private volatile int level = Deflater.BEST_SPEED;
+
+	private volatile Codec codec = Codec.DEFLATE;
+
+	private volatile ExecutorService executor;
+
 	/**
 	 * Construct.
-	 * 
+	 *
 	 * @param applicationKey
 	 */
 	public DeflatedJavaSerializer(String applicationKey)
@@ -54,28 +144,527 @@ public class DeflatedJavaSerializer extends JavaSerializer
 		super(applicationKey);
 	}
 
+	/**
+	 * Sets the compression level, see {@link Deflater#setLevel(int)}
+	 *
+	 * @param level
+	 *            the compression level between 0 and 9
+	 * @return {@code this} object for chaining
+	 */
+	public DeflatedJavaSerializer setCompressionLevel(int level)
+	{
+		this.level = Args.withinRange(Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION, level,
+			"level");
+		clear(deflaters);
+		clear(rawDeflaters);
+		return this;
+	}
+
+	/**
+	 * @return the compression level
+	 */
+	public int getCompressionLevel()
+	{
+		return level;
+	}
+
+	/**
+	 * Sets the codec used for compressing. Data written with any codec can be read.
+	 *
+	 * @param codec
+	 *            the codec
+	 * @return {@code this} object for chaining
+	 */
+	public DeflatedJavaSerializer setCodec(Codec codec)
+	{
+		this.codec = Args.notNull(codec, "codec");
+		return this;
+	}
+
+	/**
+	 * @return the codec used for compressing
+	 */
+	public Codec getCodec()
+	{
+		return codec;
+	}
+
+	/**
+	 * Sets the number of worker threads which compress the blocks of large pages in parallel. With
+	 * {@code 0} (the default) all blocks are compressed by the serializing thread.
+	 *
+	 * @param threads
+	 *            the number of worker threads
+	 * @return {@code this} object for chaining
+	 */
+	public synchronized DeflatedJavaSerializer setParallelism(int threads)
+	{
+		Args.withinRange(0, Integer.MAX_VALUE, threads, "threads");
+
+		if (executor != null)
+		{
+			executor.shutdown();
+			executor = null;
+		}
+		if (threads > 0)
+		{
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new CompressionThreadFactory());
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+		return this;
+	}
+
+	/**
+	 * @return the ratio between the uncompressed and compressed size of all pages serialized so far
+	 */
+	public double getCompressionRatio()
+	{
+		long compressed = compressedBytes.get();
+		return compressed > 0 ? (double)uncompressedBytes.get() / compressed : 1d;
+	}
+
+	/**
+	 * @return the total time in nanoseconds spent compressing
+	 */
+	public long getCompressionTime()
+	{
+		return compressionTime.get();
+	}
+
 	@Override
 	protected ObjectOutputStream newObjectOutputStream(OutputStream out) throws IOException
 	{
-		return super.newObjectOutputStream(new DeflaterOutputStream(out, createDeflater(),
-			COMPRESS_BUF_SIZE));
+		return super.newObjectOutputStream(new BlockDeflaterOutputStream(out, codec, executor));
 	}
 
 	/**
-	 * Creates the {@code Deflater}. Override this method to customize the deflater, for example to
-	 * change the compression level and/or strategy.
-	 * 
+	 * Creates the {@code Deflater} for blocks compressed with {@link Codec#DEFLATE}. Override this
+	 * method to customize the deflater, for example to change the compression level and/or
+	 * strategy, but keep it writing the zlib format. The deflaters are pooled, so the method is
+	 * called only when the pool is empty. The deflaters for {@link Codec#DEFLATE_RAW} are created
+	 * by the serializer itself.
+	 *
 	 * @return the {@code Deflater}
 	 */
 	protected Deflater createDeflater()
 	{
-		return new Deflater(Deflater.BEST_SPEED);
+		return new Deflater(level);
 	}
 
 	@Override
 	protected ObjectInputStream newObjectInputStream(InputStream in) throws IOException
 	{
+		if (in.markSupported() == false)
+		{
+			in = new BufferedInputStream(in);
+		}
+		in.mark(1);
+		int first = in.read();
+		in.reset();
+
+		if (first == MAGIC)
+		{
+			return super.newObjectInputStream(new BlockInflaterInputStream(in));
+		}
+
+		// written by an older version as a single zlib stream
 		return super.newObjectInputStream(new InflaterInputStream(in, new Inflater(),
 			COMPRESS_BUF_SIZE));
 	}
+
+	private byte[] compress(final byte[] data, final int length, final Codec blockCodec)
+	{
+		if (blockCodec == Codec.STORE)
+		{
+			return Arrays.copyOf(data, length);
+		}
+
+		// the header written by a deflater must match the codec of the block
+		boolean raw = blockCodec == Codec.DEFLATE_RAW;
+		Queue<Deflater> pool = raw ? rawDeflaters : deflaters;
+		Deflater deflater = pool.poll();
+		if (deflater == null)
+		{
+			deflater = raw ? new Deflater(level, true) : createDeflater();
+		}
+		try
+		{
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 4));
+			byte[] buffer = new byte[COMPRESS_BUF_SIZE];
+			while (deflater.finished() == false)
+			{
+				int count = deflater.deflate(buffer);
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		}
+		finally
+		{
+			deflater.reset();
+			release(pool, deflater);
+		}
+	}
+
+	private byte[] decompress(final byte[] data, final int length, final Codec blockCodec)
+		throws IOException
+	{
+		if (blockCodec == Codec.STORE)
+		{
+			return data;
+		}
+
+		Queue<Inflater> pool = blockCodec == Codec.DEFLATE_RAW ? rawInflaters : inflaters;
+		Inflater inflater = pool.poll();
+		if (inflater == null)
+		{
+			inflater = new Inflater(blockCodec == Codec.DEFLATE_RAW);
+		}
+		try
+		{
+			inflater.setInput(data);
+			byte[] result = new byte[length];
+			int offset = 0;
+			while (offset < length)
+			{
+				int count = inflater.inflate(result, offset, length - offset);
+				if (count == 0 && (inflater.finished() || inflater.needsInput()))
+				{
+					throw new IOException("Unexpected end of compressed block");
+				}
+				offset += count;
+			}
+			return result;
+		}
+		catch (DataFormatException e)
+		{
+			throw new IOException(e);
+		}
+		finally
+		{
+			inflater.reset();
+			release(pool, inflater);
+		}
+	}
+
+	private static <T> void release(final Queue<T> pool, final T item)
+	{
+		if (pool.size() < MAX_POOL_SIZE)
+		{
+			pool.offer(item);
+		}
+		else if (item instanceof Deflater)
+		{
+			((Deflater)item).end();
+		}
+		else if (item instanceof Inflater)
+		{
+			((Inflater)item).end();
+		}
+	}
+
+	private static void clear(final Queue<Deflater> pool)
+	{
+		Deflater deflater;
+		while ((deflater = pool.poll()) != null)
+		{
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Buffers the written data in blocks and writes each of them compressed. Full blocks are
+	 * compressed by the executor if there is one.
+	 * <p>
+	 * Format: {@link #MAGIC}, codec, (uncompressed length, compressed length, compressed data)*, 0
+	 */
+	private class BlockDeflaterOutputStream extends OutputStream
+	{
+		private final DataOutputStream out;
+
+		private final Codec blockCodec;
+
+		private final ExecutorService blockExecutor;
+
+		private final List<Future<byte[]>> pending = new ArrayList<>();
+
+		private final List<Integer> pendingLengths = new ArrayList<>();
+
+		private byte[] block = new byte[COMPRESS_BUF_SIZE];
+
+		private int count;
+
+		private long uncompressed;
+
+		private long compressed;
+
+		private long nanos;
+
+		private boolean closed;
+
+		private BlockDeflaterOutputStream(final OutputStream out, final Codec blockCodec,
+			final ExecutorService blockExecutor) throws IOException
+		{
+			this.out = new DataOutputStream(out);
+			this.blockCodec = blockCodec;
+			this.blockExecutor = blockExecutor;
+
+			this.out.write(MAGIC);
+			this.out.write(blockCodec.ordinal());
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			ensureCapacity(1);
+			block[count++] = (byte)b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			while (len > 0)
+			{
+				int chunk = Math.min(len, BLOCK_SIZE - count);
+				ensureCapacity(chunk);
+				System.arraycopy(b, off, block, count, chunk);
+				count += chunk;
+				off += chunk;
+				len -= chunk;
+			}
+		}
+
+		/**
+		 * Grows the block or passes it for compression when it is full
+		 *
+		 * @param needed
+		 * @throws IOException
+		 */
+		private void ensureCapacity(int needed) throws IOException
+		{
+			if (count == BLOCK_SIZE)
+			{
+				compressBlock(blockExecutor);
+			}
+			if (count + needed > block.length)
+			{
+				block = Arrays.copyOf(block, Math.min(BLOCK_SIZE,
+					Math.max(count + needed, block.length * 2)));
+			}
+		}
+
+		private void compressBlock(final ExecutorService blockExecutor) throws IOException
+		{
+			final byte[] data = block;
+			final int length = count;
+			uncompressed += length;
+
+			if (blockExecutor != null)
+			{
+				pending.add(blockExecutor.submit(new Callable<byte[]>()
+				{
+					@Override
+					public byte[] call() throws Exception
+					{
+						long start = System.nanoTime();
+						byte[] result = compress(data, length, blockCodec);
+						compressionTime.addAndGet(System.nanoTime() - start);
+						return result;
+					}
+				}));
+				pendingLengths.add(length);
+				block = new byte[BLOCK_SIZE];
+			}
+			else
+			{
+				long start = System.nanoTime();
+				byte[] result = compress(data, length, blockCodec);
+				nanos += System.nanoTime() - start;
+				writeBlock(length, result);
+			}
+			count = 0;
+		}
+
+		private void writeBlock(final int length, final byte[] data) throws IOException
+		{
+			out.writeInt(length);
+			out.writeInt(data.length);
+			out.write(data);
+			compressed += data.length;
+		}
+
+		private void writePending() throws IOException
+		{
+			try
+			{
+				for (int i = 0; i < pending.size(); i++)
+				{
+					writeBlock(pendingLengths.get(i), pending.get(i).get());
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+			catch (ExecutionException e)
+			{
+				throw new IOException(e.getCause());
+			}
+			finally
+			{
+				pending.clear();
+				pendingLengths.clear();
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (closed)
+			{
+				return;
+			}
+			closed = true;
+
+			try
+			{
+				if (count > 0)
+				{
+					// the last block is compressed by this thread while the workers finish theirs
+					int length = count;
+					long start = System.nanoTime();
+					byte[] last = compress(block, length, blockCodec);
+					nanos += System.nanoTime() - start;
+					uncompressed += length;
+					writePending();
+					writeBlock(length, last);
+				}
+				else
+				{
+					writePending();
+				}
+				out.writeInt(0);
+
+				uncompressedBytes.addAndGet(uncompressed);
+				compressedBytes.addAndGet(compressed);
+				compressionTime.addAndGet(nanos);
+				if (log.isDebugEnabled())
+				{
+					log.debug("Compressed {} bytes to {} bytes (ratio {}) in {} microseconds",
+						uncompressed, compressed,
+						compressed > 0 ? (double)uncompressed / compressed : 1d, nanos / 1000);
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads the blocks written by {@link BlockDeflaterOutputStream}
+	 */
+	private class BlockInflaterInputStream extends InputStream
+	{
+		private final DataInputStream in;
+
+		private final Codec blockCodec;
+
+		private byte[] block = new byte[0];
+
+		private int position;
+
+		private boolean finished;
+
+		private BlockInflaterInputStream(final InputStream in) throws IOException
+		{
+			this.in = new DataInputStream(in);
+
+			this.in.read(); // MAGIC
+			int ordinal = this.in.read();
+			if (ordinal < 0 || ordinal >= Codec.values().length)
+			{
+				throw new IOException("Unknown codec: " + ordinal);
+			}
+			blockCodec = Codec.values()[ordinal];
+		}
+
+		private boolean nextBlock() throws IOException
+		{
+			while (position == block.length && finished == false)
+			{
+				int length = in.readInt();
+				if (length == 0)
+				{
+					finished = true;
+				}
+				else
+				{
+					byte[] data = new byte[in.readInt()];
+					in.readFully(data);
+					block = decompress(data, length, blockCodec);
+					position = 0;
+				}
+			}
+			return position < block.length;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			return nextBlock() ? block[position++] & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0)
+			{
+				return 0;
+			}
+			if (nextBlock() == false)
+			{
+				return -1;
+			}
+			int count = Math.min(len, block.length - position);
+			System.arraycopy(block, position, b, off, count);
+			position += count;
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException
+		{
+			return block.length - position;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Creates daemon threads for the compression of blocks
+	 */
+	private static class CompressionThreadFactory implements ThreadFactory
+	{
+		private static final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "Wicket-PageCompression-" +
+				counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 }
@@ -19,7 +19,11 @@ package org.apache.wicket.settings;
 import org.apache.wicket.DefaultMarkupIdGenerator;
 import org.apache.wicket.IMarkupIdGenerator;
 import org.apache.wicket.markup.MarkupFactory;
+import org.apache.wicket.markup.renderCache.IRenderCache;
+import org.apache.wicket.markup.renderCache.RenderCache;
+import org.apache.wicket.markup.renderCache.RenderCacheBehavior;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 
 /**
  * Interface for markup related settings.
@@ -65,6 +69,12 @@ public class MarkupSettings
 	 */
 	private boolean stripWicketTags = false;
 
+	/** Whether the static markup of cached markup is kept encoded in the response encoding */
+	private boolean preEncodeStaticMarkup = false;
+
+	/** Cache for the output of components with a RenderCacheBehavior */
+	private IRenderCache renderCache = new RenderCache(1000, Bytes.megabytes(10));
+
 	/**
 	 * Generates the markup ids for the components with
 	 * {@link org.apache.wicket.Component#setOutputMarkupId(boolean) #setOutputMarkupId(true)}
@@ -130,6 +140,26 @@ public class MarkupSettings
 		return stripComments;
 	}
 
+	/**
+	 * @return whether the static markup of cached markup is kept encoded in the response encoding
+	 * @see #setPreEncodeStaticMarkup(boolean)
+	 */
+	public boolean getPreEncodeStaticMarkup()
+	{
+		return preEncodeStaticMarkup;
+	}
+
+	/**
+	 * Gets the cache for the output of components with a {@link RenderCacheBehavior}. By default
+	 * it holds up to 1000 entries using up to 10 megabytes.
+	 * 
+	 * @return the render cache
+	 */
+	public IRenderCache getRenderCache()
+	{
+		return renderCache;
+	}
+
 	/**
 	 * Gets whether to remove wicket tags from the output.
 	 *
@@ -227,6 +257,38 @@ public class MarkupSettings
 		return this;
 	}
 
+	/**
+	 * Sets whether the static markup of cached markup is kept encoded in the response encoding
+	 * additionally. Static markup is then written to the servlet output stream as is, instead of
+	 * being encoded on every request. This trades memory for CPU time, and it requires that nothing
+	 * else writes to the servlet response's writer while a page is rendered.
+	 * <p>
+	 * Changes apply to markup loaded afterwards only.
+	 *
+	 * @param preEncodeStaticMarkup
+	 *            whether to keep static markup encoded
+	 * @return {@code this} object for chaining
+	 * @see org.apache.wicket.settings.RequestCycleSettings#getResponseRequestEncoding()
+	 */
+	public MarkupSettings setPreEncodeStaticMarkup(final boolean preEncodeStaticMarkup)
+	{
+		this.preEncodeStaticMarkup = preEncodeStaticMarkup;
+		return this;
+	}
+
+	/**
+	 * Sets the cache for the output of components with a {@link RenderCacheBehavior}.
+	 * 
+	 * @param renderCache
+	 *            the render cache
+	 * @return {@code this} object for chaining
+	 */
+	public MarkupSettings setRenderCache(final IRenderCache renderCache)
+	{
+		this.renderCache = Args.notNull(renderCache, "renderCache");
+		return this;
+	}
+
 	/**
 	 * Sets whether to remove wicket tags from the output.
 	 *
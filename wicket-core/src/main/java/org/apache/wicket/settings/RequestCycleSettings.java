@@ -173,6 +173,9 @@ public class RequestCycleSettings
 
 	private int exceptionRetryCount = 10;
 
+	/** True if pages rendered and written in the same request should be streamed */
+	private boolean streamingRender = false;
+
 // ****************************************************************************
 // IRequestCycleSettings Implementation
 // ****************************************************************************
@@ -270,6 +273,17 @@ public class RequestCycleSettings
 		return responseRequestEncoding;
 	}
 
+	/**
+	 * Gets whether pages are streamed to the client.
+	 *
+	 * @return {@code true} if pages are streamed
+	 * @see #setStreamingRender(boolean)
+	 */
+	public boolean getStreamingRender()
+	{
+		return streamingRender;
+	}
+
 	/**
 	 * Gets the time that a request will by default be waiting for the previous request to be
 	 * handled before giving up.
@@ -281,6 +295,31 @@ public class RequestCycleSettings
 		return timeout;
 	}
 
+	/**
+	 * Sets whether pages which are rendered and written in the same request are streamed to the
+	 * client. Instead of buffering the whole page, the page is buffered until its &lt;head&gt; has
+	 * been rendered, and then flushed, so the browser can start fetching CSS and JavaScript while
+	 * the rest of the page is still rendering.
+	 * <p>
+	 * Until the head is flushed, a {@link org.apache.wicket.RestartResponseException} or
+	 * {@link org.apache.wicket.Component#setResponsePage(org.apache.wicket.request.component.IRequestablePage)}
+	 * still replaces the page. After that headers and cookies can no longer be changed, and an
+	 * error leaves a partially rendered page. Pages are never streamed if response filters are
+	 * installed, since these need the complete page.
+	 * <p>
+	 * Defaults to {@code false}.
+	 *
+	 * @param streamingRender
+	 *            {@code true} if pages should be streamed
+	 * @return {@code this} object for chaining
+	 * @see org.apache.wicket.protocol.http.StreamingWebResponse
+	 */
+	public RequestCycleSettings setStreamingRender(boolean streamingRender)
+	{
+		this.streamingRender = streamingRender;
+		return this;
+	}
+
 	/**
 	 * Sets a flag whether the application should buffer the response's headers until the end
 	 * of the request processing. The buffering is needed if the application makes use of
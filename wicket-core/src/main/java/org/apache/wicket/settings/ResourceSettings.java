@@ -35,6 +35,9 @@ import org.apache.wicket.markup.head.ResourceAggregator.RecordedHeaderItem;
 import org.apache.wicket.markup.html.IPackageResourceGuard;
 import org.apache.wicket.markup.html.SecurePackageResourceGuard;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.resource.IProcessedResourceCache;
+import org.apache.wicket.request.resource.MappedFileCache;
+import org.apache.wicket.request.resource.ProcessedResourceCache;
 import org.apache.wicket.request.resource.caching.FilenameWithVersionResourceCachingStrategy;
 import org.apache.wicket.request.resource.caching.IResourceCachingStrategy;
 import org.apache.wicket.request.resource.caching.NoOpResourceCachingStrategy;
@@ -45,6 +48,8 @@ import org.apache.wicket.request.resource.caching.version.MessageDigestResourceV
 import org.apache.wicket.request.resource.caching.version.RequestCycleCachedResourceVersion;
 import org.apache.wicket.resource.IPropertiesFactoryContext;
 import org.apache.wicket.resource.PropertiesFactory;
+import org.apache.wicket.resource.manifest.ManifestResourceVersion;
+import org.apache.wicket.resource.manifest.ResourceManifest;
 import org.apache.wicket.resource.loader.ClassStringResourceLoader;
 import org.apache.wicket.resource.loader.ComponentStringResourceLoader;
 import org.apache.wicket.resource.loader.IStringResourceLoader;
@@ -54,6 +59,7 @@ import org.apache.wicket.resource.loader.ValidatorStringResourceLoader;
 import org.apache.wicket.util.file.IFileCleaner;
 import org.apache.wicket.util.file.IResourceFinder;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.lang.Generics;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.time.Duration;
@@ -163,6 +169,17 @@ public class ResourceSettings implements IPropertiesFactoryContext
 	// resource caching strategy
 	private IResourceCachingStrategy resourceCachingStrategy;
 
+	// cache for the processed bytes of package resources
+	private IProcessedResourceCache processedResourceCache;
+
+	private MappedFileCache mappedFileCache;
+
+	// whether static resources negotiate gzip content encoding
+	private boolean gzipContentEncoding = true;
+
+	// the resource manifests written at build time
+	private ResourceManifest resourceManifest;
+
 	// application these settings are bound to
 	private final Application application;
 
@@ -659,7 +676,13 @@ public class ResourceSettings implements IPropertiesFactoryContext
 				// deployment mode:
 				// use message digest over resource content for resource caching
 				// cache the version information for the lifetime of the application
-				resourceVersion = new CachingResourceVersion(new MessageDigestResourceVersion());
+				IResourceVersion digestVersion = new CachingResourceVersion(
+					new MessageDigestResourceVersion());
+
+				// prefer the digests computed at build time
+				ResourceManifest manifest = getResourceManifest();
+				resourceVersion = manifest.isEmpty() ? digestVersion : new ManifestResourceVersion(
+					manifest, digestVersion);
 			}
 			// cache resource with a version string in the filename
 			resourceCachingStrategy = new FilenameWithVersionResourceCachingStrategy(
@@ -689,6 +712,119 @@ public class ResourceSettings implements IPropertiesFactoryContext
 		return this;
 	}
 
+	/**
+	 * Gets the cache for the bytes of package resources after they have been processed, e.g.
+	 * compressed by the {@link #getJavaScriptCompressor() JavaScript} or
+	 * {@link #getCssCompressor() CSS compressor}. By default it holds up to 10 megabytes.
+	 *
+	 * @return the processed resource cache
+	 */
+	public IProcessedResourceCache getProcessedResourceCache()
+	{
+		if (processedResourceCache == null)
+		{
+			processedResourceCache = new ProcessedResourceCache(Bytes.megabytes(10));
+		}
+		return processedResourceCache;
+	}
+
+	/**
+	 * Sets the cache for the bytes of processed package resources. Use a
+	 * {@link ProcessedResourceCache} with a maximum size of zero to disable caching.
+	 *
+	 * @param cache
+	 *            the processed resource cache
+	 * @return {@code this} object for chaining
+	 */
+	public ResourceSettings setProcessedResourceCache(IProcessedResourceCache cache)
+	{
+		processedResourceCache = Args.notNull(cache, "cache");
+		return this;
+	}
+
+	/**
+	 * Gets the cache of memory mapped files, which large package and stream resources that are not
+	 * read buffered are read from, e.g. by the range requests of media players. Mapping is disabled
+	 * by default, see {@link MappedFileCache} for its caveats.
+	 *
+	 * @return the mapped file cache or <code>null</code> if files are not mapped
+	 */
+	public MappedFileCache getMappedFileCache()
+	{
+		return mappedFileCache;
+	}
+
+	/**
+	 * Sets the cache of memory mapped files. Only enable it for files which are neither truncated
+	 * nor replaced while the application is running.
+	 *
+	 * @param cache
+	 *            the mapped file cache or <code>null</code> to disable mapping
+	 * @return {@code this} object for chaining
+	 */
+	public ResourceSettings setMappedFileCache(MappedFileCache cache)
+	{
+		mappedFileCache = cache;
+		return this;
+	}
+
+	/**
+	 * Sets whether package and context relative resources with a compressible content type are
+	 * sent <code>gzip</code> encoded to clients accepting it. The encoded bytes are taken from a
+	 * precompressed <code>.gz</code> sibling of the resource or compressed once and cached in the
+	 * {@link #getProcessedResourceCache() processed resource cache}.
+	 *
+	 * @param gzipContentEncoding
+	 *            whether to negotiate gzip content encoding
+	 * @return {@code this} object for chaining
+	 */
+	public ResourceSettings setGzipContentEncoding(boolean gzipContentEncoding)
+	{
+		this.gzipContentEncoding = gzipContentEncoding;
+		return this;
+	}
+
+	/**
+	 * @return whether static resources negotiate gzip content encoding, {@code true} by default
+	 * @see #setGzipContentEncoding(boolean)
+	 */
+	public boolean getGzipContentEncoding()
+	{
+		return gzipContentEncoding;
+	}
+
+	/**
+	 * Gets the resource manifests written at build time by the
+	 * {@link org.apache.wicket.resource.manifest.ResourceManifestBuilder}, read from
+	 * {@value ResourceManifest#LOCATION} in all jars and class folders. In deployment mode the
+	 * default {@link #getCachingStrategy() caching strategy} takes the resource versions from it.
+	 *
+	 * @return the resource manifest, empty if there is none
+	 */
+	public ResourceManifest getResourceManifest()
+	{
+		if (resourceManifest == null)
+		{
+			resourceManifest = ResourceManifest.load(application.getApplicationSettings()
+				.getClassResolver()
+				.getResources(ResourceManifest.LOCATION));
+		}
+		return resourceManifest;
+	}
+
+	/**
+	 * Sets the resource manifest.
+	 *
+	 * @param manifest
+	 *            the resource manifest
+	 * @return {@code this} object for chaining
+	 */
+	public ResourceSettings setResourceManifest(ResourceManifest manifest)
+	{
+		resourceManifest = Args.notNull(manifest, "manifest");
+		return this;
+	}
+
 	/**
 	 * Sets whether to use pre-minified resources when available. Minified resources are detected by
 	 * name. The minified version of {@code x.js} is expected to be called {@code x.min.js}. For css
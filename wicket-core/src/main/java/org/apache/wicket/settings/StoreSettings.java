@@ -50,16 +50,30 @@ public class StoreSettings
 
 	private static final int DEFAULT_ASYNCHRONOUS_QUEUE_CAPACITY = 100;
 
+	private static final int DEFAULT_ASYNCHRONOUS_THREAD_COUNT = 1;
+
+	private static final Bytes DEFAULT_SEGMENT_SIZE = Bytes.megabytes(32);
+
 	private int inmemoryCacheSize = DEFAULT_CACHE_SIZE;
 
+	private Bytes inmemoryCacheMaxSize = Bytes.MAX;
+
 	private Bytes maxSizePerSession = DEFAULT_MAX_SIZE_PER_SESSION;
 
 	private File fileStoreFolder = null;
 
 	private int asynchronousQueueCapacity = DEFAULT_ASYNCHRONOUS_QUEUE_CAPACITY;
 
+	private int asynchronousThreadCount = DEFAULT_ASYNCHRONOUS_THREAD_COUNT;
+
 	private boolean isAsynchronous = true;
 
+	private boolean isMemoryMapped = false;
+
+	private boolean isDeltaEncoded = false;
+
+	private Bytes segmentSize = DEFAULT_SEGMENT_SIZE;
+
 	/**
 	 * Construct.
 	 * 
@@ -93,6 +107,30 @@ public class StoreSettings
 		return this;
 	}
 
+	/**
+	 * @return the maximum size of the data of all page instances stored in the application scoped
+	 *         cache
+	 */
+	public Bytes getInmemoryCacheMaxSize()
+	{
+		return inmemoryCacheMaxSize;
+	}
+
+	/**
+	 * Sets the maximum size of the data of all page instances which will be stored in the
+	 * application scoped second level cache. The least recently used pages are evicted when either
+	 * this size or {@link #getInmemoryCacheSize()} is exceeded.
+	 *
+	 * @param inmemoryCacheMaxSize
+	 *            the maximum size of the cached data
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setInmemoryCacheMaxSize(final Bytes inmemoryCacheMaxSize)
+	{
+		this.inmemoryCacheMaxSize = Args.notNull(inmemoryCacheMaxSize, "inmemoryCacheMaxSize");
+		return this;
+	}
+
 	/**
 	 * @return maximum page size. After this size is exceeded,
 	 * the {@link org.apache.wicket.pageStore.DiskDataStore} will start saving the
@@ -192,6 +230,36 @@ public class StoreSettings
 		return this;
 	}
 
+	/**
+	 * @return the number of threads which store the pages asynchronously
+	 * @see org.apache.wicket.pageStore.AsynchronousDataStore
+	 */
+	public int getAsynchronousThreadCount()
+	{
+		return asynchronousThreadCount;
+	}
+
+	/**
+	 * Sets the number of threads which store the pages asynchronously. The sessions are
+	 * distributed over the threads, each thread has its own queue with
+	 * {@link #getAsynchronousQueueCapacity()} capacity.
+	 *
+	 * @param threadCount
+	 *            the number of threads
+	 * @see org.apache.wicket.pageStore.AsynchronousDataStore
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setAsynchronousThreadCount(int threadCount)
+	{
+		if (threadCount < 1)
+		{
+			throw new IllegalArgumentException(
+				"The number of asynchronous threads should be at least 1.");
+		}
+		asynchronousThreadCount = threadCount;
+		return this;
+	}
+
 	/**
 	 * Sets a flag whether to wrap the configured {@link org.apache.wicket.pageStore.IDataStore} with
 	 * {@link org.apache.wicket.pageStore.AsynchronousDataStore}. By doing this the HTTP worker thread will not wait for the
@@ -214,4 +282,73 @@ public class StoreSettings
 	{
 		return isAsynchronous;
 	}
+
+	/**
+	 * Sets a flag whether to use {@link org.apache.wicket.pageStore.MappedDataStore} instead of
+	 * {@link org.apache.wicket.pageStore.DiskDataStore}. The mapped store keeps the pages of all
+	 * sessions in a few shared memory-mapped segment files instead of one file per session.
+	 *
+	 * @param memoryMapped
+	 *            {@code true} to use the memory mapped data store, {@code false} - otherwise
+	 * @see #setSegmentSize(Bytes)
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setMemoryMapped(boolean memoryMapped)
+	{
+		isMemoryMapped = memoryMapped;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if the pages are stored in memory-mapped segment files
+	 */
+	public boolean isMemoryMapped()
+	{
+		return isMemoryMapped;
+	}
+
+	/**
+	 * @return the size of a single segment file of {@link org.apache.wicket.pageStore.MappedDataStore}
+	 */
+	public Bytes getSegmentSize()
+	{
+		return segmentSize;
+	}
+
+	/**
+	 * Sets the size of a single segment file of {@link org.apache.wicket.pageStore.MappedDataStore}.
+	 * Larger segments mean less files but a coarser compaction.
+	 *
+	 * @param segmentSize
+	 *            the size of a segment file
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setSegmentSize(final Bytes segmentSize)
+	{
+		this.segmentSize = Args.notNull(segmentSize, "segmentSize");
+		return this;
+	}
+
+	/**
+	 * Sets a flag whether to use {@link org.apache.wicket.pageStore.DeltaPageStore}, which passes
+	 * only the difference of each page to a base snapshot to the
+	 * {@link org.apache.wicket.pageStore.IDataStore}.
+	 *
+	 * @param deltaEncoded
+	 *            {@code true} to store the pages as deltas, {@code false} - otherwise
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setDeltaEncoded(boolean deltaEncoded)
+	{
+		isDeltaEncoded = deltaEncoded;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if the pages are stored as deltas to a base snapshot
+	 */
+	public boolean isDeltaEncoded()
+	{
+		return isDeltaEncoded;
+	}
 }
@@ -16,12 +16,20 @@
  */
 package org.apache.wicket;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.wicket.core.util.lang.WicketObjects;
 import org.apache.wicket.markup.IMarkupResourceStreamProvider;
 import org.apache.wicket.markup.html.WebComponent;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.model.Model;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.visit.IVisit;
+import org.apache.wicket.util.visit.IVisitor;
 import org.junit.Test;
 
 
@@ -49,6 +57,139 @@ public class MarkupContainerTest extends WicketTestCase
 		}
 	}
 
+	/**
+	 * Lookup, replacement and removal in a container with many children
+	 */
+	@Test
+	public void wideContainer()
+	{
+		MarkupContainer container = new WebMarkupContainer("component");
+		for (int i = 0; i < 100; i++)
+		{
+			container.add(new WebComponent(Integer.toString(i)));
+		}
+
+		assertEquals("57", container.get("57").getId());
+		assertNull(container.get("100"));
+
+		WebComponent replacement = new WebComponent("42");
+		container.replace(replacement);
+		assertSame(replacement, container.get("42"));
+		assertSame(replacement, container.get(42));
+
+		container.remove("10");
+		assertNull(container.get("10"));
+		assertEquals("11", container.get(10).getId());
+		assertEquals(99, container.size());
+
+		while (container.size() > 5)
+		{
+			container.remove(container.get(0));
+		}
+		assertEquals("95", container.get("95").getId());
+		assertNull(container.get("42"));
+
+		MarkupContainer clone = WicketObjects.cloneObject(container);
+		assertEquals(5, clone.size());
+		assertEquals("99", clone.get("99").getId());
+		assertEquals("96", clone.get(1).getId());
+	}
+
+	/**
+	 * A wide container is deserialized while one of its children is only partly restored.
+	 */
+	@Test
+	public void wideContainerReachedThroughChild()
+	{
+		MarkupContainer container = new WebMarkupContainer("component");
+		for (int i = 0; i < 40; i++)
+		{
+			container.add(new WebComponent(Integer.toString(i)));
+		}
+		// the child is deserialized first and reaches its container through its model
+		Component child = container.get("5");
+		child.setDefaultModel(Model.of(container));
+
+		Component clone = WicketObjects.cloneObject(child);
+		MarkupContainer clonedContainer = clone.getParent();
+
+		assertSame(clone, clonedContainer.get("5"));
+		assertEquals("39", clonedContainer.get("39").getId());
+	}
+
+	/**
+	 * Children removed or replaced while iterating are neither skipped nor returned twice.
+	 */
+	@Test
+	public void iteratorWithModifications()
+	{
+		MarkupContainer container = new WebMarkupContainer("component");
+		for (int i = 0; i < 10; i++)
+		{
+			container.add(new WebComponent(Integer.toString(i)));
+		}
+
+		StringBuilder ids = new StringBuilder();
+		for (Component component : container)
+		{
+			ids.append(component.getId());
+			if ("3".equals(component.getId()))
+			{
+				component.remove();
+			}
+			else if ("5".equals(component.getId()))
+			{
+				container.replace(new WebComponent("5"));
+			}
+			else if ("7".equals(component.getId()))
+			{
+				container.remove("1");
+			}
+		}
+		assertEquals("0123456789", ids.toString());
+		assertEquals(8, container.size());
+	}
+
+	/**
+	 * Visitors follow an overridden iterator instead of the positions of the children.
+	 */
+	@Test
+	public void visitOverriddenIterator()
+	{
+		MarkupContainer plain = new WebMarkupContainer("plain");
+		assertTrue(plain.isIndexed());
+
+		MarkupContainer container = new WebMarkupContainer("component")
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Iterator<Component> iterator()
+			{
+				// skip the first child
+				Iterator<Component> iterator = super.iterator();
+				iterator.next();
+				return iterator;
+			}
+		};
+		assertFalse(container.isIndexed());
+		for (int i = 0; i < 3; i++)
+		{
+			container.add(new WebComponent(Integer.toString(i)));
+		}
+
+		final List<String> ids = new ArrayList<>();
+		container.visitChildren(new IVisitor<Component, Void>()
+		{
+			@Override
+			public void component(Component component, IVisit<Void> visit)
+			{
+				ids.add(component.getId());
+			}
+		});
+		assertEquals("[1, 2]", ids.toString());
+	}
+
 	/**
 	 * @throws Exception
 	 */
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.markup.preload.PreloadedBasePage;
+import org.apache.wicket.markup.preload.PreloadedPage;
+import org.apache.wicket.markup.preload.PreloadedPanel;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MarkupPreloader}
+ */
+public class MarkupPreloaderTest extends WicketTestCase
+{
+	/**
+	 * The markup of all classes in a package is loaded into the cache with the keys used for
+	 * rendering
+	 */
+	@Test
+	public void preloadPackage()
+	{
+		final List<Class<?>> loaded = new ArrayList<>();
+
+		MarkupPreloader preloader = new MarkupPreloader().addPackages(
+			PreloadedPage.class.getPackage().getName())
+			.setLocales(tester.getSession().getLocale())
+			.setParallelism(2)
+			.setProgressListener(new MarkupPreloader.IProgressListener()
+			{
+				@Override
+				public synchronized void onProgress(Class<?> containerClass, int completed, int total)
+				{
+					loaded.add(containerClass);
+					assertEquals(3, total);
+				}
+			});
+
+		IMarkupCache cache = MarkupFactory.get().getMarkupCache();
+		cache.clear();
+
+		assertEquals(3, preloader.preload(tester.getApplication()));
+		assertEquals(3, loaded.size());
+		assertTrue(loaded.contains(PreloadedBasePage.class));
+		assertTrue(loaded.contains(PreloadedPage.class));
+		assertTrue(loaded.contains(PreloadedPanel.class));
+
+		int size = cache.size();
+		assertTrue(size >= 3);
+
+		PreloadedPage page = new PreloadedPage();
+		Markup pageMarkup = MarkupFactory.get().getMarkup(page, false);
+		assertNotNull(pageMarkup);
+		assertEquals(size, cache.size());
+
+		PreloadedPanel panel = (PreloadedPanel)page.get("panel");
+		Markup markup = MarkupFactory.get().getMarkup(panel, false);
+		assertNotNull(markup);
+		assertSame(markup, MarkupFactory.get().getMarkup(panel, false));
+		assertEquals(size, cache.size());
+
+		tester.startPage(PreloadedPage.class);
+		tester.assertRenderedPage(PreloadedPage.class);
+		tester.assertContains("preloaded");
+		tester.assertContains("<p>panel</p>");
+		assertSame(pageMarkup, MarkupFactory.get().getMarkup(page, false));
+	}
+
+	/**
+	 * Classes providing their own markup can't be preloaded
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void addClassWithoutMarkup()
+	{
+		new MarkupPreloader().addClasses(String.class);
+	}
+}
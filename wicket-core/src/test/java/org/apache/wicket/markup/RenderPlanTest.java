@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RenderPlan}
+ */
+public class RenderPlanTest extends WicketTestCase
+{
+	private static final String MARKUP = "<html><body><div wicket:id=\"a\">a<span wicket:id=\"b\">b</span>" +
+		"<br wicket:id=\"c\"/><wicket:container wicket:id=\"d\"><p wicket:id=\"e\"></p></wicket:container>" +
+		"</div><input wicket:id=\"f\">text</body></html>";
+
+	/**
+	 * Skipping components with and without render plan ends at the same element
+	 */
+	@Test
+	public void skipComponent()
+	{
+		Markup plain = Markup.of(MARKUP);
+		Markup compiled = Markup.of(MARKUP);
+		compiled.compileRenderPlan(null);
+		assertNull(plain.getRenderPlan());
+		assertNotNull(compiled.getRenderPlan());
+
+		int tags = 0;
+		for (int i = 0; i < plain.size(); i++)
+		{
+			MarkupStream expected = new MarkupStream(plain).setCurrentIndex(i);
+			MarkupStream actual = new MarkupStream(compiled).setCurrentIndex(i);
+			if (expected.atOpenTag() || expected.atOpenCloseTag())
+			{
+				expected.skipComponent();
+				actual.skipComponent();
+				assertEquals(expected.getCurrentIndex(), actual.getCurrentIndex());
+
+				MarkupFragment expectedFragment = new MarkupFragment(plain, i);
+				MarkupFragment actualFragment = new MarkupFragment(compiled, i);
+				assertEquals(expectedFragment.size(), actualFragment.size());
+				assertEquals(i, actualFragment.getRootIndex());
+
+				// nested fragments use the plan of the root markup, too
+				if (actualFragment.size() > 2)
+				{
+					MarkupStream nested = new MarkupStream(actualFragment).setCurrentIndex(1);
+					if (nested.atOpenTag())
+					{
+						MarkupStream nestedExpected = new MarkupStream(expectedFragment).setCurrentIndex(1);
+						nested.skipComponent();
+						nestedExpected.skipComponent();
+						assertEquals(nestedExpected.getCurrentIndex(), nested.getCurrentIndex());
+					}
+				}
+				tags++;
+			}
+		}
+		assertEquals(6, tags);
+	}
+
+	/**
+	 * Consecutive raw markup is merged
+	 */
+	@Test
+	public void staticMarkup()
+	{
+		Markup tags = Markup.of("<span wicket:id=\"a\"></span>");
+
+		Markup markup = new Markup(new MarkupResourceStream(new StringResourceStream("")));
+		markup.addMarkupElement(new RawMarkup("<p>"));
+		markup.addMarkupElement(new RawMarkup("text"));
+		markup.addMarkupElement(tags.get(0));
+		markup.addMarkupElement(tags.get(1));
+		markup.addMarkupElement(new RawMarkup("</p>"));
+
+		MarkupStream stream = new MarkupStream(markup);
+		assertNull(stream.getStaticMarkup());
+
+		markup.compileRenderPlan(null);
+		stream = new MarkupStream(markup);
+		assertEquals("<p>text", stream.getStaticMarkup().toString());
+		stream.skipStaticMarkup();
+		assertEquals(2, stream.getCurrentIndex());
+		assertNull(stream.getStaticMarkup());
+
+		stream.skipComponent();
+		assertEquals("</p>", stream.getStaticMarkup().toString());
+		stream.skipStaticMarkup();
+		assertFalse(stream.hasMore());
+
+		// starting within the raw markup
+		stream.setCurrentIndex(1);
+		assertEquals("text", stream.getStaticMarkup().toString());
+		stream.skipStaticMarkup();
+		assertEquals(2, stream.getCurrentIndex());
+	}
+}
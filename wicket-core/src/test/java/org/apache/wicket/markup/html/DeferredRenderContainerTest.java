@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.html;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.settings.RequestCycleSettings.RenderStrategy;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DeferredRenderContainer}.
+ */
+public class DeferredRenderContainerTest extends WicketTestCase
+{
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+	/**
+	 * Stops the thread rendering the deferred bodies.
+	 */
+	@AfterClass
+	public static void shutdownExecutor()
+	{
+		EXECUTOR.shutdownNow();
+	}
+
+	@Override
+	protected WebApplication newApplication()
+	{
+		return new MockApplication()
+		{
+			@Override
+			protected void init()
+			{
+				super.init();
+
+				getRequestCycleSettings().setRenderStrategy(RenderStrategy.ONE_PASS_RENDER)
+					.setStreamingRender(true);
+				getDebugSettings().setComponentUseCheck(true);
+			}
+
+			@Override
+			public RuntimeConfigurationType getConfigurationType()
+			{
+				// no response filters in deployment mode
+				return RuntimeConfigurationType.DEPLOYMENT;
+			}
+		};
+	}
+
+	/**
+	 * The body is rendered after the page.
+	 */
+	@Test
+	public void deferred()
+	{
+		tester.startPage(DeferredPage.class);
+
+		String document = tester.getLastResponseAsString();
+		assertTrue(document,
+			document.contains("<div id=\"id1\">loading</div><p>after</p></body></html>"));
+		assertTrue(document,
+			document.contains("</html><div id=\"id1--deferred\" style=\"display:none\"><span>loaded</span></div><script"));
+	}
+
+	/**
+	 * Without streaming the body is rendered in place.
+	 */
+	@Test
+	public void notStreamed()
+	{
+		tester.getApplication().getRequestCycleSettings().setStreamingRender(false);
+
+		tester.startPage(DeferredPage.class);
+
+		String document = tester.getLastResponseAsString();
+		assertTrue(document,
+			document.contains("<div id=\"id1\"><span>loaded</span></div><p>after</p></body></html>"));
+		assertFalse(document.contains("--deferred"));
+	}
+
+	/**
+	 */
+	public static class DeferredPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		private String loaded;
+
+		/**
+		 * Construct.
+		 */
+		public DeferredPage()
+		{
+			DeferredRenderContainer container = new DeferredRenderContainer("deferred")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void load()
+				{
+					loaded = "loaded";
+				}
+
+				@Override
+				protected Executor getExecutor()
+				{
+					return EXECUTOR;
+				}
+
+				@Override
+				protected CharSequence getPlaceholderMarkup()
+				{
+					return "loading";
+				}
+			};
+			add(container);
+			container.add(new Label("label", new AbstractReadOnlyModel<String>()
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public String getObject()
+				{
+					return loaded;
+				}
+			}));
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream(
+				"<html><head></head><body><div wicket:id=\"deferred\"><span wicket:id=\"label\"></span></div><p>after</p></body></html>");
+		}
+	}
+}
@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.html;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.link.BookmarkablePageLink;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParallelRenderContainer}.
+ */
+public class ParallelRenderContainerTest extends WicketTestCase
+{
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(3);
+
+	private static final ExecutorService SINGLE_EXECUTOR = Executors.newSingleThreadExecutor();
+
+	private static final MetaDataKey<String> KEY = new MetaDataKey<String>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	/**
+	 * Stops the rendering threads.
+	 */
+	@AfterClass
+	public static void shutdownExecutors()
+	{
+		EXECUTOR.shutdownNow();
+		SINGLE_EXECUTOR.shutdownNow();
+	}
+
+	/**
+	 * Children are rendered on other threads, with the same result as rendering them sequentially.
+	 */
+	@Test
+	public void parallel()
+	{
+		String body = "<div wicket:id=\"container\"><span wicket:id=\"label1\"></span>,<span wicket:id=\"label2\"></span>,<a wicket:id=\"link\"><span wicket:id=\"label3\"></span></a></div>";
+
+		ParallelPage page = tester.startPage(new ParallelPage(body, false));
+		String sequential = tester.getLastResponseAsString();
+		assertEquals(Collections.singleton(Thread.currentThread()), page.threads);
+
+		page = tester.startPage(new ParallelPage(body, true));
+		assertEquals(sequential, tester.getLastResponseAsString());
+		tester.assertContains("<span wicket:id=\"label1\">label1</span>,<span wicket:id=\"label2\">label2</span>,<a wicket:id=\"link\" href=\"[^\"]+\"><span wicket:id=\"label3\">label3</span></a>");
+
+		assertFalse(page.threads.contains(Thread.currentThread()));
+		assertTrue(page.threads.toString(), page.threads.size() > 1);
+	}
+
+	/**
+	 * The children share the meta data and the request handler of the request's cycle.
+	 */
+	@Test
+	public void sharedRequestCycle()
+	{
+		tester.startPage(new ContainerPage(EXECUTOR)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void populate(MarkupContainer container)
+			{
+				getRequestCycle().setMetaData(KEY, "shared");
+
+				for (int i = 1; i <= 2; i++)
+				{
+					container.add(new Label("child" + i, new AbstractReadOnlyModel<String>()
+					{
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						public String getObject()
+						{
+							RequestCycle cycle = RequestCycle.get();
+							return cycle.getMetaData(KEY) + ":" +
+								(cycle.getActiveRequestHandler() != null);
+						}
+					}));
+				}
+			}
+		});
+
+		tester.assertContains("<span wicket:id=\"child1\">shared:true</span><span wicket:id=\"child2\">shared:true</span>");
+	}
+
+	/**
+	 * A failing child is rethrown after its siblings have finished.
+	 */
+	@Test
+	public void failure()
+	{
+		final AtomicInteger rendering = new AtomicInteger();
+		try
+		{
+			tester.startPage(new ContainerPage(EXECUTOR)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void populate(MarkupContainer container)
+				{
+					container.add(new Label("child1", new AbstractReadOnlyModel<String>()
+					{
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						public String getObject()
+						{
+							throw new IllegalStateException("failed");
+						}
+					}));
+					container.add(new Label("child2", new AbstractReadOnlyModel<String>()
+					{
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						public String getObject()
+						{
+							rendering.incrementAndGet();
+							try
+							{
+								Thread.sleep(200);
+							}
+							catch (InterruptedException e)
+							{
+								Thread.currentThread().interrupt();
+							}
+							rendering.decrementAndGet();
+							return "slow";
+						}
+					}));
+				}
+			});
+			fail();
+		}
+		catch (RuntimeException e)
+		{
+			assertEquals(0, rendering.get());
+		}
+	}
+
+	/**
+	 * A nested container renders its children sequentially, so it does not wait for the thread
+	 * it is rendered on.
+	 */
+	@Test
+	public void nested()
+	{
+		tester.startPage(new ContainerPage(SINGLE_EXECUTOR)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void populate(MarkupContainer container)
+			{
+				container.add(new Label("child1", "outer"));
+
+				ParallelRenderContainer nested = new ParallelRenderContainer("child2")
+				{
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected Executor getExecutor()
+					{
+						return SINGLE_EXECUTOR;
+					}
+				};
+				container.add(nested);
+				nested.add(new Label("nested1", "inner1"));
+				nested.add(new Label("nested2", "inner2"));
+			}
+
+			@Override
+			protected String getBody()
+			{
+				return "<div wicket:id=\"container\"><span wicket:id=\"child1\"></span><div wicket:id=\"child2\"><span wicket:id=\"nested1\"></span><span wicket:id=\"nested2\"></span></div></div>";
+			}
+		});
+
+		tester.assertContains("<span wicket:id=\"child1\">outer</span><div wicket:id=\"child2\"><span wicket:id=\"nested1\">inner1</span><span wicket:id=\"nested2\">inner2</span></div>");
+	}
+
+	/**
+	 * Other elements in the body are rendered sequentially.
+	 */
+	@Test
+	public void sequential()
+	{
+		ParallelPage page = tester.startPage(new ParallelPage(
+			"<div wicket:id=\"container\"><span wicket:id=\"label1\"></span><wicket:container wicket:id=\"label2\"></wicket:container><wicket:enclosure child=\"link\"><a wicket:id=\"link\"><span wicket:id=\"label3\"></span></a></wicket:enclosure></div>", true));
+
+		tester.assertContains("<span wicket:id=\"label1\">label1</span>");
+		tester.assertContains("<span wicket:id=\"label3\">label3</span>");
+
+		assertEquals(Collections.singleton(Thread.currentThread()), page.threads);
+	}
+
+	/**
+	 */
+	public static class ParallelPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String body;
+
+		private final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+		/**
+		 * Construct.
+		 * 
+		 * @param body
+		 * @param parallel
+		 */
+		public ParallelPage(String body, final boolean parallel)
+		{
+			this.body = body;
+
+			ParallelRenderContainer container = new ParallelRenderContainer("container")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected Executor getExecutor()
+				{
+					return parallel ? EXECUTOR : null;
+				}
+			};
+			add(container);
+
+			container.add(new Label("label1", new ThreadModel("label1")));
+			container.add(new Label("label2", new ThreadModel("label2")));
+			BookmarkablePageLink<Void> link = new BookmarkablePageLink<Void>("link",
+				ParallelPage.class);
+			container.add(link);
+			link.add(new Label("label3", new ThreadModel("label3")));
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><body>" + body + "</body></html>");
+		}
+
+		private class ThreadModel extends AbstractReadOnlyModel<String>
+		{
+			private static final long serialVersionUID = 1L;
+
+			private final String text;
+
+			private ThreadModel(String text)
+			{
+				this.text = text;
+			}
+
+			@Override
+			public String getObject()
+			{
+				threads.add(Thread.currentThread());
+				try
+				{
+					// keep the thread busy, so the siblings are picked up by other threads
+					Thread.sleep(50);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				return text;
+			}
+		}
+	}
+
+	/**
+	 * A page with a container rendering two children.
+	 */
+	public abstract static class ContainerPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Construct.
+		 * 
+		 * @param executor
+		 */
+		public ContainerPage(final Executor executor)
+		{
+			ParallelRenderContainer container = new ParallelRenderContainer("container")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected Executor getExecutor()
+				{
+					return executor;
+				}
+			};
+			add(container);
+
+			populate(container);
+		}
+
+		/**
+		 * Adds the children.
+		 * 
+		 * @param container
+		 */
+		protected abstract void populate(MarkupContainer container);
+
+		/**
+		 * @return the markup of the body
+		 */
+		protected String getBody()
+		{
+			return "<div wicket:id=\"container\"><span wicket:id=\"child1\"></span><span wicket:id=\"child2\"></span></div>";
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><body>" + getBody() + "</body></html>");
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.parser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.markup.parser.IXmlPullParser.HttpTagType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that {@link CharArrayXmlPullParser} parses markup just like {@link XmlPullParser}.
+ */
+public class CharArrayXmlPullParserTest extends Assert
+{
+	private static final String[] MARKUP = {
+			"This is a text",
+			"<tag/>",
+			"<tag ></tag >",
+			"<wicket:panel><span wicket:id=\"label\">text</span></wicket:panel>",
+			"<html xmlns:wicket>",
+			"<a href=foo.html class = 'x  ' id=\"a&amp;b\" disabled>link</a>",
+			"<a href=foo/bar.html>",
+			"<a wicket:message:xyz=\"key\" a:b:c:d=1>",
+			"<my-ns:tag attr=1>",
+			"<a @click=\"go()\" data-x-y=\"1\" _u=2 = b=>",
+			"<a title=\"a > b\" alt='c \" d'>",
+			"<a title=\"a \\\" > b\">",
+			"<script>if (a < b) {}</script><p>",
+			"<SCRIPT type=\"text/template\"><p>x</p></SCRIPT>",
+			"<script type='text/javascript'><a></script >",
+			"<style>p > a {}</style>",
+			"<!DOCTYPE html><?xml version=\"1.0\"?>",
+			"<!-- comment <a> --><p>",
+			"<!--[if IE]><a href='test.html'>my link</a><![endif]-->",
+			"<!--[if (gt IE9)|!(IE)]><!--><p><!--<![endif]-->",
+			"<![CDATA[ <a> ]]><p>",
+			"<!ELEMENT foo>",
+			"<a>\r\n  <b\r\n c='d'>\n</b></a>" };
+
+	private static final String[] MALFORMED = { "<>", "<a", "<a b='c>", "<1a>", "<a a=1 a=2>",
+			"<script>x", "<!-- x", "</>" };
+
+	/**
+	 * Markup snippets are parsed identically
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void snippets() throws Exception
+	{
+		for (String markup : MARKUP)
+		{
+			XmlPullParser expected = new XmlPullParser();
+			expected.parse(markup);
+			CharArrayXmlPullParser actual = new CharArrayXmlPullParser();
+			actual.parse(markup);
+
+			assertSameElements(markup, parse(expected), parse(actual));
+		}
+	}
+
+	/**
+	 * Malformed markup results in a {@link ParseException}
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void malformed() throws Exception
+	{
+		for (String markup : MALFORMED)
+		{
+			CharArrayXmlPullParser parser = new CharArrayXmlPullParser();
+			parser.parse(markup);
+			try
+			{
+				parse(parser);
+				fail("expected a ParseException for " + markup);
+			}
+			catch (ParseException expected)
+			{
+			}
+		}
+	}
+
+	/**
+	 * All the test markup of wicket-core is parsed identically
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testMarkup() throws Exception
+	{
+		List<File> files = new ArrayList<>();
+		collectHtmlFiles(new File("src/test/java"), files);
+		assertFalse(files.isEmpty());
+
+		for (File file : files)
+		{
+			XmlPullParser expected = new XmlPullParser();
+			expected.parse(new FileInputStream(file));
+			CharArrayXmlPullParser actual = new CharArrayXmlPullParser();
+			actual.parse(new FileInputStream(file));
+
+			assertEquals(expected.getEncoding(), actual.getEncoding());
+
+			List<String> expectedElements;
+			try
+			{
+				expectedElements = parse(expected);
+			}
+			catch (ParseException e)
+			{
+				continue;
+			}
+			assertSameElements(file.getPath(), expectedElements, parse(actual));
+			assertEquals(expected.toString(), actual.toString());
+		}
+	}
+
+	private static void assertSameElements(String message, List<String> expected,
+		List<String> actual)
+	{
+		assertEquals(message, expected, actual);
+	}
+
+	private static void collectHtmlFiles(File folder, List<File> files)
+	{
+		File[] children = folder.listFiles();
+		if (children != null)
+		{
+			for (File child : children)
+			{
+				if (child.isDirectory())
+				{
+					collectHtmlFiles(child, files);
+				}
+				else if (child.getName().endsWith(".html"))
+				{
+					files.add(child);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses the markup into a list of descriptions of all elements, including raw markup between
+	 * the tags as the markup parser gets it.
+	 */
+	private static List<String> parse(IXmlPullParser parser) throws ParseException, IOException
+	{
+		List<String> elements = new ArrayList<>();
+		HttpTagType type;
+		while ((type = parser.next()) != HttpTagType.NOT_INITIALIZED)
+		{
+			StringBuilder element = new StringBuilder();
+			element.append(type).append('|').append(parser.getString());
+			if (type == HttpTagType.TAG)
+			{
+				XmlTag tag = parser.getElement();
+				element.append('|')
+					.append(tag.getType())
+					.append('|')
+					.append(tag.getNamespace())
+					.append('|')
+					.append(tag.getName())
+					.append('|')
+					.append(tag.getAttributes())
+					.append('|')
+					.append(tag.getPos())
+					.append('|')
+					.append(tag.getLineNumber())
+					.append(':')
+					.append(tag.getColumnNumber());
+
+				element.append('|').append(parser.getInputFromPositionMarker(tag.getPos()));
+				parser.setPositionMarker();
+			}
+			elements.add(element.toString());
+		}
+		elements.add(String.valueOf(parser.getDoctype()));
+		return elements;
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.renderCache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.markup.html.link.StatelessLink;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.time.Duration;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RenderCacheBehavior}.
+ */
+public class RenderCacheBehaviorTest extends WicketTestCase
+{
+	private static final AtomicInteger BEFORE_RENDERS = new AtomicInteger();
+
+	private static String key;
+
+	private static boolean stateful;
+
+	private static boolean outputMarkupId;
+
+	private static boolean listener;
+
+	/**
+	 */
+	@Before
+	public void before()
+	{
+		BEFORE_RENDERS.set(0);
+		key = "a";
+		stateful = false;
+		outputMarkupId = false;
+		listener = false;
+	}
+
+	/**
+	 * The second render writes the cached markup and header items without preparing the children.
+	 */
+	@Test
+	public void cached()
+	{
+		tester.startPage(CachedPage.class);
+		String first = tester.getLastResponseAsString();
+
+		tester.startPage(CachedPage.class);
+		String second = tester.getLastResponseAsString();
+
+		assertEquals(1, BEFORE_RENDERS.get());
+		assertTrue(second, second.contains("<span wicket:id=\"label\">text-a</span>"));
+		assertTrue(second, second.contains("id=\"cached-script\""));
+		assertEquals(first, second);
+		assertEquals(1, getRenderCache().size());
+	}
+
+	/**
+	 * Another model key renders again.
+	 */
+	@Test
+	public void modelKey()
+	{
+		tester.startPage(CachedPage.class);
+
+		key = "b";
+		tester.startPage(CachedPage.class);
+
+		assertEquals(2, BEFORE_RENDERS.get());
+		assertTrue(tester.getLastResponseAsString().contains("text-b"));
+		assertEquals(2, getRenderCache().size());
+	}
+
+	/**
+	 * Invalidated output is rendered again.
+	 */
+	@Test
+	public void invalidate()
+	{
+		tester.startPage(CachedPage.class);
+
+		getRenderCache().invalidate(CachedContainer.class, "a");
+		assertEquals(0, getRenderCache().size());
+
+		tester.startPage(CachedPage.class);
+
+		assertEquals(2, BEFORE_RENDERS.get());
+	}
+
+	/**
+	 * The output of stateful components is not cached.
+	 */
+	@Test
+	public void stateful()
+	{
+		stateful = true;
+
+		tester.startPage(CachedPage.class);
+		tester.startPage(CachedPage.class);
+
+		assertEquals(2, BEFORE_RENDERS.get());
+		assertEquals(0, getRenderCache().size());
+	}
+
+	/**
+	 * The output of components with a markup id is not cached.
+	 */
+	@Test
+	public void outputMarkupId()
+	{
+		outputMarkupId = true;
+
+		tester.startPage(CachedPage.class);
+		tester.startPage(CachedPage.class);
+
+		assertEquals(2, BEFORE_RENDERS.get());
+		assertEquals(0, getRenderCache().size());
+	}
+
+	/**
+	 * The output of components rendering listener urls is not cached.
+	 */
+	@Test
+	public void listenerUrl()
+	{
+		listener = true;
+
+		tester.startPage(CachedPage.class);
+		tester.startPage(CachedPage.class);
+
+		assertEquals(2, BEFORE_RENDERS.get());
+		assertEquals(0, getRenderCache().size());
+	}
+
+	private IRenderCache getRenderCache()
+	{
+		return tester.getApplication().getMarkupSettings().getRenderCache();
+	}
+
+	/**
+	 */
+	public static class CachedContainer extends WebMarkupContainer
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Construct.
+		 * 
+		 * @param id
+		 */
+		public CachedContainer(String id)
+		{
+			super(id);
+
+			add(new RenderCacheBehavior(Model.of(key), Duration.hours(1)));
+		}
+	}
+
+	/**
+	 */
+	public static class CachedPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Construct.
+		 */
+		public CachedPage()
+		{
+			CachedContainer container = new CachedContainer("cached");
+			add(container);
+
+			container.add(new Label("label", new AbstractReadOnlyModel<String>()
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public String getObject()
+				{
+					return "text-" + key;
+				}
+			})
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void onBeforeRender()
+				{
+					BEFORE_RENDERS.incrementAndGet();
+
+					super.onBeforeRender();
+				}
+
+				@Override
+				public void renderHead(IHeaderResponse response)
+				{
+					response.render(JavaScriptHeaderItem.forScript("var cached;", "cached-script"));
+				}
+			}.setOutputMarkupId(outputMarkupId));
+
+			container.add(new Link<Void>("link")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public void onClick()
+				{
+				}
+			}.setVisible(stateful));
+
+			container.add(new StatelessLink<Void>("statelessLink")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public void onClick()
+				{
+				}
+			}.setVisible(listener));
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream(
+				"<html><head></head><body><div wicket:id=\"cached\"><span wicket:id=\"label\"></span><a wicket:id=\"link\"></a><a wicket:id=\"statelessLink\"></a></div></body></html>");
+		}
+	}
+}
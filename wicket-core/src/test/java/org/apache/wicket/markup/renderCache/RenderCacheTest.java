@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.renderCache;
+
+import java.util.Collections;
+
+import org.apache.wicket.markup.head.HeaderItem;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RenderCache}.
+ */
+public class RenderCacheTest extends Assert
+{
+	private static RenderCacheKey key(Object modelKey)
+	{
+		return new RenderCacheKey(Label.class, WebPage.class, "label", null, modelKey, null, null,
+			null, "");
+	}
+
+	private static RenderCacheEntry entry(String markup, Duration timeToLive)
+	{
+		return new RenderCacheEntry(markup, Collections.<HeaderItem> emptyList(), timeToLive);
+	}
+
+	/**
+	 * The least recently used entry is evicted when there are too many entries.
+	 */
+	@Test
+	public void maxEntries()
+	{
+		RenderCache cache = new RenderCache(2, Bytes.megabytes(1));
+
+		cache.put(key(1), entry("1", Duration.MAXIMUM));
+		cache.put(key(2), entry("2", Duration.MAXIMUM));
+		assertNotNull(cache.get(key(1)));
+		cache.put(key(3), entry("3", Duration.MAXIMUM));
+
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get(key(1)));
+		assertNull(cache.get(key(2)));
+		assertNotNull(cache.get(key(3)));
+	}
+
+	/**
+	 * The least recently used entries are evicted when the entries are too large.
+	 */
+	@Test
+	public void maxSize()
+	{
+		RenderCache cache = new RenderCache(100, Bytes.bytes(20));
+
+		cache.put(key(1), entry("12345", Duration.MAXIMUM));
+		cache.put(key(2), entry("12345", Duration.MAXIMUM));
+		cache.put(key(3), entry("12345", Duration.MAXIMUM));
+
+		assertEquals(2, cache.size());
+		assertNull(cache.get(key(1)));
+
+		cache.put(key(4), entry("12345678901", Duration.MAXIMUM));
+		assertNull(cache.get(key(4)));
+		assertEquals(2, cache.size());
+	}
+
+	/**
+	 * Expired entries are not returned.
+	 */
+	@Test
+	public void timeToLive() throws Exception
+	{
+		RenderCache cache = new RenderCache(100, Bytes.megabytes(1));
+
+		cache.put(key(1), entry("1", Duration.milliseconds(1)));
+		Thread.sleep(10);
+
+		assertNull(cache.get(key(1)));
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * All entries of a component class and model key are invalidated, whatever page and path they
+	 * were rendered at.
+	 */
+	@Test
+	public void invalidate()
+	{
+		RenderCache cache = new RenderCache(100, Bytes.megabytes(1));
+
+		cache.put(key(1), entry("1", Duration.MAXIMUM));
+		cache.put(new RenderCacheKey(Label.class, WebPage.class, "other", "id1", 1, null, "style",
+			null, ""), entry("1", Duration.MAXIMUM));
+		cache.put(key(2), entry("2", Duration.MAXIMUM));
+		cache.put(new RenderCacheKey(WebPage.class, WebPage.class, "", null, 1, null, null, null,
+			""), entry("1", Duration.MAXIMUM));
+
+		cache.invalidate(Label.class, 1);
+		assertEquals(2, cache.size());
+
+		cache.invalidate(Label.class, null);
+		assertEquals(1, cache.size());
+	}
+}
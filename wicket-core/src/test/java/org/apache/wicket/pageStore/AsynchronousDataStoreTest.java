@@ -22,6 +22,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import org.apache.wicket.versioning.InMemoryPageStore;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -77,6 +78,55 @@ public class AsynchronousDataStoreTest
 		DATA_STORE.destroy();
 	}
 
+	/**
+	 * Storing a page which is still waiting in the queue replaces its data.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void coalesce() throws Exception
+	{
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		IDataStore blocking = new InMemoryPageStore()
+		{
+			@Override
+			public void storeData(String sessionId, int pageId, byte[] pageAsBytes)
+			{
+				started.countDown();
+				try
+				{
+					release.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				super.storeData(sessionId, pageId, pageAsBytes);
+			}
+		};
+		AsynchronousDataStore dataStore = new AsynchronousDataStore(blocking, 10, 2);
+
+		// blocks the thread responsible for the session
+		dataStore.storeData("s1", 1, DATA);
+		started.await();
+
+		dataStore.storeData("s1", 2, new byte[] { 1 });
+		dataStore.storeData("s1", 2, new byte[] { 2 });
+		dataStore.storeData("s1", 2, new byte[] { 3 });
+		Assert.assertArrayEquals(new byte[] { 3 }, dataStore.getData("s1", 2));
+		Assert.assertEquals(2, dataStore.getCoalescedCount());
+
+		release.countDown();
+		while (dataStore.getQueueSize() > 0 || dataStore.getStoredCount() < 2)
+		{
+			Thread.sleep(10);
+		}
+		Assert.assertArrayEquals(new byte[] { 3 }, blocking.getData("s1", 2));
+		Assert.assertEquals(0, dataStore.getFallbackCount());
+		dataStore.destroy();
+	}
+
 	private static abstract class AbstractTask implements Runnable
 	{
 		protected abstract void r();
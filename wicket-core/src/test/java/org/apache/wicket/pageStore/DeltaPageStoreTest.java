@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.wicket.MockPage;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.versioning.InMemoryPageStore;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DeltaPageStore}
+ */
+public class DeltaPageStoreTest extends AbstractPageStoreTest
+{
+	@Override
+	protected IPageStore createPageStore(ISerializer serializer, IDataStore dataStore, int maxEntries)
+	{
+		return new DeltaPageStore(serializer, dataStore, maxEntries);
+	}
+
+	/**
+	 * A delta applied on its base restores the target
+	 */
+	@Test
+	public void binaryDelta()
+	{
+		Random random = new Random(42);
+		byte[] base = new byte[10000];
+		random.nextBytes(base);
+
+		byte[] target = new byte[10010];
+		System.arraycopy(base, 0, target, 0, 3000);
+		System.arraycopy(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 }, 0, target, 3000, 10);
+		System.arraycopy(base, 3000, target, 3010, 7000);
+
+		byte[] delta = BinaryDelta.create(base, target);
+		assertTrue(delta.length < 100);
+		assertArrayEquals(target, BinaryDelta.apply(base, delta));
+
+		byte[] unrelated = new byte[500];
+		random.nextBytes(unrelated);
+		assertArrayEquals(unrelated, BinaryDelta.apply(base, BinaryDelta.create(base, unrelated)));
+		assertArrayEquals(new byte[0], BinaryDelta.apply(base, BinaryDelta.create(base, new byte[0])));
+	}
+
+	/**
+	 * The pages are restored from the data store through their deltas
+	 */
+	@Test
+	public void restoreFromDataStore()
+	{
+		InMemoryPageStore inMemoryDataStore = new InMemoryPageStore();
+		pageStore = new DeltaPageStore(serializer, inMemoryDataStore, 0);
+
+		for (int i = 0; i < 50; i++)
+		{
+			pageStore.storePage(sessionId, new MockPage(i));
+		}
+
+		for (int i = 0; i < 50; i++)
+		{
+			MockPage page = (MockPage)pageStore.getPage(sessionId, i);
+			assertNotNull(page);
+			assertEquals(i, page.getPageId());
+		}
+
+		pageStore.unbind(sessionId);
+		assertNull(pageStore.getPage(sessionId, 1));
+	}
+
+	/**
+	 * A page taken as the new base is stored as an empty delta
+	 */
+	@Test
+	public void identicalToBase()
+	{
+		InMemoryPageStore inMemoryDataStore = new InMemoryPageStore();
+		pageStore = new DeltaPageStore(serializer, inMemoryDataStore, 0);
+
+		pageStore.storePage(sessionId, new MockPage(pageId));
+
+		assertEquals(8, inMemoryDataStore.getData(sessionId, pageId).length);
+		assertEquals(pageId, pageStore.getPage(sessionId, pageId).getPageId());
+	}
+
+	/**
+	 * A page whose base has been removed is treated as expired
+	 */
+	@Test
+	public void missingBase()
+	{
+		InMemoryPageStore inMemoryDataStore = new InMemoryPageStore();
+		pageStore = new DeltaPageStore(serializer, inMemoryDataStore, 0);
+
+		pageStore.storePage(sessionId, new MockPage(pageId));
+		inMemoryDataStore.removeData(sessionId, -2);
+		assertNotNull(inMemoryDataStore.getData(sessionId, pageId));
+
+		// a new store, e.g. after a restart, does not know the base
+		pageStore = new DeltaPageStore(serializer, inMemoryDataStore, 0);
+		assertNull(pageStore.getPage(sessionId, pageId));
+	}
+
+	/**
+	 * A base is removed from the data store once no page refers to it anymore
+	 */
+	@Test
+	public void unreferencedBaseRemoved()
+	{
+		InMemoryPageStore inMemoryDataStore = new InMemoryPageStore();
+		pageStore = new DeltaPageStore(serializer, inMemoryDataStore, 0);
+
+		for (int i = 0; i < 100; i++)
+		{
+			pageStore.storePage(sessionId, new MockPage(pageId));
+		}
+
+		int bases = 0;
+		for (int id = -2; id > -10; id--)
+		{
+			if (inMemoryDataStore.getData(sessionId, id) != null)
+			{
+				bases++;
+			}
+		}
+		assertEquals(1, bases);
+		assertNotNull(pageStore.getPage(sessionId, pageId));
+
+		pageStore.removePage(sessionId, pageId);
+		pageStore.storePage(sessionId, new MockPage(pageId + 1));
+		assertNotNull(pageStore.getPage(sessionId, pageId + 1));
+	}
+
+	/**
+	 * Pages whose base has been evicted by the data store are restored from the base in memory
+	 */
+	@Test
+	public void evictedBase()
+	{
+		EvictingDataStore evictingDataStore = new EvictingDataStore(3);
+		pageStore = new DeltaPageStore(serializer, evictingDataStore, 0);
+
+		for (int i = 0; i < 30; i++)
+		{
+			pageStore.storePage(sessionId, new MockPage(i));
+
+			MockPage page = (MockPage)pageStore.getPage(sessionId, i);
+			assertNotNull("page " + i, page);
+			assertEquals(i, page.getPageId());
+		}
+	}
+
+	/**
+	 * A data store which keeps only the last stored entries
+	 */
+	private static class EvictingDataStore extends InMemoryPageStore
+	{
+		private final Map<Integer, Boolean> order = new LinkedHashMap<>();
+
+		private final int capacity;
+
+		private EvictingDataStore(int capacity)
+		{
+			this.capacity = capacity;
+		}
+
+		@Override
+		public void storeData(String sessionId, int pageId, byte[] pageAsBytes)
+		{
+			order.remove(pageId);
+			order.put(pageId, Boolean.TRUE);
+			super.storeData(sessionId, pageId, pageAsBytes);
+
+			Iterator<Integer> ids = order.keySet().iterator();
+			while (order.size() > capacity)
+			{
+				removeData(sessionId, ids.next());
+				ids.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+
+import org.apache.wicket.settings.StoreSettings;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MappedDataStore}
+ */
+public class MappedDataStoreTest extends Assert
+{
+	private MappedDataStore dataStore;
+
+	/**
+	 * Creates a store with small segments
+	 */
+	@Before
+	public void before()
+	{
+		File folder = new StoreSettings(null).getFileStoreFolder();
+		dataStore = new MappedDataStore("mappedDataStoreTest", folder, Bytes.kilobytes(10),
+			Bytes.kilobytes(16));
+	}
+
+	/**
+	 * Destroys the store
+	 */
+	@After
+	public void after()
+	{
+		dataStore.destroy();
+	}
+
+	/**
+	 * Stores, replaces and removes pages
+	 */
+	@Test
+	public void storeAndRemove()
+	{
+		dataStore.storeData("s1", 1, new byte[] { 1, 2, 3 });
+		dataStore.storeData("s2", 1, new byte[] { 4, 5 });
+
+		assertArrayEquals(new byte[] { 1, 2, 3 }, dataStore.getData("s1", 1));
+		assertArrayEquals(new byte[] { 4, 5 }, dataStore.getData("s2", 1));
+		assertNull(dataStore.getData("s1", 2));
+
+		dataStore.storeData("s1", 1, new byte[] { 6 });
+		assertArrayEquals(new byte[] { 6 }, dataStore.getData("s1", 1));
+
+		dataStore.removeData("s1", 1);
+		assertNull(dataStore.getData("s1", 1));
+
+		dataStore.removeData("s2");
+		assertNull(dataStore.getData("s2", 1));
+	}
+
+	/**
+	 * The oldest pages are evicted when the session exceeds its maximum size
+	 */
+	@Test
+	public void maxSizePerSession()
+	{
+		for (int i = 0; i < 5; i++)
+		{
+			dataStore.storeData("s1", i, new byte[3000]);
+		}
+
+		assertNull(dataStore.getData("s1", 0));
+		assertNull(dataStore.getData("s1", 1));
+		assertNotNull(dataStore.getData("s1", 2));
+		assertNotNull(dataStore.getData("s1", 4));
+	}
+
+	/**
+	 * The live records survive the compaction and the sparse segments are deleted
+	 */
+	@Test
+	public void compaction()
+	{
+		for (int i = 0; i < 20; i++)
+		{
+			dataStore.storeData("s" + i, 1, new byte[] { (byte)i, 1, 2, 3 });
+			dataStore.storeData("s" + i, 2, new byte[5000]);
+		}
+		int segmentCount = dataStore.getSegmentCount();
+		assertTrue(segmentCount > 1);
+
+		for (int i = 0; i < 20; i++)
+		{
+			dataStore.removeData("s" + i, 2);
+		}
+		dataStore.compact();
+
+		assertTrue(dataStore.getSegmentCount() < segmentCount);
+		for (int i = 0; i < 20; i++)
+		{
+			assertArrayEquals(new byte[] { (byte)i, 1, 2, 3 }, dataStore.getData("s" + i, 1));
+			assertNull(dataStore.getData("s" + i, 2));
+		}
+	}
+
+	/**
+	 * Records appended while segments are compacted are not lost
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void compactionWhileStoring() throws Exception
+	{
+		final int pages = 500;
+		Thread[] writers = new Thread[4];
+		for (int t = 0; t < writers.length; t++)
+		{
+			final String sessionId = "s" + t;
+			writers[t] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for (int i = 0; i < pages; i++)
+					{
+						dataStore.storeData(sessionId, i % 2, new byte[] { (byte)i, 1, 2, 3 });
+						dataStore.storeData(sessionId, 2, new byte[1000]);
+					}
+				}
+			};
+			writers[t].start();
+		}
+
+		boolean storing = true;
+		while (storing)
+		{
+			dataStore.compact();
+
+			storing = false;
+			for (Thread writer : writers)
+			{
+				storing |= writer.isAlive();
+			}
+		}
+		for (Thread writer : writers)
+		{
+			writer.join();
+		}
+		dataStore.compact();
+
+		for (int t = 0; t < writers.length; t++)
+		{
+			assertArrayEquals(new byte[] { (byte)(pages - 2), 1, 2, 3 },
+				dataStore.getData("s" + t, 0));
+			assertArrayEquals(new byte[] { (byte)(pages - 1), 1, 2, 3 },
+				dataStore.getData("s" + t, 1));
+			assertNotNull(dataStore.getData("s" + t, 2));
+		}
+	}
+}
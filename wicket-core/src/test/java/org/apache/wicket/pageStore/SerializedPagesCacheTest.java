@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import org.apache.wicket.pageStore.DefaultPageStore.SerializedPage;
+import org.apache.wicket.pageStore.DefaultPageStore.SerializedPagesCache;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SerializedPagesCache}
+ */
+public class SerializedPagesCacheTest extends Assert
+{
+	private static SerializedPage page(String sessionId, int pageId, int size)
+	{
+		return new SerializedPage(sessionId, pageId, new byte[size]);
+	}
+
+	/**
+	 * The least recently used page is evicted
+	 */
+	@Test
+	public void leastRecentlyUsed()
+	{
+		SerializedPagesCache cache = new SerializedPagesCache(2);
+		cache.storePage("s1", 1, page("s1", 1, 1));
+		cache.storePage("s1", 2, page("s1", 2, 1));
+
+		// touch 1
+		assertNotNull(cache.getPage("s1", 1));
+
+		cache.storePage("s1", 3, page("s1", 3, 1));
+		assertNotNull(cache.getPage("s1", 1));
+		assertNull(cache.getPage("s1", 2));
+		assertNotNull(cache.getPage("s1", 3));
+	}
+
+	/**
+	 * Pages are evicted when the maximum size of their data is exceeded
+	 */
+	@Test
+	public void maxBytes()
+	{
+		SerializedPagesCache cache = new SerializedPagesCache(10, Bytes.bytes(100));
+		cache.storePage("s1", 1, page("s1", 1, 40));
+		cache.storePage("s1", 2, page("s1", 2, 40));
+		cache.storePage("s1", 3, page("s1", 3, 40));
+
+		assertNull(cache.getPage("s1", 1));
+		assertNotNull(cache.getPage("s1", 2));
+		assertNotNull(cache.getPage("s1", 3));
+
+		// replacing a page accounts only for its new size
+		cache.storePage("s1", 3, page("s1", 3, 10));
+		cache.storePage("s1", 4, page("s1", 4, 40));
+		assertNotNull(cache.getPage("s1", 2));
+		assertNotNull(cache.getPage("s1", 4));
+	}
+
+	/**
+	 * All pages of a session are removed
+	 */
+	@Test
+	public void removePages()
+	{
+		SerializedPagesCache cache = new SerializedPagesCache(1000);
+		for (int i = 0; i < 100; i++)
+		{
+			cache.storePage("s1", i, page("s1", i, 1));
+			cache.storePage("s2", i, page("s2", i, 1));
+		}
+
+		cache.removePages("s1");
+
+		for (int i = 0; i < 100; i++)
+		{
+			assertNull(cache.getPage("s1", i));
+			assertNotNull(cache.getPage("s2", i));
+		}
+
+		assertNotNull(cache.removePage("s2", 1));
+		assertNull(cache.getPage("s2", 1));
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.mock.MockWebResponse;
+import org.junit.Test;
+
+/**
+ * Test for {@link StreamingWebResponse}.
+ */
+public class StreamingWebResponseTest extends WicketTestCase
+{
+	/**
+	 */
+	@Test
+	public void bufferUntilCommit()
+	{
+		MockWebResponse originalResponse = new MockWebResponse();
+
+		StreamingWebResponse response = new StreamingWebResponse(originalResponse);
+
+		response.setHeader("key1", "value1");
+		response.write("<head>");
+
+		assertNull(originalResponse.getHeader("key1"));
+		assertNull(originalResponse.getTextResponse());
+		assertFalse(response.isCommitted());
+
+		response.commit();
+
+		assertTrue(response.isCommitted());
+		assertEquals("value1", originalResponse.getHeader("key1"));
+		assertEquals("<head>", originalResponse.getTextResponse().toString());
+
+		response.write("<body>");
+
+		assertEquals("<head><body>", originalResponse.getTextResponse().toString());
+	}
+
+	/**
+	 */
+	@Test
+	public void resetBeforeCommit()
+	{
+		MockWebResponse originalResponse = new MockWebResponse();
+
+		StreamingWebResponse response = new StreamingWebResponse(originalResponse);
+
+		response.write("discarded");
+		response.reset();
+		response.write("written");
+		response.writeBuffer();
+
+		assertEquals("written", originalResponse.getTextResponse().toString());
+
+		try
+		{
+			response.reset();
+
+			fail();
+		}
+		catch (IllegalStateException expected)
+		{
+		}
+	}
+}
@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.outputCache;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.link.StatelessLink;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.protocol.http.IWebApplicationFactory;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.protocol.http.WicketFilter;
+import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.protocol.http.mock.MockServletContext;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.time.Duration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PageOutputCache}.
+ */
+public class PageOutputCacheTest extends Assert
+{
+	private static final AtomicInteger CONSTRUCTED = new AtomicInteger();
+
+	private static final AtomicInteger CLICKED = new AtomicInteger();
+
+	private static WebApplication application;
+
+	private WicketFilter filter;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void before() throws Exception
+	{
+		CONSTRUCTED.set(0);
+		CLICKED.set(0);
+
+		application = new MockApplication()
+		{
+			@Override
+			protected void init()
+			{
+				super.init();
+
+				mountPage("/catalog", CatalogPage.class);
+				getPageOutputCache().cache(CatalogPage.class, Duration.hours(1), "category");
+			}
+
+			@Override
+			protected PageOutputCache newPageOutputCache()
+			{
+				return new PageOutputCache()
+				{
+					@Override
+					protected boolean isCacheable(RequestCycle requestCycle)
+					{
+						WebRequest request = (WebRequest)requestCycle.getRequest();
+						return request.getHeader("Authorization") == null &&
+							super.isCacheable(requestCycle);
+					}
+				};
+			}
+		};
+		filter = new WicketFilter();
+		filter.init(new TestFilterConfig());
+	}
+
+	/**
+	 */
+	@After
+	public void after()
+	{
+		filter.destroy();
+		application = null;
+		ThreadContext.detach();
+	}
+
+	/**
+	 * The page is constructed once for the same parameter.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void cached() throws Exception
+	{
+		MockHttpServletResponse first = request("/catalog?category=books", null);
+		assertEquals(HttpServletResponse.SC_OK, first.getStatus());
+		assertTrue(first.getDocument(), first.getDocument().contains(">books</span>"));
+		assertNotNull(first.getHeader("ETag"));
+
+		MockHttpServletResponse second = request("/catalog?category=books&ignored=1", null);
+		assertEquals(HttpServletResponse.SC_OK, second.getStatus());
+		assertEquals(first.getDocument(), second.getDocument());
+		assertEquals(first.getHeader("ETag"), second.getHeader("ETag"));
+		assertEquals(first.getHeader("Content-Type"), second.getHeader("Content-Type"));
+
+		assertEquals(1, CONSTRUCTED.get());
+	}
+
+	/**
+	 * Another value of a cached parameter constructs the page again.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void parameters() throws Exception
+	{
+		request("/catalog?category=books", null);
+		MockHttpServletResponse response = request("/catalog?category=music", null);
+
+		assertTrue(response.getDocument().contains(">music</span>"));
+		assertEquals(2, CONSTRUCTED.get());
+		assertEquals(2, application.getPageOutputCache().getStore().size());
+	}
+
+	/**
+	 * A matching entity tag is answered with 304.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void notModified() throws Exception
+	{
+		String etag = request("/catalog?category=books", null).getHeader("ETag");
+
+		MockHttpServletResponse response = request("/catalog?category=books", etag);
+
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+		assertEquals("", response.getDocument());
+		assertEquals(etag, response.getHeader("ETag"));
+	}
+
+	/**
+	 * Invalidated output is rendered again.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void invalidate() throws Exception
+	{
+		request("/catalog?category=books", null);
+
+		application.getPageOutputCache().invalidate(CatalogPage.class);
+		request("/catalog?category=books", null);
+
+		assertEquals(2, CONSTRUCTED.get());
+	}
+
+	/**
+	 * A listener invocation is neither answered from nor stored in the cache.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void listener() throws Exception
+	{
+		request("/catalog?category=books", null);
+		assertEquals(1, application.getPageOutputCache().getStore().size());
+
+		request("/catalog?-1.ILinkListener-link&category=books", null);
+
+		assertEquals(1, CLICKED.get());
+		assertEquals(2, CONSTRUCTED.get());
+		assertEquals(1, application.getPageOutputCache().getStore().size());
+	}
+
+	/**
+	 * A request with a session id rewritten into the url is neither answered from nor stored in
+	 * the cache.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void urlRewriting() throws Exception
+	{
+		request("/catalog;jsessionid=12345?category=music", null);
+		assertEquals(0, application.getPageOutputCache().getStore().size());
+
+		request("/catalog?category=books", null);
+		MockHttpServletResponse response = request("/catalog;jsessionid=12345?category=books",
+			null);
+
+		assertTrue(response.getDocument().contains(">books</span>"));
+		assertEquals(3, CONSTRUCTED.get());
+		assertEquals(1, application.getPageOutputCache().getStore().size());
+	}
+
+	/**
+	 * Requests excluded by the application are neither answered from nor stored in the cache.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void excluded() throws Exception
+	{
+		request("/catalog?category=books", null, "Basic dXNlcjpwYXNz");
+		assertEquals(0, application.getPageOutputCache().getStore().size());
+
+		request("/catalog?category=books", null);
+		request("/catalog?category=books", null, "Basic dXNlcjpwYXNz");
+
+		assertEquals(3, CONSTRUCTED.get());
+		assertEquals(1, application.getPageOutputCache().getStore().size());
+	}
+
+	private MockHttpServletResponse request(String path, String ifNoneMatch) throws Exception
+	{
+		return request(path, ifNoneMatch, null);
+	}
+
+	private MockHttpServletResponse request(String path, String ifNoneMatch, String authorization)
+		throws Exception
+	{
+		MockHttpServletRequest request = new MockHttpServletRequest(application, null, null);
+		request.setMethod("GET");
+		request.setURL(request.getContextPath() + request.getServletPath() + path);
+		if (ifNoneMatch != null)
+		{
+			request.setHeader("If-None-Match", ifNoneMatch);
+		}
+		if (authorization != null)
+		{
+			request.setHeader("Authorization", authorization);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse(request);
+		filter.doFilter(request, response, new FilterChain()
+		{
+			@Override
+			public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse)
+			{
+			}
+		});
+		return response;
+	}
+
+	/**
+	 */
+	public static class CatalogPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Construct.
+		 * 
+		 * @param parameters
+		 */
+		public CatalogPage(PageParameters parameters)
+		{
+			super(parameters);
+
+			CONSTRUCTED.incrementAndGet();
+
+			add(new Label("category", parameters.get("category").toString()));
+			add(new StatelessLink<Void>("link")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public void onClick()
+				{
+					CLICKED.incrementAndGet();
+				}
+			});
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream(
+				"<html><body><span wicket:id=\"category\"></span><a wicket:id=\"link\"></a></body></html>");
+		}
+	}
+
+	private static class TestFilterConfig implements FilterConfig
+	{
+		private final Map<String, String> initParameters = new HashMap<String, String>();
+
+		private TestFilterConfig()
+		{
+			initParameters.put(WicketFilter.APP_FACT_PARAM, TestApplicationFactory.class.getName());
+			initParameters.put(WicketFilter.FILTER_MAPPING_PARAM, "/servlet/*");
+		}
+
+		@Override
+		public String getFilterName()
+		{
+			return getClass().getName();
+		}
+
+		@Override
+		public ServletContext getServletContext()
+		{
+			return new MockServletContext(null, null);
+		}
+
+		@Override
+		public String getInitParameter(String s)
+		{
+			return initParameters.get(s);
+		}
+
+		@Override
+		public Enumeration<String> getInitParameterNames()
+		{
+			throw new UnsupportedOperationException("Not implemented");
+		}
+	}
+
+	/**
+	 */
+	public static class TestApplicationFactory implements IWebApplicationFactory
+	{
+		@Override
+		public WebApplication createApplication(WicketFilter filter)
+		{
+			return application;
+		}
+
+		@Override
+		public void destroy(WicketFilter filter)
+		{
+		}
+	}
+}
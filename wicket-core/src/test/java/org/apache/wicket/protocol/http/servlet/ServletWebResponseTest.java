@@ -23,6 +23,7 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.Charset;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -33,6 +34,7 @@ import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.UrlRenderer;
 import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.response.EncodedCharSequence;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Matchers;
@@ -214,4 +216,42 @@ public class ServletWebResponseTest extends Assert
 		ServletWebResponse webResponse = new ServletWebResponse(webRequest, httpServletResponse);
 		assertEquals(url + ";foo", webResponse.encodeRedirectURL(url));
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Encoded text switches to the output stream, later text is encoded as it comes.
+	 */
+	@Test
+	public void writeEncodedText()
+	{
+		MockHttpServletRequest httpRequest = new MockHttpServletRequest(null, null, null);
+		ServletWebRequest webRequest = new ServletWebRequest(httpRequest, "");
+		MockHttpServletResponse httpResponse = new MockHttpServletResponse(httpRequest);
+		httpResponse.setCharacterEncoding("UTF-8");
+
+		ServletWebResponse webResponse = new ServletWebResponse(webRequest, httpResponse);
+		webResponse.write(new EncodedCharSequence("<p>\u00e4", Charset.forName("UTF-8")));
+		webResponse.write("\u00f6</p>");
+
+		assertEquals("<p>\u00e4\u00f6</p>", new String(httpResponse.getBinaryContent(),
+			Charset.forName("UTF-8")));
+	}
+
+	/**
+	 * Encoded text in another charset is written to the writer.
+	 */
+	@Test
+	public void writeEncodedTextOtherCharset()
+	{
+		MockHttpServletRequest httpRequest = new MockHttpServletRequest(null, null, null);
+		ServletWebRequest webRequest = new ServletWebRequest(httpRequest, "");
+		MockHttpServletResponse httpResponse = new MockHttpServletResponse(httpRequest);
+		httpResponse.setCharacterEncoding("UTF-8");
+
+		ServletWebResponse webResponse = new ServletWebResponse(webRequest, httpResponse);
+		webResponse.write("<p>");
+		webResponse.write(new EncodedCharSequence("\u00e4</p>", Charset.forName("ISO-8859-1")));
+
+		assertEquals(0, httpResponse.getBinaryContent().length);
+		assertEquals("<p>\u00e4</p>", httpResponse.getDocument());
+	}
+}
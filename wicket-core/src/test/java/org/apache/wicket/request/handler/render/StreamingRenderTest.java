@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.handler.render;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.RestartResponseException;
+import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.html.WebComponent;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.SimplePage;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.settings.RequestCycleSettings.RenderStrategy;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.junit.Test;
+
+/**
+ * Tests for streaming pages with {@link WebPageRenderer}.
+ */
+public class StreamingRenderTest extends WicketTestCase
+{
+	@Override
+	protected WebApplication newApplication()
+	{
+		return new MockApplication()
+		{
+			@Override
+			protected void init()
+			{
+				super.init();
+
+				getRequestCycleSettings().setRenderStrategy(RenderStrategy.ONE_PASS_RENDER)
+					.setStreamingRender(true);
+			}
+
+			@Override
+			public RuntimeConfigurationType getConfigurationType()
+			{
+				// no response filters in deployment mode
+				return RuntimeConfigurationType.DEPLOYMENT;
+			}
+		};
+	}
+
+	/**
+	 * The head is sent before the body is rendered.
+	 */
+	@Test
+	public void headStreamedBeforeBody()
+	{
+		StreamedPage page = tester.startPage(StreamedPage.class);
+
+		assertTrue(page.writtenBeforeBody.contains("alert('head');"));
+		assertTrue(page.writtenBeforeBody.contains("</head>"));
+		assertFalse(page.writtenBeforeBody.contains("<span"));
+
+		String document = tester.getLastResponseAsString();
+		assertTrue(document.contains("</head>"));
+		assertTrue(document.contains("<body><span></span></body>"));
+	}
+
+	/**
+	 * Without streaming nothing is sent before the page is rendered completely.
+	 */
+	@Test
+	public void bufferedWithoutStreaming()
+	{
+		tester.getApplication().getRequestCycleSettings().setStreamingRender(false);
+
+		StreamedPage page = tester.startPage(StreamedPage.class);
+
+		assertFalse(page.writtenBeforeBody.contains("</head>"));
+		assertTrue(tester.getLastResponseAsString().contains("</head>"));
+	}
+
+	/**
+	 * A restart while rendering the head replaces the page.
+	 */
+	@Test
+	public void restartBeforeCommit()
+	{
+		tester.startPage(RestartingPage.class);
+
+		tester.assertRenderedPage(SimplePage.class);
+		assertFalse(tester.getLastResponseAsString().contains("restarting"));
+	}
+
+	/**
+	 */
+	public static class StreamedPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		private String writtenBeforeBody;
+
+		/**
+		 * Construct.
+		 */
+		public StreamedPage()
+		{
+			add(new WebComponent("body")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void onComponentTag(ComponentTag tag)
+				{
+					super.onComponentTag(tag);
+
+					HttpServletResponse response = (HttpServletResponse)getResponse().getContainerResponse();
+					writtenBeforeBody = ((MockHttpServletResponse)response).getDocument();
+				}
+			});
+		}
+
+		@Override
+		public void renderHead(IHeaderResponse response)
+		{
+			response.render(JavaScriptHeaderItem.forScript("alert('head');", "head"));
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream(
+				"<html><head></head><body><span wicket:id=\"body\"></span></body></html>");
+		}
+	}
+
+	/**
+	 */
+	public static class RestartingPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void renderHead(IHeaderResponse response)
+		{
+			throw new RestartResponseException(SimplePage.class);
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><head></head><body>restarting</body></html>");
+		}
+	}
+}
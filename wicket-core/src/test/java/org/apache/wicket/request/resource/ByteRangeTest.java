@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ByteRange}
+ */
+public class ByteRangeTest extends Assert
+{
+	/**
+	 * Valid range headers
+	 */
+	@Test
+	public void parse()
+	{
+		assertEquals("[0-499]", String.valueOf(ByteRange.parse("bytes=0-499")));
+		assertEquals("[500-, -200, 3-3]", String.valueOf(ByteRange.parse("bytes=500-, -200 ,3-3")));
+		assertEquals("[0-1]", String.valueOf(ByteRange.parse("Bytes = 0-1,")));
+	}
+
+	/**
+	 * Invalid range headers are ignored
+	 */
+	@Test
+	public void parseInvalid()
+	{
+		assertNull(ByteRange.parse(null));
+		assertNull(ByteRange.parse("items=0-1"));
+		assertNull(ByteRange.parse("bytes=-"));
+		assertNull(ByteRange.parse("bytes=5-4"));
+		assertNull(ByteRange.parse("bytes=a-b"));
+		assertNull(ByteRange.parse("bytes=0-1,2"));
+		assertNull(ByteRange.parse("bytes="));
+	}
+
+	/**
+	 * Ranges are clipped, sorted and coalesced
+	 */
+	@Test
+	public void resolve()
+	{
+		assertEquals(Arrays.asList(new ByteRange(0, 99)), resolve("bytes=0-", 100));
+		assertEquals(Arrays.asList(new ByteRange(90, 99)), resolve("bytes=90-1000", 100));
+		assertEquals(Arrays.asList(new ByteRange(0, 99)), resolve("bytes=-1000", 100));
+		assertEquals(Arrays.asList(new ByteRange(0, 9), new ByteRange(80, 99)),
+			resolve("bytes=-20,0-9", 100));
+		assertEquals(Arrays.asList(new ByteRange(0, 29)), resolve("bytes=10-29,0-10", 100));
+		assertEquals(Arrays.asList(new ByteRange(0, 19)), resolve("bytes=0-9,10-19", 100));
+		assertEquals(Arrays.asList(new ByteRange(5, 5)), resolve("bytes=100-,5-5", 100));
+	}
+
+	/**
+	 * Unsatisfiable ranges
+	 */
+	@Test
+	public void resolveUnsatisfiable()
+	{
+		assertEquals(Collections.emptyList(), resolve("bytes=100-", 100));
+		assertEquals(Collections.emptyList(), resolve("bytes=-0", 100));
+		assertEquals(Collections.emptyList(), resolve("bytes=0-", 0));
+	}
+
+	/**
+	 * The content range header value
+	 */
+	@Test
+	public void contentRange()
+	{
+		assertEquals("bytes 10-19/100", new ByteRange(10, 19).toContentRange(100));
+		assertEquals(10, new ByteRange(10, 19).getLength());
+	}
+
+	private static List<ByteRange> resolve(String header, long length)
+	{
+		return ByteRange.resolve(ByteRange.parse(header), length);
+	}
+}
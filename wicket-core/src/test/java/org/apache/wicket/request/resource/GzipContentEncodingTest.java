@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.util.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Tests for the gzip content encoding of static resources
+ */
+public class GzipContentEncodingTest extends WicketTestCase
+{
+	/**
+	 * Compressible resources are gzip encoded for clients accepting it
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void gzipEncoded() throws IOException
+	{
+		PackageResource resource = new PackageResource(GzipContentEncodingTest.class,
+			"resource_gt_4096.txt", null, null, null)
+		{
+			private static final long serialVersionUID = 1L;
+		};
+		byte[] original = read(GzipContentEncodingTest.class.getResourceAsStream(
+			"resource_gt_4096.txt"));
+
+		tester.getRequest().setHeader("Accept-Encoding", "deflate, gzip");
+		tester.startResource(resource);
+
+		assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", tester.getLastResponse().getHeader("Vary"));
+		byte[] body = tester.getLastResponse().getBinaryContent();
+		assertTrue(body.length < original.length);
+		assertEquals(String.valueOf(body.length),
+			tester.getLastResponse().getHeader("Content-Length"));
+		assertArrayEquals(original, read(new GZIPInputStream(new ByteArrayInputStream(body))));
+
+		// the encoded bytes are cached
+		tester.getRequest().setHeader("Accept-Encoding", "gzip");
+		tester.startResource(resource);
+		assertArrayEquals(body, tester.getLastResponse().getBinaryContent());
+	}
+
+	/**
+	 * Clients not accepting gzip get the plain resource
+	 */
+	@Test
+	public void notAccepted()
+	{
+		PackageResource resource = new PackageResource(GzipContentEncodingTest.class,
+			"resource_gt_4096.txt", null, null, null)
+		{
+			private static final long serialVersionUID = 1L;
+		};
+
+		tester.getRequest().setHeader("Accept-Encoding", "gzip;q=0, deflate");
+		tester.startResource(resource);
+
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", tester.getLastResponse().getHeader("Vary"));
+		assertTrue(tester.getLastResponseAsString().startsWith("HTTP Server"));
+	}
+
+	/**
+	 * A precompressed <code>.gz</code> sibling is sent as is
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void precompressedSibling() throws IOException
+	{
+		PackageResource resource = new PackageResource(GzipContentEncodingTest.class,
+			"precompressed.css", null, null, null)
+		{
+			private static final long serialVersionUID = 1L;
+		};
+		byte[] precompressed = read(GzipContentEncodingTest.class.getResourceAsStream(
+			"precompressed.css.gz"));
+
+		tester.getRequest().setHeader("Accept-Encoding", "*");
+		tester.startResource(resource);
+
+		assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+		assertArrayEquals(precompressed, tester.getLastResponse().getBinaryContent());
+	}
+
+	/**
+	 * Gzip encoding can be switched off
+	 */
+	@Test
+	public void disabled()
+	{
+		tester.getApplication().getResourceSettings().setGzipContentEncoding(false);
+		PackageResource resource = new PackageResource(GzipContentEncodingTest.class,
+			"resource_gt_4096.txt", null, null, null)
+		{
+			private static final long serialVersionUID = 1L;
+		};
+
+		tester.getRequest().setHeader("Accept-Encoding", "gzip");
+		tester.startResource(resource);
+
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertNull(tester.getLastResponse().getHeader("Vary"));
+	}
+
+	private static byte[] read(InputStream inputStream) throws IOException
+	{
+		try
+		{
+			return IOUtils.toByteArray(inputStream);
+		}
+		finally
+		{
+			IOUtils.closeQuietly(inputStream);
+		}
+	}
+}
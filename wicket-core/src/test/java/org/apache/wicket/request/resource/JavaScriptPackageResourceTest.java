@@ -127,6 +127,39 @@ public class JavaScriptPackageResourceTest extends WicketTestCase
 		assertEquals(IOUtils.toString(cacheableStream), IOUtils.toString(stream));
 	}
 
+	/**
+	 * The processed bytes are cached, so the resource is compressed only once
+	 */
+	@Test
+	public void processedBytesAreCached()
+	{
+		final int[] compressed = new int[1];
+		tester.getApplication().getResourceSettings().setJavaScriptCompressor(
+			new IJavaScriptCompressor()
+			{
+				@Override
+				public String compress(String original)
+				{
+					compressed[0]++;
+					return APP_COMPRESSED;
+				}
+			});
+		IProcessedResourceCache cache = tester.getApplication()
+			.getResourceSettings()
+			.getProcessedResourceCache();
+		cache.clear();
+
+		JavaScriptPackageResource resource = new JavaScriptPackageResource(
+			PackageResourceTest.class, "packaged1.txt", null, null, null);
+		tester.startResource(resource);
+		assertEquals(APP_COMPRESSED, tester.getLastResponseAsString());
+		tester.startResource(resource);
+		assertEquals(APP_COMPRESSED, tester.getLastResponseAsString());
+
+		assertEquals(1, compressed[0]);
+		assertEquals(1, cache.size());
+	}
+
 	/**
 	 * Tests that a {@link JavaScriptPackageResource} can use the application level
 	 * {@link IJavaScriptCompressor} when there is no custom
@@ -16,21 +16,24 @@
  */
 package org.apache.wicket.request.resource;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Locale;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.WicketTestCase;
-import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
 import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
 import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Response;
+import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.resource.AbstractResource.ContentRangeType;
 import org.apache.wicket.request.resource.IResource.Attributes;
 import org.apache.wicket.request.resource.ResourceReference.UrlAttributes;
 import org.apache.wicket.response.ByteArrayResponse;
 import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Bytes;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -253,12 +256,142 @@ public class PackageResourceReferenceTest extends WicketTestCase
 	public void testContentRange()
 	{
 		// Test range
-		Assert.assertEquals("resource", makeRangeRequest("bytes=0-8"));
-		Assert.assertEquals("ource", makeRangeRequest("bytes=3-8"));
+		Assert.assertEquals("resource_", makeRangeRequest("bytes=0-8"));
+		Assert.assertEquals("ource_", makeRangeRequest("bytes=3-8"));
 		Assert.assertEquals("resource_var_style_en.txt", makeRangeRequest("bytes=0-"));
 		Assert.assertEquals("var_style_en.txt", makeRangeRequest("bytes=9-"));
 		Assert.assertEquals("resource_var_style_en.txt", makeRangeRequest("bytes=-"));
 		Assert.assertEquals("resource_var_style_en.txt", makeRangeRequest("bytes=-25"));
+		Assert.assertEquals("en.txt", makeRangeRequest("bytes=-6"));
+		Assert.assertEquals(206, tester.getLastResponse().getStatus());
+		Assert.assertEquals("bytes 19-24/25", tester.getLastResponse().getHeader("Content-Range"));
+	}
+
+	/**
+	 * Several ranges are sent as multipart/byteranges
+	 */
+	@Test
+	public void testMultipleContentRanges()
+	{
+		String body = makeRangeRequest("bytes=0-7,-6,9-11");
+
+		MockHttpServletResponse response = tester.getLastResponse();
+		Assert.assertEquals(206, response.getStatus());
+		String contentType = response.getContentType();
+		Assert.assertTrue(contentType, contentType.startsWith("multipart/byteranges; boundary="));
+		String boundary = contentType.substring(contentType.indexOf('=') + 1);
+
+		Assert.assertEquals("\r\n--" + boundary + "\r\n" +
+			"Content-Type: text/plain\r\n" +
+			"Content-Range: bytes 0-7/25\r\n\r\n" +
+			"resource" +
+			"\r\n--" + boundary + "\r\n" +
+			"Content-Type: text/plain\r\n" +
+			"Content-Range: bytes 9-11/25\r\n\r\n" +
+			"var" +
+			"\r\n--" + boundary + "\r\n" +
+			"Content-Type: text/plain\r\n" +
+			"Content-Range: bytes 19-24/25\r\n\r\n" +
+			"en.txt" +
+			"\r\n--" + boundary + "--\r\n", body);
+
+		// overlapping ranges are coalesced
+		Assert.assertEquals("resource_var", makeRangeRequest("bytes=4-11,0-5"));
+		Assert.assertEquals("bytes 0-11/25", tester.getLastResponse().getHeader("Content-Range"));
+	}
+
+	/**
+	 * Unsatisfiable ranges are answered with 416, If-Range falls back to the complete resource
+	 */
+	@Test
+	public void testContentRangeConditions()
+	{
+		Assert.assertEquals("", makeRangeRequest("bytes=25-"));
+		Assert.assertEquals(416, tester.getLastResponse().getStatus());
+		Assert.assertEquals("bytes */25", tester.getLastResponse().getHeader("Content-Range"));
+
+		tester.getRequest().setHeader("If-Range", "\"outdated\"");
+		Assert.assertEquals("resource_var_style_en.txt", makeRangeRequest("bytes=0-7"));
+		Assert.assertEquals(200, tester.getLastResponse().getStatus());
+
+		// a date that does not match the last modification
+		tester.getRequest().setHeader("If-Range", "Thu, 01 Jan 1970 00:00:00 GMT");
+		Assert.assertEquals("resource_var_style_en.txt", makeRangeRequest("bytes=0-7"));
+
+		// the filtered ranges of a resource with an entity tag
+		ByteArrayResource resource = new ByteArrayResource("text/plain", "0123456789".getBytes())
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void configureResponse(ResourceResponse response, Attributes attributes)
+			{
+				response.getHeaders().addHeader("ETag", "\"v1\"");
+			}
+		};
+		tester.getRequest().setHeader("If-Range", "\"v1\"");
+		Assert.assertEquals("234", makeRangeRequest(resource, "bytes=2-4"));
+		Assert.assertEquals(206, tester.getLastResponse().getStatus());
+
+		tester.getRequest().setHeader("If-Range", "\"v0\"");
+		Assert.assertEquals("0123456789", makeRangeRequest(resource, "bytes=2-4"));
+		Assert.assertEquals(200, tester.getLastResponse().getStatus());
+	}
+
+	/**
+	 * A write callback that applied the range published by older versions writes the complete
+	 * resource, since the range is no longer published
+	 */
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testContentRangeLegacyCallback()
+	{
+		final byte[] data = "0123456789".getBytes();
+		AbstractResource resource = new AbstractResource()
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected ResourceResponse newResourceResponse(Attributes attributes)
+			{
+				ResourceResponse response = new ResourceResponse();
+				response.setContentType("text/plain");
+				response.setContentLength(data.length);
+				response.setAcceptRange(ContentRangeType.BYTES);
+				response.setWriteCallback(new PartWriterCallback(new ByteArrayInputStream(data),
+					(long)data.length, RequestCycle.get().getMetaData(CONTENT_RANGE_STARTBYTE),
+					RequestCycle.get().getMetaData(CONTENT_RANGE_ENDBYTE)));
+				return response;
+			}
+		};
+
+		Assert.assertEquals("234", makeRangeRequest(resource, "bytes=2-4"));
+		Assert.assertEquals("bytes 2-4/10", tester.getLastResponse().getHeader("Content-Range"));
+	}
+
+	/**
+	 * The end byte of a part writer callback is inclusive
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testPartWriterCallbackRange() throws IOException
+	{
+		byte[] data = "0123456789".getBytes();
+		Request request = tester.getRequestCycle().getRequest();
+		for (InputStream stream : new InputStream[] { new ByteArrayInputStream(data),
+				new MappedInputStream(ByteBuffer.wrap(data)) })
+		{
+			ByteArrayResponse response = new ByteArrayResponse();
+			new PartWriterCallback(stream, (long)data.length, 2L, 4L).writeData(new Attributes(
+				request, response));
+			Assert.assertEquals("234", new String(response.getBytes()));
+		}
+
+		ByteArrayResponse response = new ByteArrayResponse();
+		new PartWriterCallback(new ByteArrayInputStream(data), (long)data.length, 7L, null)
+			.writeData(new Attributes(request, response));
+		Assert.assertEquals("789", new String(response.getBytes()));
 	}
 
 	private String makeRangeRequest(String range)
@@ -266,14 +399,14 @@ public class PackageResourceReferenceTest extends WicketTestCase
 		ResourceReference reference = new PackageResourceReference(scope, "resource.txt",
 			locales[1], styles[1], variations[1]);
 
-		ByteArrayResponse byteResponse = new ByteArrayResponse();
+		return makeRangeRequest(reference.getResource(), range);
+	}
 
-		Request request = tester.getRequestCycle().getRequest();
-		MockHttpServletRequest mockHttpServletRequest = (MockHttpServletRequest)request.getContainerRequest();
-		mockHttpServletRequest.setHeader("range", range);
-		Attributes mockAttributes = new Attributes(request, byteResponse);
-		reference.getResource().respond(mockAttributes);
-		return new String(byteResponse.getBytes());
+	private String makeRangeRequest(IResource resource, String range)
+	{
+		tester.getRequest().setHeader("range", range);
+		tester.startResource(resource);
+		return new String(tester.getLastResponse().getBinaryContent());
 	}
 
 	/**
@@ -292,13 +425,13 @@ public class PackageResourceReferenceTest extends WicketTestCase
 
 			// Check buffer comprehensive range request
 			String bytes4094_4106 = makeRangeRequestToBigResource("bytes=4094-4106");
-			assertEquals(12, bytes4094_4106.length());
-			assertEquals("River Roller", bytes4094_4106);
+			assertEquals(13, bytes4094_4106.length());
+			assertEquals("River Roller ", bytes4094_4106);
 
 			// Check buffer exceeding range request
 			String bytes1000_5000 = makeRangeRequestToBigResource("bytes=1000-5000");
-			assertEquals(4000, bytes1000_5000.length());
-			assertEquals(content.substring(1000, 5000), bytes1000_5000);
+			assertEquals(4001, bytes1000_5000.length());
+			assertEquals(content.substring(1000, 5001), bytes1000_5000);
 
 			// Check buffer exceeding range request until end of content
 			String bytes1000_end = makeRangeRequestToBigResource("bytes=1000-");
@@ -314,19 +447,62 @@ public class PackageResourceReferenceTest extends WicketTestCase
 		}
 	}
 
+	/**
+	 * Ranges of resources that are not read buffered are read at their position, from the file
+	 * channel or a shared mapping
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testContentRangeNotReadBuffered() throws IOException
+	{
+		InputStream resourceAsStream = null;
+		try
+		{
+			resourceAsStream = PackageResourceReference.class.getResourceAsStream("resource_gt_4096.txt");
+			String content = new String(IOUtils.toByteArray(resourceAsStream));
+
+			MappedFileCache mappedFileCache = new MappedFileCache(Bytes.bytes(1),
+				Bytes.megabytes(1));
+			for (int i = 0; i < 2; i++)
+			{
+				assertEquals("River Roller ",
+					makeRangeRequestToBigResource("bytes=4094-4106", false));
+				assertEquals(content.substring(1000, 5001),
+					makeRangeRequestToBigResource("bytes=1000-5000", false));
+				assertEquals(content.substring(1000),
+					makeRangeRequestToBigResource("bytes=1000-", false));
+				String multipart = makeRangeRequestToBigResource("bytes=5000-5001,0-2", false);
+				assertEquals(content.substring(0, 3) + content.substring(5000, 5002),
+					removeMultipartHeaders(multipart));
+				assertEquals(content, makeRangeRequestToBigResource("bytes=-", false));
+
+				tester.getApplication().getResourceSettings().setMappedFileCache(mappedFileCache);
+			}
+			assertEquals(1, mappedFileCache.size());
+		}
+		finally
+		{
+			IOUtils.closeQuietly(resourceAsStream);
+		}
+	}
+
+	private static String removeMultipartHeaders(String body)
+	{
+		return body.replaceAll("\r\n--[0-9a-f]+(--)?\r\n(([^\r]+)\r\n)*(\r\n)?", "");
+	}
+
 	private String makeRangeRequestToBigResource(String range)
 	{
-		ResourceReference reference = new PackageResourceReference(scope, "resource_gt_4096.txt",
-			null, null, null);
+		return makeRangeRequestToBigResource(range, true);
+	}
 
-		ByteArrayResponse byteResponse = new ByteArrayResponse();
+	private String makeRangeRequestToBigResource(String range, boolean readBuffered)
+	{
+		PackageResourceReference reference = new PackageResourceReference(scope,
+			"resource_gt_4096.txt", null, null, null);
 
-		Request request = tester.getRequestCycle().getRequest();
-		MockHttpServletRequest mockHttpServletRequest = (MockHttpServletRequest)request.getContainerRequest();
-		mockHttpServletRequest.setHeader("range", range);
-		Attributes mockAttributes = new Attributes(request, byteResponse);
-		reference.getResource().respond(mockAttributes);
-		return new String(byteResponse.getBytes());
+		return makeRangeRequest(reference.getResource().readBuffered(readBuffered), range);
 	}
 
 	/**
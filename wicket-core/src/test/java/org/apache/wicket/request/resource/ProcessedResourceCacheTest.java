@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ProcessedResourceCache}
+ */
+public class ProcessedResourceCacheTest extends Assert
+{
+	/**
+	 * The least recently used entries are evicted when the maximum size is exceeded
+	 */
+	@Test
+	public void maxSize()
+	{
+		ProcessedResourceCache cache = new ProcessedResourceCache(Bytes.bytes(10));
+
+		cache.put(key("a.js", "1"), new byte[4]);
+		cache.put(key("b.js", "1"), new byte[4]);
+		assertNotNull(cache.get(key("a.js", "1")));
+
+		cache.put(key("c.js", "1"), new byte[4]);
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get(key("a.js", "1")));
+		assertNull(cache.get(key("b.js", "1")));
+
+		cache.put(key("d.js", "1"), new byte[11]);
+		assertNull(cache.get(key("d.js", "1")));
+		assertEquals(2, cache.size());
+	}
+
+	/**
+	 * All versions of a resource are removed on invalidation
+	 */
+	@Test
+	public void invalidate()
+	{
+		ProcessedResourceCache cache = new ProcessedResourceCache(Bytes.kilobytes(1));
+
+		cache.put(key("a.js", "1"), new byte[1]);
+		cache.put(key("a.js", "2"), new byte[1]);
+		cache.put(key("b.js", "1"), new byte[1]);
+		assertNull(cache.get(key("a.js", "3")));
+
+		cache.invalidate("org.example.Scope", "org/example/a.js");
+		assertEquals(1, cache.size());
+		assertNotNull(cache.get(key("b.js", "1")));
+	}
+
+	private static ProcessedResourceKey key(String name, String version)
+	{
+		return new ProcessedResourceKey(PackageResource.class.getName(), "org.example.Scope",
+			"org/example/" + name, null, null, null, version, true);
+	}
+}
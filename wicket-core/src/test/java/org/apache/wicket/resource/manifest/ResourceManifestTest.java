@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.resource.manifest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.util.Collections;
+
+import org.apache.wicket.request.resource.caching.IStaticCacheableResource;
+import org.apache.wicket.request.resource.caching.version.StaticResourceVersion;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.resource.FileResourceStream;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.string.Strings;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ResourceManifest}, {@link ResourceManifestBuilder} and
+ * {@link ManifestResourceVersion}
+ */
+public class ResourceManifestTest extends Assert
+{
+	private File root;
+
+	private File script;
+
+	/**
+	 * @throws IOException
+	 */
+	@Before
+	public void before() throws IOException
+	{
+		root = java.nio.file.Files.createTempDirectory("resource-manifest").toFile();
+
+		File directory = new File(root, "org/example");
+		directory.mkdirs();
+
+		StringBuilder javaScript = new StringBuilder();
+		for (int i = 0; i < 50; i++)
+		{
+			javaScript.append("// function number ").append(i).append('\n');
+			javaScript.append("function f").append(i).append("() { return ").append(i).append(
+				"; }\n");
+		}
+		script = new File(directory, "script.js");
+		write(script, javaScript.toString());
+		write(new File(directory, "Page.class"), "not indexed");
+		write(new File(directory, "tiny.css"), "a{}");
+	}
+
+	/**
+	 */
+	@After
+	public void after()
+	{
+		Files.removeFolder(root);
+	}
+
+	/**
+	 * The builder writes the variants and hashes all resources
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void build() throws Exception
+	{
+		ResourceManifest manifest = new ResourceManifestBuilder(root).setMinify(true)
+			.setGzip(true)
+			.build();
+
+		File directory = script.getParentFile();
+		assertTrue(new File(directory, "script.min.js").exists());
+		assertTrue(new File(directory, "script.js.gz").exists());
+		assertTrue(new File(directory, "script.min.js.gz").exists());
+		// compressing does not make it smaller
+		assertFalse(new File(directory, "tiny.css.gz").exists());
+
+		assertEquals(Strings.toHexString(MessageDigest.getInstance("MD5").digest(
+			java.nio.file.Files.readAllBytes(script.toPath()))),
+			manifest.getVersion("org/example/script.js"));
+		assertNotNull(manifest.getVersion("org/example/script.min.js"));
+		assertNotNull(manifest.getVersion("org/example/script.js.gz"));
+		assertNull(manifest.getVersion("org/example/Page.class"));
+		assertEquals(5, manifest.getPaths().size());
+
+		// the written manifest is read back
+		File written = new File(root, ResourceManifest.LOCATION);
+		ResourceManifest loaded = ResourceManifest.load(Collections.singleton(
+			written.toURI().toURL()).iterator());
+		assertEquals(manifest.getPaths(), loaded.getPaths());
+		assertEquals(manifest.getVersion("org/example/script.js"),
+			loaded.getVersion("org/example/script.js"));
+	}
+
+	/**
+	 * Paths are found for the locations of resources in jars and class folders
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void findPath() throws Exception
+	{
+		ResourceManifest manifest = new ResourceManifestBuilder(root).build();
+
+		assertEquals("org/example/script.js",
+			manifest.findPath("jar:file:/lib/example.jar!/org/example/script.js"));
+		assertNull(manifest.findPath("jar:file:/lib/example.jar!/com/org/example/script.js"));
+		assertEquals("org/example/script.js", manifest.findPath(script.getAbsolutePath()));
+		assertNull(manifest.findPath(new File(root, "org/example/other.js").getAbsolutePath()));
+
+		assertTrue(manifest.isMissing("org/example/script_de.js"));
+		assertFalse(manifest.isMissing("org/example/script.js"));
+		assertFalse(manifest.isMissing("org/other/script.js"));
+	}
+
+	/**
+	 * Versions are taken from the manifest, the delegate provides the others
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void version() throws Exception
+	{
+		ResourceManifest manifest = new ResourceManifestBuilder(root).build();
+		ManifestResourceVersion version = new ManifestResourceVersion(manifest,
+			new StaticResourceVersion("static"));
+
+		assertEquals(manifest.getVersion("org/example/script.js"),
+			version.getVersion(new FileResource(script)));
+
+		File other = new File(root.getParentFile(), "other.js");
+		assertEquals("static", version.getVersion(new FileResource(other)));
+
+		assertTrue(version.getVersionPattern()
+			.matcher(manifest.getVersion("org/example/script.js"))
+			.matches());
+		assertTrue(version.getVersionPattern().matcher("static").matches());
+	}
+
+	private static void write(File file, String content) throws IOException
+	{
+		java.nio.file.Files.write(file.toPath(), content.getBytes("UTF-8"));
+	}
+
+	private static class FileResource implements IStaticCacheableResource
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final File file;
+
+		private FileResource(File file)
+		{
+			this.file = file;
+		}
+
+		@Override
+		public void respond(Attributes attributes)
+		{
+		}
+
+		@Override
+		public boolean isCachingEnabled()
+		{
+			return true;
+		}
+
+		@Override
+		public Serializable getCacheKey()
+		{
+			return file;
+		}
+
+		@Override
+		public IResourceStream getCacheableResourceStream()
+		{
+			return new FileResourceStream(file);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.Serializable;
+
+import org.apache.wicket.MockPageWithLinkAndComponent;
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.markup.html.WebComponent;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.model.Model;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CompactJavaSerializer}
+ */
+public class CompactJavaSerializerTest extends WicketTestCase
+{
+	/**
+	 * A page survives the round trip and is smaller than with {@link JavaSerializer}
+	 */
+	@Test
+	public void roundTrip()
+	{
+		MockPageWithLinkAndComponent page = new MockPageWithLinkAndComponent();
+		page.add(new Label("component", Model.of("label")));
+
+		CompactJavaSerializer serializer = new CompactJavaSerializer("CompactJavaSerializerTest");
+		byte[] compact = serializer.serialize(page);
+		byte[] java = new JavaSerializer("CompactJavaSerializerTest").serialize(page);
+		assertTrue(compact.length < java.length);
+
+		MockPageWithLinkAndComponent copy = (MockPageWithLinkAndComponent)serializer.deserialize(compact);
+		assertEquals(page.getPageId(), copy.getPageId());
+		assertEquals("label", copy.get("component").getDefaultModelObject());
+	}
+
+	/**
+	 * Registered application classes are written as ids
+	 */
+	@Test
+	public void registeredClasses()
+	{
+		Bean bean = new Bean();
+		bean.value = 42;
+
+		CompactJavaSerializer serializer = new CompactJavaSerializer("CompactJavaSerializerTest");
+		int unregistered = serializer.serialize(bean).length;
+
+		serializer.register(Bean.class);
+		byte[] registered = serializer.serialize(bean);
+		assertTrue(registered.length < unregistered);
+		assertEquals(42, ((Bean)serializer.deserialize(registered)).value);
+	}
+
+	/**
+	 * Either mode reads the data written by the other one
+	 */
+	@Test
+	public void compatibilityMode()
+	{
+		CompactJavaSerializer compact = new CompactJavaSerializer("CompactJavaSerializerTest");
+		CompactJavaSerializer compatible = new CompactJavaSerializer("CompactJavaSerializerTest",
+			true);
+
+		ListView<String> listView = new EmptyListView("list");
+		byte[] data = compatible.serialize(listView);
+		assertEquals("list", ((ListView<?>)compact.deserialize(data)).getId());
+
+		data = compact.serialize(listView);
+		assertEquals("list", ((ListView<?>)compatible.deserialize(data)).getId());
+	}
+
+	/**
+	 * The produced byte[] is null if some object is not serializable
+	 */
+	@Test
+	public void notSerializable()
+	{
+		CompactJavaSerializer serializer = new CompactJavaSerializer("CompactJavaSerializerTest");
+		WebComponent component = new WebComponent("id", Model.of(new NotSerializableObject()));
+		assertNull(serializer.serialize(component));
+	}
+
+	private static class EmptyListView extends ListView<String>
+	{
+		private EmptyListView(String id)
+		{
+			super(id);
+		}
+
+		@Override
+		protected void populateItem(ListItem<String> item)
+		{
+		}
+	}
+
+	private static class Bean implements Serializable
+	{
+		private int value;
+	}
+
+	private static class NotSerializableObject implements Serializable
+	{
+		@SuppressWarnings("unused")
+		private final Object member = new Object();
+	}
+}
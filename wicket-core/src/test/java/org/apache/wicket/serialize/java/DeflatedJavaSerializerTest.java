@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.wicket.serialize.java.DeflatedJavaSerializer.Codec;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DeflatedJavaSerializer}
+ */
+public class DeflatedJavaSerializerTest extends Assert
+{
+	private static ArrayList<String> createLargeObject()
+	{
+		ArrayList<String> list = new ArrayList<>();
+		for (int i = 0; i < 50000; i++)
+		{
+			list.add("item-" + i);
+		}
+		return list;
+	}
+
+	/**
+	 * Objects survive the round trip with all codecs, with and without parallel compression
+	 */
+	@Test
+	public void roundTrip()
+	{
+		ArrayList<String> large = createLargeObject();
+
+		for (Codec codec : Codec.values())
+		{
+			for (int threads : new int[] { 0, 2 })
+			{
+				DeflatedJavaSerializer serializer = new DeflatedJavaSerializer("DeflatedJavaSerializerTest");
+				serializer.setCodec(codec).setParallelism(threads);
+
+				byte[] data = serializer.serialize(large);
+				assertEquals(large, serializer.deserialize(data));
+
+				data = serializer.serialize("small");
+				assertEquals("small", serializer.deserialize(data));
+
+				serializer.setParallelism(0);
+			}
+		}
+	}
+
+	/**
+	 * A custom deflater is not used for the blocks of another codec, even after the codec has
+	 * been changed
+	 */
+	@Test
+	public void customDeflater()
+	{
+		DeflatedJavaSerializer serializer = new DeflatedJavaSerializer("DeflatedJavaSerializerTest")
+		{
+			@Override
+			protected Deflater createDeflater()
+			{
+				return new Deflater(Deflater.BEST_COMPRESSION);
+			}
+		};
+		ArrayList<String> large = createLargeObject();
+
+		byte[] data = serializer.serialize(large);
+		assertEquals(large, serializer.deserialize(data));
+
+		serializer.setCodec(Codec.DEFLATE_RAW);
+		data = serializer.serialize(large);
+		assertEquals(large, serializer.deserialize(data));
+
+		serializer.setCodec(Codec.DEFLATE);
+		data = serializer.serialize(large);
+		assertEquals(large, serializer.deserialize(data));
+	}
+
+	/**
+	 * The compression statistics are collected
+	 */
+	@Test
+	public void statistics()
+	{
+		DeflatedJavaSerializer serializer = new DeflatedJavaSerializer("DeflatedJavaSerializerTest");
+		serializer.setCompressionLevel(Deflater.BEST_COMPRESSION);
+
+		byte[] data = serializer.serialize(createLargeObject());
+		assertNotNull(data);
+		assertTrue(serializer.getCompressionRatio() > 2);
+		assertTrue(serializer.getCompressionTime() > 0);
+	}
+
+	/**
+	 * Data written as a single zlib stream by older versions can still be read
+	 */
+	@Test
+	public void legacyFormat()
+	{
+		JavaSerializer legacy = new JavaSerializer("DeflatedJavaSerializerTest")
+		{
+			@Override
+			protected ObjectOutputStream newObjectOutputStream(OutputStream out) throws IOException
+			{
+				return super.newObjectOutputStream(new DeflaterOutputStream(out, new Deflater(
+					Deflater.BEST_SPEED), 4 * 1024));
+			}
+		};
+
+		ArrayList<String> large = createLargeObject();
+		byte[] data = legacy.serialize(large);
+
+		DeflatedJavaSerializer serializer = new DeflatedJavaSerializer("DeflatedJavaSerializerTest");
+		assertEquals(large, serializer.deserialize(data));
+	}
+}
@@ -17,6 +17,7 @@
 package org.apache.wicket.util.io;
 
 import java.io.BufferedReader;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -24,6 +25,9 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Properties;
 
 import org.apache.wicket.util.lang.Args;
@@ -112,6 +116,55 @@ public final class Streams
 		return bytesCopied;
 	}
 
+	/**
+	 * Writes a region of the file channel to the output stream with
+	 * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, so the region is read at its
+	 * position instead of skipping to it. The position of the channel is not changed.
+	 * <p>
+	 * The transfer is only done without copying the bytes through user space if the output stream
+	 * is a {@link FileOutputStream}. Any other stream, e.g. the output stream of a servlet
+	 * response, is wrapped with {@link Channels#newChannel(OutputStream)}, and the bytes are copied
+	 * through a buffer just like {@link #copy(InputStream, OutputStream)} does.
+	 * 
+	 * @param channel
+	 *            The file channel
+	 * @param position
+	 *            The position of the region in the file
+	 * @param count
+	 *            The maximum number of bytes to write
+	 * @param out
+	 *            The output stream
+	 * @return Number of bytes copied, less than count if the end of the file was reached
+	 * @throws IOException
+	 */
+	public static long copy(final FileChannel channel, final long position, final long count,
+		final OutputStream out) throws IOException
+	{
+		final WritableByteChannel target;
+		if (out instanceof FileOutputStream)
+		{
+			target = ((FileOutputStream)out).getChannel();
+		}
+		else
+		{
+			// not closed, it would close the output stream
+			target = Channels.newChannel(out);
+		}
+
+		long bytesCopied = 0;
+		while (bytesCopied < count)
+		{
+			long byteCount = channel.transferTo(position + bytesCopied, count - bytesCopied,
+				target);
+			if (byteCount <= 0)
+			{
+				break;
+			}
+			bytesCopied += byteCount;
+		}
+		return bytesCopied;
+	}
+
 	/**
 	 * Loads properties from an XML input stream into the provided properties object.
 	 * 
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.visit;
+
+/**
+ * An {@link Iterable} whose elements can also be accessed by position. {@link Visits} uses
+ * positional access for such containers as long as {@link #isIndexed()} returns {@code true}, so
+ * traversing them does not create an {@link java.util.Iterator} per container.
+ * 
+ * @param <T>
+ *            type of the elements
+ */
+public interface IIndexedIterable<T> extends Iterable<T>
+{
+	/**
+	 * @return the number of elements
+	 */
+	int size();
+
+	/**
+	 * @param index
+	 *            position of the element
+	 * @return the element at the given position
+	 */
+	T get(int index);
+
+	/**
+	 * @return {@code true} if {@link #size()} and {@link #get(int)} give access to the same
+	 *         elements in the same order as {@link #iterator()}, {@code false} to have traversals
+	 *         use the iterator
+	 */
+	boolean isIndexed();
+}
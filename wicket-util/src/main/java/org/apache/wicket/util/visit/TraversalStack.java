@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.visit;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Explicit stack of the containers a traversal is currently descending through, together with the
+ * position reached in each of them. Containers implementing {@link IIndexedIterable} are traversed
+ * by position if they are {@link IIndexedIterable#isIndexed() indexed}, so no iterator is created
+ * for them; any other {@link Iterable} gets its iterator kept on the stack.
+ * <p>
+ * Positional traversal tolerates the container being modified while its children are visited: if
+ * the child returned last is no longer at its position, the position is moved back in line with it.
+ */
+final class TraversalStack
+{
+	/** Returned by {@link #next()} when the container on top of the stack has no more children */
+	static final Object END = new Object();
+
+	private static final int INITIAL_DEPTH = 16;
+
+	private Object[] nodes = new Object[INITIAL_DEPTH];
+
+	private Iterator<?>[] iterators = new Iterator<?>[INITIAL_DEPTH];
+
+	private Object[] lastChildren = new Object[INITIAL_DEPTH];
+
+	private int[] positions = new int[INITIAL_DEPTH];
+
+	private int[] sizes = new int[INITIAL_DEPTH];
+
+	private int depth = -1;
+
+	/**
+	 * @return {@code true} if there are no more containers to traverse
+	 */
+	boolean isEmpty()
+	{
+		return depth < 0;
+	}
+
+	/**
+	 * Starts traversing the children of the given container.
+	 * 
+	 * @param container
+	 */
+	void push(final Iterable<?> container)
+	{
+		if (++depth == nodes.length)
+		{
+			int length = nodes.length * 2;
+			nodes = Arrays.copyOf(nodes, length);
+			iterators = Arrays.copyOf(iterators, length);
+			lastChildren = Arrays.copyOf(lastChildren, length);
+			positions = Arrays.copyOf(positions, length);
+			sizes = Arrays.copyOf(sizes, length);
+		}
+
+		nodes[depth] = container;
+		lastChildren[depth] = null;
+		positions[depth] = 0;
+		if (container instanceof IIndexedIterable<?> &&
+			((IIndexedIterable<?>)container).isIndexed())
+		{
+			iterators[depth] = null;
+			sizes[depth] = ((IIndexedIterable<?>)container).size();
+		}
+		else
+		{
+			iterators[depth] = container.iterator();
+		}
+	}
+
+	/**
+	 * Finishes traversing the container on top of the stack.
+	 * 
+	 * @return the container
+	 */
+	Object pop()
+	{
+		Object node = nodes[depth];
+		nodes[depth] = null;
+		iterators[depth] = null;
+		lastChildren[depth] = null;
+		depth--;
+		return node;
+	}
+
+	/**
+	 * @return the next child of the container on top of the stack, or {@link #END}
+	 */
+	Object next()
+	{
+		Iterator<?> iterator = iterators[depth];
+		if (iterator != null)
+		{
+			return iterator.hasNext() ? iterator.next() : END;
+		}
+
+		IIndexedIterable<?> container = (IIndexedIterable<?>)nodes[depth];
+		int size = container.size();
+		int position = positions[depth];
+		Object last = lastChildren[depth];
+		if (last != null && (position > size || container.get(position - 1) != last))
+		{
+			position = resync(container, size, position, last);
+		}
+		sizes[depth] = size;
+		if (position >= size)
+		{
+			return END;
+		}
+
+		Object child = container.get(position);
+		positions[depth] = position + 1;
+		lastChildren[depth] = child;
+		return child;
+	}
+
+	/**
+	 * Finds the position following the child returned last after the container was modified.
+	 * 
+	 * @param container
+	 * @param size
+	 * @param position
+	 * @param last
+	 * @return the position of the next child
+	 */
+	private int resync(final IIndexedIterable<?> container, final int size, final int position,
+		final Object last)
+	{
+		for (int i = 0; i < size; i++)
+		{
+			if (container.get(i) == last)
+			{
+				return i + 1;
+			}
+		}
+
+		// the last child is gone: if the container shrank it was removed and its successor moved
+		// into its place, otherwise it was replaced and the traversal continues after it
+		return size < sizes[depth] ? Math.min(position - 1, size) : position;
+	}
+}
@@ -87,6 +87,15 @@ public class Visit<R> implements IVisit<R>
 		return action == Action.CONTINUE_BUT_DONT_GO_DEEPER;
 	}
 
+	/**
+	 * Resets the action so this visit can be passed to the visitor for the next object of a
+	 * traversal.
+	 */
+	void reset()
+	{
+		action = Action.CONTINUE;
+	}
+
 	/**
 	 * Gets the result of the visit/traversal. This value is set using {@link #stop(Object)} or
 	 * remains {@code null} if visit/traversal has ended in any other way
@@ -16,9 +16,6 @@
  */
 package org.apache.wicket.util.visit;
 
-import java.util.Collections;
-import java.util.Iterator;
-
 import org.apache.wicket.util.lang.Args;
 
 /**
@@ -31,22 +28,6 @@ public class Visits
 	{
 	}
 
-	private static class SingletonIterable<T> implements Iterable<T>
-	{
-		private final T singleton;
-
-		public SingletonIterable(final T singleton)
-		{
-			this.singleton = singleton;
-		}
-
-		@Override
-		public Iterator<T> iterator()
-		{
-			return Collections.singleton(singleton).iterator();
-		}
-	}
-
 	/**
 	 * Visits container and its children pre-order (parent first). Children are determined by
 	 * calling {@link Iterable#iterator()}.
@@ -64,11 +45,10 @@ public class Visits
 	 *            the visitor
 	 * @return return value from the {@code visitor} or {@code null} if none
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public static <S, R> R visit(final Iterable<? super S> container,
 		final IVisitor<S, R> visitor)
 	{
-		return (R)visitChildren(new SingletonIterable(container), visitor, IVisitFilter.ANY);
+		return visit(container, visitor, IVisitFilter.ANY);
 	}
 
 	/**
@@ -90,11 +70,30 @@ public class Visits
 	 *            filter used to limit the types of objects that will be visited
 	 * @return return value from the {@code visitor} or {@code null} if none
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@SuppressWarnings("unchecked")
 	public static <S, R> R visit(final Iterable<? super S> container,
 		final IVisitor<S, R> visitor, final IVisitFilter filter)
 	{
-		return (R)visitChildren(new SingletonIterable(container), visitor, filter);
+		Args.notNull(visitor, "visitor");
+
+		Visit<R> visit = new Visit<>();
+		if (filter.visitObject(container))
+		{
+			visitor.component((S)container, visit);
+			if (visit.isStopped())
+			{
+				return visit.getResult();
+			}
+			else if (visit.isDontGoDeeper())
+			{
+				return null;
+			}
+		}
+		if (filter.visitChildren(container))
+		{
+			return visitChildren(container, visitor, filter, visit);
+		}
+		return null;
 	}
 
 	/**
@@ -119,54 +118,61 @@ public class Visits
 	public static <S, R> R visitChildren(final Iterable<? super S> container,
 		final IVisitor<S, R> visitor, final IVisitFilter filter)
 	{
-		Visit<R> visit = new Visit<>();
-		visitChildren(container, visitor, filter, visit);
-		return visit.getResult();
+		Args.notNull(visitor, "visitor");
+
+		return visitChildren(container, visitor, filter, new Visit<R>());
 	}
 
+	/**
+	 * Pre-order traversal on an explicit stack. A single visit is reset and passed to the visitor
+	 * for every object.
+	 * 
+	 * @param container
+	 * @param visitor
+	 * @param filter
+	 * @param visit
+	 * @return return value from the {@code visitor} or {@code null} if none
+	 */
 	@SuppressWarnings("unchecked")
-	private static <S, R> void visitChildren(final Iterable<? super S> container,
+	private static <S, R> R visitChildren(final Iterable<? super S> container,
 		final IVisitor<S, R> visitor, final IVisitFilter filter, final Visit<R> visit)
 	{
-		Args.notNull(visitor, "visitor");
-
-		// Iterate through children of this container
-		for (final Object child : container)
+		TraversalStack stack = new TraversalStack();
+		stack.push(container);
+		while (!stack.isEmpty())
 		{
-			// Get next child component
+			Object child = stack.next();
+			if (child == TraversalStack.END)
+			{
+				stack.pop();
+				continue;
+			}
+
 			// Is the child of the correct class (or was no class specified)?
 			if (filter.visitObject(child))
 			{
-				Visit<R> childTraversal = new Visit<>();
+				visit.reset();
 
 				// Call visitor
-				S s = (S)child;
-				visitor.component(s, childTraversal);
+				visitor.component((S)child, visit);
 
-				if (childTraversal.isStopped())
+				if (visit.isStopped())
 				{
-					visit.stop(childTraversal.getResult());
-					return;
+					return visit.getResult();
 				}
-				else if (childTraversal.isDontGoDeeper())
+				else if (visit.isDontGoDeeper())
 				{
 					continue;
 				}
 			}
 
-			// If child is a container
-			if (!visit.isDontGoDeeper() && (child instanceof Iterable<?>) &&
-				filter.visitChildren(child))
+			// If child is a container visit its children next
+			if ((child instanceof Iterable<?>) && filter.visitChildren(child))
 			{
-				// visit the children in the container
-				visitChildren((Iterable<? super S>)child, visitor, filter, visit);
-
-				if (visit.isStopped())
-				{
-					return;
-				}
+				stack.push((Iterable<?>)child);
 			}
 		}
+		return null;
 	}
 
 	/**
@@ -241,37 +247,49 @@ public class Visits
 	{
 		Args.notNull(visitor, "visitor");
 
+		// a single visit serves the whole traversal, stopping it at any level ends the traversal
 		Visit<R> visit = new Visit<>();
-		visitPostOrderHelper(root, visitor, filter, visit);
-		return visit.getResult();
-	}
-
-	@SuppressWarnings("unchecked")
-	private static <S, R> void visitPostOrderHelper(final Object component,
-		final org.apache.wicket.util.visit.IVisitor<S, R> visitor, final IVisitFilter filter,
-		final Visit<R> visit)
-	{
-		if (component instanceof Iterable<?>)
+		if ((root instanceof Iterable<?>) && filter.visitChildren(root))
 		{
-			final Iterable<?> container = (Iterable<?>)component;
-			if (filter.visitChildren(container))
+			TraversalStack stack = new TraversalStack();
+			stack.push((Iterable<?>)root);
+			while (!stack.isEmpty())
 			{
-				Visit<R> childTraversal = new Visit<>();
-				for (final Object child : ((Iterable<?>)component))
+				Object child = stack.next();
+				if (child == TraversalStack.END)
 				{
-					visitPostOrderHelper(child, visitor, filter, childTraversal);
-					if (childTraversal.isStopped())
-					{
-						visit.stop(childTraversal.getResult());
-						return;
-					}
+					// all children were visited, now visit the container itself
+					visitPostOrderObject(stack.pop(), visitor, filter, visit);
+				}
+				else if ((child instanceof Iterable<?>) && filter.visitChildren(child))
+				{
+					stack.push((Iterable<?>)child);
+				}
+				else
+				{
+					visitPostOrderObject(child, visitor, filter, visit);
+				}
+
+				if (visit.isStopped())
+				{
+					break;
 				}
 			}
 		}
+		else
+		{
+			visitPostOrderObject(root, visitor, filter, visit);
+		}
+		return visit.getResult();
+	}
 
-		if (filter.visitObject(component))
+	@SuppressWarnings("unchecked")
+	private static <S, R> void visitPostOrderObject(final Object object,
+		final IVisitor<S, R> visitor, final IVisitFilter filter, final Visit<R> visit)
+	{
+		if (filter.visitObject(object))
 		{
-			visitor.component((S)component, visit);
+			visitor.component((S)object, visit);
 		}
 	}
 }
@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.visit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link Visits}.
+ */
+public class VisitsTest extends Assert
+{
+	/**
+	 * Parents are visited before their children, in the order the children were added.
+	 */
+	@Test
+	public void preOrder()
+	{
+		Node root = tree();
+
+		assertEquals("a b b1 b2 c c1", collect(root));
+		assertEquals("b b1 b2 c c1", collectChildren(root));
+	}
+
+	/**
+	 * Children are visited before their parents.
+	 */
+	@Test
+	public void postOrder()
+	{
+		final StringBuilder ids = new StringBuilder();
+		Visits.visitPostOrder(tree(), new IVisitor<Node, Void>()
+		{
+			@Override
+			public void component(Node node, IVisit<Void> visit)
+			{
+				ids.append(node.id).append(' ');
+			}
+		});
+		assertEquals("b1 b2 b c1 c a", ids.toString().trim());
+	}
+
+	/**
+	 * The result of a stopped traversal is returned, children of a node are skipped on
+	 * {@link IVisit#dontGoDeeper()}.
+	 */
+	@Test
+	public void stopAndDontGoDeeper()
+	{
+		Node root = tree();
+
+		String result = Visits.visit(root, new IVisitor<Node, String>()
+		{
+			@Override
+			public void component(Node node, IVisit<String> visit)
+			{
+				if (node.id.equals("b2"))
+				{
+					visit.stop(node.id);
+				}
+			}
+		});
+		assertEquals("b2", result);
+
+		final StringBuilder ids = new StringBuilder();
+		result = Visits.visitChildren(root, new IVisitor<Node, String>()
+		{
+			@Override
+			public void component(Node node, IVisit<String> visit)
+			{
+				ids.append(node.id).append(' ');
+				if (node.id.equals("b"))
+				{
+					visit.dontGoDeeper();
+				}
+			}
+		});
+		assertNull(result);
+		assertEquals("b c c1", ids.toString().trim());
+
+		result = Visits.visitPostOrder(root, new IVisitor<Node, String>()
+		{
+			@Override
+			public void component(Node node, IVisit<String> visit)
+			{
+				if (node.id.equals("b"))
+				{
+					visit.stop(node.id);
+				}
+			}
+		});
+		assertEquals("b", result);
+	}
+
+	/**
+	 * Containers which are not indexed are traversed with their iterator.
+	 */
+	@Test
+	public void notIndexed()
+	{
+		Node root = new Node("a", new IteratedNode("b", new Node("b1"), new Node("b2")),
+			new Node("c"));
+
+		assertEquals("a b b2 b1 c", collect(root));
+	}
+
+	/**
+	 * Hierarchies deeper than the initial stack are traversed completely.
+	 */
+	@Test
+	public void deepHierarchy()
+	{
+		Node root = new Node("0");
+		Node parent = root;
+		for (int i = 1; i < 100; i++)
+		{
+			Node child = new Node(Integer.toString(i));
+			parent.children.add(child);
+			parent = child;
+		}
+
+		final int[] count = new int[1];
+		Visits.visit(root, new IVisitor<Node, Void>()
+		{
+			@Override
+			public void component(Node node, IVisit<Void> visit)
+			{
+				assertEquals(Integer.toString(count[0]), node.id);
+				count[0]++;
+			}
+		});
+		assertEquals(100, count[0]);
+	}
+
+	/**
+	 * Removing the visited node neither skips its siblings nor visits one twice.
+	 */
+	@Test
+	public void removeWhileVisiting()
+	{
+		final Node root = new Node("a");
+		for (int i = 0; i < 5; i++)
+		{
+			root.children.add(new Node(Integer.toString(i)));
+		}
+
+		final StringBuilder ids = new StringBuilder();
+		Visits.visitChildren(root, new IVisitor<Node, Void>()
+		{
+			@Override
+			public void component(Node node, IVisit<Void> visit)
+			{
+				ids.append(node.id).append(' ');
+				if (node.id.equals("1") || node.id.equals("2"))
+				{
+					root.children.remove(node);
+				}
+			}
+		});
+		assertEquals("0 1 2 3 4", ids.toString().trim());
+		assertEquals(3, root.children.size());
+	}
+
+	/**
+	 * Plain {@link Iterable}s are traversed by their iterators.
+	 */
+	@Test
+	public void iterables()
+	{
+		List<Object> root = new ArrayList<>();
+		root.add("a");
+		root.add(Arrays.asList("b", "c"));
+		root.add("d");
+
+		final StringBuilder visited = new StringBuilder();
+		Visits.visitChildren(root, new IVisitor<Object, Void>()
+		{
+			@Override
+			public void component(Object object, IVisit<Void> visit)
+			{
+				visited.append(object instanceof String ? object : "*");
+			}
+		}, new ClassVisitFilter(String.class));
+		assertEquals("abcd", visited.toString());
+	}
+
+	private static String collect(Node root)
+	{
+		final StringBuilder ids = new StringBuilder();
+		Visits.visit(root, new IVisitor<Node, Void>()
+		{
+			@Override
+			public void component(Node node, IVisit<Void> visit)
+			{
+				ids.append(node.id).append(' ');
+			}
+		});
+		return ids.toString().trim();
+	}
+
+	private static String collectChildren(Node root)
+	{
+		final StringBuilder ids = new StringBuilder();
+		Visits.visitChildren(root, new IVisitor<Node, Void>()
+		{
+			@Override
+			public void component(Node node, IVisit<Void> visit)
+			{
+				ids.append(node.id).append(' ');
+			}
+		});
+		return ids.toString().trim();
+	}
+
+	private static Node tree()
+	{
+		Node b = new Node("b", new Node("b1"), new Node("b2"));
+		Node c = new Node("c", new Node("c1"));
+		return new Node("a", b, c);
+	}
+
+	private static class Node implements IIndexedIterable<Node>
+	{
+		private final String id;
+
+		private final List<Node> children = new ArrayList<>();
+
+		private Node(String id, Node... children)
+		{
+			this.id = id;
+			this.children.addAll(Arrays.asList(children));
+		}
+
+		@Override
+		public int size()
+		{
+			return children.size();
+		}
+
+		@Override
+		public Node get(int index)
+		{
+			return children.get(index);
+		}
+
+		@Override
+		public boolean isIndexed()
+		{
+			return true;
+		}
+
+		@Override
+		public Iterator<Node> iterator()
+		{
+			throw new UnsupportedOperationException("traversed by position");
+		}
+	}
+
+	/**
+	 * A node whose elements are traversed with the iterator only
+	 */
+	private static class IteratedNode extends Node
+	{
+		private IteratedNode(String id, Node... children)
+		{
+			super(id, children);
+		}
+
+		@Override
+		public boolean isIndexed()
+		{
+			return false;
+		}
+
+		@Override
+		public Node get(int index)
+		{
+			throw new UnsupportedOperationException("traversed by iterator");
+		}
+
+		@Override
+		public Iterator<Node> iterator()
+		{
+			// the reverse order of the positions
+			List<Node> reversed = new ArrayList<>(super.children);
+			Collections.reverse(reversed);
+			return reversed.iterator();
+		}
+	}
+}